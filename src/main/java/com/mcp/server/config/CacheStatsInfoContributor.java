@@ -0,0 +1,50 @@
+package com.mcp.server.config;
+
+import com.mcp.server.services.BoundedFanOut;
+import com.mcp.server.services.CurrentIdentityCache;
+import com.mcp.server.services.DownloadScheduler;
+import com.mcp.server.services.GitBlobCache;
+import com.mcp.server.services.PipelineLogCache;
+import com.mcp.server.services.ProjectDirectory;
+import com.mcp.server.services.PullRequestThreadSnapshots;
+import com.mcp.server.services.RepositorySearchIndex;
+import com.mcp.server.services.helpers.PathMatcher;
+import com.mcp.server.tools.azuredevops.router.GitRepositoriesTool;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publica en el endpoint actuator /info las métricas de los caches locales del servidor
+ * (ocupación, aciertos/fallos y evicciones), el estado del planificador de descargas y del fan-out compartido.
+ */
+@Component
+public class CacheStatsInfoContributor implements InfoContributor {
+
+    private final GitRepositoriesTool gitRepositoriesTool;
+
+    public CacheStatsInfoContributor(GitRepositoriesTool gitRepositoriesTool) {
+        this.gitRepositoriesTool = gitRepositoriesTool;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        caches.put("gitTextWindow", gitRepositoriesTool.windowCacheStats());
+        caches.put("gitRepositoryDirectory", gitRepositoriesTool.repositoryDirectoryStats());
+        caches.put("gitTree", gitRepositoriesTool.treeCacheStats());
+        caches.put("gitSearchIndex", RepositorySearchIndex.shared().stats());
+        caches.put("gitBlobs", GitBlobCache.shared().stats());
+        caches.put("pathPatterns", PathMatcher.cacheStats());
+        caches.put("currentIdentity", CurrentIdentityCache.shared().stats());
+        caches.put("prThreadSnapshots", PullRequestThreadSnapshots.shared().stats());
+        caches.put("projectDirectory", ProjectDirectory.shared().stats());
+        caches.put("pipelineLogs", PipelineLogCache.shared().stats());
+        builder.withDetail("caches", caches);
+        builder.withDetail("downloadScheduler", DownloadScheduler.shared().stats());
+        builder.withDetail("fanOut", BoundedFanOut.shared().stats());
+    }
+}
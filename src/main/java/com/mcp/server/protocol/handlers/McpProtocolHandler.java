@@ -3,6 +3,7 @@ package com.mcp.server.protocol.handlers;
 import com.mcp.server.protocol.messages.*;
 import com.mcp.server.protocol.types.McpError;
 import com.mcp.server.tools.base.McpTool;
+import com.mcp.server.transport.McpSessionContext;
 import com.mcp.server.prompts.base.McpPrompt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -531,10 +532,10 @@ public class McpProtocolHandler {
                 case "tools/list" -> handleListTools();
                 case "tools/call" -> {
                     CallToolRequest callReq = (CallToolRequest) request;
-                    yield handleCallTool(
+                    yield McpSessionContext.callRequest(request.getId(), callReq.getParams().progressToken(), () -> handleCallTool(
                         callReq.getParams().getName(),
                         callReq.getParams().getArguments()
-                    );
+                    ));
                 }
                 case "prompts/list" -> handleListPrompts();
                 case "resources/list" -> handleListResources();
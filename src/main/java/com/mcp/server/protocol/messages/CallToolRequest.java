@@ -34,6 +34,9 @@ public class CallToolRequest extends McpRequest {
         
         @JsonProperty("arguments")
         private Map<String, Object> arguments;
+
+        @JsonProperty("_meta")
+        private Map<String, Object> meta;
         
         public CallToolParams() {}
         
@@ -42,5 +45,11 @@ public class CallToolRequest extends McpRequest {
         
         public Map<String, Object> getArguments() { return arguments; }
         public void setArguments(Map<String, Object> arguments) { this.arguments = arguments; }
+
+        public Map<String, Object> getMeta() { return meta; }
+        public void setMeta(Map<String, Object> meta) { this.meta = meta; }
+
+        /** Token de {@code _meta.progressToken} para notificaciones de avance, o null si el cliente no lo pidió. */
+        public Object progressToken() { return meta == null ? null : meta.get("progressToken"); }
     }
 }
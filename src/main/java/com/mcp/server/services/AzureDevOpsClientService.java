@@ -9,9 +9,12 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 import reactor.core.publisher.Mono;
+import com.mcp.server.services.helpers.TextContentSniffer;
 
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -21,8 +24,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -43,6 +49,7 @@ public class AzureDevOpsClientService {
     private final String apiVersion;
     private final String vsspsApiVersion;
     private final String authorizationHeaderValue;
+    private final String credentialKey;
 
     public AzureDevOpsClientService(
             WebClient.Builder webClientBuilder,
@@ -58,6 +65,7 @@ public class AzureDevOpsClientService {
         String credentials = ":" + pat;
         String encoded = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
         this.authorizationHeaderValue = "Basic " + encoded;
+        this.credentialKey = fingerprint(organization + "|" + authorizationHeaderValue);
         this.streamingHttpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(30))
                 .followRedirects(HttpClient.Redirect.NORMAL)
@@ -78,6 +86,18 @@ public class AzureDevOpsClientService {
         return organization;
     }
 
+    /** SHA-256 (hex, 16 caracteres) de la credencial: sirve de clave de cache sin exponer el PAT. */
+    private static String fingerprint(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) sb.append(String.format("%02x", digest[i]));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
     public Map<String, Object> getWorkApi(String project, String team, String path) {
         // Construcción segura de segmentos con encoding adecuado
         String proj = project == null ? "" : project.trim();
@@ -323,6 +343,14 @@ public class AzureDevOpsClientService {
         return body != null ? body : new HashMap<>();
     }
 
+    /**
+     * Perfil del usuario autenticado ({@code profile/profiles/me}) resuelto a través de {@link CurrentIdentityCache},
+     * por credencial. Un error remoto se retorna tal cual y no se cachea.
+     */
+    public Map<String,Object> getMyProfile() {
+        return CurrentIdentityCache.shared().profile(credentialKey, () -> getVsspsApi("profile/profiles/me"));
+    }
+
     /** Descarga binaria desde VSSPS (por ejemplo Avatars). Devuelve base64 y contentType si disponible. */
     public Map<String,Object> getVsspsBinary(String pathWithQuery) {
         String base = "https://app.vssps.visualstudio.com/_apis/" + (pathWithQuery == null ? "" : pathWithQuery);
@@ -757,12 +785,31 @@ public class AzureDevOpsClientService {
             .block();
     }
 
+    /**
+     * Descarga texto en streaming a disco. Aborta la transferencia apenas detecta que no es texto
+     * (Content-Type o primer chunk binario) o que excede maxBytes (Content-Length o bytes leídos).
+     */
     public Map<String, Object> downloadGitTextToFile(String project,
                                                      String path,
                                                      Map<String, String> query,
                                                      String apiVersionOverride,
                                                      Path outputPath,
                                                      long maxBytes) {
+        return downloadGitTextToFile(project, path, query, apiVersionOverride, outputPath, maxBytes, false);
+    }
+
+    /**
+     * Igual que {@link #downloadGitTextToFile(String, String, Map, String, Path, long)}; con {@code keepPrefix}
+     * al exceder maxBytes conserva en disco los primeros maxBytes (además de {@code error=MAX_BYTES_EXCEEDED}
+     * trae {@code savedToPath} y {@code bytesWritten}) en vez de borrarlos.
+     */
+    public Map<String, Object> downloadGitTextToFile(String project,
+                                                     String path,
+                                                     Map<String, String> query,
+                                                     String apiVersionOverride,
+                                                     Path outputPath,
+                                                     long maxBytes,
+                                                     boolean keepPrefix) {
         if (outputPath == null) return Map.of("error", "outputPath es requerido");
 
         try {
@@ -792,31 +839,227 @@ public class AzureDevOpsClientService {
                 return out;
             }
 
+            long contentLength = response.headers().firstValueAsLong("content-length").orElse(-1L);
+            if (maxBytes > 0 && contentLength > maxBytes && !keepPrefix) {
+                closeQuietly(response.body());
+                return Map.of(
+                        "error", "MAX_BYTES_EXCEEDED",
+                        "bytesRead", 0L,
+                        "contentLength", contentLength,
+                        "maxBytes", maxBytes
+                );
+            }
+            if (TextContentSniffer.isClearlyBinaryContentType(contentType)) {
+                closeQuietly(response.body());
+                return Map.of(
+                        "error", "BINARY_CONTENT",
+                        "detectedBy", "content-type",
+                        "contentType", contentType,
+                        "bytesRead", 0L,
+                        "contentLength", contentLength
+                );
+            }
+
             long written = 0;
             byte[] buffer = new byte[16 * 1024];
+            try (InputStream in = response.body()) {
+                // Se inspecciona el primer chunk antes de crear el archivo: si es binario se corta la transferencia.
+                byte[] sample = new byte[TextContentSniffer.SAMPLE_BYTES];
+                int sampled = 0;
+                int r;
+                while (sampled < sample.length && (r = in.read(sample, sampled, sample.length - sampled)) >= 0) {
+                    sampled += r;
+                }
+                if (TextContentSniffer.looksBinary(sample, sampled)) {
+                    String signature = TextContentSniffer.binarySignature(sample, sampled);
+                    return Map.of(
+                            "error", "BINARY_CONTENT",
+                            "detectedBy", signature == null ? "sample" : "signature:" + signature,
+                            "contentType", contentType,
+                            "bytesRead", (long) sampled,
+                            "contentLength", contentLength
+                    );
+                }
+                if (maxBytes > 0 && sampled > maxBytes) {
+                    if (keepPrefix) {
+                        Files.write(target, Arrays.copyOf(sample, (int) maxBytes));
+                        return textPrefix(target, sampled, maxBytes, contentLength);
+                    }
+                    return Map.of(
+                            "error", "MAX_BYTES_EXCEEDED",
+                            "bytesRead", (long) sampled,
+                            "maxBytes", maxBytes
+                    );
+                }
+
+                try (OutputStream out = Files.newOutputStream(target,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    out.write(sample, 0, sampled);
+                    written = sampled;
+                    int n;
+                    while ((n = in.read(buffer)) >= 0) {
+                        if (n == 0) continue;
+                        written += n;
+                        if (maxBytes > 0 && written > maxBytes && keepPrefix) {
+                            out.write(buffer, 0, (int) (n - (written - maxBytes)));
+                            out.flush();
+                            return textPrefix(target, written, maxBytes, contentLength);
+                        }
+                        if (maxBytes > 0 && written > maxBytes) {
+                            out.flush();
+                            try {
+                                Files.deleteIfExists(target);
+                            } catch (Exception ignored) {
+                                // best-effort
+                            }
+                            return Map.of(
+                                    "error", "MAX_BYTES_EXCEEDED",
+                                    "bytesRead", written,
+                                    "maxBytes", maxBytes
+                            );
+                        }
+                        out.write(buffer, 0, n);
+                    }
+                    out.flush();
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("savedToPath", target.toString());
+            result.put("bytesWritten", written);
+            result.put("contentType", contentType);
+            if (contentLength >= 0) result.put("contentLength", contentLength);
+            return result;
+        } catch (Exception e) {
+            return Map.of("error", e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> textPrefix(Path target, long bytesRead, long maxBytes, long contentLength) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("error", "MAX_BYTES_EXCEEDED");
+        result.put("bytesRead", bytesRead);
+        result.put("maxBytes", maxBytes);
+        result.put("savedToPath", target.toString());
+        result.put("bytesWritten", maxBytes);
+        if (contentLength >= 0) result.put("contentLength", contentLength);
+        return result;
+    }
+
+    /**
+     * Descarga binaria en streaming a {@code partPath} (p. ej. zip de un repositorio).
+     *
+     * Con {@code resumeFrom > 0} pide sólo el resto con {@code Range} (e {@code If-Range} si se conoce el ETag) y
+     * agrega al archivo; si el servidor ignora el rango (200) se reescribe desde cero. Ante un corte de red el
+     * archivo parcial se conserva para reanudar y la respuesta trae {@code error}, {@code bytesWritten} y {@code etag}.
+     */
+    public Map<String, Object> downloadGitBinaryToFile(String project,
+                                                       String path,
+                                                       Map<String, String> query,
+                                                       String apiVersionOverride,
+                                                       Path partPath,
+                                                       long resumeFrom,
+                                                       String ifRange) {
+        if (partPath == null) return Map.of("error", "partPath es requerido");
+        return downloadBinaryToFile(buildGitUri(project, path, query, apiVersionOverride), partPath, resumeFrom, ifRange);
+    }
+
+    /**
+     * Descarga en streaming a {@code partPath} el texto de un log de un run ({@code build/builds/{runId}/logs/{logId}});
+     * {@code query} admite {@code startLine}/{@code endLine} para pedir sólo un tramo. Sin límite de tamaño: el
+     * contenido nunca pasa por memoria.
+     */
+    public Map<String, Object> downloadBuildLogToFile(String project,
+                                                      long runId,
+                                                      long logId,
+                                                      Map<String, String> query,
+                                                      String apiVersionOverride,
+                                                      Path partPath) {
+        if (partPath == null) return Map.of("error", "partPath es requerido");
+        URI uri = buildAreaUri(project, "build", "builds/" + runId + "/logs/" + logId, query, apiVersionOverride);
+        return downloadToFile(uri, partPath, 0L, null, MediaType.TEXT_PLAIN_VALUE);
+    }
+
+    /**
+     * Descarga en streaming a {@code partPath} el ZIP de un artifact de un run
+     * ({@code build/builds/{runId}/artifacts?artifactName=...&$format=zip}), reanudable igual que
+     * {@link #downloadGitBinaryToFile}. Sin límite de tamaño: el contenido nunca pasa por memoria.
+     */
+    public Map<String, Object> downloadBuildArtifactToFile(String project,
+                                                           long runId,
+                                                           String artifactName,
+                                                           String apiVersionOverride,
+                                                           Path partPath,
+                                                           long resumeFrom,
+                                                           String ifRange) {
+        if (partPath == null) return Map.of("error", "partPath es requerido");
+        Map<String, String> query = new LinkedHashMap<>();
+        // buildUri arma la URI como ya codificada: el nombre puede traer espacios u otros caracteres reservados
+        query.put("artifactName", UriUtils.encodeQueryParam(artifactName, StandardCharsets.UTF_8));
+        query.put("$format", "zip");
+        URI uri = buildAreaUri(project, "build", "builds/" + runId + "/artifacts", query, apiVersionOverride);
+        return downloadBinaryToFile(uri, partPath, resumeFrom, ifRange);
+    }
+
+    private Map<String, Object> downloadBinaryToFile(URI uri, Path partPath, long resumeFrom, String ifRange) {
+        return downloadToFile(uri, partPath, resumeFrom, ifRange, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    private Map<String, Object> downloadToFile(URI uri, Path partPath, long resumeFrom, String ifRange, String accept) {
+        Path target = partPath.toAbsolutePath().normalize();
+        String etag = null;
+        long written = 0L;
+        try {
+            Path parent = target.getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMinutes(30))
+                    .header(HttpHeaders.AUTHORIZATION, authorizationHeaderValue)
+                    .header(HttpHeaders.ACCEPT, accept)
+                    .GET();
+            if (resumeFrom > 0) {
+                request.header(HttpHeaders.RANGE, "bytes=" + resumeFrom + "-");
+                if (ifRange != null && !ifRange.isBlank()) request.header(HttpHeaders.IF_RANGE, ifRange);
+            }
+
+            HttpResponse<InputStream> response = streamingHttpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            int status = response.statusCode();
+            if (status == 416 && resumeFrom > 0) {
+                closeQuietly(response.body());
+                Files.deleteIfExists(target);
+                return downloadToFile(uri, partPath, 0L, null, accept);
+            }
+            if (status >= 400) {
+                String body = readLimitedBody(response.body(), 64 * 1024);
+                Map<String, Object> out = new HashMap<>();
+                out.put("isHttpError", true);
+                out.put("httpStatus", status);
+                out.put("httpReason", "HTTP " + status);
+                if (body != null && !body.isBlank()) out.put("bodyRaw", body);
+                return out;
+            }
+
+            etag = response.headers().firstValue("etag").orElse(null);
+            String contentType = response.headers().firstValue("content-type").orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            long contentLength = response.headers().firstValueAsLong("content-length").orElse(-1L);
+            boolean resumed = status == 206 && resumeFrom > 0;
+            written = resumed ? resumeFrom : 0L;
+
+            byte[] buffer = new byte[64 * 1024];
             try (InputStream in = response.body();
-                 OutputStream out = Files.newOutputStream(target,
-                         StandardOpenOption.CREATE,
-                         StandardOpenOption.TRUNCATE_EXISTING,
-                         StandardOpenOption.WRITE)) {
+                 OutputStream out = resumed
+                         ? Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)
+                         : Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
                 int n;
                 while ((n = in.read(buffer)) >= 0) {
+                    // Cancelación de quien encoló la descarga: cerrar el stream corta la transferencia HTTP
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("descarga cancelada");
                     if (n == 0) continue;
-                    written += n;
-                    if (maxBytes > 0 && written > maxBytes) {
-                        out.flush();
-                        try {
-                            Files.deleteIfExists(target);
-                        } catch (Exception ignored) {
-                            // best-effort
-                        }
-                        return Map.of(
-                                "error", "MAX_BYTES_EXCEEDED",
-                                "bytesRead", written,
-                                "maxBytes", maxBytes
-                        );
-                    }
                     out.write(buffer, 0, n);
+                    written += n;
                 }
                 out.flush();
             }
@@ -824,10 +1067,19 @@ public class AzureDevOpsClientService {
             Map<String, Object> result = new HashMap<>();
             result.put("savedToPath", target.toString());
             result.put("bytesWritten", written);
+            result.put("bytesTransferred", written - (resumed ? resumeFrom : 0L));
+            result.put("resumed", resumed);
+            if (resumeFrom > 0 && !resumed) result.put("rangeIgnored", true);
             result.put("contentType", contentType);
+            if (contentLength >= 0) result.put("contentLength", contentLength);
+            if (etag != null) result.put("etag", etag);
             return result;
         } catch (Exception e) {
-            return Map.of("error", e.getMessage());
+            Map<String, Object> out = new HashMap<>();
+            out.put("error", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            out.put("bytesWritten", written);
+            if (etag != null) out.put("etag", etag);
+            return out;
         }
     }
 
@@ -835,7 +1087,18 @@ public class AzureDevOpsClientService {
                             String path,
                             Map<String, String> query,
                             String apiVersionOverride) {
-        List<String> segments = buildGitSegments(project, path);
+        return buildUri(buildGitSegments(project, path), query, apiVersionOverride);
+    }
+
+    private URI buildAreaUri(String project,
+                             String area,
+                             String path,
+                             Map<String, String> query,
+                             String apiVersionOverride) {
+        return buildUri(buildAreaSegments(project, area, path), query, apiVersionOverride);
+    }
+
+    private URI buildUri(List<String> segments, Map<String, String> query, String apiVersionOverride) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl("https://dev.azure.com/" + organization)
                 .pathSegment(segments.toArray(new String[0]));
 
@@ -856,6 +1119,15 @@ public class AzureDevOpsClientService {
         return URI.create(builder.build(true).toUriString());
     }
 
+    private void closeQuietly(InputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (Exception ignored) {
+            // best-effort
+        }
+    }
+
     private String readLimitedBody(InputStream in, int maxBytes) {
         if (in == null) return "";
         int safeLimit = Math.max(1024, maxBytes);
@@ -0,0 +1,210 @@
+package com.mcp.server.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ejecutor compartido para fan-out de llamadas remotas (varios repositorios, proyectos o lotes).
+ *
+ * El pool es global ({@code MCP_FANOUT_MAX_CONCURRENT}) y además cada llamada limita sus tareas en vuelo
+ * con {@code parallelism}, de modo que una búsqueda sobre cientos de repositorios no acapara el pool.
+ * Las tareas que no alcanzan a iniciar antes del plazo se reportan como {@code skipped}; las que no
+ * terminan antes del plazo de finalización se cancelan como {@code timeout}. Una tarea que a su vez
+ * hace fan-out se ejecuta en línea para evitar bloqueos por pool agotado.
+ */
+public final class BoundedFanOut {
+
+    public static final String STATUS_OK = "ok";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_SKIPPED = "skipped";
+    public static final String STATUS_TIMEOUT = "timeout";
+
+    private static final BoundedFanOut SHARED = new BoundedFanOut(
+            (int) Math.max(1L, envLong("MCP_FANOUT_MAX_CONCURRENT", 8L))
+    );
+
+    private static final ThreadLocal<Boolean> INSIDE_WORKER = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final int maxConcurrent;
+    private final ExecutorService workers;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public BoundedFanOut(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        this.workers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "mcp-fanout");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static BoundedFanOut shared() {
+        return SHARED;
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Ejecuta {@code tasks} con a lo sumo {@code parallelism} en vuelo y retorna un resultado por tarea
+     * en el mismo orden de entrada. No se inician tareas después de {@code startDeadlineMillis} y no se
+     * espera más allá de {@code completionDeadlineMillis} (tiempos absolutos de {@link System#currentTimeMillis()}).
+     */
+    public <T> List<Outcome<T>> runAll(List<? extends Callable<T>> tasks,
+                                       int parallelism,
+                                       long startDeadlineMillis,
+                                       long completionDeadlineMillis) {
+        int n = tasks.size();
+        List<Outcome<T>> out = new ArrayList<>(n);
+        if (n == 0) return out;
+        if (INSIDE_WORKER.get()) return runInline(tasks, startDeadlineMillis);
+
+        int limit = Math.max(1, Math.min(parallelism, maxConcurrent));
+        @SuppressWarnings("unchecked")
+        T[] values = (T[]) new Object[n];
+        Throwable[] errors = new Throwable[n];
+        long[] elapsed = new long[n];
+        boolean[] finished = new boolean[n];
+        Future<?>[] futures = new Future<?>[n];
+        LinkedBlockingQueue<Integer> done = new LinkedBlockingQueue<>();
+
+        int next = 0;
+        int inFlight = 0;
+        while (true) {
+            while (inFlight < limit && next < n && System.currentTimeMillis() < startDeadlineMillis) {
+                int i = next++;
+                Callable<T> task = tasks.get(i);
+                try {
+                    futures[i] = workers.submit(() -> {
+                        INSIDE_WORKER.set(Boolean.TRUE);
+                        active.incrementAndGet();
+                        long t0 = System.nanoTime();
+                        try {
+                            values[i] = task.call();
+                        } catch (Throwable e) {
+                            errors[i] = e;
+                        } finally {
+                            elapsed[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+                            active.decrementAndGet();
+                            INSIDE_WORKER.remove();
+                            done.add(i);
+                        }
+                    });
+                    submitted.incrementAndGet();
+                    inFlight++;
+                } catch (RejectedExecutionException e) {
+                    errors[i] = e;
+                    finished[i] = true;
+                }
+            }
+            if (inFlight == 0) break;
+
+            long wait = completionDeadlineMillis - System.currentTimeMillis();
+            if (wait <= 0) break;
+            Integer i;
+            try {
+                i = done.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (i == null) break;
+            finished[i] = true;
+            inFlight--;
+        }
+        for (Integer i = done.poll(); i != null; i = done.poll()) finished[i] = true;
+
+        for (int i = 0; i < n; i++) {
+            if (finished[i]) {
+                out.add(finish(values[i], errors[i], elapsed[i]));
+            } else if (futures[i] == null) {
+                skipped.incrementAndGet();
+                out.add(new Outcome<>(STATUS_SKIPPED, null, null, 0L));
+            } else {
+                futures[i].cancel(true);
+                timeouts.incrementAndGet();
+                out.add(new Outcome<>(STATUS_TIMEOUT, null, null, 0L));
+            }
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("maxConcurrent", maxConcurrent);
+        out.put("active", active.get());
+        out.put("submitted", submitted.get());
+        out.put("completed", completed.get());
+        out.put("failed", failed.get());
+        out.put("skipped", skipped.get());
+        out.put("timeouts", timeouts.get());
+        return out;
+    }
+
+    private <T> List<Outcome<T>> runInline(List<? extends Callable<T>> tasks, long startDeadlineMillis) {
+        List<Outcome<T>> out = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            if (System.currentTimeMillis() >= startDeadlineMillis) {
+                skipped.incrementAndGet();
+                out.add(new Outcome<>(STATUS_SKIPPED, null, null, 0L));
+                continue;
+            }
+            long t0 = System.nanoTime();
+            T value = null;
+            Throwable error = null;
+            try {
+                value = task.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+            out.add(finish(value, error, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0)));
+        }
+        return out;
+    }
+
+    private <T> Outcome<T> finish(T value, Throwable error, long elapsedMs) {
+        if (error != null) {
+            failed.incrementAndGet();
+            String msg = error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+            return new Outcome<>(STATUS_FAILED, null, msg, elapsedMs);
+        }
+        completed.incrementAndGet();
+        return new Outcome<>(STATUS_OK, value, null, elapsedMs);
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Resultado de una tarea: {@code value} sólo está presente con {@code status=ok}.
+     */
+    public record Outcome<T>(String status, T value, String error, long elapsedMs) {
+        public boolean ok() {
+            return STATUS_OK.equals(status);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mcp.server.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache compartido del perfil del usuario autenticado ({@code profile/profiles/me}) por credencial.
+ *
+ * Las operaciones "me" (PRs asignados, memberId) resuelven la identidad aquí en lugar de llamar a VSSPS
+ * en cada invocación:
+ * <ul>
+ *   <li>las entradas caducan tras {@code MCP_IDENTITY_CACHE_TTL_MS} (30 min por defecto; {@code 0} desactiva),</li>
+ *   <li>con más de {@code MCP_IDENTITY_CACHE_REFRESH_AFTER_MS} se sirven y se recargan en segundo plano,</li>
+ *   <li>las respuestas con error o sin {@code id} se retornan al llamador pero no se cachean.</li>
+ * </ul>
+ * La clave es una huella de la credencial, nunca el PAT en claro.
+ */
+public final class CurrentIdentityCache {
+
+    private static final CurrentIdentityCache SHARED = new CurrentIdentityCache(
+            Math.max(0L, envLong("MCP_IDENTITY_CACHE_TTL_MS", 30L * 60L * 1000L)),
+            Math.max(0L, envLong("MCP_IDENTITY_CACHE_REFRESH_AFTER_MS", 10L * 60L * 1000L))
+    );
+
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final Map<String, Entry> profiles = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final AtomicLong failedLoads = new AtomicLong();
+
+    public CurrentIdentityCache(long ttlMillis, long refreshAfterMillis) {
+        this.ttlMillis = ttlMillis;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "identity-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static CurrentIdentityCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Perfil cacheado para {@code credentialKey} o el que devuelva {@code loader}. Una entrada antigua se sirve
+     * igualmente y se recarga en segundo plano; si no hay entrada vigente la carga es síncrona y su respuesta
+     * (incluido un error remoto) se retorna tal cual.
+     */
+    public Map<String, Object> profile(String credentialKey, Supplier<Map<String, Object>> loader) {
+        Objects.requireNonNull(loader, "loader");
+        if (!enabled()) return loader.get();
+
+        String key = credentialKey == null ? "" : credentialKey;
+        long now = System.currentTimeMillis();
+        Entry entry = profiles.get(key);
+        if (entry != null && now - entry.storedAt <= ttlMillis) {
+            hits.incrementAndGet();
+            if (now - entry.storedAt >= refreshAfterMillis && entry.refreshing.compareAndSet(false, true)) {
+                scheduleRefresh(key, entry, loader);
+            }
+            return entry.profile;
+        }
+
+        misses.incrementAndGet();
+        Map<String, Object> loaded = loader.get();
+        if (usable(loaded)) {
+            profiles.put(key, new Entry(Collections.unmodifiableMap(new LinkedHashMap<>(loaded)), now));
+        } else {
+            failedLoads.incrementAndGet();
+        }
+        return loaded;
+    }
+
+    public void invalidate(String credentialKey) {
+        profiles.remove(credentialKey == null ? "" : credentialKey);
+    }
+
+    public void clear() {
+        profiles.clear();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled());
+        out.put("ttlMillis", ttlMillis);
+        out.put("refreshAfterMillis", refreshAfterMillis);
+        out.put("entries", profiles.size());
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("backgroundRefreshes", backgroundRefreshes.get());
+        out.put("failedLoads", failedLoads.get());
+        return out;
+    }
+
+    private void scheduleRefresh(String key, Entry entry, Supplier<Map<String, Object>> loader) {
+        try {
+            refresher.execute(() -> {
+                try {
+                    Map<String, Object> loaded = loader.get();
+                    if (usable(loaded)) {
+                        profiles.put(key, new Entry(Collections.unmodifiableMap(new LinkedHashMap<>(loaded)), System.currentTimeMillis()));
+                        backgroundRefreshes.incrementAndGet();
+                    } else {
+                        failedLoads.incrementAndGet();
+                    }
+                } catch (RuntimeException ignored) {
+                    // best-effort: se reintentará en el siguiente acceso
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private boolean enabled() {
+        return ttlMillis > 0;
+    }
+
+    private static boolean usable(Map<String, Object> profile) {
+        if (profile == null || profile.containsKey("error") || Boolean.TRUE.equals(profile.get("isHttpError"))) return false;
+        Object id = profile.get("id");
+        return id != null && !id.toString().isBlank();
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Entry {
+        private final Map<String, Object> profile;
+        private final long storedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(Map<String, Object> profile, long storedAt) {
+            this.profile = profile;
+            this.storedAt = storedAt;
+        }
+    }
+}
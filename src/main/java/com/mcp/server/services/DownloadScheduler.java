@@ -0,0 +1,334 @@
+package com.mcp.server.services;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Planificador compartido para descargas pesadas a disco (cache de texto Git, zips, logs y artefactos).
+ *
+ * En lugar de rechazar trabajo cuando los slots están ocupados, encola cada descarga y la despacha con:
+ * <ul>
+ *   <li>reparto justo entre sesiones MCP (la sesión con menos descargas activas va primero, luego round-robin),</li>
+ *   <li>prioridad por tamaño esperado (archivos pequeños antes que grandes),</li>
+ *   <li>presupuesto de bytes en curso y estimación de espera según el throughput observado.</li>
+ * </ul>
+ */
+public final class DownloadScheduler {
+
+    private static final Comparator<Job<?>> JOB_ORDER = Comparator
+            .<Job<?>>comparingLong(j -> j.expectedBytes)
+            .thenComparingLong(j -> j.seq);
+
+    private static final DownloadScheduler SHARED = new DownloadScheduler(
+            (int) Math.max(1L, envLong("MCP_DOWNLOAD_MAX_CONCURRENT", envLong("MCP_TEXT_CACHE_MAX_CONCURRENT", 4L))),
+            (int) Math.max(1L, envLong("MCP_DOWNLOAD_MAX_QUEUED", 512L)),
+            envLong("MCP_DOWNLOAD_MAX_IN_PROGRESS_BYTES", envLong("MCP_TEXT_CACHE_MAX_IN_PROGRESS_BYTES", 4L * 1024L * 1024L * 1024L)),
+            envLong("MCP_DOWNLOAD_SMALL_FILE_BYTES", 1024L * 1024L),
+            envLong("MCP_DOWNLOAD_DEFAULT_EXPECTED_BYTES", 16L * 1024L * 1024L)
+    );
+
+    private static final double INITIAL_BYTES_PER_SECOND = 8d * 1024d * 1024d;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxInProgressBytes;
+    private final long smallFileBytes;
+    private final long defaultExpectedBytes;
+    private final ExecutorService workers;
+    private final Object lock = new Object();
+    private final Map<String, SessionQueue> sessions = new LinkedHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completedJobs = new AtomicLong();
+    private final AtomicLong completedBytes = new AtomicLong();
+    private final AtomicLong rejectedJobs = new AtomicLong();
+    private int running;
+    private long runningBytes;
+    private int queued;
+    private long queuedBytes;
+    private long dispatchTick;
+    private volatile double bytesPerSecond = INITIAL_BYTES_PER_SECOND;
+
+    public DownloadScheduler(int maxConcurrent, int maxQueued, long maxInProgressBytes, long smallFileBytes, long defaultExpectedBytes) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.maxInProgressBytes = maxInProgressBytes;
+        this.smallFileBytes = smallFileBytes;
+        this.defaultExpectedBytes = defaultExpectedBytes;
+        this.workers = Executors.newFixedThreadPool(this.maxConcurrent, r -> {
+            Thread t = new Thread(r);
+            t.setName("mcp-download-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static DownloadScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * Encola una descarga. expectedBytes <= 0 significa tamaño desconocido.
+     *
+     * @throws RejectedExecutionException si la cola global está llena
+     */
+    public <T> Ticket<T> submit(String sessionId, long expectedBytes, Callable<T> task) {
+        return submit(sessionId, expectedBytes, task, null);
+    }
+
+    /**
+     * Igual que {@link #submit(String, long, Callable)}, usando bytesOf para contabilizar los bytes reales
+     * transferidos (alimenta la estimación de throughput).
+     */
+    public <T> Ticket<T> submit(String sessionId, long expectedBytes, Callable<T> task, ToLongFunction<T> bytesOf) {
+        String session = sessionId == null || sessionId.isBlank() ? "default" : sessionId;
+        long expected = expectedBytes > 0 ? expectedBytes : defaultExpectedBytes;
+        Job<T> job = new Job<>(session, expected, sequence.incrementAndGet(), task, bytesOf);
+        synchronized (lock) {
+            if (queued >= maxQueued) {
+                rejectedJobs.incrementAndGet();
+                throw new RejectedExecutionException("Cola de descargas llena (" + queued + "/" + maxQueued + ")");
+            }
+            sessions.computeIfAbsent(session, SessionQueue::new).jobs.add(job);
+            queued++;
+            queuedBytes += expected;
+            dispatchLocked();
+        }
+        return new Ticket<>(this, job);
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (lock) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("maxConcurrent", maxConcurrent);
+            out.put("maxQueued", maxQueued);
+            out.put("maxInProgressBytes", maxInProgressBytes);
+            out.put("running", running);
+            out.put("runningBytes", runningBytes);
+            out.put("queued", queued);
+            out.put("queuedBytes", queuedBytes);
+            out.put("sessions", sessions.size());
+            out.put("bytesPerSecond", (long) bytesPerSecond);
+            out.put("completedJobs", completedJobs.get());
+            out.put("completedBytes", completedBytes.get());
+            out.put("rejectedJobs", rejectedJobs.get());
+            return out;
+        }
+    }
+
+    private void dispatchLocked() {
+        while (running < maxConcurrent) {
+            Job<?> next = pickNextLocked();
+            if (next == null) return;
+            SessionQueue sq = sessions.get(next.session);
+            sq.jobs.remove(next);
+            sq.running++;
+            sq.lastServedTick = ++dispatchTick;
+            queued--;
+            queuedBytes -= next.expectedBytes;
+            running++;
+            runningBytes += next.expectedBytes;
+            next.startedAt = Instant.now();
+            workers.execute(() -> runJob(next));
+        }
+    }
+
+    /**
+     * Elige la siguiente descarga: primero la vía rápida de archivos pequeños, luego la sesión con menos
+     * descargas activas y, a igualdad, la atendida hace más tiempo. Dentro de cada sesión, el menor tamaño.
+     */
+    private Job<?> pickNextLocked() {
+        Job<?> best = null;
+        SessionQueue bestSession = null;
+        for (SessionQueue sq : sessions.values()) {
+            if (sq.jobs.isEmpty()) continue;
+            Job<?> head = sq.jobs.first();
+            if (running > 0 && runningBytes + head.expectedBytes > maxInProgressBytes) continue;
+            if (best == null || compareCandidates(head, sq, best, bestSession) < 0) {
+                best = head;
+                bestSession = sq;
+            }
+        }
+        return best;
+    }
+
+    private int compareCandidates(Job<?> a, SessionQueue sa, Job<?> b, SessionQueue sb) {
+        boolean smallA = a.expectedBytes <= smallFileBytes;
+        boolean smallB = b.expectedBytes <= smallFileBytes;
+        if (smallA != smallB) return smallA ? -1 : 1;
+        if (sa.running != sb.running) return Integer.compare(sa.running, sb.running);
+        if (sa.lastServedTick != sb.lastServedTick) return Long.compare(sa.lastServedTick, sb.lastServedTick);
+        return JOB_ORDER.compare(a, b);
+    }
+
+    private <T> void runJob(Job<T> job) {
+        long startNanos = System.nanoTime();
+        long actualBytes = job.expectedBytes;
+        try {
+            T result = job.task.call();
+            if (job.bytesOf != null && result != null) {
+                actualBytes = Math.max(0L, job.bytesOf.applyAsLong(result));
+            }
+            job.future.complete(result);
+        } catch (Throwable t) {
+            job.future.completeExceptionally(t);
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            completedJobs.incrementAndGet();
+            completedBytes.addAndGet(actualBytes);
+            // Solo muestras con duración significativa alimentan la media móvil de throughput.
+            if (elapsedNanos > 50_000_000L && actualBytes > 0) {
+                double sample = actualBytes / (elapsedNanos / 1_000_000_000d);
+                bytesPerSecond = bytesPerSecond * 0.8d + sample * 0.2d;
+            }
+            synchronized (lock) {
+                running--;
+                runningBytes -= job.expectedBytes;
+                SessionQueue sq = sessions.get(job.session);
+                if (sq != null) {
+                    sq.running--;
+                    if (sq.running <= 0 && sq.jobs.isEmpty()) sessions.remove(job.session);
+                }
+                dispatchLocked();
+            }
+        }
+    }
+
+    private boolean cancelQueued(Job<?> job) {
+        synchronized (lock) {
+            SessionQueue sq = sessions.get(job.session);
+            if (sq == null || !sq.jobs.remove(job)) return false;
+            queued--;
+            queuedBytes -= job.expectedBytes;
+            if (sq.running <= 0 && sq.jobs.isEmpty()) sessions.remove(job.session);
+        }
+        job.future.cancel(false);
+        return true;
+    }
+
+    /**
+     * Posición aproximada en cola asumiendo round-robin entre sesiones: trabajos propios por delante más,
+     * de cada otra sesión, hasta el mismo número de turnos. 0 si ya está en ejecución o terminado.
+     */
+    private QueueEstimate estimate(Job<?> job) {
+        synchronized (lock) {
+            SessionQueue own = sessions.get(job.session);
+            if (own == null || !own.jobs.contains(job)) return new QueueEstimate(0, 0L);
+
+            int ownAhead = own.jobs.headSet(job, false).size();
+            long bytesAhead = 0L;
+            for (Job<?> j : own.jobs.headSet(job, false)) bytesAhead += j.expectedBytes;
+            int position = ownAhead + 1;
+            for (SessionQueue sq : sessions.values()) {
+                if (sq == own) continue;
+                int turns = 0;
+                for (Job<?> j : sq.jobs) {
+                    if (turns > ownAhead) break;
+                    bytesAhead += j.expectedBytes;
+                    turns++;
+                }
+                position += turns;
+            }
+            double bps = Math.max(1d, bytesPerSecond) * maxConcurrent;
+            long waitMs = (long) (((bytesAhead + runningBytes) / bps) * 1000d);
+            return new QueueEstimate(position, waitMs);
+        }
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            long v = Long.parseLong(raw.trim());
+            return v > 0 ? v : defaultValue;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    private static final class SessionQueue {
+        private final String session;
+        private final TreeSet<Job<?>> jobs = new TreeSet<>(JOB_ORDER);
+        private int running;
+        private long lastServedTick;
+
+        private SessionQueue(String session) {
+            this.session = session;
+        }
+    }
+
+    private static final class Job<T> {
+        private final String session;
+        private final long expectedBytes;
+        private final long seq;
+        private final Callable<T> task;
+        private final ToLongFunction<T> bytesOf;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Instant queuedAt = Instant.now();
+        private volatile Instant startedAt;
+
+        private Job(String session, long expectedBytes, long seq, Callable<T> task, ToLongFunction<T> bytesOf) {
+            this.session = session;
+            this.expectedBytes = expectedBytes;
+            this.seq = seq;
+            this.task = task;
+            this.bytesOf = bytesOf;
+        }
+    }
+
+    private record QueueEstimate(int position, long waitMs) {}
+
+    /**
+     * Referencia a una descarga encolada o en curso.
+     */
+    public static final class Ticket<T> {
+        private final DownloadScheduler scheduler;
+        private final Job<T> job;
+
+        private Ticket(DownloadScheduler scheduler, Job<T> job) {
+            this.scheduler = scheduler;
+            this.job = job;
+        }
+
+        public CompletableFuture<T> future() {
+            return job.future;
+        }
+
+        public boolean isQueued() {
+            return job.startedAt == null && !job.future.isDone();
+        }
+
+        public Instant queuedAt() {
+            return job.queuedAt;
+        }
+
+        /** Instante de inicio real de la transferencia, o null si sigue en cola. */
+        public Instant startedAt() {
+            return job.startedAt;
+        }
+
+        /** Posición aproximada en cola (1 = siguiente); 0 si ya inició. */
+        public int queuePosition() {
+            return isQueued() ? scheduler.estimate(job).position() : 0;
+        }
+
+        /** Espera estimada hasta iniciar, en milisegundos; 0 si ya inició. */
+        public long estimatedWaitMs() {
+            return isQueued() ? scheduler.estimate(job).waitMs() : 0L;
+        }
+
+        /** Retira la descarga de la cola si aún no inició. */
+        public boolean cancel() {
+            return scheduler.cancelQueued(job);
+        }
+    }
+}
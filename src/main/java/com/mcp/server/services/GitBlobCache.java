@@ -0,0 +1,140 @@
+package com.mcp.server.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache compartido de blobs Git por repositorio y objectId.
+ *
+ * Un objectId identifica contenido inmutable, así que las entradas no caducan: sólo se descartan por LRU
+ * cuando el total supera {@code MCP_GIT_BLOB_CACHE_MAX_BYTES}. Blobs de más de
+ * {@code MCP_GIT_BLOB_CACHE_MAX_ENTRY_BYTES} se sirven pero no se guardan, igual que los leídos sólo en
+ * parte. Los binarios se guardan sin contenido, sólo para no volver a descargarlos, y cuentan
+ * {@link #BINARY_WEIGHT} bytes para que también salgan por LRU.
+ */
+public final class GitBlobCache {
+
+    /** Peso nominal de la marca de un binario: la clave y el registro, no su tamaño original. */
+    static final long BINARY_WEIGHT = 256L;
+
+    private static final GitBlobCache SHARED = new GitBlobCache(
+            Math.max(0L, envLong("MCP_GIT_BLOB_CACHE_MAX_BYTES", 64L * 1024L * 1024L)),
+            Math.max(0L, envLong("MCP_GIT_BLOB_CACHE_MAX_ENTRY_BYTES", 4L * 1024L * 1024L))
+    );
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Blob> blobs = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong oversized = new AtomicLong();
+
+    public GitBlobCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public static GitBlobCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Blob cacheado o el que devuelva {@code loader} (null si no se pudo leer; no se cachea).
+     */
+    public Blob getOrLoad(String repositoryId, String objectId, Supplier<Blob> loader) {
+        String key = key(repositoryId, objectId);
+        synchronized (this) {
+            Blob hit = blobs.get(key);
+            if (hit != null) {
+                hits.incrementAndGet();
+                return hit;
+            }
+        }
+        misses.incrementAndGet();
+        Blob loaded = loader.get();
+        if (loaded == null || loaded.truncated() || maxBytes <= 0) return loaded;
+        if (loaded.weight() > maxEntryBytes || loaded.weight() > maxBytes) {
+            oversized.incrementAndGet();
+            return loaded;
+        }
+        store(key, loaded);
+        return loaded;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (this) {
+            out.put("entries", blobs.size());
+            out.put("bytes", bytes);
+        }
+        out.put("maxBytes", maxBytes);
+        out.put("maxEntryBytes", maxEntryBytes);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("evictions", evictions.get());
+        out.put("oversized", oversized.get());
+        return out;
+    }
+
+    private synchronized void store(String key, Blob blob) {
+        Blob previous = blobs.put(key, blob);
+        if (previous != null) bytes -= previous.weight();
+        bytes += blob.weight();
+        Iterator<Map.Entry<String, Blob>> it = blobs.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Blob> e = it.next();
+            if (e.getKey().equals(key)) continue;
+            bytes -= e.getValue().weight();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static String key(String repositoryId, String objectId) {
+        return (repositoryId == null ? "" : repositoryId.toLowerCase(Locale.ROOT)) + "|"
+                + (objectId == null ? "" : objectId.toLowerCase(Locale.ROOT));
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Contenido de un blob: texto UTF-8, o {@code binary=true} con texto vacío. {@code bytes} es el tamaño
+     * del texto o, para binarios, el tamaño original. {@code truncated} marca un texto leído sólo hasta un
+     * límite; entonces {@code bytes} es el tamaño original si se conoce o, al menos, los bytes recibidos.
+     */
+    public record Blob(String text, boolean binary, long bytes, boolean truncated) {
+
+        public static Blob text(String text) {
+            String t = text == null ? "" : text;
+            return new Blob(t, false, t.getBytes(StandardCharsets.UTF_8).length, false);
+        }
+
+        public static Blob binary(long bytes) {
+            return new Blob("", true, bytes, false);
+        }
+
+        public static Blob prefix(String text, long bytes) {
+            return new Blob(text == null ? "" : text, false, bytes, true);
+        }
+
+        /** Bytes que ocupa en el cache (un binario sólo guarda la marca). */
+        long weight() {
+            return binary ? BINARY_WEIGHT : bytes;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.LineDiff;
+import com.mcp.server.transport.McpSessionContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Diff unificado en el servidor para cambios de commits e iteraciones de PR.
+ *
+ * Los blobs viejo/nuevo de cada archivo se leen en paralelo ({@link BoundedFanOut}) a través de
+ * {@link GitBlobCache}, el diff se calcula en el mismo worker y al final se emiten los hunks en orden de
+ * archivo hasta agotar el presupuesto de líneas y bytes. Sólo los hunks salen del servidor.
+ */
+public final class GitChangeDiffer {
+
+    private static final String BLOBS_API_VERSION = "7.2-preview.1";
+    private static final int MAX_EDIT_DISTANCE = (int) Math.max(1L, envLong("MCP_DIFF_MAX_EDIT_DISTANCE", 2_000L));
+
+    private final AzureDevOpsClientService azureService;
+
+    public GitChangeDiffer(AzureDevOpsClientService azureService) {
+        this.azureService = azureService;
+    }
+
+    /**
+     * Archivo cambiado: {@code baseObjectId} es null en un add y {@code targetObjectId} en un delete.
+     * {@code originalPath} es la ruta previa de un rename.
+     */
+    public record Change(String path, String originalPath, String changeType, String baseObjectId, String targetObjectId) {
+
+        /**
+         * Cambio a partir de objectId/originalObjectId según el tipo (add sin base, delete sin target).
+         */
+        public static Change of(String path, String originalPath, String changeType, String objectId, String originalObjectId) {
+            String type = changeType == null ? "" : changeType.toLowerCase(Locale.ROOT);
+            String target = blankToNull(objectId);
+            String base = blankToNull(originalObjectId);
+            if (type.contains("delete")) return new Change(path, originalPath, changeType, base != null ? base : target, null);
+            if (type.contains("add")) base = null;
+            return new Change(path, originalPath, changeType, base, target);
+        }
+    }
+
+    /**
+     * {@code baseCommit}, si se indica, permite resolver por ruta el objectId base que falte en un edit/rename.
+     */
+    public record Options(int contextLines, int maxLines, int maxBytes, int concurrency, long deadlineMillis, String baseCommit) {}
+
+    public Map<String, Object> diff(String project, String repo, List<Change> changes, Options options) {
+        String session = McpSessionContext.currentSessionId();
+        List<Callable<FileResult>> tasks = new ArrayList<>();
+        for (Change change : changes) {
+            tasks.add(() -> McpSessionContext.callWithSession(session, () -> compare(project, repo, change, options)));
+        }
+        List<BoundedFanOut.Outcome<FileResult>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, options.concurrency(), options.deadlineMillis(), options.deadlineMillis());
+
+        LineDiff.Budget budget = new LineDiff.Budget(options.maxLines(), options.maxBytes());
+        List<Map<String, Object>> files = new ArrayList<>();
+        int compared = 0;
+        long added = 0;
+        long removed = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            BoundedFanOut.Outcome<FileResult> outcome = outcomes.get(i);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("path", change.path());
+            if (change.originalPath() != null && !change.originalPath().isBlank() && !change.originalPath().equals(change.path())) {
+                row.put("originalPath", change.originalPath());
+            }
+            row.put("changeType", change.changeType());
+            if (!outcome.ok() || outcome.value() == null) {
+                row.put("error", outcome.error() != null ? outcome.error() : outcome.status());
+                files.add(row);
+                continue;
+            }
+            FileResult result = outcome.value();
+            if (result.error() != null) {
+                row.put("error", result.error());
+            } else if (result.binary()) {
+                row.put("binary", true);
+            } else {
+                compared++;
+                LineDiff.FileDiff diff = result.diff();
+                added += diff.added();
+                removed += diff.removed();
+                row.put("added", diff.added());
+                row.put("removed", diff.removed());
+                if (diff.fallback()) row.put("fallback", "replace");
+                LineDiff.Rendered rendered = budget.render(diff);
+                row.put("hunks", diff.hunks().size());
+                if (rendered.hunks() > 0) row.put("diff", rendered.text());
+                if (rendered.truncated()) {
+                    row.put("truncated", true);
+                    row.put("hunksEmitted", rendered.hunks());
+                }
+            }
+            files.add(row);
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("files", files);
+        out.put("filesCompared", compared);
+        out.put("added", added);
+        out.put("removed", removed);
+        out.put("contextLines", options.contextLines());
+        out.put("maxLines", options.maxLines());
+        out.put("maxBytes", options.maxBytes());
+        out.put("truncated", budget.exhausted());
+        return out;
+    }
+
+    /**
+     * Blob de {@code objectId} desde {@link GitBlobCache} o, si no está, descargado como texto.
+     */
+    public GitBlobCache.Blob readBlob(String project, String repo, String objectId) {
+        return readBlob(project, repo, objectId, 0L);
+    }
+
+    /**
+     * Igual que {@link #readBlob(String, String, String)}, pero con {@code maxBytes > 0} la descarga se corta al
+     * llegar a ese tamaño y devuelve sólo el prefijo ({@link GitBlobCache.Blob#truncated()}, no se cachea).
+     */
+    public GitBlobCache.Blob readBlob(String project, String repo, String objectId, long maxBytes) {
+        if (objectId == null || objectId.isBlank()) return null;
+        return GitBlobCache.shared().getOrLoad(repo, objectId, () -> downloadBlob(project, repo, objectId, maxBytes));
+    }
+
+    private GitBlobCache.Blob downloadBlob(String project, String repo, String objectId, long maxBytes) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile("mcp-blob-", ".txt");
+            Map<String, String> q = new LinkedHashMap<>();
+            q.put("$format", "text");
+            Map<String, Object> resp = azureService.downloadGitTextToFile(project,
+                    "repositories/" + repo + "/blobs/" + objectId, q, BLOBS_API_VERSION, tmp, maxBytes, true);
+            Object error = resp.get("error");
+            if ("BINARY_CONTENT".equals(error)) {
+                return GitBlobCache.Blob.binary(Math.max(asLong(resp.get("contentLength")), asLong(resp.get("bytesRead"))));
+            }
+            if ("MAX_BYTES_EXCEEDED".equals(error) && resp.get("savedToPath") != null) {
+                byte[] prefix = Files.readAllBytes(tmp);
+                long total = Math.max(asLong(resp.get("contentLength")), asLong(resp.get("bytesRead")));
+                return GitBlobCache.Blob.prefix(new String(prefix, 0, utf8Boundary(prefix), StandardCharsets.UTF_8), total);
+            }
+            if (failed(resp)) return null;
+            return GitBlobCache.Blob.text(Files.readString(tmp, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // best-effort
+                }
+            }
+        }
+    }
+
+    /** Largo sin la secuencia UTF-8 incompleta que pueda dejar un corte por bytes al final. */
+    private static int utf8Boundary(byte[] bytes) {
+        int len = bytes.length;
+        int start = len;
+        while (start > 0 && len - start < 3 && (bytes[start - 1] & 0b1100_0000) == 0b1000_0000) start--;
+        if (start == 0) return len;
+        int lead = bytes[start - 1] & 0xFF;
+        int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return len - (start - 1) < expected ? start - 1 : len;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number n ? n.longValue() : -1L;
+    }
+
+    private FileResult compare(String project, String repo, Change change, Options options) {
+        String baseId = change.baseObjectId();
+        boolean needsBase = !isAdd(change);
+        if (baseId == null && needsBase && change.targetObjectId() != null && options.baseCommit() != null) {
+            String basePath = change.originalPath() != null && !change.originalPath().isBlank() ? change.originalPath() : change.path();
+            baseId = resolveObjectId(project, repo, basePath, options.baseCommit());
+        }
+        GitBlobCache.Blob base = null;
+        if (baseId != null) {
+            base = readBlob(project, repo, baseId);
+            if (base == null) return FileResult.failed("No se pudo leer el blob base " + baseId);
+        }
+        GitBlobCache.Blob target = null;
+        if (change.targetObjectId() != null) {
+            target = readBlob(project, repo, change.targetObjectId());
+            if (target == null) return FileResult.failed("No se pudo leer el blob " + change.targetObjectId());
+        }
+        if (base == null && target == null) return FileResult.failed("Cambio sin objectId para comparar");
+        if ((base != null && base.binary()) || (target != null && target.binary())) {
+            return new FileResult(null, true, null);
+        }
+        LineDiff.FileDiff diff = LineDiff.compare(
+                base == null ? "" : base.text(),
+                target == null ? "" : target.text(),
+                options.contextLines(),
+                MAX_EDIT_DISTANCE);
+        return new FileResult(diff, false, null);
+    }
+
+    private String resolveObjectId(String project, String repo, String path, String commit) {
+        Map<String, String> q = new LinkedHashMap<>();
+        q.put("path", path);
+        q.put("versionDescriptor.version", commit);
+        q.put("versionDescriptor.versionType", "commit");
+        Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + repo + "/items", q, BLOBS_API_VERSION);
+        if (failed(resp)) return null;
+        Object objectId = resp.get("objectId");
+        if (objectId == null && resp.get("value") instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof Map<?, ?> first) {
+            objectId = first.get("objectId");
+        }
+        return blankToNull(objectId == null ? null : objectId.toString());
+    }
+
+    private static boolean failed(Map<String, Object> resp) {
+        return resp == null || resp.containsKey("error") || Boolean.TRUE.equals(resp.get("isHttpError"));
+    }
+
+    private static boolean isAdd(Change change) {
+        String type = change.changeType() == null ? "" : change.changeType().toLowerCase(Locale.ROOT);
+        return type.contains("add") && !type.contains("delete");
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private record FileResult(LineDiff.FileDiff diff, boolean binary, String error) {
+        static FileResult failed(String error) {
+            return new FileResult(null, false, error);
+        }
+    }
+}
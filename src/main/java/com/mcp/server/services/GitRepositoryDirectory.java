@@ -0,0 +1,283 @@
+package com.mcp.server.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Directorio compartido de repositorios Git (nombre→ID e ID→metadatos) usado por las tools Git.
+ *
+ * Evita repetir {@code repositories/{name}} y el listado completo de repositorios en cada operación:
+ * <ul>
+ *   <li>las entradas caducan tras {@code MCP_GIT_REPO_DIRECTORY_TTL_MS} (5 min por defecto),</li>
+ *   <li>los listados con más de {@code MCP_GIT_REPO_DIRECTORY_REFRESH_AFTER_MS} se sirven y se recargan en segundo plano,</li>
+ *   <li>create/update/delete invalidan el repositorio afectado y todos los listados.</li>
+ * </ul>
+ */
+public final class GitRepositoryDirectory {
+
+    private static final GitRepositoryDirectory SHARED = new GitRepositoryDirectory(
+            Math.max(0L, envLong("MCP_GIT_REPO_DIRECTORY_TTL_MS", 5L * 60L * 1000L)),
+            Math.max(0L, envLong("MCP_GIT_REPO_DIRECTORY_REFRESH_AFTER_MS", 2L * 60L * 1000L)),
+            (int) Math.max(1L, envLong("MCP_GIT_REPO_DIRECTORY_MAX_ENTRIES", 20_000L))
+    );
+
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final int maxEntries;
+    private final Map<String, RepoEntry> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idByName = new ConcurrentHashMap<>();
+    private final Map<String, ListingEntry> listings = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public GitRepositoryDirectory(long ttlMillis, long refreshAfterMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "git-repo-directory-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static GitRepositoryDirectory shared() {
+        return SHARED;
+    }
+
+    /**
+     * ID del repositorio {@code name} dentro de {@code project} (nombre o ID del proyecto), o null si no está en cache.
+     */
+    public String lookupId(String project, String name) {
+        if (!enabled() || isBlank(name)) return null;
+        String id = idByName.get(nameKey(project, name));
+        RepoEntry entry = id == null ? null : byId.get(id);
+        if (entry == null || isExpired(entry.storedAt)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.id;
+    }
+
+    /**
+     * Metadatos cacheados del repositorio indicado por ID o por nombre, o null si no hay entrada vigente.
+     */
+    public Map<String, Object> get(String project, String idOrName) {
+        if (!enabled() || isBlank(idOrName)) return null;
+        String key = idOrName.trim().toLowerCase(Locale.ROOT);
+        RepoEntry entry = byId.get(key);
+        if (entry == null) {
+            String id = idByName.get(nameKey(project, idOrName));
+            entry = id == null ? null : byId.get(id);
+        }
+        if (entry == null || isExpired(entry.storedAt)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.metadata;
+    }
+
+    /**
+     * Registra los metadatos de un repositorio (respuesta de {@code repositories/{id}} o elemento de un listado).
+     */
+    public void put(String project, Map<String, Object> repository) {
+        if (!enabled()) return;
+        storeRepository(project, repository, System.currentTimeMillis());
+    }
+
+    /**
+     * Listado de repositorios para el ámbito dado; si la entrada es antigua se sirve igualmente y se recarga
+     * en segundo plano con {@code loader}. Si no hay entrada vigente se carga de forma síncrona.
+     * El loader retorna null cuando la respuesta remota es un error, y ese resultado no se cachea.
+     */
+    public List<Map<String, Object>> listing(String project, String variant, Supplier<List<Map<String, Object>>> loader) {
+        Objects.requireNonNull(loader, "loader");
+        if (!enabled()) return loader.get();
+
+        String key = listingKey(project, variant);
+        long now = System.currentTimeMillis();
+        ListingEntry entry = listings.get(key);
+        if (entry != null && !isExpired(entry.storedAt)) {
+            hits.incrementAndGet();
+            if (now - entry.storedAt >= refreshAfterMillis && entry.refreshing.compareAndSet(false, true)) {
+                scheduleRefresh(project, key, loader);
+            }
+            return entry.repositories;
+        }
+
+        misses.incrementAndGet();
+        long gen = generation.get();
+        List<Map<String, Object>> loaded = loader.get();
+        if (loaded != null) storeListing(project, key, loaded, gen);
+        return loaded;
+    }
+
+    /**
+     * Invalida el repositorio indicado (ID o nombre) y todos los listados cacheados.
+     */
+    public void invalidate(String project, String idOrName) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        listings.clear();
+        if (isBlank(idOrName)) return;
+
+        String id = idOrName.trim().toLowerCase(Locale.ROOT);
+        RepoEntry entry = byId.remove(id);
+        if (entry == null) {
+            String mapped = idByName.get(nameKey(project, idOrName));
+            if (mapped != null) entry = byId.remove(mapped);
+        }
+        if (entry != null) {
+            String removedId = entry.id.toLowerCase(Locale.ROOT);
+            idByName.values().removeIf(removedId::equals);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        listings.clear();
+        byId.clear();
+        idByName.clear();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled());
+        out.put("ttlMillis", ttlMillis);
+        out.put("refreshAfterMillis", refreshAfterMillis);
+        out.put("repositories", byId.size());
+        out.put("names", idByName.size());
+        out.put("listings", listings.size());
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("backgroundRefreshes", backgroundRefreshes.get());
+        out.put("invalidations", invalidations.get());
+        return out;
+    }
+
+    private void scheduleRefresh(String project, String key, Supplier<List<Map<String, Object>>> loader) {
+        long gen = generation.get();
+        try {
+            refresher.execute(() -> {
+                try {
+                    List<Map<String, Object>> loaded = loader.get();
+                    if (loaded != null) {
+                        storeListing(project, key, loaded, gen);
+                        backgroundRefreshes.incrementAndGet();
+                    }
+                } catch (RuntimeException ignored) {
+                    // best-effort: se reintentará en el siguiente acceso
+                } finally {
+                    ListingEntry current = listings.get(key);
+                    if (current != null) current.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            ListingEntry current = listings.get(key);
+            if (current != null) current.refreshing.set(false);
+        }
+    }
+
+    private void storeListing(String project, String key, List<Map<String, Object>> repositories, long gen) {
+        // Si hubo una invalidación mientras se cargaba, el listado puede estar desactualizado
+        if (generation.get() != gen) return;
+        long now = System.currentTimeMillis();
+        ensureCapacity(repositories.size());
+        for (Map<String, Object> repo : repositories) {
+            storeRepository(project, repo, now);
+        }
+        listings.put(key, new ListingEntry(Collections.unmodifiableList(new ArrayList<>(repositories)), now));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void storeRepository(String project, Map<String, Object> repository, long now) {
+        if (repository == null) return;
+        String id = str(repository.get("id"));
+        String name = str(repository.get("name"));
+        if (id.isBlank() || name.isBlank()) return;
+        ensureCapacity(1);
+
+        String idKey = id.toLowerCase(Locale.ROOT);
+        byId.put(idKey, new RepoEntry(id, Collections.unmodifiableMap(new LinkedHashMap<>(repository)), now));
+        idByName.put(nameKey(project, name), idKey);
+        if (repository.get("project") instanceof Map<?, ?> projectObj) {
+            Map<String, Object> p = (Map<String, Object>) projectObj;
+            String projectName = str(p.get("name"));
+            String projectId = str(p.get("id"));
+            if (!projectName.isBlank()) idByName.put(nameKey(projectName, name), idKey);
+            if (!projectId.isBlank()) idByName.put(nameKey(projectId, name), idKey);
+        }
+    }
+
+    private void ensureCapacity(int incoming) {
+        if (byId.size() + incoming <= maxEntries) return;
+        // Directorio acotado: al superar el máximo se descarta todo y se repuebla bajo demanda
+        clear();
+    }
+
+    private boolean enabled() {
+        return ttlMillis > 0;
+    }
+
+    private boolean isExpired(long storedAt) {
+        return System.currentTimeMillis() - storedAt > ttlMillis;
+    }
+
+    private static String nameKey(String project, String name) {
+        String p = project == null ? "" : project.trim().toLowerCase(Locale.ROOT);
+        return p + "|" + name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String listingKey(String project, String variant) {
+        String p = project == null ? "" : project.trim().toLowerCase(Locale.ROOT);
+        return p + "|" + (variant == null ? "" : variant);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String str(Object o) {
+        return o == null ? "" : o.toString().trim();
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private record RepoEntry(String id, Map<String, Object> metadata, long storedAt) {}
+
+    private static final class ListingEntry {
+        private final List<Map<String, Object>> repositories;
+        private final long storedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private ListingEntry(List<Map<String, Object>> repositories, long storedAt) {
+            this.repositories = repositories;
+            this.storedAt = storedAt;
+        }
+    }
+}
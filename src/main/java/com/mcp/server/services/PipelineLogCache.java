@@ -0,0 +1,325 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.LineOffsetIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache en disco de logs de pipeline runs con índice de offsets de línea ({@link LineOffsetIndex}).
+ *
+ * Cada log se descarga en streaming una sola vez por versión (p. ej. {@code lastChangedOn|lineCount}) y las
+ * lecturas posteriores por ventana, tail o búsqueda usan el archivo local. Las entradas sin uso durante
+ * {@code MCP_PIPELINE_LOG_CACHE_TTL_MS} o que excedan {@code MCP_PIPELINE_LOG_CACHE_MAX_BYTES} en total se
+ * descartan (LRU). El directorio ({@code MCP_PIPELINE_LOG_CACHE_ROOT}) se limpia al primer uso porque el
+ * índice vive sólo en memoria.
+ *
+ * Cada versión va a su propio archivo y {@link #prepare} la entrega fijada: una versión reemplazada o desalojada
+ * mientras alguien la lee sólo se borra cuando se cierra el último {@link Prepared} que la usa.
+ */
+public final class PipelineLogCache {
+
+    private static final PipelineLogCache SHARED = new PipelineLogCache(
+            Path.of(System.getenv().getOrDefault("MCP_PIPELINE_LOG_CACHE_ROOT", "/tmp/mcp-pipeline-log-cache")),
+            Math.max(0L, envLong("MCP_PIPELINE_LOG_CACHE_MAX_BYTES", 4L * 1024L * 1024L * 1024L)),
+            Math.max(0L, envLong("MCP_PIPELINE_LOG_CACHE_TTL_MS", 60L * 60L * 1000L))
+    );
+
+    private final Path rootDir;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean initialized = new AtomicBoolean();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    public PipelineLogCache(Path rootDir, long maxBytes, long ttlMillis) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static PipelineLogCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Log listo en disco con su índice. {@code cached} indica si se sirvió sin descargar; si la descarga falló
+     * {@code error} trae la respuesta remota (formato de {@link AzureDevOpsClientService}) y no hay archivo.
+     * El archivo sigue en disco hasta {@link #close()}, aunque mientras tanto se descargue otra versión.
+     */
+    public static final class Prepared implements AutoCloseable {
+        private final Snapshot snapshot;
+        private final boolean cached;
+        private final Map<String, Object> error;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Prepared(Snapshot snapshot, boolean cached, Map<String, Object> error) {
+            this.snapshot = snapshot;
+            this.cached = cached;
+            this.error = error;
+        }
+
+        public Path file() {
+            return snapshot == null ? null : snapshot.file;
+        }
+
+        public LineOffsetIndex index() {
+            return snapshot == null ? null : snapshot.index;
+        }
+
+        public boolean cached() {
+            return cached;
+        }
+
+        public Map<String, Object> error() {
+            return error;
+        }
+
+        public boolean ok() {
+            return error == null;
+        }
+
+        @Override
+        public void close() {
+            if (snapshot != null && closed.compareAndSet(false, true)) snapshot.unpin();
+        }
+    }
+
+    /**
+     * Log {@code key} en la versión {@code version}; si no está (o cambió de versión) se descarga con
+     * {@code download}, que recibe la ruta temporal y retorna la respuesta de la descarga.
+     */
+    public Prepared prepare(String key, String version, Function<Path, Map<String, Object>> download) {
+        ensureInitialized();
+        sweepExpired();
+        while (true) {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry(stemFor(k)));
+            Prepared prepared;
+            synchronized (entry) {
+                // Una entrada desalojada mientras se esperaba el lock ya no está en el mapa: se toma la nueva
+                if (entry.removed) continue;
+                prepared = prepareLocked(entry, version, download);
+                if (!prepared.ok()) {
+                    // Sin archivo no tiene sentido conservar la entrada
+                    entry.removed = true;
+                    entries.remove(key, entry);
+                }
+            }
+            // El desalojo toma el lock de otras entradas, así que se hace fuera del lock de ésta
+            if (prepared.ok() && !prepared.cached()) evictOver(key);
+            return prepared;
+        }
+    }
+
+    private Prepared prepareLocked(Entry entry, String version, Function<Path, Map<String, Object>> download) {
+        entry.lastAccess = System.currentTimeMillis();
+        Snapshot current = entry.current;
+        if (current != null && Objects.equals(current.version, version) && Files.exists(current.file)) {
+            hits.incrementAndGet();
+            return pinned(current, true);
+        }
+        misses.incrementAndGet();
+        release(entry);
+        Path file = entry.stem.resolveSibling(entry.stem.getFileName() + "-" + generation.incrementAndGet() + ".log");
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            Files.createDirectories(part.getParent());
+            Map<String, Object> resp = download.apply(part);
+            if (resp == null || resp.containsKey("error") || Boolean.TRUE.equals(resp.get("isHttpError"))) {
+                failures.incrementAndGet();
+                return new Prepared(null, false, resp == null ? Map.of("error", "Respuesta vacía al descargar log") : resp);
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LineOffsetIndex index = LineOffsetIndex.build(file);
+            Snapshot snapshot = new Snapshot(file, version, index);
+            bytes.addAndGet(snapshot.fileBytes);
+            entry.current = snapshot;
+            return pinned(snapshot, false);
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            deleteQuietly(file);
+            return new Prepared(null, false, Map.of("error", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+        } finally {
+            deleteQuietly(part);
+        }
+    }
+
+    private static Prepared pinned(Snapshot snapshot, boolean cached) {
+        snapshot.pin();
+        return new Prepared(snapshot, cached, null);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("rootDir", rootDir.toString());
+        out.put("entries", entries.size());
+        out.put("bytes", bytes.get());
+        out.put("maxBytes", maxBytes);
+        out.put("ttlMillis", ttlMillis);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("failures", failures.get());
+        out.put("evictions", evictions.get());
+        return out;
+    }
+
+    private void evictOver(String protectedKey) {
+        if (bytes.get() <= maxBytes) return;
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<String, Entry> e : candidates) {
+            if (bytes.get() <= maxBytes) break;
+            if (e.getKey().equals(protectedKey)) continue;
+            evict(e.getKey(), e.getValue());
+        }
+    }
+
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (now - e.getValue().lastAccess > ttlMillis) evict(e.getKey(), e.getValue());
+        }
+    }
+
+    private void evict(String key, Entry entry) {
+        synchronized (entry) {
+            if (entry.current != null) evictions.incrementAndGet();
+            release(entry);
+            entry.removed = true;
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Retira la versión vigente de la entrada; su archivo se borra ahora o al cerrar el último lector.
+     */
+    private void release(Entry entry) {
+        Snapshot current = entry.current;
+        entry.current = null;
+        if (current != null) current.retire();
+    }
+
+    private Path stemFor(String key) {
+        String hash = sha256Hex(key);
+        return rootDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best-effort
+        }
+    }
+
+    private void ensureInitialized() {
+        if (!initialized.compareAndSet(false, true)) return;
+        try {
+            if (Files.exists(rootDir)) {
+                try (var walk = Files.walk(rootDir)) {
+                    walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                        try {
+                            Files.deleteIfExists(p);
+                        } catch (IOException ignored) {
+                            // best-effort
+                        }
+                    });
+                }
+            }
+            Files.createDirectories(rootDir);
+        } catch (IOException ignored) {
+            // best-effort: la descarga crea los directorios que falten
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return String.format("%08x", value.hashCode());
+        }
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Entry {
+        private final Path stem;
+        private volatile Snapshot current;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile boolean removed;
+
+        private Entry(Path stem) {
+            this.stem = stem;
+        }
+    }
+
+    /**
+     * Una versión descargada de un log. {@code pins} cuenta los {@link Prepared} abiertos; el archivo se borra
+     * cuando la versión está retirada y ya nadie la lee.
+     */
+    private final class Snapshot {
+        private final Path file;
+        private final String version;
+        private final LineOffsetIndex index;
+        private final long fileBytes;
+        private int pins;
+        private boolean retired;
+
+        private Snapshot(Path file, String version, LineOffsetIndex index) {
+            this.file = file;
+            this.version = version;
+            this.index = index;
+            this.fileBytes = index.bytes();
+        }
+
+        private synchronized void pin() {
+            pins++;
+        }
+
+        private synchronized void unpin() {
+            pins--;
+            if (retired && pins == 0) delete();
+        }
+
+        private synchronized void retire() {
+            if (retired) return;
+            retired = true;
+            if (pins == 0) delete();
+        }
+
+        private void delete() {
+            deleteQuietly(file);
+            bytes.addAndGet(-fileBytes);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.mcp.server.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Directorio compartido de proyectos por organización, para operaciones que recorren todos los proyectos
+ * (p. ej. el dashboard de PRs).
+ *
+ * El listado caduca tras {@code MCP_PROJECT_DIRECTORY_TTL_MS} (15 min por defecto; {@code 0} desactiva) y con
+ * más de {@code MCP_PROJECT_DIRECTORY_REFRESH_AFTER_MS} se sirve y se recarga en segundo plano. Un loader que
+ * retorna null (error remoto) no se cachea.
+ */
+public final class ProjectDirectory {
+
+    private static final ProjectDirectory SHARED = new ProjectDirectory(
+            Math.max(0L, envLong("MCP_PROJECT_DIRECTORY_TTL_MS", 15L * 60L * 1000L)),
+            Math.max(0L, envLong("MCP_PROJECT_DIRECTORY_REFRESH_AFTER_MS", 5L * 60L * 1000L))
+    );
+
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final Map<String, Entry> listings = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+
+    public ProjectDirectory(long ttlMillis, long refreshAfterMillis) {
+        this.ttlMillis = ttlMillis;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "project-directory-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static ProjectDirectory shared() {
+        return SHARED;
+    }
+
+    /**
+     * Proyectos de {@code organization}; carga síncrona si no hay listado vigente.
+     */
+    public List<Map<String, Object>> projects(String organization, Supplier<List<Map<String, Object>>> loader) {
+        Objects.requireNonNull(loader, "loader");
+        if (ttlMillis <= 0) return loader.get();
+
+        String key = organization == null ? "" : organization.trim().toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        Entry entry = listings.get(key);
+        if (entry != null && now - entry.storedAt <= ttlMillis) {
+            hits.incrementAndGet();
+            if (now - entry.storedAt >= refreshAfterMillis && entry.refreshing.compareAndSet(false, true)) {
+                scheduleRefresh(key, entry, loader);
+            }
+            return entry.projects;
+        }
+
+        misses.incrementAndGet();
+        List<Map<String, Object>> loaded = loader.get();
+        if (loaded != null) listings.put(key, new Entry(copy(loaded), now));
+        return loaded;
+    }
+
+    public void invalidate(String organization) {
+        listings.remove(organization == null ? "" : organization.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", ttlMillis > 0);
+        out.put("ttlMillis", ttlMillis);
+        out.put("refreshAfterMillis", refreshAfterMillis);
+        int projects = 0;
+        for (Entry e : listings.values()) projects += e.projects.size();
+        out.put("organizations", listings.size());
+        out.put("projects", projects);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("backgroundRefreshes", backgroundRefreshes.get());
+        return out;
+    }
+
+    private void scheduleRefresh(String key, Entry entry, Supplier<List<Map<String, Object>>> loader) {
+        try {
+            refresher.execute(() -> {
+                try {
+                    List<Map<String, Object>> loaded = loader.get();
+                    if (loaded != null) {
+                        listings.put(key, new Entry(copy(loaded), System.currentTimeMillis()));
+                        backgroundRefreshes.incrementAndGet();
+                    }
+                } catch (RuntimeException ignored) {
+                    // best-effort: se reintentará en el siguiente acceso
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static List<Map<String, Object>> copy(List<Map<String, Object>> projects) {
+        List<Map<String, Object>> out = new ArrayList<>(projects.size());
+        for (Map<String, Object> p : projects) out.add(Collections.unmodifiableMap(new LinkedHashMap<>(p)));
+        return Collections.unmodifiableList(out);
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Map<String, Object>> projects;
+        private final long storedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(List<Map<String, Object>> projects, long storedAt) {
+            this.projects = projects;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.ThreadDelta;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshots de threads por PR usados por {@code threads_sync} para recordar la última sincronización.
+ *
+ * Cada snapshot sólo guarda IDs y fechas ({@link ThreadDelta.Snapshot}), así que es pequeño. Se descartan por
+ * LRU al superar {@code MCP_PR_THREAD_SNAPSHOT_MAX_ENTRIES} y caducan tras {@code MCP_PR_THREAD_SNAPSHOT_TTL_MS}
+ * sin uso; una entrada caducada equivale a una primera sincronización.
+ */
+public final class PullRequestThreadSnapshots {
+
+    private static final PullRequestThreadSnapshots SHARED = new PullRequestThreadSnapshots(
+            (int) Math.max(0L, envLong("MCP_PR_THREAD_SNAPSHOT_MAX_ENTRIES", 1_000L)),
+            Math.max(0L, envLong("MCP_PR_THREAD_SNAPSHOT_TTL_MS", 4L * 60L * 60L * 1000L))
+    );
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> snapshots = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PullRequestThreadSnapshots(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static PullRequestThreadSnapshots shared() {
+        return SHARED;
+    }
+
+    public synchronized ThreadDelta.Snapshot get(String key) {
+        Entry entry = snapshots.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            if (entry != null) snapshots.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.snapshot;
+    }
+
+    public synchronized void put(String key, ThreadDelta.Snapshot snapshot) {
+        if (maxEntries <= 0 || ttlMillis <= 0 || snapshot == null) return;
+        snapshots.put(key, new Entry(snapshot, System.currentTimeMillis()));
+        var it = snapshots.entrySet().iterator();
+        while (snapshots.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void remove(String key) {
+        snapshots.remove(key);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (this) {
+            out.put("entries", snapshots.size());
+        }
+        out.put("maxEntries", maxEntries);
+        out.put("ttlMillis", ttlMillis);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("evictions", evictions.get());
+        return out;
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private record Entry(ThreadDelta.Snapshot snapshot, long storedAt) {}
+}
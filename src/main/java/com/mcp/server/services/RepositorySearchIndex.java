@@ -0,0 +1,256 @@
+package com.mcp.server.services;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Registro compartido de índices de trigramas por repositorio y commit para search_content.
+ *
+ * Los índices se construyen en background la primera vez que se piden (la búsqueda en curso sigue con
+ * escaneo completo) y se conservan en LRU acotado por cantidad ({@code MCP_SEARCH_INDEX_MAX_INDEXES}),
+ * bytes estimados ({@code MCP_SEARCH_INDEX_MAX_BYTES}) y TTL ({@code MCP_SEARCH_INDEX_TTL_MS}).
+ */
+public final class RepositorySearchIndex {
+
+    public static final String STATUS_READY = "ready";
+    public static final String STATUS_BUILDING = "building";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_REJECTED = "rejected";
+
+    private static final RepositorySearchIndex SHARED = new RepositorySearchIndex(
+            (int) Math.max(1L, envLong("MCP_SEARCH_INDEX_MAX_INDEXES", 8L)),
+            Math.max(1L, envLong("MCP_SEARCH_INDEX_MAX_BYTES", 512L * 1024L * 1024L)),
+            Math.max(1_000L, envLong("MCP_SEARCH_INDEX_TTL_MS", 6L * 60L * 60L * 1000L)),
+            Math.max(1_000L, envLong("MCP_SEARCH_INDEX_RETRY_AFTER_FAILURE_MS", 60_000L)),
+            (int) Math.max(1L, envLong("MCP_SEARCH_INDEX_MAX_CONCURRENT_BUILDS", 1L)),
+            (int) Math.max(1L, envLong("MCP_SEARCH_INDEX_MAX_FILES", 5_000L)),
+            (int) Math.max(1L, envLong("MCP_SEARCH_INDEX_MAX_FILE_BYTES", 1024L * 1024L)),
+            (int) Math.max(1L, envLong("MCP_SEARCH_INDEX_BUILD_CONCURRENCY", 4L))
+    );
+
+    private final int maxIndexes;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final long retryAfterFailureMillis;
+    private final int maxConcurrentBuilds;
+    private final int maxFilesPerIndex;
+    private final int maxFileBytes;
+    private final int readConcurrency;
+    private final ExecutorService builders;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicInteger buildsInProgress = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long totalBytes;
+
+    public RepositorySearchIndex(int maxIndexes,
+                                 long maxBytes,
+                                 long ttlMillis,
+                                 long retryAfterFailureMillis,
+                                 int maxConcurrentBuilds,
+                                 int maxFilesPerIndex,
+                                 int maxFileBytes,
+                                 int readConcurrency) {
+        this.maxIndexes = maxIndexes;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.retryAfterFailureMillis = retryAfterFailureMillis;
+        this.maxConcurrentBuilds = maxConcurrentBuilds;
+        this.maxFilesPerIndex = maxFilesPerIndex;
+        this.maxFileBytes = maxFileBytes;
+        this.readConcurrency = readConcurrency;
+        this.builders = Executors.newFixedThreadPool(maxConcurrentBuilds, r -> {
+            Thread t = new Thread(r, "git-search-index-build");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static RepositorySearchIndex shared() {
+        return SHARED;
+    }
+
+    /** Máximo de archivos leídos por índice; el resto queda fuera y siempre se verifica. */
+    public int maxFilesPerIndex() {
+        return maxFilesPerIndex;
+    }
+
+    /** Bytes máximos indexados por archivo; los archivos truncados quedan marcados como parciales. */
+    public int maxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /** Lecturas de contenido en paralelo durante una construcción. */
+    public int readConcurrency() {
+        return readConcurrency;
+    }
+
+    /**
+     * Retorna el índice listo para {@code key} o, si no existe, agenda su construcción con {@code builder}
+     * y retorna el estado actual (building/failed/rejected) sin bloquear.
+     */
+    public Lookup lookupOrBuild(String key, Supplier<TrigramIndex> builder) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            Slot slot = slots.get(key);
+            if (slot != null && slot.index != null && now - slot.readyAt <= ttlMillis) {
+                hits.incrementAndGet();
+                return new Lookup(STATUS_READY, slot.index, slot.readyAt, null);
+            }
+            misses.incrementAndGet();
+            if (slot != null && slot.index != null) {
+                remove(key, slot);
+                slot = null;
+            }
+            if (slot != null && slot.building) {
+                return new Lookup(STATUS_BUILDING, null, slot.startedAt, null);
+            }
+            if (slot != null && slot.error != null && now - slot.failedAt < retryAfterFailureMillis) {
+                return new Lookup(STATUS_FAILED, null, slot.failedAt, slot.error);
+            }
+            if (buildsInProgress.get() >= maxConcurrentBuilds) {
+                return new Lookup(STATUS_REJECTED, null, now, "Hay otra construcción de índice en curso; reintente más tarde.");
+            }
+
+            Slot fresh = new Slot();
+            fresh.building = true;
+            fresh.startedAt = now;
+            slots.put(key, fresh);
+            buildsInProgress.incrementAndGet();
+            try {
+                builders.execute(() -> runBuild(key, fresh, builder));
+            } catch (RejectedExecutionException e) {
+                buildsInProgress.decrementAndGet();
+                slots.remove(key);
+                return new Lookup(STATUS_REJECTED, null, now, "No se pudo agendar la construcción del índice.");
+            }
+            return new Lookup(STATUS_BUILDING, null, now, null);
+        }
+    }
+
+    /**
+     * Índice listo para {@code key} o null, sin agendar construcciones ni contar aciertos (base para
+     * construir en forma incremental el índice de un commit posterior).
+     */
+    public TrigramIndex readyIndex(String key) {
+        synchronized (lock) {
+            Slot slot = slots.get(key);
+            if (slot == null || slot.index == null || System.currentTimeMillis() - slot.readyAt > ttlMillis) return null;
+            return slot.index;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (lock) {
+            int ready = 0;
+            for (Slot s : slots.values()) if (s.index != null) ready++;
+            out.put("indexes", ready);
+            out.put("building", buildsInProgress.get());
+            out.put("bytes", totalBytes);
+            out.put("maxBytes", maxBytes);
+            out.put("maxIndexes", maxIndexes);
+        }
+        out.put("ttlMillis", ttlMillis);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("builds", builds.get());
+        out.put("failures", failures.get());
+        out.put("evictions", evictions.get());
+        return out;
+    }
+
+    private void runBuild(String key, Slot slot, Supplier<TrigramIndex> builder) {
+        TrigramIndex index = null;
+        String error = null;
+        try {
+            index = builder.get();
+            if (index == null) error = "La construcción del índice no produjo resultados.";
+        } catch (RuntimeException e) {
+            error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        } finally {
+            buildsInProgress.decrementAndGet();
+        }
+
+        synchronized (lock) {
+            slot.building = false;
+            if (slots.get(key) != slot) return;
+            if (index == null) {
+                failures.incrementAndGet();
+                slot.error = error;
+                slot.failedAt = System.currentTimeMillis();
+                return;
+            }
+            builds.incrementAndGet();
+            slot.index = index;
+            slot.bytes = index.estimatedBytes();
+            slot.readyAt = System.currentTimeMillis();
+            totalBytes += slot.bytes;
+            enforceLimits(key);
+        }
+    }
+
+    private void enforceLimits(String protectedKey) {
+        Iterator<Map.Entry<String, Slot>> it = slots.entrySet().iterator();
+        while (it.hasNext() && (readyCount() > maxIndexes || totalBytes > maxBytes)) {
+            Map.Entry<String, Slot> e = it.next();
+            Slot s = e.getValue();
+            if (s.index == null || e.getKey().equals(protectedKey)) continue;
+            totalBytes -= s.bytes;
+            evictions.incrementAndGet();
+            it.remove();
+        }
+    }
+
+    private int readyCount() {
+        int n = 0;
+        for (Slot s : slots.values()) if (s.index != null) n++;
+        return n;
+    }
+
+    private void remove(String key, Slot slot) {
+        if (slot.index != null) totalBytes -= slot.bytes;
+        slots.remove(key);
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Estado de un índice: {@code index} sólo está presente cuando {@code status=ready}.
+     */
+    public record Lookup(String status, TrigramIndex index, long since, String error) {
+        public Instant sinceInstant() {
+            return Instant.ofEpochMilli(since);
+        }
+    }
+
+    private static final class Slot {
+        private TrigramIndex index;
+        private boolean building;
+        private long bytes;
+        private long startedAt;
+        private long readyAt;
+        private long failedAt;
+        private String error;
+    }
+}
@@ -0,0 +1,162 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.CompactTree;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache compartido de listados de árbol ({@link CompactTree}) por repositorio, rama/versión y scopePath.
+ *
+ * Cada snapshot recuerda el commit al que corresponde. Cuando la rama avanza, la tool pide el diff entre el
+ * commit cacheado y el nuevo head y parchea el árbol en lugar de volver a listarlo; sólo si el diff tiene
+ * más de {@code MCP_GIT_TREE_INCREMENTAL_MAX_CHANGES} cambios (o no se puede obtener) se reconstruye completo.
+ * Dentro de {@code MCP_GIT_TREE_CACHE_RECHECK_MS} desde la última verificación el snapshot se sirve sin
+ * consultar el head. LRU acotado por {@code MCP_GIT_TREE_CACHE_MAX_ENTRIES} y TTL {@code MCP_GIT_TREE_CACHE_TTL_MS}.
+ */
+public final class RepositoryTreeCache {
+
+    private static final RepositoryTreeCache SHARED = new RepositoryTreeCache(
+            (int) Math.max(1L, envLong("MCP_GIT_TREE_CACHE_MAX_ENTRIES", 32L)),
+            Math.max(0L, envLong("MCP_GIT_TREE_CACHE_TTL_MS", 6L * 60L * 60L * 1000L)),
+            Math.max(0L, envLong("MCP_GIT_TREE_CACHE_RECHECK_MS", 10_000L)),
+            (int) Math.max(0L, envLong("MCP_GIT_TREE_INCREMENTAL_MAX_CHANGES", 2_000L))
+    );
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long recheckMillis;
+    private final int maxIncrementalChanges;
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong incrementalRefreshes = new AtomicLong();
+    private final AtomicLong fullRebuilds = new AtomicLong();
+    private final AtomicLong changedPaths = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RepositoryTreeCache(int maxEntries, long ttlMillis, long recheckMillis, int maxIncrementalChanges) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.recheckMillis = recheckMillis;
+        this.maxIncrementalChanges = maxIncrementalChanges;
+    }
+
+    public static RepositoryTreeCache shared() {
+        return SHARED;
+    }
+
+    public boolean enabled() {
+        return ttlMillis > 0;
+    }
+
+    /** Cambios máximos de un diff que se aplican en forma incremental; 0 desactiva el parcheo. */
+    public int maxIncrementalChanges() {
+        return maxIncrementalChanges;
+    }
+
+    /**
+     * Snapshot vigente para {@code key} (sin importar su commit), o null si no hay o caducó.
+     */
+    public synchronized Snapshot get(String key) {
+        Snapshot s = snapshots.get(key);
+        if (s == null) return null;
+        if (System.currentTimeMillis() - s.storedAt() > ttlMillis) {
+            snapshots.remove(key);
+            return null;
+        }
+        return s;
+    }
+
+    /**
+     * true si el snapshot se verificó contra el head hace menos de {@code MCP_GIT_TREE_CACHE_RECHECK_MS}.
+     */
+    public boolean recentlyChecked(Snapshot snapshot) {
+        return snapshot != null && System.currentTimeMillis() - snapshot.checkedAt() < recheckMillis;
+    }
+
+    /** Registra un acierto servido sin verificar el head. */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /** Registra un acierto (mismo commit) y renueva la marca de verificación del snapshot. */
+    public synchronized Snapshot confirm(String key, Snapshot snapshot) {
+        hits.incrementAndGet();
+        Snapshot renewed = new Snapshot(snapshot.commitId(), snapshot.tree(), snapshot.strategy(),
+                snapshot.storedAt(), System.currentTimeMillis(), snapshot.baseCommitId(), snapshot.changedPaths());
+        if (snapshots.get(key) == snapshot) snapshots.put(key, renewed);
+        return renewed;
+    }
+
+    /** Guarda el árbol parcheado desde {@code base} con los {@code paths} cambiados. */
+    public Snapshot putIncremental(String key, Snapshot base, String commitId, CompactTree tree, Set<String> paths) {
+        incrementalRefreshes.incrementAndGet();
+        changedPaths.addAndGet(paths.size());
+        long now = System.currentTimeMillis();
+        return store(key, new Snapshot(commitId, tree, base.strategy(), now, now, base.commitId(), Set.copyOf(paths)));
+    }
+
+    /** Guarda un árbol listado completo. */
+    public Snapshot putFull(String key, String commitId, CompactTree tree, String strategy) {
+        misses.incrementAndGet();
+        fullRebuilds.incrementAndGet();
+        long now = System.currentTimeMillis();
+        return store(key, new Snapshot(commitId, tree, strategy, now, now, "", Set.of()));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (this) {
+            out.put("entries", snapshots.size());
+        }
+        out.put("maxEntries", maxEntries);
+        out.put("ttlMillis", ttlMillis);
+        out.put("recheckMillis", recheckMillis);
+        out.put("maxIncrementalChanges", maxIncrementalChanges);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        out.put("incrementalRefreshes", incrementalRefreshes.get());
+        out.put("fullRebuilds", fullRebuilds.get());
+        out.put("changedPaths", changedPaths.get());
+        out.put("evictions", evictions.get());
+        return out;
+    }
+
+    private synchronized Snapshot store(String key, Snapshot snapshot) {
+        snapshots.put(key, snapshot);
+        Iterator<Map.Entry<String, Snapshot>> it = snapshots.entrySet().iterator();
+        while (snapshots.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Snapshot> e = it.next();
+            if (e.getKey().equals(key)) continue;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Árbol de {@code commitId}. Si se obtuvo parcheando, {@code baseCommitId} y {@code changedPaths} describen
+     * el diff aplicado (lo usa la actualización incremental del índice de contenido).
+     */
+    public record Snapshot(String commitId,
+                           CompactTree tree,
+                           String strategy,
+                           long storedAt,
+                           long checkedAt,
+                           String baseCommitId,
+                           Set<String> changedPaths) {}
+}
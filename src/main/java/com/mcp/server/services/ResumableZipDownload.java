@@ -0,0 +1,414 @@
+package com.mcp.server.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.server.services.helpers.PathMatcher;
+import com.mcp.server.services.helpers.ZipManifest;
+import com.mcp.server.transport.McpSessionContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Descarga reanudable de un ZIP a disco, compartida por {@code download_zip} (Git) y {@code artifact_get}
+ * (Pipelines).
+ *
+ * La transferencia va en streaming a {@code <out>.part} a través de {@link DownloadScheduler}; un sidecar
+ * {@code <out>.part.json} guarda el origen y el ETag para reanudar con {@code Range/If-Range} en la siguiente
+ * llamada con el mismo destino; sin un ETag fuerte la descarga se reinicia desde cero. Llamadas concurrentes al mismo destino se suman a la descarga en curso. Ya en
+ * disco, el ZIP se lista por su directorio central y se extraen sólo las entradas pedidas ({@link ZipManifest}).
+ *
+ * Al vencer la espera la descarga sigue en cola o en curso; sólo se retira de la cola si nadie la vuelve a
+ * consultar durante {@code MCP_ZIP_QUEUED_IDLE_MS} (default 10 min).
+ */
+public final class ResumableZipDownload {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final long QUEUED_IDLE_MS = envLong("MCP_ZIP_QUEUED_IDLE_MS", 10L * 60_000L);
+    private static final ResumableZipDownload SHARED = new ResumableZipDownload(DownloadScheduler.shared(), QUEUED_IDLE_MS);
+
+    private final DownloadScheduler scheduler;
+    private final long queuedIdleMillis;
+    private final Map<Path, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public ResumableZipDownload(DownloadScheduler scheduler) {
+        this(scheduler, QUEUED_IDLE_MS);
+    }
+
+    public ResumableZipDownload(DownloadScheduler scheduler, long queuedIdleMillis) {
+        this.scheduler = scheduler;
+        this.queuedIdleMillis = Math.max(1L, queuedIdleMillis);
+    }
+
+    public static ResumableZipDownload shared() {
+        return SHARED;
+    }
+
+    /**
+     * Transferencia al archivo parcial: desde {@code resumeFrom} bytes, con {@code etag} (fuerte) como If-Range
+     * cuando se reanuda. Retorna la respuesta de {@link AzureDevOpsClientService} ({@code etag}, {@code bytesTransferred},
+     * {@code resumed}, o {@code error}/{@code isHttpError}).
+     */
+    @FunctionalInterface
+    public interface Transfer {
+        Map<String, Object> download(Path part, long resumeFrom, String etag) throws IOException;
+    }
+
+    /**
+     * Resultado de {@link #fetch}: {@code pending} si la descarga sigue en cola o en curso al vencer la espera
+     * ({@code queuePosition > 0} y {@code estimatedWaitMs} mientras no inicia); {@code failure} si la tarea lanzó
+     * una excepción o se retiró de la cola. En otro caso {@code download} trae la respuesta de la transferencia,
+     * que puede ser un error remoto.
+     */
+    public record Outcome(Map<String, Object> download,
+                          boolean pending,
+                          boolean joined,
+                          String failure,
+                          Path part,
+                          long partBytes,
+                          int queuePosition,
+                          long estimatedWaitMs) {}
+
+    private static final class InFlight {
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        private volatile DownloadScheduler.Ticket<Map<String, Object>> ticket;
+        private int waiters = 1;
+        private long lastSeenAt = System.currentTimeMillis();
+        private boolean abandoned;
+        private boolean cancelRequested;
+        private Thread worker;
+
+        /** Suma una llamada a la descarga; false si ya se retiró de la cola por inactividad. */
+        private synchronized boolean join() {
+            if (abandoned) return false;
+            waiters++;
+            lastSeenAt = System.currentTimeMillis();
+            return true;
+        }
+
+        /** Retira una llamada; true si era la última esperando. */
+        private synchronized boolean leave() {
+            waiters--;
+            lastSeenAt = System.currentTimeMillis();
+            return waiters == 0;
+        }
+
+        /** Registra el hilo que transfiere; false si la descarga ya se canceló. */
+        private synchronized boolean start() {
+            if (cancelRequested) return false;
+            worker = Thread.currentThread();
+            return true;
+        }
+
+        private void finish() {
+            synchronized (this) {
+                worker = null;
+            }
+            // Un cancel() que llegó al final no debe alcanzar a la siguiente tarea del mismo hilo
+            Thread.interrupted();
+        }
+
+        private synchronized void abort() {
+            cancelRequested = true;
+            if (worker != null) worker.interrupt();
+        }
+    }
+
+    /**
+     * Descarga (o reanuda) {@code sourceKey} a {@code out}, esperando como máximo {@code maxWaitMs}.
+     *
+     * @throws RejectedExecutionException si la cola de descargas está llena
+     */
+    public Outcome fetch(Path out, String sourceKey, long maxWaitMs, Transfer transfer) throws IOException {
+        Path part = partPath(out);
+        Path meta = out.resolveSibling(out.getFileName() + ".part.json");
+        InFlight running;
+        boolean joined;
+        while (true) {
+            InFlight slot = new InFlight();
+            running = inFlight.putIfAbsent(out, slot);
+            if (running != null) {
+                // Una descarga retirada por inactividad ya salió del mapa: se vuelve a intentar con una nueva
+                if (!running.join()) {
+                    inFlight.remove(out, running);
+                    continue;
+                }
+                joined = true;
+                break;
+            }
+            running = slot;
+            joined = false;
+            try {
+                slot.ticket = scheduler.submit(
+                        McpSessionContext.currentSessionId(), 0L,
+                        () -> {
+                            if (!slot.start()) throw new CancellationException("descarga cancelada");
+                            try {
+                                return streamToDisk(out, part, meta, sourceKey, transfer);
+                            } finally {
+                                slot.finish();
+                            }
+                        },
+                        r -> r.get("bytesTransferred") instanceof Number n ? n.longValue() : 0L);
+                slot.ticket.future().whenComplete((r, e) -> {
+                    inFlight.remove(out, slot);
+                    if (e != null) slot.future.completeExceptionally(e);
+                    else slot.future.complete(r);
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(out, slot);
+                throw e;
+            }
+            break;
+        }
+
+        try {
+            Map<String, Object> download = running.future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            return new Outcome(download, false, joined, null, part, sizeOrZero(part), 0, 0L);
+        } catch (TimeoutException e) {
+            return pending(running, joined, part);
+        } catch (ExecutionException | CancellationException e) {
+            if (running.future.isCancelled() || e.getCause() instanceof CancellationException) {
+                return new Outcome(null, false, joined, "la descarga se retiró de la cola; vuelva a llamar para reintentar", part, sizeOrZero(part), 0, 0L);
+            }
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            return new Outcome(null, false, joined, String.valueOf(cause.getMessage()), part, sizeOrZero(part), 0, 0L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return pending(running, joined, part);
+        } finally {
+            // La última llamada en irse deja la descarga en cola; sólo se retira si nadie la consulta en un tiempo
+            if (running.leave() && !running.future.isDone()) {
+                InFlight abandoned = running;
+                CompletableFuture.delayedExecutor(queuedIdleMillis, TimeUnit.MILLISECONDS)
+                        .execute(() -> dropIfIdle(out, abandoned));
+            }
+        }
+    }
+
+    private static Outcome pending(InFlight running, boolean joined, Path part) {
+        DownloadScheduler.Ticket<Map<String, Object>> ticket = running.ticket;
+        int position = ticket == null ? 0 : ticket.queuePosition();
+        long estimatedWait = ticket == null ? 0L : ticket.estimatedWaitMs();
+        return new Outcome(null, true, joined, null, part, sizeOrZero(part), position, estimatedWait);
+    }
+
+    /** Retira de la cola una descarga que no inició y que nadie consultó durante {@code queuedIdleMillis}. */
+    private void dropIfIdle(Path out, InFlight running) {
+        synchronized (running) {
+            DownloadScheduler.Ticket<Map<String, Object>> ticket = running.ticket;
+            if (running.waiters > 0 || ticket == null || !ticket.isQueued()) return;
+            if (System.currentTimeMillis() - running.lastSeenAt < queuedIdleMillis) return;
+            if (!ticket.cancel()) return;
+            running.abandoned = true;
+        }
+        inFlight.remove(out, running);
+    }
+
+    /**
+     * Cancela la descarga en curso hacia {@code out}: la retira de la cola o, si ya inició, interrumpe la
+     * transferencia (el stream HTTP se cierra al cortar la copia). Para descargas temporales cuyo resultado ya
+     * nadie va a leer; el archivo parcial queda en disco.
+     */
+    public void cancel(Path out) {
+        InFlight running = inFlight.get(out);
+        if (running == null) return;
+        DownloadScheduler.Ticket<Map<String, Object>> ticket = running.ticket;
+        if (ticket != null && ticket.cancel()) return;
+        running.abort();
+    }
+
+    /**
+     * Borra {@code out}, sus archivos parciales y su directorio si queda vacío; si hay una descarga en curso hacia
+     * {@code out}, al terminar. Para descargas temporales que no deben quedar en disco.
+     */
+    public void discardWhenDone(Path out) {
+        InFlight running = inFlight.get(out);
+        if (running != null) {
+            running.future.whenComplete((r, e) -> deleteQuietly(out));
+        } else {
+            deleteQuietly(out);
+        }
+    }
+
+    public static Path partPath(Path out) {
+        return out.resolveSibling(out.getFileName() + ".part");
+    }
+
+    /**
+     * Filtro de entradas a extraer a partir de globs ({@link PathMatcher#globList}); null si no hay ninguno.
+     * Los globs sin {@code /} ni {@code *} inicial se anclan a la raíz del ZIP.
+     */
+    public static Predicate<String> entryFilter(String raw) {
+        List<String> globs = PathMatcher.globList(raw, "entries");
+        if (globs.isEmpty()) return null;
+        List<Pattern> patterns = new ArrayList<>();
+        for (String g : globs) patterns.add(PathMatcher.glob(g.startsWith("/") || g.startsWith("*") ? g : "/" + g));
+        return path -> {
+            for (Pattern p : patterns) if (p.matcher(path).matches()) return true;
+            return false;
+        };
+    }
+
+    /**
+     * Agrega a {@code result} el listado de entradas ({@code maxEntries > 0}) y, con {@code filter}, la
+     * extracción a {@code extractTo} (default {@code <zip sin .zip>_entries}). Retorna una advertencia si la
+     * extracción se cortó por {@code maxExtractBytes}, o null.
+     *
+     * @throws java.util.zip.ZipException si el archivo no es un ZIP válido
+     */
+    public static String describe(Map<String, Object> result,
+                                  Path zip,
+                                  int maxEntries,
+                                  Predicate<String> filter,
+                                  Path extractTo,
+                                  long maxExtractBytes) throws IOException {
+        if (maxEntries > 0) {
+            ZipManifest.Listing listing = ZipManifest.list(zip, maxEntries);
+            result.put("entriesTotal", listing.totalEntries());
+            result.put("uncompressedBytes", listing.uncompressedBytes());
+            result.put("entriesTruncated", listing.entries().size() < listing.totalEntries());
+            result.put("entries", listing.entries());
+        }
+        if (filter == null) return null;
+        Path target = extractTo != null
+                ? extractTo
+                : zip.resolveSibling(zip.getFileName().toString().replaceFirst("(?i)\\.zip$", "") + "_entries");
+        ZipManifest.Extraction extraction = ZipManifest.extract(zip, filter, target, maxExtractBytes);
+        Map<String, Object> extracted = new LinkedHashMap<>();
+        extracted.put("targetDir", extraction.targetDir());
+        extracted.put("count", extraction.extracted().size());
+        extracted.put("bytes", extraction.bytes());
+        extracted.put("paths", extraction.extracted());
+        if (!extraction.rejected().isEmpty()) extracted.put("rejectedUnsafePaths", extraction.rejected());
+        result.put("extracted", extracted);
+        if (!extraction.limited()) return null;
+        extracted.put("limited", true);
+        return "Extracción detenida al superar " + maxExtractBytes + " bytes descomprimidos.";
+    }
+
+    /**
+     * base64 del ZIP leyendo sólo los bytes necesarios: con {@code maxChars}, el prefijo que lo cubre; sin él,
+     * el archivo completo únicamente si no supera {@code maxBytes}. Retorna una advertencia si se omitió.
+     */
+    public static String putBase64(Map<String, Object> result, Path zip, Integer maxChars, long maxBytes) throws IOException {
+        long size = Files.size(zip);
+        long totalChars = 4L * ((size + 2L) / 3L);
+        boolean truncate = maxChars != null && maxChars > 0 && totalChars > maxChars;
+        if (!truncate && size > maxBytes) {
+            result.put("base64Included", false);
+            return "base64 omitido: el ZIP pesa " + size + " bytes (máx " + maxBytes + "); use maxBase64Chars o outputPath.";
+        }
+        // Un prefijo de bytes múltiplo de 3 codifica exactamente al prefijo del base64 completo
+        int readBytes = truncate ? (int) Math.min(size, ((maxChars + 3L) / 4L) * 3L) : (int) size;
+        byte[] bytes;
+        try (InputStream in = Files.newInputStream(zip)) {
+            bytes = in.readNBytes(readBytes);
+        }
+        String b64 = Base64.getEncoder().encodeToString(bytes);
+        if (truncate) {
+            result.put("dataBase64", b64.substring(0, Math.min(maxChars, b64.length())));
+            result.put("base64Truncated", true);
+            result.put("base64ReturnedChars", maxChars);
+            result.put("base64TotalChars", totalChars);
+        } else {
+            result.put("dataBase64", b64);
+            result.put("base64Truncated", false);
+        }
+        return null;
+    }
+
+    private static Map<String, Object> streamToDisk(Path out, Path part, Path meta, String sourceKey, Transfer transfer) throws IOException {
+        long resumeFrom = 0L;
+        String etag = null;
+        if (Files.exists(part) && Files.exists(meta)) {
+            Map<?, ?> previous = JSON.readValue(meta.toFile(), Map.class);
+            String previousEtag = previous.get("etag") == null ? null : previous.get("etag").toString();
+            // sourceKey nombra una rama, no un commit: sólo un ETag fuerte en If-Range garantiza que el resto
+            // pertenece al mismo contenido; sin él se reinicia desde cero en vez de arriesgar un ZIP mezclado
+            if (sourceKey.equals(previous.get("source")) && isStrongEtag(previousEtag)) {
+                resumeFrom = Files.size(part);
+                etag = previousEtag;
+            }
+        }
+        if (resumeFrom == 0L) Files.deleteIfExists(part);
+        writePartMeta(meta, sourceKey, etag);
+
+        Map<String, Object> download = transfer.download(part, resumeFrom, etag);
+        if (download.get("etag") != null && !Objects.equals(etag, download.get("etag"))) {
+            writePartMeta(meta, sourceKey, download.get("etag").toString());
+        }
+        if (download.get("error") != null || Boolean.TRUE.equals(download.get("isHttpError"))) return download;
+
+        try {
+            Files.move(part, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, out, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(meta);
+        return download;
+    }
+
+    static boolean isStrongEtag(String etag) {
+        return etag != null && !etag.isBlank() && !etag.trim().startsWith("W/");
+    }
+
+    private static void writePartMeta(Path meta, String sourceKey, String etag) throws IOException {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("source", sourceKey);
+        m.put("etag", etag);
+        Path parent = meta.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.writeString(meta, JSON.writeValueAsString(m), StandardCharsets.UTF_8);
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            long v = Long.parseLong(raw.trim());
+            return v > 0 ? v : defaultValue;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void deleteQuietly(Path out) {
+        List<Path> paths = new ArrayList<>(List.of(out, partPath(out), out.resolveSibling(out.getFileName() + ".part.json")));
+        if (out.getParent() != null) paths.add(out.getParent());
+        for (Path p : paths) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ignored) {
+                // best-effort: un directorio con otros archivos se conserva
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.RegexLiterals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Índice invertido de trigramas (inmutable) sobre el contenido de texto de un snapshot de repositorio.
+ *
+ * Cada trigrama se normaliza a minúsculas y se empaqueta en un int (10 bits por carácter); las colisiones
+ * sólo generan falsos positivos, que se descartan al verificar el archivo. Las posting lists se guardan
+ * ordenadas y codificadas como deltas varint en un único byte[].
+ */
+public final class TrigramIndex {
+
+    private final String[] paths;
+    private final Map<String, Integer> idByPath;
+    private final BitSet partial;
+    private final int[] trigrams;
+    private final int[] postingOffsets;
+    private final byte[] postings;
+    private final long buildMillis;
+
+    private TrigramIndex(String[] paths, BitSet partial, int[] trigrams, int[] postingOffsets, byte[] postings, long buildMillis) {
+        this.paths = paths;
+        this.partial = partial;
+        this.trigrams = trigrams;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.buildMillis = buildMillis;
+        this.idByPath = new HashMap<>(paths.length * 2);
+        for (int i = 0; i < paths.length; i++) idByPath.put(paths[i], i);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int fileCount() {
+        return paths.length;
+    }
+
+    public int trigramCount() {
+        return trigrams.length;
+    }
+
+    public long buildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * Tamaño aproximado en memoria (arrays primitivos y tabla de rutas).
+     */
+    public long estimatedBytes() {
+        long bytes = (long) trigrams.length * 4L + (long) postingOffsets.length * 4L + postings.length;
+        for (String p : paths) bytes += 40L + 2L * p.length();
+        return bytes;
+    }
+
+    /**
+     * Archivos indexados cuyo contenido puede contener la consulta. Los archivos que el índice no conoce
+     * (o que se indexaron truncados) deben verificarse siempre: usar {@link Candidates#mightMatch(String)}.
+     */
+    public Candidates candidates(Query query) {
+        if (query == null || query.matchesAll()) return new Candidates(null);
+        BitSet union = new BitSet(paths.length);
+        for (int[] alternative : query.alternatives) {
+            union.or(intersect(alternative));
+        }
+        union.or(partial);
+        return new Candidates(union);
+    }
+
+    private BitSet intersect(int[] required) {
+        BitSet result = null;
+        for (int trigram : required) {
+            int pos = Arrays.binarySearch(trigrams, trigram);
+            BitSet files = new BitSet(paths.length);
+            if (pos >= 0) decodePostings(pos, files);
+            if (result == null) {
+                result = files;
+            } else {
+                result.and(files);
+            }
+            if (result.isEmpty()) break;
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    private void decodePostings(int pos, BitSet out) {
+        int i = postingOffsets[pos];
+        int end = postingOffsets[pos + 1];
+        int current = 0;
+        while (i < end) {
+            int delta = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = postings[i++] & 0xff;
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            current += delta;
+            out.set(current);
+        }
+    }
+
+    /**
+     * Planifica la consulta: para literales exige todos sus trigramas; para regex extrae los fragmentos
+     * literales obligatorios de cada alternativa de primer nivel. Si alguna alternativa no aporta trigramas,
+     * la consulta no puede podar archivos.
+     */
+    public static Query plan(String pattern, boolean regex) {
+        if (pattern == null || pattern.isEmpty()) return Query.ALL;
+        if (!regex) {
+            int[] t = trigramsOf(List.of(pattern));
+            return t.length == 0 ? Query.ALL : new Query(List.of(t));
+        }
+        List<List<String>> literals = RegexLiterals.requiredByAlternative(pattern, 3);
+        if (literals == null) return Query.ALL;
+
+        List<int[]> alternatives = new ArrayList<>();
+        for (List<String> branch : literals) {
+            int[] t = trigramsOf(branch);
+            if (t.length == 0) return Query.ALL;
+            alternatives.add(t);
+        }
+        return alternatives.isEmpty() ? Query.ALL : new Query(alternatives);
+    }
+
+    /**
+     * Plan para varios patrones (OR): basta que alguno pueda coincidir.
+     */
+    public static Query planAny(List<String> patterns, boolean regex) {
+        List<int[]> alternatives = new ArrayList<>();
+        for (String pattern : patterns) {
+            Query q = plan(pattern, regex);
+            if (q.matchesAll()) return Query.ALL;
+            alternatives.addAll(q.alternatives);
+        }
+        return alternatives.isEmpty() ? Query.ALL : new Query(alternatives);
+    }
+
+    static int pack(char a, char b, char c) {
+        return ((Character.toLowerCase(a) & 0x3FF) << 20)
+                | ((Character.toLowerCase(b) & 0x3FF) << 10)
+                | (Character.toLowerCase(c) & 0x3FF);
+    }
+
+    private static int[] trigramsOf(List<String> literals) {
+        int total = 0;
+        for (String s : literals) total += Math.max(0, s.length() - 2);
+        int[] out = new int[total];
+        int n = 0;
+        for (String s : literals) {
+            for (int i = 0; i + 2 < s.length(); i++) {
+                out[n++] = pack(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+            }
+        }
+        return sortedUnique(out, n);
+    }
+
+    private static int[] sortedUnique(int[] values, int length) {
+        if (length == 0) return new int[0];
+        Arrays.sort(values, 0, length);
+        int w = 1;
+        for (int i = 1; i < length; i++) {
+            if (values[i] != values[w - 1]) values[w++] = values[i];
+        }
+        return Arrays.copyOf(values, w);
+    }
+
+    /**
+     * Consulta planificada: OR de alternativas, cada una un AND de trigramas ordenados.
+     */
+    public static final class Query {
+        static final Query ALL = new Query(null);
+
+        private final List<int[]> alternatives;
+
+        private Query(List<int[]> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        public boolean matchesAll() {
+            return alternatives == null;
+        }
+
+        public int trigramCount() {
+            if (alternatives == null) return 0;
+            int n = 0;
+            for (int[] a : alternatives) n += a.length;
+            return n;
+        }
+    }
+
+    /**
+     * Resultado de la planificación sobre un índice concreto.
+     */
+    public final class Candidates {
+        private final BitSet files;
+
+        private Candidates(BitSet files) {
+            this.files = files;
+        }
+
+        public boolean mightMatch(String path) {
+            if (files == null) return true;
+            Integer id = idByPath.get(path);
+            return id == null || files.get(id);
+        }
+
+        public boolean prunes() {
+            return files != null;
+        }
+    }
+
+    /**
+     * Acumula archivos y genera el índice. Es seguro llamar {@link #add} desde varios hilos.
+     */
+    public static final class Builder {
+        private final List<String> paths = new ArrayList<>();
+        private final BitSet partial = new BitSet();
+        private long[] pairs = new long[1024];
+        private int pairCount;
+        private final long startedAt = System.currentTimeMillis();
+
+        private Builder() {}
+
+        /**
+         * Indexa {@code text} bajo {@code path}. {@code truncated=true} marca el archivo como parcial:
+         * siempre será candidato porque el índice no cubre su contenido completo.
+         */
+        public void add(String path, String text, boolean truncated) {
+            int len = text == null ? 0 : text.length();
+            int[] grams = new int[Math.max(0, len - 2)];
+            for (int i = 0; i + 2 < len; i++) {
+                grams[i] = pack(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            }
+            int[] unique = sortedUnique(grams, grams.length);
+            synchronized (this) {
+                int id = paths.size();
+                paths.add(path);
+                if (truncated) partial.set(id);
+                ensurePairs(pairCount + unique.length);
+                for (int g : unique) {
+                    pairs[pairCount++] = ((long) g << 32) | id;
+                }
+            }
+        }
+
+        public synchronized int size() {
+            return paths.size();
+        }
+
+        /**
+         * Copia de {@code base} los archivos que acepta {@code keep} sin releer su contenido (actualización
+         * incremental tras un diff: sólo los archivos cambiados se vuelven a leer con {@link #add}).
+         * Retorna la cantidad de archivos copiados.
+         */
+        public synchronized int addAll(TrigramIndex base, Predicate<String> keep) {
+            int[] remap = new int[base.paths.length];
+            int copied = 0;
+            for (int f = 0; f < base.paths.length; f++) {
+                if (!keep.test(base.paths[f])) {
+                    remap[f] = -1;
+                    continue;
+                }
+                remap[f] = paths.size();
+                paths.add(base.paths[f]);
+                if (base.partial.get(f)) partial.set(remap[f]);
+                copied++;
+            }
+            BitSet files = new BitSet(base.paths.length);
+            for (int pos = 0; pos < base.trigrams.length; pos++) {
+                files.clear();
+                base.decodePostings(pos, files);
+                long gram = (long) base.trigrams[pos] << 32;
+                for (int f = files.nextSetBit(0); f >= 0; f = files.nextSetBit(f + 1)) {
+                    if (remap[f] < 0) continue;
+                    ensurePairs(pairCount + 1);
+                    pairs[pairCount++] = gram | remap[f];
+                }
+            }
+            return copied;
+        }
+
+        public synchronized TrigramIndex build() {
+            Arrays.sort(pairs, 0, pairCount);
+            int distinct = 0;
+            for (int i = 0; i < pairCount; i++) {
+                if (i == 0 || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) distinct++;
+            }
+            int[] keys = new int[distinct];
+            int[] offsets = new int[distinct + 1];
+            byte[] buf = new byte[Math.max(16, pairCount * 2)];
+            int w = 0;
+            int k = -1;
+            int previousFile = 0;
+            for (int i = 0; i < pairCount; i++) {
+                int gram = (int) (pairs[i] >>> 32);
+                int file = (int) pairs[i];
+                if (k < 0 || keys[k] != gram) {
+                    keys[++k] = gram;
+                    offsets[k] = w;
+                    previousFile = 0;
+                }
+                int delta = file - previousFile;
+                previousFile = file;
+                if (w + 5 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                while ((delta & ~0x7f) != 0) {
+                    buf[w++] = (byte) ((delta & 0x7f) | 0x80);
+                    delta >>>= 7;
+                }
+                buf[w++] = (byte) delta;
+            }
+            offsets[distinct] = w;
+            pairs = new long[0];
+            return new TrigramIndex(paths.toArray(new String[0]), (BitSet) partial.clone(), keys, offsets,
+                    Arrays.copyOf(buf, w), System.currentTimeMillis() - startedAt);
+        }
+
+        private void ensurePairs(int needed) {
+            if (needed <= pairs.length) return;
+            int next = pairs.length;
+            while (next < needed) next = next * 2;
+            pairs = Arrays.copyOf(pairs, next);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Listado de árbol de un repositorio en formato columnar: una fila por entrada repartida en arreglos
+ * paralelos en lugar de un mapa por entrada.
+ *
+ * Las rutas se guardan como (directorio, nombre) sobre una tabla de directorios en forma de trie, así que
+ * cada prefijo se almacena una sola vez; los objectId SHA-1 se empaquetan en 20 bytes; commitId y
+ * gitObjectType se codifican con diccionario; las URLs usan codificación frontal por bloques; y el resto de
+ * campos del item (contentMetadata, latestProcessedChange...) se comparte entre entradas iguales.
+ * El filtro por scopePath y la deduplicación por ruta (sin distinguir mayúsculas) se aplican al construir,
+ * y los mapas sólo se materializan con {@link #item(int)} para la página que se devuelve.
+ */
+public final class CompactTree {
+
+    private static final int ROOT_DIR = 0;
+    private static final int OBJECT_ID_BYTES = 20;
+    private static final int URL_BLOCK = 16;
+    private static final Set<String> COLUMN_KEYS = Set.of(
+            "path", "relativePath", "objectId", "gitObjectType", "isFolder", "commitId", "url");
+    private static final CompactTree EMPTY = builder("/").build();
+
+    private final int[] dirParent;
+    private final String[] dirName;
+
+    private final int size;
+    private final int[] entryDir;
+    private final String[] entryName;
+    private final BitSet folder;
+    private final byte[] objectIds;
+    private final BitSet hasObjectId;
+    private final Map<Integer, String> irregularObjectIds;
+    private final byte[] typeRef;
+    private final String[] types;
+    private final int[] commitRef;
+    private final String[] commits;
+    private final int[] urlShared;
+    private final String[] urlSuffix;
+    private final int[] extraRef;
+    private final List<Map<String, Object>> extras;
+    private final BitSet metadataFileName;
+
+    private CompactTree(Builder b) {
+        this.dirParent = Arrays.copyOf(b.dirParent, b.dirCount);
+        this.dirName = Arrays.copyOf(b.dirName, b.dirCount);
+        this.size = b.size;
+        this.entryDir = Arrays.copyOf(b.entryDir, b.size);
+        this.entryName = Arrays.copyOf(b.entryName, b.size);
+        this.folder = b.folder;
+        this.objectIds = Arrays.copyOf(b.objectIds, b.size * OBJECT_ID_BYTES);
+        this.hasObjectId = b.hasObjectId;
+        this.irregularObjectIds = b.irregularObjectIds;
+        this.typeRef = Arrays.copyOf(b.typeRef, b.size);
+        this.types = b.types.toArray(new String[0]);
+        this.commitRef = Arrays.copyOf(b.commitRef, b.size);
+        this.commits = b.commits.toArray(new String[0]);
+        this.urlShared = Arrays.copyOf(b.urlShared, b.size);
+        this.urlSuffix = Arrays.copyOf(b.urlSuffix, b.size);
+        this.extraRef = Arrays.copyOf(b.extraRef, b.size);
+        this.extras = b.extras;
+        this.metadataFileName = b.metadataFileName;
+    }
+
+    public static CompactTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builder que sólo conserva entradas bajo {@code scopePath} ("/" o vacío = todo el repositorio).
+     */
+    public static Builder builder(String scopePath) {
+        return new Builder(scopePath);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Directorios de la tabla de rutas; el 0 es la raíz y cada directorio tiene un ID mayor que su padre.
+     */
+    public int directoryCount() {
+        return dirParent.length;
+    }
+
+    public int directoryOf(int i) {
+        return entryDir[i];
+    }
+
+    public int parentDirectory(int dir) {
+        return dirParent[dir];
+    }
+
+    /**
+     * Ruta del directorio ({@code /a/b}; la raíz es la cadena vacía).
+     */
+    public String directoryPath(int dir) {
+        StringBuilder sb = new StringBuilder(48);
+        appendDir(sb, dir);
+        return sb.toString();
+    }
+
+    public boolean isFolder(int i) {
+        return folder.get(i);
+    }
+
+    /**
+     * Ruta normalizada ({@code /a/b.txt}) reconstruida desde la tabla de directorios.
+     */
+    public String path(int i) {
+        String name = entryName[i];
+        int dir = entryDir[i];
+        if (dir == ROOT_DIR && name.isEmpty()) return "/";
+        StringBuilder sb = new StringBuilder(64);
+        appendDir(sb, dir);
+        return sb.append('/').append(name).toString();
+    }
+
+    public String name(int i) {
+        return entryName[i];
+    }
+
+    public String objectId(int i) {
+        if (!hasObjectId.get(i)) return irregularObjectIds.getOrDefault(i, "");
+        char[] hex = new char[OBJECT_ID_BYTES * 2];
+        int base = i * OBJECT_ID_BYTES;
+        for (int k = 0; k < OBJECT_ID_BYTES; k++) {
+            int v = objectIds[base + k] & 0xff;
+            hex[2 * k] = Character.forDigit(v >>> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(v & 0x0f, 16);
+        }
+        return new String(hex);
+    }
+
+    public String gitObjectType(int i) {
+        int ref = typeRef[i];
+        return ref < 0 ? "" : types[ref];
+    }
+
+    public String url(int i) {
+        if (urlSuffix[i] == null) return "";
+        String url = "";
+        for (int k = i - (i % URL_BLOCK); k <= i; k++) {
+            url = urlSuffix[k] == null ? "" : url.substring(0, urlShared[k]) + urlSuffix[k];
+        }
+        return url;
+    }
+
+    /**
+     * Índices de las entradas que cumplen {@code filter}, en el orden del listado.
+     */
+    public int[] select(IntPredicate filter) {
+        int[] out = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(i)) out[n++] = i;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public int folderCount() {
+        return folder.cardinality();
+    }
+
+    /**
+     * Materializa la entrada como el item equivalente de la API (path, objectId, gitObjectType, commitId,
+     * isFolder, url y los demás campos originales).
+     */
+    public Map<String, Object> item(int i) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        String objectId = objectId(i);
+        if (!objectId.isEmpty()) item.put("objectId", objectId);
+        String type = gitObjectType(i);
+        if (!type.isEmpty()) item.put("gitObjectType", type);
+        if (commitRef[i] >= 0) item.put("commitId", commits[commitRef[i]]);
+        item.put("path", path(i));
+        item.put("isFolder", folder.get(i));
+        if (extraRef[i] >= 0) {
+            for (Map.Entry<String, Object> e : extras.get(extraRef[i]).entrySet()) {
+                if ("contentMetadata".equals(e.getKey()) && metadataFileName.get(i) && e.getValue() instanceof Map<?, ?> meta) {
+                    Map<String, Object> restored = new LinkedHashMap<>();
+                    restored.put("fileName", entryName[i]);
+                    for (Map.Entry<?, ?> m : meta.entrySet()) restored.put(m.getKey().toString(), m.getValue());
+                    item.put(e.getKey(), restored);
+                } else {
+                    item.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        String url = url(i);
+        if (!url.isEmpty()) item.put("url", url);
+        return item;
+    }
+
+    /**
+     * Árbol nuevo con los cambios de un diff entre commits aplicados; este árbol no se modifica, así que las
+     * búsquedas que lo estén recorriendo no ven estados intermedios.
+     *
+     * Las rutas de {@code removed} (borradas o renombradas) se quitan junto con su contenido si son carpetas.
+     * Cada item de {@code upserts} reemplaza las columnas de la entrada con la misma ruta conservando sus demás
+     * campos, o se agrega al final (con las carpetas ancestro que falten). Si {@code commitId} no está vacío
+     * reemplaza el commitId de las entradas que lo tenían.
+     */
+    public CompactTree patch(String scopePath, Collection<String> removed, Collection<? extends Map<?, ?>> upserts, String commitId) {
+        Set<String> gone = new HashSet<>();
+        for (String r : removed) {
+            String n = normalize(r).toLowerCase(Locale.ROOT);
+            if (!n.isEmpty()) gone.add(n);
+        }
+        Map<String, Map<?, ?>> changed = new LinkedHashMap<>();
+        for (Map<?, ?> row : upserts) {
+            String n = normalize(Builder.str(row.get("path"))).toLowerCase(Locale.ROOT);
+            if (!n.isEmpty()) changed.put(n, row);
+        }
+
+        Builder b = builder(scopePath);
+        for (int i = 0; i < size; i++) {
+            String path = path(i);
+            String lower = path.toLowerCase(Locale.ROOT);
+            if (isRemoved(lower, gone)) continue;
+            b.copyEntry(this, i, path, changed.remove(lower), commitId);
+        }
+        for (Map<?, ?> row : changed.values()) {
+            b.addMissingFolders(normalize(Builder.str(row.get("path"))));
+            b.addItem(row);
+        }
+        return b.build();
+    }
+
+    private static boolean isRemoved(String lowerPath, Set<String> gone) {
+        if (gone.isEmpty()) return false;
+        if (gone.contains(lowerPath)) return true;
+        for (int k = lowerPath.indexOf('/', 1); k > 0; k = lowerPath.indexOf('/', k + 1)) {
+            if (gone.contains(lowerPath.substring(0, k))) return true;
+        }
+        return false;
+    }
+
+    private void appendDir(StringBuilder sb, int dir) {
+        if (dir == ROOT_DIR) return;
+        appendDir(sb, dirParent[dir]);
+        sb.append('/').append(dirName[dir]);
+    }
+
+    static String normalize(String path) {
+        if (path == null || path.isBlank()) return "";
+        String p = path.replace('\\', '/').trim();
+        if (!p.startsWith("/")) p = "/" + p;
+        while (p.contains("//")) p = p.replace("//", "/");
+        return p;
+    }
+
+    public static final class Builder {
+        private final String scope;
+        private final String scopePrefix;
+        private final Set<String> seen = new HashSet<>();
+        private final Map<String, Integer> dirIds = new HashMap<>();
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, Integer> typeIds = new HashMap<>();
+        private final Map<String, Integer> commitIds = new HashMap<>();
+        private final Map<Map<String, Object>, Integer> extraIds = new HashMap<>();
+
+        private int dirCount;
+        private int[] dirParent = new int[64];
+        private String[] dirName = new String[64];
+
+        private int size;
+        private int[] entryDir = new int[256];
+        private String[] entryName = new String[256];
+        private final BitSet folder = new BitSet();
+        private byte[] objectIds = new byte[256 * OBJECT_ID_BYTES];
+        private final BitSet hasObjectId = new BitSet();
+        private final Map<Integer, String> irregularObjectIds = new HashMap<>();
+        private byte[] typeRef = new byte[256];
+        private final List<String> types = new ArrayList<>();
+        private int[] commitRef = new int[256];
+        private final List<String> commits = new ArrayList<>();
+        private int[] urlShared = new int[256];
+        private String[] urlSuffix = new String[256];
+        private int[] extraRef = new int[256];
+        private final List<Map<String, Object>> extras = new ArrayList<>();
+        private final BitSet metadataFileName = new BitSet();
+        private String previousUrl = "";
+
+        private int outOfScope;
+        private int duplicates;
+
+        private Builder(String scopePath) {
+            String s = normalize(scopePath);
+            this.scope = s.isEmpty() || "/".equals(s) ? "" : s;
+            this.scopePrefix = scope.endsWith("/") ? scope : scope + "/";
+            dirParent[0] = -1;
+            dirName[0] = "";
+            dirIds.put("", ROOT_DIR);
+            dirCount = 1;
+        }
+
+        /**
+         * Agrega un item de {@code git/items} (path, isFolder, objectId, commitId, contentMetadata...).
+         */
+        public Builder addItem(Map<?, ?> row) {
+            Object path = row.get("path");
+            if (path == null || path.toString().isBlank()) path = row.get("relativePath");
+            String type = str(row.get("gitObjectType"));
+            boolean isFolder = parseBool(row.get("isFolder")) || "tree".equalsIgnoreCase(type);
+            int i = addEntry(path == null ? "" : path.toString(), isFolder, type, str(row.get("objectId")),
+                    str(row.get("commitId")), str(row.get("url")));
+            if (i < 0) return this;
+
+            Map<String, Object> extra = null;
+            for (Map.Entry<?, ?> e : row.entrySet()) {
+                if (e.getKey() == null || COLUMN_KEYS.contains(e.getKey().toString())) continue;
+                if (extra == null) extra = new LinkedHashMap<>();
+                Object value = e.getValue();
+                if ("contentMetadata".equals(e.getKey()) && value instanceof Map<?, ?> meta
+                        && entryName[i].equals(meta.get("fileName"))) {
+                    Map<String, Object> shared = new LinkedHashMap<>();
+                    for (Map.Entry<?, ?> m : meta.entrySet()) {
+                        if (m.getKey() != null && !"fileName".equals(m.getKey())) shared.put(m.getKey().toString(), m.getValue());
+                    }
+                    value = shared;
+                    metadataFileName.set(i);
+                }
+                extra.put(e.getKey().toString(), value);
+            }
+            if (extra != null) extraRef[i] = internExtra(extra);
+            return this;
+        }
+
+        private int internExtra(Map<String, Object> extra) {
+            Integer id = extraIds.get(extra);
+            if (id == null) {
+                id = extras.size();
+                extras.add(extra);
+                extraIds.put(extra, id);
+            }
+            return id;
+        }
+
+        /**
+         * Agrega una entrada de {@code git/trees?recursive=true} (relativePath, gitObjectType, objectId, url).
+         */
+        public Builder addTreeEntry(Map<?, ?> row) {
+            String relative = str(row.get("relativePath"));
+            if (relative.isBlank()) return this;
+            String type = str(row.get("gitObjectType"));
+            addEntry(relative, "tree".equalsIgnoreCase(type), type, str(row.get("objectId")), "", str(row.get("url")));
+            return this;
+        }
+
+        private void copyEntry(CompactTree src, int i, String path, Map<?, ?> replacement, String commitOverride) {
+            String objectId = src.objectId(i);
+            String type = src.gitObjectType(i);
+            String url = src.url(i);
+            String commit = src.commitRef[i] >= 0 ? src.commits[src.commitRef[i]] : "";
+            if (replacement != null) {
+                if (!str(replacement.get("objectId")).isEmpty()) objectId = str(replacement.get("objectId"));
+                if (!str(replacement.get("gitObjectType")).isEmpty()) type = str(replacement.get("gitObjectType"));
+                if (!str(replacement.get("url")).isEmpty()) url = str(replacement.get("url"));
+            }
+            if (!commit.isEmpty() && commitOverride != null && !commitOverride.isBlank()) commit = commitOverride;
+
+            int k = addEntry(path, src.isFolder(i), type, objectId, commit, url);
+            if (k < 0 || src.extraRef[i] < 0) return;
+            extraRef[k] = internExtra(src.extras.get(src.extraRef[i]));
+            if (src.metadataFileName.get(i)) metadataFileName.set(k);
+        }
+
+        private void addMissingFolders(String path) {
+            for (int k = path.indexOf('/', 1); k > 0; k = path.indexOf('/', k + 1)) {
+                String folderPath = path.substring(0, k);
+                if (!inScope(folderPath) || seen.contains(folderPath.toLowerCase(Locale.ROOT))) continue;
+                addEntry(folderPath, true, "tree", "", "", "");
+            }
+        }
+
+        /**
+         * Entradas descartadas por estar fuera de scopePath.
+         */
+        public int outOfScope() {
+            return outOfScope;
+        }
+
+        /**
+         * Entradas descartadas por ruta repetida.
+         */
+        public int duplicates() {
+            return duplicates;
+        }
+
+        public CompactTree build() {
+            return new CompactTree(this);
+        }
+
+        private int addEntry(String rawPath, boolean isFolder, String type, String objectId, String commitId, String url) {
+            String path = normalize(rawPath);
+            if (path.isEmpty()) return -1;
+            if (!inScope(path)) {
+                outOfScope++;
+                return -1;
+            }
+            if (!seen.add(path.toLowerCase(Locale.ROOT))) {
+                duplicates++;
+                return -1;
+            }
+            if (path.length() > 1 && path.endsWith("/")) path = path.substring(0, path.length() - 1);
+
+            int i = size;
+            ensureEntryCapacity(i + 1);
+            int slash = path.lastIndexOf('/');
+            entryDir[i] = dirId(path.substring(0, slash));
+            entryName[i] = intern(path.substring(slash + 1));
+            if (isFolder) folder.set(i);
+
+            if (isSha1(objectId)) {
+                int base = i * OBJECT_ID_BYTES;
+                for (int k = 0; k < OBJECT_ID_BYTES; k++) {
+                    objectIds[base + k] = (byte) Integer.parseInt(objectId.substring(2 * k, 2 * k + 2), 16);
+                }
+                hasObjectId.set(i);
+            } else if (!objectId.isEmpty()) {
+                irregularObjectIds.put(i, objectId);
+            }
+
+            typeRef[i] = (byte) (type.isEmpty() ? -1 : code(typeIds, types, type));
+            commitRef[i] = commitId.isEmpty() ? -1 : code(commitIds, commits, commitId);
+            extraRef[i] = -1;
+
+            // Cada bloque de URL_BLOCK entradas arranca con la URL completa, así url(i) decodifica a lo sumo un bloque
+            int shared = i % URL_BLOCK == 0 ? 0 : commonPrefix(previousUrl, url);
+            urlShared[i] = shared;
+            urlSuffix[i] = url.isEmpty() ? null : url.substring(shared);
+            previousUrl = url;
+            size++;
+            return i;
+        }
+
+        private boolean inScope(String path) {
+            return scope.isEmpty() || path.equals(scope) || path.startsWith(scopePrefix);
+        }
+
+        private int dirId(String dirPath) {
+            Integer id = dirIds.get(dirPath);
+            if (id != null) return id;
+            int slash = dirPath.lastIndexOf('/');
+            int parent = dirId(dirPath.substring(0, slash));
+            if (dirCount == dirParent.length) {
+                dirParent = Arrays.copyOf(dirParent, dirCount * 2);
+                dirName = Arrays.copyOf(dirName, dirCount * 2);
+            }
+            int created = dirCount++;
+            dirParent[created] = parent;
+            dirName[created] = intern(dirPath.substring(slash + 1));
+            dirIds.put(dirPath, created);
+            return created;
+        }
+
+        private String intern(String name) {
+            String existing = names.putIfAbsent(name, name);
+            return existing == null ? name : existing;
+        }
+
+        private void ensureEntryCapacity(int needed) {
+            if (needed <= entryDir.length) return;
+            int cap = Math.max(needed, entryDir.length * 2);
+            entryDir = Arrays.copyOf(entryDir, cap);
+            entryName = Arrays.copyOf(entryName, cap);
+            objectIds = Arrays.copyOf(objectIds, cap * OBJECT_ID_BYTES);
+            typeRef = Arrays.copyOf(typeRef, cap);
+            commitRef = Arrays.copyOf(commitRef, cap);
+            urlShared = Arrays.copyOf(urlShared, cap);
+            urlSuffix = Arrays.copyOf(urlSuffix, cap);
+            extraRef = Arrays.copyOf(extraRef, cap);
+        }
+
+        private static int code(Map<String, Integer> ids, List<String> values, String value) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            ids.put(value, values.size());
+            values.add(value);
+            return values.size() - 1;
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int max = Math.min(a.length(), b.length());
+            int k = 0;
+            while (k < max && a.charAt(k) == b.charAt(k)) k++;
+            return k;
+        }
+
+        private static boolean isSha1(String s) {
+            if (s.length() != OBJECT_ID_BYTES * 2) return false;
+            for (int k = 0; k < s.length(); k++) {
+                char c = s.charAt(k);
+                if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+            }
+            return true;
+        }
+
+        private static String str(Object value) {
+            return value == null ? "" : value.toString().trim();
+        }
+
+        private static boolean parseBool(Object value) {
+            if (value instanceof Boolean b) return b;
+            return value != null && "true".equalsIgnoreCase(value.toString().trim());
+        }
+    }
+}
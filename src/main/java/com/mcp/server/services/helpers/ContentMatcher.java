@@ -0,0 +1,484 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Motor de coincidencias para búsquedas de contenido.
+ *
+ * <ul>
+ *   <li>literal único: {@link String#indexOf} (intrínseco vectorizado) si distingue mayúsculas, Boyer–Moore–Horspool con plegado de caso si no;</li>
+ *   <li>varios literales: Aho–Corasick en una sola pasada;</li>
+ *   <li>regex: prefiltro por literales obligatorios (indexOf/BMH o Aho–Corasick) antes de evaluar el {@link Matcher}.</li>
+ * </ul>
+ * Reporta todas las coincidencias (hasta un máximo) con línea y columna 1-based.
+ */
+public final class ContentMatcher {
+
+    public static final String MODE_LITERAL = "literal";
+    public static final String MODE_LITERAL_MULTI = "literal_multi";
+    public static final String MODE_REGEX = "regex";
+    public static final String MODE_REGEX_MULTI = "regex_multi";
+
+    private static final int MIN_PREFILTER_LITERAL = 2;
+
+    private final String mode;
+    private final LiteralFinder literal;
+    private final AhoCorasick literals;
+    private final Pattern[] regexes;
+    private final AhoCorasick prefilter;
+    private final int[] prefilterOwner;
+    private final boolean[] unfiltered;
+
+    private ContentMatcher(String mode,
+                           LiteralFinder literal,
+                           AhoCorasick literals,
+                           Pattern[] regexes,
+                           AhoCorasick prefilter,
+                           int[] prefilterOwner,
+                           boolean[] unfiltered) {
+        this.mode = mode;
+        this.literal = literal;
+        this.literals = literals;
+        this.regexes = regexes;
+        this.prefilter = prefilter;
+        this.prefilterOwner = prefilterOwner;
+        this.unfiltered = unfiltered;
+    }
+
+    /**
+     * Compila los patrones. Lanza {@link java.util.regex.PatternSyntaxException} si alguna regex es inválida.
+     */
+    public static ContentMatcher compile(List<String> patterns, boolean regex, boolean caseSensitive) {
+        if (patterns == null || patterns.isEmpty()) throw new IllegalArgumentException("Se requiere al menos un patrón");
+        if (!regex) {
+            if (patterns.size() == 1) {
+                return new ContentMatcher(MODE_LITERAL, new LiteralFinder(patterns.get(0), caseSensitive),
+                        null, null, null, null, null);
+            }
+            return new ContentMatcher(MODE_LITERAL_MULTI, null, new AhoCorasick(patterns, caseSensitive),
+                    null, null, null, null);
+        }
+
+        int flags = Pattern.MULTILINE;
+        if (!caseSensitive) flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        Pattern[] compiled = new Pattern[patterns.size()];
+        boolean[] unfiltered = new boolean[patterns.size()];
+        List<String> prefilterLiterals = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            compiled[i] = Pattern.compile(patterns.get(i), flags);
+            List<List<String>> required = RegexLiterals.requiredByAlternative(patterns.get(i), MIN_PREFILTER_LITERAL);
+            if (required == null) {
+                unfiltered[i] = true;
+                continue;
+            }
+            for (List<String> alternative : required) {
+                prefilterLiterals.add(longest(alternative));
+                owners.add(i);
+            }
+        }
+
+        AhoCorasick prefilter = prefilterLiterals.isEmpty() ? null : new AhoCorasick(prefilterLiterals, caseSensitive);
+        int[] owner = owners.stream().mapToInt(Integer::intValue).toArray();
+        LiteralFinder single = null;
+        if (patterns.size() == 1 && prefilterLiterals.size() == 1) {
+            single = new LiteralFinder(prefilterLiterals.get(0), caseSensitive);
+            prefilter = null;
+        }
+        return new ContentMatcher(patterns.size() == 1 ? MODE_REGEX : MODE_REGEX_MULTI, single, null,
+                compiled, prefilter, owner, unfiltered);
+    }
+
+    public String mode() {
+        return mode;
+    }
+
+    /**
+     * True si la búsqueda puede descartar textos sin ejecutar la regex (siempre true para literales).
+     */
+    public boolean hasPrefilter() {
+        if (regexes == null) return true;
+        for (boolean u : unfiltered) if (u) return false;
+        return true;
+    }
+
+    /**
+     * Busca hasta {@code maxMatches} coincidencias ordenadas por posición.
+     * {@code skippedByPrefilter} indica que el texto se descartó sin evaluar ninguna regex.
+     */
+    public Result findAll(String text, int maxMatches) {
+        int cap = Math.max(1, maxMatches);
+        if (text == null) return new Result(List.of(), false, false);
+        List<Match> out = new ArrayList<>();
+        boolean truncated;
+        if (regexes == null) {
+            truncated = literal != null ? literal.findAll(text, cap, out) : literals.findAll(text, cap, out);
+            assignLines(text, out);
+            return new Result(out, truncated, false);
+        }
+
+        boolean[] run = selectRegexes(text);
+        if (run == null) return new Result(List.of(), false, true);
+
+        truncated = false;
+        for (int p = 0; p < regexes.length; p++) {
+            if (!run[p]) continue;
+            Matcher m = regexes[p].matcher(text);
+            int found = 0;
+            while (m.find()) {
+                if (found == cap) {
+                    truncated = true;
+                    break;
+                }
+                out.add(new Match(m.start(), m.end(), 0, 0, p));
+                found++;
+            }
+        }
+        if (regexes.length > 1) {
+            out.sort(Comparator.comparingInt(Match::start).thenComparingInt(Match::patternIndex));
+            if (out.size() > cap) {
+                out = new ArrayList<>(out.subList(0, cap));
+                truncated = true;
+            }
+        }
+        assignLines(text, out);
+        return new Result(out, truncated, false);
+    }
+
+    /**
+     * Regex a evaluar según el prefiltro, o null si ninguna puede coincidir.
+     */
+    private boolean[] selectRegexes(String text) {
+        boolean[] run = Arrays.copyOf(unfiltered, unfiltered.length);
+        boolean any = false;
+        for (boolean u : run) any |= u;
+        if (literal != null) {
+            if (literal.indexOf(text, 0) >= 0) {
+                run[0] = true;
+                any = true;
+            }
+        } else if (prefilter != null) {
+            boolean[] hits = prefilter.presence(text);
+            for (int i = 0; i < hits.length; i++) {
+                if (!hits[i]) continue;
+                run[prefilterOwner[i]] = true;
+                any = true;
+            }
+        }
+        return any ? run : null;
+    }
+
+    private static String longest(List<String> literals) {
+        String best = literals.get(0);
+        for (String s : literals) if (s.length() > best.length()) best = s;
+        return best;
+    }
+
+    private static void assignLines(String text, List<Match> matches) {
+        int line = 1;
+        int lineStart = 0;
+        int scanned = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            Match m = matches.get(i);
+            if (m.start() < scanned) {
+                line = 1;
+                lineStart = 0;
+                scanned = 0;
+            }
+            int nl = text.indexOf('\n', scanned);
+            while (nl >= 0 && nl < m.start()) {
+                line++;
+                lineStart = nl + 1;
+                nl = text.indexOf('\n', lineStart);
+            }
+            scanned = lineStart;
+            matches.set(i, new Match(m.start(), m.end(), line, m.start() - lineStart + 1, m.patternIndex()));
+        }
+    }
+
+    /**
+     * Texto de la línea que contiene {@code offset} (sin salto de línea).
+     */
+    public static String lineAt(String text, int offset) {
+        int from = text.lastIndexOf('\n', Math.max(0, offset - 1)) + 1;
+        if (offset == 0) from = 0;
+        int to = text.indexOf('\n', offset);
+        if (to < 0) to = text.length();
+        if (to > from && text.charAt(to - 1) == '\r') to--;
+        return text.substring(from, Math.max(from, to));
+    }
+
+    /**
+     * Hasta {@code count} líneas anteriores a la línea que contiene {@code offset}, en orden de aparición.
+     */
+    public static List<String> linesBefore(String text, int offset, int count) {
+        List<String> out = new ArrayList<>();
+        int lineStart = offset == 0 ? 0 : text.lastIndexOf('\n', Math.max(0, offset - 1)) + 1;
+        while (out.size() < count && lineStart > 0) {
+            int prevEnd = lineStart - 1;
+            int prevStart = prevEnd == 0 ? 0 : text.lastIndexOf('\n', prevEnd - 1) + 1;
+            out.add(0, lineAt(text, prevStart));
+            lineStart = prevStart;
+        }
+        return out;
+    }
+
+    /**
+     * Hasta {@code count} líneas posteriores a la línea que contiene {@code offset}.
+     */
+    public static List<String> linesAfter(String text, int offset, int count) {
+        List<String> out = new ArrayList<>();
+        int nl = text.indexOf('\n', offset);
+        while (out.size() < count && nl >= 0 && nl + 1 < text.length()) {
+            out.add(lineAt(text, nl + 1));
+            nl = text.indexOf('\n', nl + 1);
+        }
+        return out;
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    public record Match(int start, int end, int line, int column, int patternIndex) {}
+
+    public record Result(List<Match> matches, boolean truncated, boolean skippedByPrefilter) {}
+
+    /**
+     * Búsqueda de un literal: indexOf si distingue mayúsculas; Horspool sobre caracteres plegados si no.
+     */
+    static final class LiteralFinder {
+        private final String pattern;
+        private final char[] folded;
+        private final int[] shift;
+        private final boolean caseSensitive;
+
+        LiteralFinder(String pattern, boolean caseSensitive) {
+            this.pattern = pattern;
+            this.caseSensitive = caseSensitive;
+            if (caseSensitive) {
+                this.folded = null;
+                this.shift = null;
+                return;
+            }
+            int m = pattern.length();
+            this.folded = new char[m];
+            for (int i = 0; i < m; i++) folded[i] = fold(pattern.charAt(i));
+            // Tabla de saltos indexada por el byte bajo: en colisiones queda el salto menor (conservador)
+            this.shift = new int[256];
+            Arrays.fill(shift, Math.max(1, m));
+            for (int i = 0; i < m - 1; i++) shift[folded[i] & 0xFF] = m - 1 - i;
+        }
+
+        int indexOf(String text, int from) {
+            if (caseSensitive) return text.indexOf(pattern, from);
+            int m = folded.length;
+            int n = text.length();
+            if (m == 0) return from <= n ? from : -1;
+            int i = from;
+            while (i <= n - m) {
+                int j = m - 1;
+                while (j >= 0 && fold(text.charAt(i + j)) == folded[j]) j--;
+                if (j < 0) return i;
+                i += shift[fold(text.charAt(i + m - 1)) & 0xFF];
+            }
+            return -1;
+        }
+
+        boolean findAll(String text, int cap, List<Match> out) {
+            int len = Math.max(1, pattern.length());
+            int at = indexOf(text, 0);
+            while (at >= 0) {
+                if (out.size() == cap) return true;
+                out.add(new Match(at, at + pattern.length(), 0, 0, 0));
+                at = indexOf(text, at + len);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Autómata Aho–Corasick con transiciones en arrays ordenados por nodo (búsqueda binaria por carácter).
+     */
+    static final class AhoCorasick {
+        private final boolean caseSensitive;
+        private final int[] lengths;
+        private final int maxLength;
+        private char[][] edgeChars;
+        private int[][] edgeTargets;
+        private int[] fail;
+        private int[][] outputs;
+
+        AhoCorasick(List<String> patterns, boolean caseSensitive) {
+            this.caseSensitive = caseSensitive;
+            this.lengths = new int[patterns.size()];
+            List<StringBuilder> keys = new ArrayList<>();
+            List<List<Integer>> targets = new ArrayList<>();
+            List<List<Integer>> outs = new ArrayList<>();
+            keys.add(new StringBuilder());
+            targets.add(new ArrayList<>());
+            outs.add(new ArrayList<>());
+            for (int p = 0; p < patterns.size(); p++) {
+                String s = patterns.get(p);
+                lengths[p] = s.length();
+                int node = 0;
+                for (int i = 0; i < s.length(); i++) {
+                    char c = norm(s.charAt(i));
+                    int idx = keys.get(node).indexOf(String.valueOf(c));
+                    if (idx >= 0) {
+                        node = targets.get(node).get(idx);
+                        continue;
+                    }
+                    keys.get(node).append(c);
+                    targets.get(node).add(keys.size());
+                    keys.add(new StringBuilder());
+                    targets.add(new ArrayList<>());
+                    outs.add(new ArrayList<>());
+                    node = keys.size() - 1;
+                }
+                outs.get(node).add(p);
+            }
+            int longest = 0;
+            for (int l : lengths) longest = Math.max(longest, l);
+            this.maxLength = longest;
+            freeze(keys, targets, outs);
+        }
+
+        private char norm(char c) {
+            return caseSensitive ? c : fold(c);
+        }
+
+        private void freeze(List<StringBuilder> keys, List<List<Integer>> targets, List<List<Integer>> outs) {
+            int size = keys.size();
+            edgeChars = new char[size][];
+            edgeTargets = new int[size][];
+            for (int n = 0; n < size; n++) {
+                char[] cs = keys.get(n).toString().toCharArray();
+                int[] ts = targets.get(n).stream().mapToInt(Integer::intValue).toArray();
+                Integer[] order = new Integer[cs.length];
+                for (int i = 0; i < order.length; i++) order[i] = i;
+                Arrays.sort(order, Comparator.comparingInt(i -> cs[i]));
+                edgeChars[n] = new char[cs.length];
+                edgeTargets[n] = new int[cs.length];
+                for (int i = 0; i < order.length; i++) {
+                    edgeChars[n][i] = cs[order[i]];
+                    edgeTargets[n][i] = ts[order[i]];
+                }
+            }
+
+            fail = new int[size];
+            outputs = new int[size][];
+            int[] queue = new int[size];
+            int head = 0;
+            int tail = 0;
+            outputs[0] = toArray(outs.get(0));
+            for (int t : edgeTargets[0]) {
+                fail[t] = 0;
+                queue[tail++] = t;
+            }
+            while (head < tail) {
+                int node = queue[head++];
+                int[] merged = toArray(outs.get(node));
+                int[] inherited = outputs[fail[node]];
+                if (inherited != null && inherited.length > 0) {
+                    int[] both = Arrays.copyOf(merged, merged.length + inherited.length);
+                    System.arraycopy(inherited, 0, both, merged.length, inherited.length);
+                    merged = both;
+                }
+                outputs[node] = merged;
+                for (int i = 0; i < edgeChars[node].length; i++) {
+                    char c = edgeChars[node][i];
+                    int child = edgeTargets[node][i];
+                    int f = fail[node];
+                    while (f != 0 && next(f, c) < 0) f = fail[f];
+                    int target = next(f, c);
+                    fail[child] = target >= 0 && target != child ? target : 0;
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] out = new int[list.size()];
+            for (int i = 0; i < out.length; i++) out[i] = list.get(i);
+            return out;
+        }
+
+        private int next(int node, char c) {
+            int idx = Arrays.binarySearch(edgeChars[node], c);
+            return idx >= 0 ? edgeTargets[node][idx] : -1;
+        }
+
+        private int step(int node, char c) {
+            while (true) {
+                int t = next(node, c);
+                if (t >= 0) return t;
+                if (node == 0) return 0;
+                node = fail[node];
+            }
+        }
+
+        /**
+         * Qué patrones aparecen al menos una vez (termina en cuanto aparecen todos).
+         */
+        boolean[] presence(String text) {
+            boolean[] seen = new boolean[lengths.length];
+            int remaining = lengths.length;
+            int node = 0;
+            for (int i = 0; i < text.length() && remaining > 0; i++) {
+                node = step(node, norm(text.charAt(i)));
+                for (int p : outputs[node]) {
+                    if (!seen[p]) {
+                        seen[p] = true;
+                        remaining--;
+                    }
+                }
+            }
+            return seen;
+        }
+
+        /**
+         * Todas las ocurrencias sin solapamiento por patrón, en orden de inicio.
+         */
+        boolean findAll(String text, int cap, List<Match> out) {
+            int[] nextAllowed = new int[lengths.length];
+            List<Match> found = new ArrayList<>();
+            int node = 0;
+            boolean truncated = false;
+            for (int i = 0; i < text.length(); i++) {
+                node = step(node, norm(text.charAt(i)));
+                boolean added = false;
+                for (int p : outputs[node]) {
+                    int start = i + 1 - lengths[p];
+                    if (start < nextAllowed[p]) continue;
+                    nextAllowed[p] = i + 1;
+                    found.add(new Match(start, i + 1, 0, 0, p));
+                    added = true;
+                }
+                // Se emiten por posición final: cualquier coincidencia futura empieza en i + 2 - maxLength o después
+                if (added && found.size() > cap && settledBefore(found, i + 2 - maxLength) > cap) {
+                    truncated = true;
+                    break;
+                }
+            }
+            found.sort(Comparator.comparingInt(Match::start).thenComparingInt(Match::patternIndex));
+            if (found.size() > cap) {
+                truncated = true;
+                found = found.subList(0, cap);
+            }
+            out.addAll(found);
+            return truncated;
+        }
+
+        private static int settledBefore(List<Match> found, int position) {
+            int n = 0;
+            for (Match m : found) if (m.start() < position) n++;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Mezcla k-way de listados paginados que ya vienen ordenados con el mismo criterio.
+ *
+ * Cada fuente parte con su primera página (obtenida por el llamador, normalmente en paralelo) y sólo pide
+ * la siguiente cuando se consumió todo su buffer y todavía faltan filas para cubrir {@code skip + top}.
+ * Como ninguna fuente puede aportar más de {@code skip + top} filas, nunca se pide más allá de ese total.
+ */
+public final class KWayMerge {
+
+    private KWayMerge() {}
+
+    /**
+     * Pide {@code limit} filas de la fuente a partir de {@code offset}; una página más corta marca el final.
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        List<T> fetch(int offset, int limit);
+    }
+
+    /**
+     * Fuente con su primera página ya descargada ({@code requested} es el tamaño pedido para esa página).
+     */
+    public static final class Source<T> {
+        private final PageFetcher<T> fetcher;
+        private final int pageSize;
+        private List<T> buffer;
+        private int pos;
+        private int fetched;
+        private int consumed;
+        private int pages;
+        private boolean exhausted;
+
+        public Source(List<T> firstPage, int requested, PageFetcher<T> fetcher) {
+            this.buffer = firstPage == null ? List.of() : firstPage;
+            this.pageSize = Math.max(1, requested);
+            this.fetcher = fetcher;
+            this.fetched = buffer.size();
+            this.pages = 1;
+            this.exhausted = buffer.size() < requested || fetcher == null;
+        }
+
+        public int fetched() {
+            return fetched;
+        }
+
+        public int consumed() {
+            return consumed;
+        }
+
+        public int pages() {
+            return pages;
+        }
+
+        public boolean exhausted() {
+            return exhausted && pos >= buffer.size();
+        }
+
+        private boolean fill(int limit) {
+            while (pos >= buffer.size()) {
+                if (exhausted || fetched >= limit) return false;
+                int want = Math.min(pageSize, limit - fetched);
+                List<T> page = fetcher.fetch(fetched, want);
+                pages++;
+                buffer = page == null ? List.of() : page;
+                pos = 0;
+                fetched += buffer.size();
+                if (buffer.size() < want) exhausted = true;
+            }
+            return true;
+        }
+
+        private T head() {
+            return buffer.get(pos);
+        }
+
+        private T take() {
+            consumed++;
+            return buffer.get(pos++);
+        }
+    }
+
+    /**
+     * Filas {@code [skip, skip + top)} de la mezcla ordenada por {@code order} (el primero es el menor).
+     * {@code hasMore} es true si alguna fuente conserva filas o páginas sin leer.
+     */
+    public static <T> Result<T> merge(List<Source<T>> sources, Comparator<? super T> order, int skip, int top) {
+        int from = Math.max(0, skip);
+        int limit = (int) Math.min(Integer.MAX_VALUE, (long) from + Math.max(0, top));
+        PriorityQueue<Source<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.head(), b.head()));
+        for (Source<T> s : sources) {
+            if (s.fill(limit)) heads.add(s);
+        }
+
+        List<T> out = new ArrayList<>();
+        int produced = 0;
+        while (produced < limit && !heads.isEmpty()) {
+            Source<T> s = heads.poll();
+            T item = s.take();
+            if (produced >= from) out.add(item);
+            produced++;
+            if (s.fill(limit)) heads.add(s);
+        }
+
+        boolean hasMore = !heads.isEmpty();
+        if (!hasMore) {
+            for (Source<T> s : sources) {
+                if (!s.exhausted()) {
+                    hasMore = true;
+                    break;
+                }
+            }
+        }
+        return new Result<>(out, hasMore);
+    }
+
+    public record Result<T>(List<T> items, boolean hasMore) {}
+}
@@ -0,0 +1,304 @@
+package com.mcp.server.services.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diff de líneas (Myers O(ND)) y formateo en hunks unificados con presupuesto de líneas y bytes.
+ *
+ * Antes de Myers se recortan prefijo y sufijo comunes, y las líneas se comparan como enteros internados.
+ * Si la distancia de edición del tramo central supera {@code maxEditDistance} (la traza ocupa O(D²)), el
+ * tramo se reporta como reemplazo completo y {@link FileDiff#fallback()} queda en true.
+ */
+public final class LineDiff {
+
+    private LineDiff() {}
+
+    /**
+     * Líneas de {@code text} sin terminadores ({@code \n} o {@code \r\n}); un salto final no agrega línea vacía.
+     */
+    public static List<String> lines(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isEmpty()) return out;
+        int start = 0;
+        int len = text.length();
+        while (start < len) {
+            int nl = text.indexOf('\n', start);
+            int end = nl < 0 ? len : nl;
+            int trimmed = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            out.add(text.substring(start, trimmed));
+            if (nl < 0) break;
+            start = nl + 1;
+        }
+        return out;
+    }
+
+    /**
+     * Compara dos textos y agrupa los cambios en hunks con {@code context} líneas de contexto.
+     */
+    public static FileDiff compare(String oldText, String newText, int context, int maxEditDistance) {
+        List<String> a = lines(oldText);
+        List<String> b = lines(newText);
+        Map<String, Integer> ids = new HashMap<>();
+        int[] x = intern(a, ids);
+        int[] y = intern(b, ids);
+
+        int prefix = 0;
+        while (prefix < x.length && prefix < y.length && x[prefix] == y[prefix]) prefix++;
+        int suffix = 0;
+        while (suffix < x.length - prefix && suffix < y.length - prefix
+                && x[x.length - 1 - suffix] == y[y.length - 1 - suffix]) suffix++;
+
+        List<int[]> script = new ArrayList<>();
+        for (int i = 0; i < prefix; i++) script.add(new int[]{EQUAL, i, i});
+        int n = x.length - prefix - suffix;
+        int m = y.length - prefix - suffix;
+        boolean fallback = false;
+        List<int[]> middle = myers(x, prefix, n, y, prefix, m, Math.max(0, maxEditDistance));
+        if (middle == null) {
+            fallback = true;
+            middle = new ArrayList<>();
+            for (int i = 0; i < n; i++) middle.add(new int[]{DELETE, prefix + i, -1});
+            for (int j = 0; j < m; j++) middle.add(new int[]{INSERT, -1, prefix + j});
+        }
+        script.addAll(middle);
+        for (int i = 0; i < suffix; i++) {
+            script.add(new int[]{EQUAL, x.length - suffix + i, y.length - suffix + i});
+        }
+        return new FileDiff(buildHunks(script, a, b, Math.max(0, context)), fallback);
+    }
+
+    private static final int EQUAL = 0;
+    private static final int DELETE = 1;
+    private static final int INSERT = 2;
+
+    private static int[] intern(List<String> lines, Map<String, Integer> ids) {
+        int[] out = new int[lines.size()];
+        for (int i = 0; i < out.length; i++) {
+            Integer id = ids.get(lines.get(i));
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines.get(i), id);
+            }
+            out[i] = id;
+        }
+        return out;
+    }
+
+    /**
+     * Script de edición {tipo, índiceViejo, índiceNuevo} del tramo [aOff, aOff+n) vs [bOff, bOff+m),
+     * o null si requiere más de {@code maxD} inserciones/borrados.
+     */
+    private static List<int[]> myers(int[] a, int aOff, int n, int[] b, int bOff, int m, int maxD) {
+        int limit = Math.min(n + m, maxD);
+        List<int[]> trace = new ArrayList<>();
+        int found = -1;
+        for (int d = 0; d <= limit && found < 0; d++) {
+            int[] prev = d == 0 ? null : trace.get(d - 1);
+            int[] v = new int[2 * d + 1];
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (d == 0) {
+                    x = 0;
+                } else if (k == -d || (k != d && at(prev, d - 1, k - 1) < at(prev, d - 1, k + 1))) {
+                    x = at(prev, d - 1, k + 1);
+                } else {
+                    x = at(prev, d - 1, k - 1) + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aOff + x] == b[bOff + y]) {
+                    x++;
+                    y++;
+                }
+                v[k + d] = x;
+                if (x >= n && y >= m) found = d;
+            }
+            trace.add(v);
+        }
+        if (found < 0) return null;
+
+        List<int[]> out = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace.get(d - 1);
+            int k = x - y;
+            int prevK = (k == -d || (k != d && at(prev, d - 1, k - 1) < at(prev, d - 1, k + 1))) ? k + 1 : k - 1;
+            int prevX = at(prev, d - 1, prevK);
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                out.add(new int[]{EQUAL, aOff + x - 1, bOff + y - 1});
+                x--;
+                y--;
+            }
+            if (prevK == k + 1) {
+                out.add(new int[]{INSERT, -1, bOff + y - 1});
+            } else {
+                out.add(new int[]{DELETE, aOff + x - 1, -1});
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            out.add(new int[]{EQUAL, aOff + x - 1, bOff + y - 1});
+            x--;
+            y--;
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    private static int at(int[] v, int d, int k) {
+        return v[k + d];
+    }
+
+    private static List<Hunk> buildHunks(List<int[]> script, List<String> a, List<String> b, int context) {
+        List<Hunk> hunks = new ArrayList<>();
+        int size = script.size();
+        int i = 0;
+        while (i < size) {
+            while (i < size && script.get(i)[0] == EQUAL) i++;
+            if (i >= size) break;
+            int start = Math.max(0, i - context);
+            int end = i;
+            // Extiende el hunk mientras el siguiente cambio quede a no más de 2*context líneas iguales
+            while (end < size) {
+                if (script.get(end)[0] != EQUAL) {
+                    end++;
+                    continue;
+                }
+                int run = end;
+                while (run < size && script.get(run)[0] == EQUAL) run++;
+                if (run < size && run - end <= 2 * context) {
+                    end = run;
+                } else {
+                    end = Math.min(run, end + context);
+                    break;
+                }
+            }
+
+            List<String> lines = new ArrayList<>(end - start);
+            int oldStart = -1;
+            int newStart = -1;
+            int oldCount = 0;
+            int newCount = 0;
+            int added = 0;
+            int removed = 0;
+            for (int j = start; j < end; j++) {
+                int[] op = script.get(j);
+                if (op[0] == EQUAL) {
+                    if (oldStart < 0) oldStart = op[1];
+                    if (newStart < 0) newStart = op[2];
+                    lines.add(" " + a.get(op[1]));
+                    oldCount++;
+                    newCount++;
+                } else if (op[0] == DELETE) {
+                    if (oldStart < 0) oldStart = op[1];
+                    lines.add("-" + a.get(op[1]));
+                    oldCount++;
+                    removed++;
+                } else {
+                    if (newStart < 0) newStart = op[2];
+                    lines.add("+" + b.get(op[2]));
+                    newCount++;
+                    added++;
+                }
+            }
+            hunks.add(new Hunk(
+                    oldCount == 0 ? linesBefore(script, start, 1) : oldStart + 1, oldCount,
+                    newCount == 0 ? linesBefore(script, start, 2) : newStart + 1, newCount,
+                    lines, added, removed));
+            i = end;
+        }
+        return hunks;
+    }
+
+    /**
+     * Cantidad de líneas del lado {@code col} anteriores a {@code pos}: un hunk sin líneas en ese lado se
+     * informa como "después de la línea N" (estilo diff -u, p. ej. {@code -0,0} para un archivo nuevo).
+     */
+    private static int linesBefore(List<int[]> script, int pos, int col) {
+        for (int j = pos - 1; j >= 0; j--) {
+            if (script.get(j)[col] >= 0) return script.get(j)[col] + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Hunk unificado; {@code oldStart}/{@code newStart} son base 1 (0 cuando el lado está vacío al inicio).
+     */
+    public record Hunk(int oldStart, int oldLines, int newStart, int newLines, List<String> lines, int added, int removed) {
+
+        public String header() {
+            return "@@ -" + oldStart + "," + oldLines + " +" + newStart + "," + newLines + " @@";
+        }
+
+        /** Bytes UTF-8 del hunk formateado (cabecera y líneas, cada una con salto de línea). */
+        public long bytes() {
+            long total = header().getBytes(StandardCharsets.UTF_8).length + 1L;
+            for (String line : lines) total += line.getBytes(StandardCharsets.UTF_8).length + 1L;
+            return total;
+        }
+    }
+
+    public record FileDiff(List<Hunk> hunks, boolean fallback) {
+
+        public int added() {
+            int n = 0;
+            for (Hunk h : hunks) n += h.added();
+            return n;
+        }
+
+        public int removed() {
+            int n = 0;
+            for (Hunk h : hunks) n += h.removed();
+            return n;
+        }
+    }
+
+    /**
+     * Presupuesto compartido entre archivos: los hunks se emiten completos mientras quepan.
+     */
+    public static final class Budget {
+        private long lines;
+        private long bytes;
+        private boolean exhausted;
+
+        public Budget(long maxLines, long maxBytes) {
+            this.lines = maxLines;
+            this.bytes = maxBytes;
+        }
+
+        public boolean exhausted() {
+            return exhausted;
+        }
+
+        /**
+         * Texto unificado de los hunks de {@code diff} que caben; marca el presupuesto como agotado en el primero que no.
+         */
+        public Rendered render(FileDiff diff) {
+            StringBuilder sb = new StringBuilder();
+            int emitted = 0;
+            for (Hunk h : diff.hunks()) {
+                long hunkLines = h.lines().size() + 1L;
+                long hunkBytes = h.bytes();
+                if (exhausted || hunkLines > lines || hunkBytes > bytes) {
+                    exhausted = true;
+                    break;
+                }
+                sb.append(h.header()).append('\n');
+                for (String line : h.lines()) sb.append(line).append('\n');
+                lines -= hunkLines;
+                bytes -= hunkBytes;
+                emitted++;
+            }
+            return new Rendered(sb.toString(), emitted, emitted < diff.hunks().size());
+        }
+    }
+
+    public record Rendered(String text, int hunks, boolean truncated) {}
+}
@@ -0,0 +1,177 @@
+package com.mcp.server.services.helpers;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice disperso de inicio de línea de un archivo de texto en disco (un offset cada {@link #STRIDE} líneas),
+ * con los mismos separadores que {@link BufferedReader#readLine()} ({@code \n}, {@code \r}, {@code \r\n}).
+ *
+ * Permite leer una ventana {@code offset/limit} o las últimas N líneas saltando al checkpoint más cercano en
+ * lugar de recorrer el archivo. El índice es inmutable; {@link #append(Path)} retorna uno nuevo que incorpora
+ * los bytes agregados al final del archivo desde la última indexación.
+ */
+public final class LineOffsetIndex {
+
+    public static final int STRIDE = 512;
+
+    private static final LineOffsetIndex EMPTY = new LineOffsetIndex(new long[]{0L}, 1, 0, false, true, 0L);
+
+    private final long[] offsets;
+    private final int checkpoints;
+    private final int terminators;
+    private final boolean prevCr;
+    private final boolean lastWasTerminator;
+    private final long bytes;
+
+    private LineOffsetIndex(long[] offsets, int checkpoints, int terminators, boolean prevCr, boolean lastWasTerminator, long bytes) {
+        this.offsets = offsets;
+        this.checkpoints = checkpoints;
+        this.terminators = terminators;
+        this.prevCr = prevCr;
+        this.lastWasTerminator = lastWasTerminator;
+        this.bytes = bytes;
+    }
+
+    public static LineOffsetIndex empty() {
+        return EMPTY;
+    }
+
+    public static LineOffsetIndex build(Path file) throws IOException {
+        return EMPTY.append(file);
+    }
+
+    /**
+     * Índice que además cubre los bytes de {@code file} posteriores a {@link #bytes()}.
+     */
+    public LineOffsetIndex append(Path file) throws IOException {
+        long[] offs = Arrays.copyOf(offsets, Math.max(offsets.length, checkpoints + 1));
+        int count = checkpoints;
+        int terms = terminators;
+        boolean cr = prevCr;
+        boolean lastTerm = lastWasTerminator;
+        long pos = bytes;
+        byte[] buffer = new byte[64 * 1024];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = Channels.newInputStream(channel.position(bytes))) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++, pos++) {
+                    byte b = buffer[i];
+                    if (b == '\n' && cr) {
+                        cr = false;
+                        // \r\n: el checkpoint que quedó apuntando al \n se corre al inicio real de la línea
+                        if (terms % STRIDE == 0 && offs[count - 1] == pos) offs[count - 1] = pos + 1;
+                        continue;
+                    }
+                    cr = b == '\r';
+                    if (b == '\n' || b == '\r') {
+                        terms++;
+                        lastTerm = true;
+                        if (terms % STRIDE == 0) {
+                            if (count == offs.length) offs = Arrays.copyOf(offs, count * 2);
+                            offs[count++] = pos + 1;
+                        }
+                    } else {
+                        lastTerm = false;
+                    }
+                }
+            }
+        }
+        return new LineOffsetIndex(offs, count, terms, cr, lastTerm, pos);
+    }
+
+    /** Bytes del archivo cubiertos por el índice. */
+    public long bytes() {
+        return bytes;
+    }
+
+    /** Líneas del archivo; una última línea sin terminador también cuenta. */
+    public int totalLines() {
+        return terminators + (bytes > 0 && !lastWasTerminator ? 1 : 0);
+    }
+
+    /**
+     * Hasta {@code limit} líneas desde {@code offset} (base 1), leyendo sólo dentro de los bytes indexados.
+     */
+    public Window read(Path file, int offset, int limit) throws IOException {
+        int safeOffset = Math.max(1, offset);
+        int safeLimit = Math.max(0, limit);
+        int total = totalLines();
+        if (safeOffset > total || safeLimit == 0) {
+            return new Window(List.of(), safeOffset, safeOffset - 1, safeOffset <= total, total);
+        }
+
+        int checkpoint = Math.min((safeOffset - 1) / STRIDE, checkpoints - 1);
+        int lineNo = checkpoint * STRIDE;
+        long start = offsets[checkpoint];
+        List<String> lines = new ArrayList<>(Math.min(safeLimit, total - safeOffset + 1));
+        int lineEnd = safeOffset - 1;
+        var decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new Bounded(Channels.newInputStream(channel.position(start)), bytes - start), decoder))) {
+            String line;
+            while (lines.size() < safeLimit && (line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo < safeOffset) continue;
+                lines.add(line);
+                lineEnd = lineNo;
+            }
+        }
+        return new Window(lines, safeOffset, lineEnd, lineEnd < total, total);
+    }
+
+    /**
+     * Las últimas {@code count} líneas indexadas.
+     */
+    public Window tail(Path file, int count) throws IOException {
+        int total = totalLines();
+        int safeCount = Math.max(0, count);
+        return read(file, Math.max(1, total - safeCount + 1), safeCount);
+    }
+
+    /**
+     * Ventana leída: {@code lineStart}/{@code lineEnd} base 1 ({@code lineEnd < lineStart} si no hay líneas).
+     */
+    public record Window(List<String> lines, int lineStart, int lineEnd, boolean hasMore, int totalLines) {}
+
+    private static final class Bounded extends FilterInputStream {
+        private long remaining;
+
+        private Bounded(InputStream in, long limit) {
+            super(in);
+            this.remaining = Math.max(0L, limit);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+}
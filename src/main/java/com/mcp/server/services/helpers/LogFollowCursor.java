@@ -0,0 +1,109 @@
+package com.mcp.server.services.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cursor opaco de {@code logs_follow}: líneas ya entregadas por log y cantidad de consultas seguidas sin
+ * contenido nuevo, de la que sale la espera sugerida antes de la siguiente consulta (backoff exponencial).
+ *
+ * Formato: {@code f1.} + base64url de {@code idle=N;logId:lineas,logId:lineas}.
+ */
+public final class LogFollowCursor {
+
+    public static final long MIN_POLL_MS = 2_000L;
+    public static final long MAX_POLL_MS = 30_000L;
+
+    private static final String PREFIX = "f1.";
+    private static final LogFollowCursor INITIAL = new LogFollowCursor(Map.of(), 0);
+
+    private final Map<Integer, Integer> delivered;
+    private final int idlePolls;
+
+    private LogFollowCursor(Map<Integer, Integer> delivered, int idlePolls) {
+        this.delivered = Collections.unmodifiableMap(new TreeMap<>(delivered));
+        this.idlePolls = idlePolls;
+    }
+
+    public static LogFollowCursor initial() {
+        return INITIAL;
+    }
+
+    /**
+     * Cursor de una respuesta previa; vacío o null equivale a {@link #initial()}.
+     */
+    public static LogFollowCursor decode(String token) {
+        if (token == null || token.isBlank()) return INITIAL;
+        String trimmed = token.trim();
+        if (!trimmed.startsWith(PREFIX)) throw new IllegalArgumentException("'cursor' inválido: formato desconocido");
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(trimmed.substring(PREFIX.length())), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(';');
+            String head = sep < 0 ? raw : raw.substring(0, sep);
+            if (!head.startsWith("idle=")) throw new IllegalArgumentException("falta idle");
+            int idle = Integer.parseInt(head.substring("idle=".length()));
+            if (idle < 0) throw new IllegalArgumentException("idle negativo");
+            Map<Integer, Integer> logs = new LinkedHashMap<>();
+            if (sep >= 0) {
+                for (String part : raw.substring(sep + 1).split(",")) {
+                    if (part.isEmpty()) continue;
+                    int colon = part.indexOf(':');
+                    int logId = Integer.parseInt(part.substring(0, colon));
+                    int lines = Integer.parseInt(part.substring(colon + 1));
+                    if (lines < 0) throw new IllegalArgumentException("líneas negativas");
+                    logs.put(logId, lines);
+                }
+            }
+            return new LogFollowCursor(logs, idle);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("'cursor' inválido: " + e.getMessage());
+        }
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder("idle=").append(idlePolls).append(';');
+        boolean first = true;
+        for (Map.Entry<Integer, Integer> e : delivered.entrySet()) {
+            if (!first) sb.append(',');
+            sb.append(e.getKey()).append(':').append(e.getValue());
+            first = false;
+        }
+        return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Líneas del log {@code logId} ya entregadas (0 si nunca se leyó). */
+    public int delivered(int logId) {
+        return delivered.getOrDefault(logId, 0);
+    }
+
+    public Map<Integer, Integer> deliveredByLog() {
+        return delivered;
+    }
+
+    public int idlePolls() {
+        return idlePolls;
+    }
+
+    /**
+     * Cursor tras una consulta: {@code delivered} reemplaza los conteos de los logs leídos; sin contenido
+     * nuevo aumenta el contador de consultas vacías, con contenido lo reinicia.
+     */
+    public LogFollowCursor advance(Map<Integer, Integer> newlyDelivered, boolean gotContent) {
+        Map<Integer, Integer> merged = new TreeMap<>(delivered);
+        merged.putAll(newlyDelivered);
+        return new LogFollowCursor(merged, gotContent ? 0 : idlePolls + 1);
+    }
+
+    /**
+     * Espera sugerida antes de la siguiente consulta: {@link #MIN_POLL_MS} duplicado por cada consulta vacía
+     * seguida, hasta {@link #MAX_POLL_MS}.
+     */
+    public long nextPollAfterMs() {
+        long wait = MIN_POLL_MS << Math.min(idlePolls, 8);
+        return Math.min(wait, MAX_POLL_MS);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mcp.server.services.helpers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorre un log en disco línea por línea con un {@link ContentMatcher} y se detiene en cuanto junta
+ * {@code maxHits} coincidencias (más las líneas de contexto posterior de la última), sin cargar el archivo
+ * completo en memoria. Reporta a lo sumo una coincidencia por línea (la primera).
+ */
+public final class LogLineScanner {
+
+    private LogLineScanner() {}
+
+    /**
+     * Coincidencia en la línea {@code line} (base 1); {@code text} y el contexto se recortan a {@code maxLineChars}.
+     */
+    public record Hit(int line, int column, int patternIndex, String text, List<String> before, List<String> after) {}
+
+    /**
+     * {@code truncated} indica que se alcanzó {@code maxHits} antes del final del archivo.
+     */
+    public record Result(List<Hit> hits, boolean truncated, int linesScanned) {}
+
+    public static Result scan(Path file, ContentMatcher matcher, int maxHits, int contextLines, int maxLineChars) throws IOException {
+        int cap = Math.max(1, maxHits);
+        int context = Math.max(0, contextLines);
+        List<Hit> hits = new ArrayList<>();
+        ArrayDeque<String> before = new ArrayDeque<>(context + 1);
+        List<List<String>> pendingAfter = new ArrayList<>();
+        int lineNo = 0;
+        boolean truncated = false;
+        var decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), decoder))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (hits.size() == cap && pendingAfter.isEmpty()) {
+                    truncated = true;
+                    break;
+                }
+                lineNo++;
+                String clipped = clip(line, maxLineChars);
+                for (List<String> after : pendingAfter) after.add(clipped);
+                pendingAfter.removeIf(after -> after.size() >= context);
+                // Con el tope alcanzado sólo se lee para completar el contexto posterior
+                if (hits.size() == cap) continue;
+
+                List<ContentMatcher.Match> found = matcher.findAll(line, 1).matches();
+                if (!found.isEmpty()) {
+                    ContentMatcher.Match m = found.get(0);
+                    List<String> after = new ArrayList<>(context);
+                    hits.add(new Hit(lineNo, m.column(), m.patternIndex(), clipped, new ArrayList<>(before), after));
+                    if (context > 0) pendingAfter.add(after);
+                }
+                if (context > 0) {
+                    if (before.size() == context) before.removeFirst();
+                    before.addLast(clipped);
+                }
+            }
+        }
+        return new Result(hits, truncated, lineNo);
+    }
+
+    private static String clip(String line, int maxLineChars) {
+        if (maxLineChars <= 0 || line.length() <= maxLineChars) return line;
+        return line.substring(0, maxLineChars) + "…";
+    }
+}
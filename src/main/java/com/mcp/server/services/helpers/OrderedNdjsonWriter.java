@@ -0,0 +1,85 @@
+package com.mcp.server.services.helpers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritor NDJSON que recibe bloques numerados desde varios hilos y los escribe en orden de bloque.
+ *
+ * Cada bloque se escribe en cuanto están completos todos los anteriores, así que en memoria sólo quedan
+ * los bloques que llegaron adelantados. Completar dos veces el mismo bloque no tiene efecto.
+ */
+public final class OrderedNdjsonWriter implements Closeable {
+
+    private final BufferedWriter writer;
+    private final int blocks;
+    private final Map<Integer, List<String>> pending = new HashMap<>();
+    private int next;
+    private long lines;
+    private long bytes;
+    private IOException failure;
+    private boolean closed;
+
+    public OrderedNdjsonWriter(Path output, int blocks) throws IOException {
+        Path parent = output.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        this.blocks = blocks;
+    }
+
+    /**
+     * Entrega las líneas (JSON sin salto de línea) del bloque {@code block}.
+     */
+    public synchronized void complete(int block, List<String> blockLines) {
+        if (closed || failure != null || block < next || block >= blocks || pending.containsKey(block)) return;
+        pending.put(block, blockLines);
+        try {
+            for (List<String> ready = pending.remove(next); ready != null; ready = pending.remove(next)) {
+                for (String line : ready) {
+                    writer.write(line);
+                    writer.write('\n');
+                    lines++;
+                    bytes += line.getBytes(StandardCharsets.UTF_8).length + 1L;
+                }
+                next++;
+            }
+        } catch (IOException e) {
+            failure = e;
+            pending.clear();
+        }
+    }
+
+    public synchronized boolean isComplete() {
+        return next >= blocks;
+    }
+
+    public synchronized long lines() {
+        return lines;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Primer error de escritura, si lo hubo (los bloques posteriores se descartan).
+     */
+    public synchronized IOException failure() {
+        return failure;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        pending.clear();
+        writer.close();
+    }
+}
@@ -0,0 +1,297 @@
+package com.mcp.server.services.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro de rutas para search_files/search_content/explore_repo: globs de inclusión y exclusión, regex de
+ * ruta y extensiones.
+ *
+ * Los patrones compilados se guardan en un LRU compartido ({@code MCP_PATH_PATTERN_CACHE_MAX}), así que
+ * repetir la misma búsqueda no recompila nada. Sobre un {@link CompactTree} el filtro evalúa primero cada
+ * directorio: los excluidos por un glob {@code .../**} y los que no pueden contener coincidencias de ningún
+ * glob de inclusión (por su prefijo literal) se descartan completos sin mirar sus archivos.
+ */
+public final class PathMatcher {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int CACHE_MAX = (int) Math.max(1L, envLong("MCP_PATH_PATTERN_CACHE_MAX", 512L));
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+    private static final Map<String, Pattern> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            if (size() <= CACHE_MAX) return false;
+            EVICTIONS.incrementAndGet();
+            return true;
+        }
+    };
+
+    private final List<Pattern> includes;
+    private final List<String> includePrefixes;
+    private final List<Pattern> excludes;
+    private final List<Pattern> excludedDirectories;
+    private final Pattern regex;
+    private final Set<String> extensions;
+
+    private PathMatcher(Builder b) {
+        this.includes = List.copyOf(b.includes);
+        // Un glob de inclusión sin prefijo literal puede coincidir en cualquier directorio: no se poda por inclusión
+        this.includePrefixes = b.includeAnywhere ? List.of() : List.copyOf(b.includePrefixes);
+        this.excludes = List.copyOf(b.excludes);
+        this.excludedDirectories = List.copyOf(b.excludedDirectories);
+        this.regex = b.regex;
+        this.extensions = Set.copyOf(b.extensions);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Glob anclado sin distinguir mayúsculas: {@code **} cruza directorios, {@code *} no, {@code ?} es un carácter.
+     */
+    public static Pattern glob(String glob) {
+        return cached("glob:" + glob, () -> Pattern.compile(globToRegex(glob), Pattern.CASE_INSENSITIVE));
+    }
+
+    /**
+     * Globs en CSV o como arreglo JSON de strings; lista vacía si no se indicó ninguno. {@code param} es el nombre
+     * del argumento para el mensaje de error.
+     */
+    public static List<String> globList(String raw, String param) {
+        List<String> globs = new ArrayList<>();
+        if (raw == null || raw.isBlank()) return globs;
+        String trimmed = raw.trim();
+        if (trimmed.startsWith("[")) {
+            try {
+                for (Object o : JSON.readValue(trimmed, List.class)) {
+                    if (o != null && !o.toString().isBlank()) globs.add(o.toString().trim());
+                }
+            } catch (Exception e) {
+                throw new IllegalArgumentException("'" + param + "' debe ser CSV o arreglo JSON de globs: " + e.getMessage());
+            }
+        } else {
+            for (String g : trimmed.split(",")) if (!g.isBlank()) globs.add(g.trim());
+        }
+        return globs;
+    }
+
+    /**
+     * Regex de ruta cacheada; lanza {@link java.util.regex.PatternSyntaxException} si es inválida.
+     */
+    public static Pattern regex(String regex) {
+        return cached("regex:" + regex, () -> Pattern.compile(regex));
+    }
+
+    public static Map<String, Object> cacheStats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (CACHE) {
+            out.put("entries", CACHE.size());
+        }
+        out.put("maxEntries", CACHE_MAX);
+        out.put("hits", HITS.get());
+        out.put("misses", MISSES.get());
+        out.put("evictions", EVICTIONS.get());
+        return out;
+    }
+
+    public boolean matches(String path) {
+        if (path == null || path.isBlank()) return false;
+        if (!includes.isEmpty()) {
+            boolean included = false;
+            for (Pattern p : includes) {
+                if (p.matcher(path).matches()) {
+                    included = true;
+                    break;
+                }
+            }
+            if (!included) return false;
+        }
+        for (Pattern p : excludes) {
+            if (p.matcher(path).matches()) return false;
+        }
+        if (regex != null && !regex.matcher(path).find()) return false;
+        if (!extensions.isEmpty()) {
+            int slash = path.lastIndexOf('/');
+            int dot = path.lastIndexOf('.');
+            if (dot < 0 || dot < slash || dot == path.length() - 1) return false;
+            if (!extensions.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Archivos (no carpetas) de {@code tree} que cumplen el filtro, en el orden del listado.
+     */
+    public Selection selectFiles(CompactTree tree) {
+        int dirs = tree.directoryCount();
+        boolean[] pruned = new boolean[dirs];
+        int prunedDirectories = 0;
+        boolean prunable = !includePrefixes.isEmpty() || !excludedDirectories.isEmpty();
+        if (prunable) {
+            // Los padres tienen ID menor que sus hijos: un recorrido ascendente hereda la poda del padre
+            for (int d = 1; d < dirs; d++) {
+                if (pruned[tree.parentDirectory(d)]) {
+                    pruned[d] = true;
+                } else {
+                    pruned[d] = !directoryMayMatch(tree.directoryPath(d));
+                }
+                if (pruned[d]) prunedDirectories++;
+            }
+        }
+
+        int[] out = new int[tree.size()];
+        int n = 0;
+        int evaluated = 0;
+        for (int i = 0; i < tree.size(); i++) {
+            if (tree.isFolder(i) || pruned[tree.directoryOf(i)]) continue;
+            evaluated++;
+            if (matches(tree.path(i))) out[n++] = i;
+        }
+        return new Selection(Arrays.copyOf(out, n), prunedDirectories, evaluated);
+    }
+
+    private boolean directoryMayMatch(String dirPath) {
+        for (Pattern p : excludedDirectories) {
+            if (p.matcher(dirPath).matches()) return false;
+        }
+        if (includePrefixes.isEmpty()) return true;
+        String dir = dirPath.toLowerCase(Locale.ROOT) + "/";
+        for (String prefix : includePrefixes) {
+            if (dir.startsWith(prefix) || prefix.startsWith(dir)) return true;
+        }
+        return false;
+    }
+
+    static String globToRegex(String glob) {
+        String g = glob.trim();
+        StringBuilder regex = new StringBuilder();
+        regex.append("^");
+        for (int i = 0; i < g.length(); i++) {
+            char c = g.charAt(i);
+            if (c == '*') {
+                boolean dbl = (i + 1) < g.length() && g.charAt(i + 1) == '*';
+                if (dbl) {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+                continue;
+            }
+            if (c == '?') {
+                regex.append(".");
+                continue;
+            }
+            if ("\\.[]{}()+-^$|".indexOf(c) >= 0) regex.append('\\');
+            regex.append(c);
+        }
+        regex.append("$");
+        return regex.toString();
+    }
+
+    /**
+     * Prefijo literal del glob hasta el último "/" antes del primer comodín (en minúsculas); toda ruta que
+     * coincida empieza por él. Cadena vacía si el glob empieza con comodín.
+     */
+    static String literalDirectoryPrefix(String glob) {
+        String g = glob.trim();
+        int wildcard = g.length();
+        for (int i = 0; i < g.length(); i++) {
+            char c = g.charAt(i);
+            if (c == '*' || c == '?') {
+                wildcard = i;
+                break;
+            }
+        }
+        int slash = g.lastIndexOf('/', wildcard == g.length() ? g.length() - 1 : wildcard);
+        return slash < 0 ? "" : g.substring(0, slash + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static Pattern cached(String key, Supplier<Pattern> compiler) {
+        synchronized (CACHE) {
+            Pattern hit = CACHE.get(key);
+            if (hit != null) {
+                HITS.incrementAndGet();
+                return hit;
+            }
+        }
+        MISSES.incrementAndGet();
+        Pattern compiled = compiler.get();
+        synchronized (CACHE) {
+            CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private static long envLong(String key, long defaultValue) {
+        String raw = System.getenv(key);
+        if (raw == null || raw.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Índices seleccionados, directorios descartados sin evaluar y archivos efectivamente evaluados.
+     */
+    public record Selection(int[] files, int prunedDirectories, int evaluatedFiles) {}
+
+    public static final class Builder {
+        private final List<Pattern> includes = new ArrayList<>();
+        private final List<String> includePrefixes = new ArrayList<>();
+        private boolean includeAnywhere;
+        private final List<Pattern> excludes = new ArrayList<>();
+        private final List<Pattern> excludedDirectories = new ArrayList<>();
+        private Pattern regex;
+        private final Set<String> extensions = new LinkedHashSet<>();
+
+        private Builder() {}
+
+        public Builder include(String glob) {
+            includes.add(glob(glob));
+            String prefix = literalDirectoryPrefix(glob);
+            if (prefix.isEmpty()) includeAnywhere = true;
+            else includePrefixes.add(prefix);
+            return this;
+        }
+
+        public Builder exclude(String glob) {
+            excludes.add(glob(glob));
+            String g = glob.trim();
+            if (g.endsWith("/**") && g.length() > 3) excludedDirectories.add(glob(g.substring(0, g.length() - 3)));
+            return this;
+        }
+
+        public Builder regex(Pattern pattern) {
+            this.regex = pattern;
+            return this;
+        }
+
+        public Builder extension(String ext) {
+            String e = ext == null ? "" : ext.trim().toLowerCase(Locale.ROOT);
+            if (e.startsWith(".")) e = e.substring(1);
+            if (!e.isBlank()) extensions.add(e);
+            return this;
+        }
+
+        public PathMatcher build() {
+            return new PathMatcher(this);
+        }
+    }
+}
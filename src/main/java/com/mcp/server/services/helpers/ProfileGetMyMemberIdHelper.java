@@ -6,6 +6,7 @@ import java.util.Map;
 
 /**
  * Helper para obtener el memberId del usuario autenticado desde Profiles (VSSPS).
+ * El perfil se resuelve vía {@link AzureDevOpsClientService#getMyProfile()} (cacheado por credencial).
  */
 @Component
 public class ProfileGetMyMemberIdHelper {
@@ -16,7 +17,7 @@ public class ProfileGetMyMemberIdHelper {
     }
 
     public Map<String,Object> fetchMyProfile() {
-        return azureService.getVsspsApi("profile/profiles/me");
+        return azureService.getMyProfile();
     }
 
     public String formatProfileResponse(Map<String,Object> data) {
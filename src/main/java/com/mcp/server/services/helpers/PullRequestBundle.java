@@ -0,0 +1,263 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Armado de la respuesta de {@code review_bundle}: combina PR, iteraciones, cambios, threads, statuses,
+ * work items y etiquetas en una sola estructura sin repetir datos.
+ *
+ * Las identidades (autor, reviewers, autores de comentarios) se reemplazan por su ID y se publican una sola
+ * vez en {@code identities}; statuses quedan en el último por contexto, los cambios en uno por ruta y work
+ * items/etiquetas sin duplicados. La proyección de campos ({@code seccion.campo}) se aplica al final.
+ */
+public final class PullRequestBundle {
+
+    public static final List<String> SECTIONS = List.of(
+            "pullRequest", "reviewers", "iterations", "changes", "threads", "statuses", "workItems", "labels");
+
+    private static final Set<String> IDENTITY_KEYS = Set.of(
+            "createdBy", "closedBy", "autoCompleteSetBy", "author", "updatedBy", "lastUpdatedBy");
+
+    private static final Map<String, String> SECTION_ID_KEYS = Map.of(
+            "pullRequest", "pullRequestId",
+            "reviewers", "id",
+            "iterations", "id",
+            "changes", "path",
+            "threads", "id",
+            "statuses", "id",
+            "workItems", "id",
+            "labels", "name");
+
+    private PullRequestBundle() {}
+
+    /**
+     * Tabla de identidades vistas en el bundle, indexada por ID.
+     */
+    public static final class Identities {
+        private final Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+
+        /**
+         * Registra {@code identity} y retorna su ID; si no es una identidad reconocible la retorna tal cual.
+         */
+        public Object ref(Object identity) {
+            if (!(identity instanceof Map<?, ?> m)) return identity;
+            String id = Objects.toString(m.get("id"), "");
+            if (id.isBlank()) return identity;
+            Map<String, Object> known = byId.computeIfAbsent(id, k -> new LinkedHashMap<>());
+            for (String key : List.of("displayName", "uniqueName", "isContainer")) {
+                Object v = m.get(key);
+                if (v != null && !known.containsKey(key)) known.put(key, v);
+            }
+            return id;
+        }
+
+        public Map<String, Map<String, Object>> asMap() {
+            return byId;
+        }
+    }
+
+    /**
+     * Copia del PR sin la lista de reviewers (va aparte) y con identidades reemplazadas por ID.
+     */
+    public static Map<String, Object> pullRequest(Map<String, Object> pr, Identities ids) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        if (pr == null) return out;
+        for (Map.Entry<String, Object> e : pr.entrySet()) {
+            if ("reviewers".equals(e.getKey()) || "_links".equals(e.getKey())) continue;
+            out.put(e.getKey(), IDENTITY_KEYS.contains(e.getKey()) ? ids.ref(e.getValue()) : e.getValue());
+        }
+        return out;
+    }
+
+    /**
+     * Reviewers del PR con voto y flags; los datos de identidad quedan en {@code identities}.
+     */
+    public static List<Map<String, Object>> reviewers(Map<String, Object> pr, Identities ids) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        if (pr == null || !(pr.get("reviewers") instanceof List<?> list)) return out;
+        Set<String> seen = new LinkedHashSet<>();
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> m)) continue;
+            Object id = ids.ref(m);
+            if (!(id instanceof String s) || !seen.add(s)) continue;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", s);
+            for (String key : List.of("vote", "isRequired", "hasDeclined", "isFlagged")) {
+                Object v = m.get(key);
+                if (v != null) row.put(key, v);
+            }
+            if (m.get("votedFor") instanceof List<?> votedFor && !votedFor.isEmpty()) {
+                List<Object> groups = new ArrayList<>();
+                for (Object g : votedFor) groups.add(ids.ref(g));
+                row.put("votedFor", groups);
+            }
+            out.add(row);
+        }
+        return out;
+    }
+
+    /**
+     * Iteraciones, threads u otros listados: identidades de primer nivel y de comentarios por ID.
+     */
+    public static List<Map<String, Object>> withIdentityRefs(List<Map<String, Object>> rows, Identities ids) {
+        List<Map<String, Object>> out = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            out.add(replaceIdentities(row, ids));
+        }
+        return out;
+    }
+
+    /**
+     * El status más reciente (mayor ID) por contexto genre/name, en el orden de su primera aparición.
+     */
+    public static List<Map<String, Object>> latestStatuses(List<Map<String, Object>> statuses, Identities ids) {
+        Map<String, Map<String, Object>> latest = new LinkedHashMap<>();
+        for (Map<String, Object> status : statuses) {
+            String context = "";
+            if (status.get("context") instanceof Map<?, ?> ctx) {
+                context = Objects.toString(ctx.get("genre"), "") + "/" + Objects.toString(ctx.get("name"), "");
+            }
+            Map<String, Object> current = latest.get(context);
+            if (current == null || longOf(status.get("id")) >= longOf(current.get("id"))) {
+                latest.put(context, replaceIdentities(status, ids));
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Entradas de {@code iterations/{id}/changes} aplanadas a path/changeType/objectIds, una por ruta.
+     */
+    public static List<Map<String, Object>> changes(List<Map<String, Object>> changeEntries) {
+        Map<String, Map<String, Object>> byPath = new LinkedHashMap<>();
+        for (Map<String, Object> entry : changeEntries) {
+            if (!(entry.get("item") instanceof Map<?, ?> item)) continue;
+            String path = Objects.toString(item.get("path"), "");
+            if (path.isBlank()) continue;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("path", path);
+            row.put("changeType", Objects.toString(entry.get("changeType"), ""));
+            if (item.get("isFolder") != null) row.put("isFolder", item.get("isFolder"));
+            putIfPresent(row, "objectId", item.get("objectId"));
+            putIfPresent(row, "originalObjectId", item.get("originalObjectId"));
+            putIfPresent(row, "originalPath", entry.get("originalPath"));
+            putIfPresent(row, "sourceServerItem", entry.get("sourceServerItem"));
+            putIfPresent(row, "changeTrackingId", entry.get("changeTrackingId"));
+            byPath.put(path, row);
+        }
+        return new ArrayList<>(byPath.values());
+    }
+
+    /**
+     * Filas sin duplicados según {@code key} (se conserva la primera); filas sin clave se mantienen.
+     */
+    public static List<Map<String, Object>> uniqueBy(List<Map<String, Object>> rows, Function<Map<String, Object>, String> key) {
+        Set<String> seen = new LinkedHashSet<>();
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            String k = key.apply(row);
+            if (k == null || k.isBlank() || seen.add(k.toLowerCase(Locale.ROOT))) out.add(row);
+        }
+        return out;
+    }
+
+    /**
+     * Parsea {@code fields} (CSV de {@code seccion.campo}) a campos por sección.
+     */
+    public static Map<String, Set<String>> parseFields(String csv) {
+        Map<String, Set<String>> out = new LinkedHashMap<>();
+        if (csv == null || csv.isBlank()) return out;
+        for (String raw : csv.split(",")) {
+            String f = raw.trim();
+            if (f.isEmpty()) continue;
+            int dot = f.indexOf('.');
+            if (dot <= 0 || dot == f.length() - 1) {
+                throw new IllegalArgumentException("'fields' espera entradas seccion.campo (ej. pullRequest.title): " + f);
+            }
+            String section = f.substring(0, dot);
+            if (!SECTIONS.contains(section)) {
+                throw new IllegalArgumentException("Sección desconocida en 'fields': " + section + ". Válidas: " + String.join(", ", SECTIONS));
+            }
+            out.computeIfAbsent(section, k -> new LinkedHashSet<>()).add(f.substring(dot + 1));
+        }
+        return out;
+    }
+
+    /**
+     * Deja en {@code section} (mapa o lista de mapas) sólo los campos pedidos más la clave de la sección.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object project(String section, Object value, Map<String, Set<String>> fields) {
+        Set<String> keep = fields.get(section);
+        if (keep == null || keep.isEmpty()) return value;
+        String idKey = SECTION_ID_KEYS.get(section);
+        if (value instanceof Map<?, ?> m) return projectRow((Map<String, Object>) m, keep, idKey);
+        if (value instanceof List<?> list) {
+            List<Object> out = new ArrayList<>(list.size());
+            for (Object item : list) {
+                out.add(item instanceof Map<?, ?> m ? projectRow((Map<String, Object>) m, keep, idKey) : item);
+            }
+            return out;
+        }
+        return value;
+    }
+
+    private static Map<String, Object> projectRow(Map<String, Object> row, Set<String> keep, String idKey) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        if (idKey != null && row.containsKey(idKey)) out.put(idKey, row.get(idKey));
+        for (String key : keep) {
+            if (row.containsKey(key)) out.put(key, row.get(key));
+        }
+        return out;
+    }
+
+    private static Map<String, Object> replaceIdentities(Map<String, Object> row, Identities ids) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : row.entrySet()) {
+            String key = e.getKey();
+            if ("_links".equals(key)) continue;
+            Object value = e.getValue();
+            if (IDENTITY_KEYS.contains(key)) {
+                out.put(key, ids.ref(value));
+            } else if ("comments".equals(key) && value instanceof List<?> comments) {
+                List<Object> rows = new ArrayList<>(comments.size());
+                for (Object c : comments) {
+                    rows.add(c instanceof Map<?, ?> cm ? replaceIdentities(stringKeys(cm), ids) : c);
+                }
+                out.put(key, rows);
+            } else {
+                out.put(key, value);
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Object> stringKeys(Map<?, ?> m) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : m.entrySet()) {
+            if (e.getKey() != null) out.put(e.getKey().toString(), e.getValue());
+        }
+        return out;
+    }
+
+    private static void putIfPresent(Map<String, Object> row, String key, Object value) {
+        if (value != null && !value.toString().isBlank()) row.put(key, value);
+    }
+
+    private static long longOf(Object v) {
+        if (v instanceof Number n) return n.longValue();
+        try {
+            return v == null ? Long.MIN_VALUE : Long.parseLong(v.toString().trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
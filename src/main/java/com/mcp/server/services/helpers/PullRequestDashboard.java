@@ -0,0 +1,121 @@
+package com.mcp.server.services.helpers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resumen compacto de PRs para {@code dashboard}: una fila por PR con el estado de votos calculado a partir de
+ * los reviewers que ya trae el listado {@code pullrequests} (sin una llamada {@code reviewers} por PR).
+ *
+ * La prioridad favorece los PRs que esperan el voto del usuario, en los que es reviewer requerido y los más
+ * antiguos; resta a borradores y a PRs que esperan acción del autor (rechazo o "waiting for author").
+ */
+public final class PullRequestDashboard {
+
+    public static final List<String> SORT_MODES = List.of("priority", "age");
+
+    private PullRequestDashboard() {}
+
+    /**
+     * Fila resumida del PR {@code pr} de {@code project}; {@code me} puede ser null (sin datos propios).
+     */
+    public static Map<String, Object> summarize(String project, Map<String, Object> pr, String me, Instant now) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("project", project);
+        if (pr.get("repository") instanceof Map<?, ?> repo) row.put("repository", repo.get("name"));
+        row.put("pullRequestId", pr.get("pullRequestId"));
+        row.put("title", pr.get("title"));
+        if (pr.get("createdBy") instanceof Map<?, ?> author) row.put("author", author.get("displayName"));
+        Instant created = parseInstant(pr.get("creationDate"));
+        row.put("createdAt", pr.get("creationDate"));
+        long ageHours = created == null ? 0L : Math.max(0L, Duration.between(created, now).toHours());
+        row.put("ageDays", ageHours / 24L);
+        row.put("targetBranch", shortRef(Objects.toString(pr.get("targetRefName"), "")));
+        boolean draft = Boolean.TRUE.equals(pr.get("isDraft"));
+        if (draft) row.put("isDraft", true);
+        if (pr.get("mergeStatus") != null) row.put("mergeStatus", pr.get("mergeStatus"));
+
+        Map<String, Integer> votes = new LinkedHashMap<>();
+        for (String k : List.of("approved", "approvedWithSuggestions", "noVote", "waitingForAuthor", "rejected")) votes.put(k, 0);
+        Integer myVote = null;
+        boolean meRequired = false;
+        int requiredPending = 0;
+        if (pr.get("reviewers") instanceof List<?> reviewers) {
+            for (Object item : reviewers) {
+                if (!(item instanceof Map<?, ?> r)) continue;
+                int vote = r.get("vote") instanceof Number n ? n.intValue() : 0;
+                votes.merge(voteName(vote), 1, Integer::sum);
+                boolean required = Boolean.TRUE.equals(r.get("isRequired"));
+                if (required && vote <= 0) requiredPending++;
+                if (me != null && me.equalsIgnoreCase(Objects.toString(r.get("id"), ""))) {
+                    myVote = vote;
+                    meRequired = required;
+                }
+            }
+        }
+        if (myVote != null) {
+            row.put("myVote", voteName(myVote));
+            if (meRequired) row.put("meRequired", true);
+        }
+        row.put("votes", votes);
+        row.put("requiredPending", requiredPending);
+
+        int priority = (int) Math.min(30L, ageHours / 24L);
+        if (myVote != null && myVote == 0) priority += 100;
+        if (meRequired) priority += 50;
+        if (draft) priority -= 40;
+        if (votes.get("rejected") > 0 || votes.get("waitingForAuthor") > 0) priority -= 20;
+        row.put("priority", priority);
+        row.put("_createdMillis", created == null ? Long.MAX_VALUE : created.toEpochMilli());
+        return row;
+    }
+
+    /**
+     * Ordena las filas por prioridad (desc, luego antigüedad) o por antigüedad (más antiguo primero); retorna
+     * copias sin las claves auxiliares.
+     */
+    public static List<Map<String, Object>> sort(List<Map<String, Object>> rows, String sortBy) {
+        Comparator<Map<String, Object>> byAge = Comparator.comparingLong(r -> (Long) r.get("_createdMillis"));
+        Comparator<Map<String, Object>> order = "age".equals(sortBy)
+                ? byAge
+                : Comparator.<Map<String, Object>>comparingInt(r -> (Integer) r.get("priority")).reversed().thenComparing(byAge);
+        List<Map<String, Object>> sorted = new ArrayList<>(rows);
+        sorted.sort(order);
+        List<Map<String, Object>> out = new ArrayList<>(sorted.size());
+        for (Map<String, Object> r : sorted) {
+            Map<String, Object> copy = new LinkedHashMap<>(r);
+            copy.remove("_createdMillis");
+            out.add(copy);
+        }
+        return out;
+    }
+
+    static String voteName(int vote) {
+        if (vote >= 10) return "approved";
+        if (vote >= 5) return "approvedWithSuggestions";
+        if (vote <= -10) return "rejected";
+        if (vote <= -5) return "waitingForAuthor";
+        return "noVote";
+    }
+
+    private static String shortRef(String ref) {
+        return ref.startsWith("refs/heads/") ? ref.substring("refs/heads/".length()) : ref;
+    }
+
+    private static Instant parseInstant(Object v) {
+        if (v == null) return null;
+        try {
+            return OffsetDateTime.parse(v.toString().trim()).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Extracción conservadora de literales obligatorios de una expresión regular (sintaxis java.util.regex).
+ * Se usa para prefiltrar archivos/líneas antes de evaluar la regex completa: si un literal obligatorio no
+ * aparece en el texto, la regex no puede coincidir.
+ */
+public final class RegexLiterals {
+
+    private RegexLiterals() {}
+
+    /**
+     * Literales obligatorios por alternativa de primer nivel, o null si no es posible prefiltrar
+     * (flags embebidos o alguna alternativa sin literales de {@code minLength}+ caracteres).
+     */
+    public static List<List<String>> requiredByAlternative(String regex, int minLength) {
+        if (regex == null || regex.isEmpty() || hasInlineFlags(regex)) return null;
+        List<List<String>> out = new ArrayList<>();
+        for (String branch : splitTopLevelAlternatives(regex)) {
+            List<String> literals = requiredLiterals(branch, minLength);
+            if (literals.isEmpty()) return null;
+            out.add(literals);
+        }
+        return out;
+    }
+
+    /**
+     * True si el patrón usa flags embebidos ({@code (?i)}, {@code (?x)}...) que cambian el significado de los literales.
+     */
+    public static boolean hasInlineFlags(String regex) {
+        for (int i = 0; i + 2 < regex.length(); i++) {
+            if (regex.charAt(i) == '\\') {
+                i = escapeEnd(regex, i) - 1;
+                continue;
+            }
+            if (regex.charAt(i) == '(' && regex.charAt(i + 1) == '?') {
+                char k = regex.charAt(i + 2);
+                if (k != ':' && k != '=' && k != '!' && k != '<' && k != '>') return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Divide el patrón por las alternativas {@code |} de primer nivel (fuera de grupos y clases).
+     */
+    public static List<String> splitTopLevelAlternatives(String regex) {
+        List<String> out = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = escapeEnd(regex, i) - 1;
+                continue;
+            }
+            if (c == '[') i = skipClass(regex, i) - 1;
+            else if (c == '(') depth++;
+            else if (c == ')') depth = Math.max(0, depth - 1);
+            else if (c == '|' && depth == 0) {
+                out.add(regex.substring(start, i));
+                start = i + 1;
+            }
+        }
+        out.add(regex.substring(start));
+        return out;
+    }
+
+    /**
+     * Fragmentos literales (de al menos {@code minLength} caracteres) que toda coincidencia de la rama debe
+     * contener. Análisis conservador: grupos, clases, escapes no literales y cuantificadores opcionales
+     * cortan o descartan el fragmento.
+     */
+    public static List<String> requiredLiterals(String branch, int minLength) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean lastLiteral = false;
+        int n = branch.length();
+        int i = 0;
+        while (i < n) {
+            char c = branch.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= n) break;
+                char d = branch.charAt(i + 1);
+                if (d == 'Q') {
+                    int end = branch.indexOf("\\E", i + 2);
+                    String lit = end < 0 ? branch.substring(i + 2) : branch.substring(i + 2, end);
+                    cur.append(lit);
+                    lastLiteral = !lit.isEmpty();
+                    i = end < 0 ? n : end + 2;
+                    continue;
+                }
+                if (Character.isLetterOrDigit(d)) {
+                    flush(cur, out, minLength);
+                    lastLiteral = false;
+                    // Incluye los operandos (\x41, \0101, \p{L}, escapes Unicode...) para no tomarlos como literales
+                    i = escapeEnd(branch, i);
+                    continue;
+                }
+                cur.append(d);
+                lastLiteral = true;
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i = skipClass(branch, i);
+                continue;
+            }
+            if (c == '(') {
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i = skipGroup(branch, i);
+                continue;
+            }
+            if (c == '*' || c == '?') {
+                if (lastLiteral && cur.length() > 0) cur.setLength(cur.length() - 1);
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i = skipQuantifierModifier(branch, i + 1);
+                continue;
+            }
+            if (c == '{') {
+                int close = branch.indexOf('}', i);
+                if (close < 0) {
+                    cur.append(c);
+                    lastLiteral = true;
+                    i++;
+                    continue;
+                }
+                String body = branch.substring(i + 1, close);
+                String min = body.contains(",") ? body.substring(0, body.indexOf(',')) : body;
+                if (lastLiteral && cur.length() > 0 && "0".equals(min.trim())) cur.setLength(cur.length() - 1);
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i = skipQuantifierModifier(branch, close + 1);
+                continue;
+            }
+            if (c == '+') {
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i = skipQuantifierModifier(branch, i + 1);
+                continue;
+            }
+            if (c == '.' || c == '^' || c == '$' || c == ')' || c == '|') {
+                flush(cur, out, minLength);
+                lastLiteral = false;
+                i++;
+                continue;
+            }
+            cur.append(c);
+            lastLiteral = true;
+            i++;
+        }
+        flush(cur, out, minLength);
+        return out;
+    }
+
+    /**
+     * Posición siguiente al escape que empieza en {@code i}, con sus operandos: {@code \Q...\E}, {@code \cX},
+     * escapes Unicode (u + 4 dígitos hex), {@code \xHH}/{@code \x{H...}}, {@code \0ooo}, {@code \p{..}}/{@code \pL}, {@code \N{..}},
+     * {@code \k<name>} y referencias {@code \12}.
+     */
+    private static int escapeEnd(String s, int i) {
+        int n = s.length();
+        if (i + 1 >= n) return n;
+        char d = s.charAt(i + 1);
+        int j = i + 2;
+        switch (d) {
+            case 'Q' -> {
+                int end = s.indexOf("\\E", j);
+                return end < 0 ? n : end + 2;
+            }
+            case 'c' -> {
+                return Math.min(n, j + 1);
+            }
+            case 'u' -> {
+                return skipWhile(s, j, 4, RegexLiterals::isHex);
+            }
+            case 'x' -> {
+                return j < n && s.charAt(j) == '{' ? closingBrace(s, j) : skipWhile(s, j, 2, RegexLiterals::isHex);
+            }
+            case '0' -> {
+                return skipWhile(s, j, 3, c -> c >= '0' && c <= '7');
+            }
+            case 'p', 'P' -> {
+                return j < n && s.charAt(j) == '{' ? closingBrace(s, j) : Math.min(n, j + 1);
+            }
+            case 'N' -> {
+                return j < n && s.charAt(j) == '{' ? closingBrace(s, j) : j;
+            }
+            case 'k' -> {
+                if (j >= n || s.charAt(j) != '<') return j;
+                int close = s.indexOf('>', j);
+                return close < 0 ? n : close + 1;
+            }
+            default -> {
+                if (d >= '1' && d <= '9') return skipWhile(s, j, Integer.MAX_VALUE, Character::isDigit);
+                return j;
+            }
+        }
+    }
+
+    private static int skipWhile(String s, int i, int max, IntPredicate accept) {
+        int end = i;
+        while (end < s.length() && end - i < max && accept.test(s.charAt(end))) end++;
+        return end;
+    }
+
+    private static int closingBrace(String s, int open) {
+        int close = s.indexOf('}', open);
+        return close < 0 ? s.length() : close + 1;
+    }
+
+    private static boolean isHex(int c) {
+        return Character.digit(c, 16) >= 0;
+    }
+
+    private static void flush(StringBuilder cur, List<String> out, int minLength) {
+        if (cur.length() >= Math.max(1, minLength)) out.add(cur.toString());
+        cur.setLength(0);
+    }
+
+    private static int skipQuantifierModifier(String s, int i) {
+        if (i < s.length() && (s.charAt(i) == '?' || s.charAt(i) == '+')) return i + 1;
+        return i;
+    }
+
+    private static int skipClass(String s, int start) {
+        int depth = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i = escapeEnd(s, i) - 1;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                // ']' justo tras '[' o '[^' es literal dentro de la clase
+                if (i + 1 < s.length() && s.charAt(i + 1) == '^') i++;
+                if (i + 1 < s.length() && s.charAt(i + 1) == ']') i++;
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return s.length();
+    }
+
+    private static int skipGroup(String s, int start) {
+        int depth = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i = escapeEnd(s, i) - 1;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(s, i) - 1;
+                continue;
+            }
+            if (c == '(') depth++;
+            else if (c == ')' && --depth == 0) return i + 1;
+        }
+        return s.length();
+    }
+}
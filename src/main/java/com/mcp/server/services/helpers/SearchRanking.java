@@ -0,0 +1,164 @@
+package com.mcp.server.services.helpers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Puntaje de relevancia para resultados de búsqueda de contenido y selección top-K acotada.
+ *
+ * El puntaje combina relevancia de ruta (términos en el nombre o la ruta, profundidad, carpetas de
+ * dependencias/artefactos), densidad de coincidencias y bonificación por archivo clave.
+ */
+public final class SearchRanking {
+
+    private static final String[] NOISE_SEGMENTS = {
+            "/node_modules/", "/vendor/", "/dist/", "/build/", "/target/", "/bin/", "/obj/", "/generated/", "/.git/"
+    };
+
+    private SearchRanking() {}
+
+    /**
+     * Términos literales usados para puntuar la ruta: el patrón tal cual si es literal o los literales
+     * obligatorios (mínimo 3 caracteres) si es regex. Se normalizan a minúsculas.
+     */
+    public static List<String> rankingTerms(List<String> patterns, boolean regex) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        for (String p : patterns) {
+            if (p == null || p.isBlank()) continue;
+            if (!regex) {
+                terms.add(p.toLowerCase(Locale.ROOT));
+                continue;
+            }
+            List<List<String>> literals = RegexLiterals.requiredByAlternative(p, 3);
+            if (literals == null) continue;
+            for (List<String> branch : literals) {
+                for (String s : branch) terms.add(s.toLowerCase(Locale.ROOT));
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Puntaje de un archivo con coincidencias. Mayor es mejor.
+     */
+    public static double score(String normalizedPath, List<String> terms, int matchCount, int lineCount, boolean keyFile) {
+        String path = normalizedPath == null ? "" : normalizedPath.toLowerCase(Locale.ROOT);
+        int slash = path.lastIndexOf('/');
+        String name = slash < 0 ? path : path.substring(slash + 1);
+
+        double score = 0;
+        for (String term : terms) {
+            if (name.contains(term)) {
+                score += 3.0;
+            } else if (path.contains(term)) {
+                score += 1.5;
+            }
+        }
+
+        double density = matchCount / (double) Math.max(1, lineCount);
+        score += Math.log1p(matchCount) + Math.min(1.0, density * 10.0);
+
+        if (keyFile) score += 1.5;
+
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) if (path.charAt(i) == '/') depth++;
+        score -= 0.05 * Math.max(0, depth - 1);
+        for (String noise : NOISE_SEGMENTS) {
+            if (path.contains(noise)) {
+                score -= 1.0;
+                break;
+            }
+        }
+        if (name.contains(".min.") || name.endsWith(".lock")) score -= 1.0;
+        return score;
+    }
+
+    public static int lineCount(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        int lines = 1;
+        int nl = text.indexOf('\n');
+        while (nl >= 0) {
+            if (nl < text.length() - 1) lines++;
+            nl = text.indexOf('\n', nl + 1);
+        }
+        return lines;
+    }
+
+    /**
+     * Conserva los {@code k} elementos de mayor puntaje en un min-heap: memoria O(k) sin importar cuántos
+     * candidatos se ofrezcan. A igual puntaje gana el ofrecido primero.
+     */
+    public static final class TopK<T> {
+        private final int k;
+        private final Comparator<Entry<T>> worstFirst = Comparator
+                .comparingDouble((Entry<T> e) -> e.score())
+                .thenComparingLong(e -> -e.sequence());
+        private final PriorityQueue<Entry<T>> heap;
+        private long sequence;
+        private long offered;
+        private long dropped;
+
+        public TopK(int k) {
+            if (k < 1) throw new IllegalArgumentException("k debe ser >= 1");
+            this.k = k;
+            this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, worstFirst);
+        }
+
+        /**
+         * Ofrece un candidato. Retorna false si quedó fuera del top-K (o desplazó a otro, que se descarta).
+         */
+        public boolean offer(double score, T value) {
+            offered++;
+            Entry<T> entry = new Entry<>(score, sequence++, value);
+            if (heap.size() < k) {
+                heap.add(entry);
+                return true;
+            }
+            Entry<T> worst = heap.peek();
+            if (worstFirst.compare(entry, worst) <= 0) {
+                dropped++;
+                return false;
+            }
+            heap.poll();
+            heap.add(entry);
+            dropped++;
+            return true;
+        }
+
+        /**
+         * Umbral actual: un candidato con puntaje menor o igual no entra al top-K (NEGATIVE_INFINITY si aún hay lugar).
+         */
+        public double threshold() {
+            return heap.size() < k ? Double.NEGATIVE_INFINITY : heap.peek().score;
+        }
+
+        public long offered() {
+            return offered;
+        }
+
+        public long dropped() {
+            return dropped;
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        /**
+         * Elementos retenidos de mayor a menor puntaje.
+         */
+        public List<T> sortedDescending() {
+            List<Entry<T>> entries = new ArrayList<>(heap);
+            entries.sort(worstFirst.reversed());
+            List<T> out = new ArrayList<>(entries.size());
+            for (Entry<T> e : entries) out.add(e.value);
+            return out;
+        }
+
+        private record Entry<T>(double score, long sequence, T value) {}
+    }
+}
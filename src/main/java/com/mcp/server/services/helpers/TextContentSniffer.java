@@ -0,0 +1,120 @@
+package com.mcp.server.services.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Heurísticas compartidas para decidir si un contenido es texto legible por líneas:
+ * firmas binarias conocidas, bytes NUL/control en la primera muestra, Content-Type y extensión.
+ */
+public final class TextContentSniffer {
+
+    /** Tamaño de muestra inicial usado para detectar binarios (primer chunk de la descarga). */
+    public static final int SAMPLE_BYTES = 8192;
+
+    private static final double MAX_CONTROL_RATIO = 0.18;
+
+    private static final Set<String> BINARY_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "bmp", "ico", "tif", "tiff", "webp", "psd",
+            "pdf", "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "tar", "iso", "dmg",
+            "jar", "war", "ear", "class", "nupkg", "pyc", "whl",
+            "exe", "dll", "so", "dylib", "bin", "o", "a", "lib", "obj", "pdb",
+            "woff", "woff2", "ttf", "otf", "eot",
+            "mp3", "mp4", "avi", "mov", "wav", "ogg", "webm", "flac",
+            "doc", "docx", "xls", "xlsx", "ppt", "pptx", "sqlite", "db"
+    );
+
+    private TextContentSniffer() {}
+
+    /**
+     * Retorna el nombre de la firma binaria reconocida al inicio de la muestra, o null si no hay ninguna.
+     */
+    public static String binarySignature(byte[] data, int length) {
+        if (data == null || length <= 0) return null;
+        int n = Math.min(length, data.length);
+        if (startsWith(data, n, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(data, n, 0xFF, 0xD8, 0xFF)) return "jpeg";
+        if (startsWith(data, n, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(data, n, '%', 'P', 'D', 'F', '-')) return "pdf";
+        if (startsWith(data, n, 'P', 'K', 0x03, 0x04) || startsWith(data, n, 'P', 'K', 0x05, 0x06)) return "zip";
+        if (startsWith(data, n, 0x1F, 0x8B)) return "gzip";
+        if (startsWith(data, n, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)) return "7z";
+        if (startsWith(data, n, 'R', 'a', 'r', '!')) return "rar";
+        if (startsWith(data, n, 0x7F, 'E', 'L', 'F')) return "elf";
+        if (startsWith(data, n, 0xCA, 0xFE, 0xBA, 0xBE)) return "java-class";
+        if (startsWith(data, n, 0xD0, 0xCF, 0x11, 0xE0)) return "ole2";
+        if (startsWith(data, n, 'w', 'O', 'F', 'F') || startsWith(data, n, 'w', 'O', 'F', '2')) return "woff";
+        return null;
+    }
+
+    /**
+     * True si la muestra parece binaria: firma conocida, algún byte NUL o demasiados caracteres de control.
+     */
+    public static boolean looksBinary(byte[] data, int length) {
+        if (data == null || length <= 0) return false;
+        if (binarySignature(data, length) != null) return true;
+
+        int n = Math.min(length, data.length);
+        int control = 0;
+        for (int i = 0; i < n; i++) {
+            int b = data[i] & 0xff;
+            if (b == 0) return true;
+            if (b < 0x09) control++;
+            if (b > 0x0D && b < 0x20) control++;
+        }
+        return (double) control / (double) n > MAX_CONTROL_RATIO;
+    }
+
+    /**
+     * Aplica {@link #looksBinary(byte[], int)} sobre los primeros bytes UTF-8 de un texto ya decodificado.
+     */
+    public static boolean looksBinary(String text) {
+        if (text == null || text.isEmpty()) return false;
+        String head = text.length() > SAMPLE_BYTES ? text.substring(0, SAMPLE_BYTES) : text;
+        byte[] sample = head.getBytes(StandardCharsets.UTF_8);
+        return looksBinary(sample, Math.min(sample.length, SAMPLE_BYTES));
+    }
+
+    public static boolean isClearlyBinaryContentType(String contentType) {
+        String ct = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (ct.isBlank()) return false;
+        if (ct.startsWith("text/")) return false;
+        if (ct.contains("json") || ct.contains("xml") || ct.contains("yaml") || ct.contains("x-sh") || ct.contains("x-python")) {
+            return false;
+        }
+        return ct.startsWith("image/")
+                || ct.startsWith("audio/")
+                || ct.startsWith("video/")
+                || ct.startsWith("font/")
+                || ct.contains("application/pdf")
+                || ct.contains("application/zip")
+                || ct.contains("application/x-zip")
+                || ct.contains("application/gzip")
+                || ct.contains("application/x-gzip")
+                || ct.contains("application/java-archive")
+                || ct.contains("application/x-rar")
+                || ct.contains("application/x-7z")
+                || ct.contains("application/msword")
+                || ct.contains("application/vnd.ms-")
+                || ct.contains("application/vnd.openxmlformats-officedocument")
+                || ct.contains("application/x-executable");
+    }
+
+    public static boolean hasBinaryExtension(String path) {
+        if (path == null) return false;
+        int slash = path.lastIndexOf('/');
+        String name = slash >= 0 ? path.substring(slash + 1) : path;
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0 || dot == name.length() - 1) return false;
+        return BINARY_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean startsWith(byte[] data, int length, int... prefix) {
+        if (length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xff) != (prefix[i] & 0xff)) return false;
+        }
+        return true;
+    }
+}
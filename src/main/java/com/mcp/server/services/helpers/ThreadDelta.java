@@ -0,0 +1,197 @@
+package com.mcp.server.services.helpers;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta de threads de un PR respecto de un snapshot previo o de una marca de tiempo ({@code since}).
+ *
+ * El snapshot sólo guarda, por thread y comentario, la fecha de última actualización y si está borrado; con
+ * eso se detectan threads/comentarios nuevos o modificados y se emiten tombstones para los borrados (marcados
+ * {@code isDeleted} o ausentes del listado). Con {@code since} se filtra por fecha y el snapshot, si existe,
+ * sólo aporta la detección de ausencias.
+ */
+public final class ThreadDelta {
+
+    private ThreadDelta() {}
+
+    public record CommentState(Instant updated, boolean deleted) {}
+
+    public record ThreadState(Instant updated, boolean deleted, Map<Long, CommentState> comments) {}
+
+    /**
+     * Estado resumido de los threads de un PR; {@code watermark} es la fecha más reciente vista.
+     */
+    public record Snapshot(Map<Long, ThreadState> threads, Instant watermark) {}
+
+    /**
+     * {@code mode}: {@code initial} (sin referencia, se devuelve todo), {@code snapshot} o {@code since}.
+     * {@code threads} trae sólo los threads cambiados, cada uno con sus comentarios cambiados no borrados.
+     */
+    public record Result(String mode, List<Map<String, Object>> threads, List<Map<String, Object>> tombstones,
+                         Snapshot snapshot) {}
+
+    /**
+     * Compara {@code threads} (respuesta de {@code pullRequests/{id}/threads}) con {@code previous} o {@code since}.
+     */
+    public static Result diff(List<Map<String, Object>> threads, Snapshot previous, Instant since) {
+        String mode = since != null ? "since" : previous != null ? "snapshot" : "initial";
+        Map<Long, ThreadState> current = new LinkedHashMap<>();
+        List<Map<String, Object>> changed = new ArrayList<>();
+        List<Map<String, Object>> tombstones = new ArrayList<>();
+        Instant watermark = since;
+
+        for (Map<String, Object> thread : threads) {
+            Long threadId = longOf(thread.get("id"));
+            if (threadId == null) continue;
+            Instant threadUpdated = latest(thread, "lastUpdatedDate", "publishedDate");
+            boolean threadDeleted = Boolean.TRUE.equals(thread.get("isDeleted"));
+            ThreadState prev = previous == null ? null : previous.threads().get(threadId);
+            watermark = max(watermark, threadUpdated);
+
+            Map<Long, CommentState> commentStates = new LinkedHashMap<>();
+            List<Map<String, Object>> changedComments = new ArrayList<>();
+            int liveComments = 0;
+            if (thread.get("comments") instanceof List<?> comments) {
+                for (Object item : comments) {
+                    if (!(item instanceof Map<?, ?> raw)) continue;
+                    Map<String, Object> comment = stringKeys(raw);
+                    Long commentId = longOf(comment.get("id"));
+                    if (commentId == null) continue;
+                    Instant commentUpdated = latest(comment, "lastUpdatedDate", "lastContentUpdatedDate", "publishedDate");
+                    boolean commentDeleted = Boolean.TRUE.equals(comment.get("isDeleted"));
+                    commentStates.put(commentId, new CommentState(commentUpdated, commentDeleted));
+                    watermark = max(watermark, commentUpdated);
+                    if (!commentDeleted) liveComments++;
+                    if (threadDeleted) continue;
+
+                    CommentState prevComment = prev == null ? null : prev.comments().get(commentId);
+                    boolean isChanged = switch (mode) {
+                        case "since" -> after(commentUpdated, since);
+                        case "snapshot" -> prevComment == null || prevComment.deleted() != commentDeleted
+                                || after(commentUpdated, prevComment.updated());
+                        default -> true;
+                    };
+                    if (!isChanged) continue;
+                    if (!commentDeleted) {
+                        changedComments.add(comment);
+                    } else if ("since".equals(mode) || (prevComment != null && !prevComment.deleted())) {
+                        tombstones.add(tombstone(threadId, commentId, commentUpdated));
+                    }
+                }
+            }
+            current.put(threadId, new ThreadState(threadUpdated, threadDeleted, Collections.unmodifiableMap(commentStates)));
+
+            if (threadDeleted) {
+                boolean report = switch (mode) {
+                    case "since" -> after(threadUpdated, since);
+                    case "snapshot" -> prev != null && !prev.deleted();
+                    default -> false;
+                };
+                if (report) tombstones.add(tombstone(threadId, null, threadUpdated));
+                continue;
+            }
+            if (prev != null) {
+                for (Map.Entry<Long, CommentState> e : prev.comments().entrySet()) {
+                    if (!e.getValue().deleted() && !commentStates.containsKey(e.getKey())) {
+                        tombstones.add(tombstone(threadId, e.getKey(), null));
+                    }
+                }
+            }
+
+            boolean threadChanged = switch (mode) {
+                case "since" -> after(threadUpdated, since);
+                case "snapshot" -> prev == null || prev.deleted() || after(threadUpdated, prev.updated());
+                default -> true;
+            };
+            if (!threadChanged && changedComments.isEmpty()) continue;
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> e : thread.entrySet()) {
+                if ("comments".equals(e.getKey()) || "_links".equals(e.getKey())) continue;
+                row.put(e.getKey(), e.getValue());
+            }
+            row.put("comments", changedComments);
+            row.put("commentsTotal", liveComments);
+            changed.add(row);
+        }
+
+        if (previous != null) {
+            for (Map.Entry<Long, ThreadState> e : previous.threads().entrySet()) {
+                if (!e.getValue().deleted() && !current.containsKey(e.getKey())) {
+                    tombstones.add(tombstone(e.getKey(), null, null));
+                }
+            }
+            watermark = max(watermark, previous.watermark());
+        }
+        return new Result(mode, changed, tombstones, new Snapshot(Collections.unmodifiableMap(current), watermark));
+    }
+
+    /**
+     * Fecha ISO-8601 con o sin zona (sin zona se asume UTC), o null si no se puede interpretar.
+     */
+    public static Instant parseInstant(Object value) {
+        if (value == null) return null;
+        String s = value.toString().trim();
+        if (s.isEmpty()) return null;
+        try {
+            return OffsetDateTime.parse(s).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // sin zona
+        }
+        try {
+            return LocalDateTime.parse(s).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+            return null;
+        }
+    }
+
+    private static Map<String, Object> tombstone(Long threadId, Long commentId, Instant deletedAt) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("threadId", threadId);
+        if (commentId != null) out.put("commentId", commentId);
+        if (deletedAt != null) out.put("deletedAt", deletedAt.toString());
+        return out;
+    }
+
+    private static Instant latest(Map<String, Object> row, String... keys) {
+        Instant out = null;
+        for (String key : keys) out = max(out, parseInstant(row.get(key)));
+        return out;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return b.isAfter(a) ? b : a;
+    }
+
+    /** Sin fecha se considera cambiado: es preferible reenviar a perder una actualización. */
+    private static boolean after(Instant value, Instant reference) {
+        return value == null || reference == null || value.isAfter(reference);
+    }
+
+    private static Map<String, Object> stringKeys(Map<?, ?> m) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : m.entrySet()) {
+            if (e.getKey() != null) out.put(e.getKey().toString(), e.getValue());
+        }
+        return out;
+    }
+
+    private static Long longOf(Object v) {
+        if (v instanceof Number n) return n.longValue();
+        try {
+            return v == null ? null : Long.parseLong(v.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
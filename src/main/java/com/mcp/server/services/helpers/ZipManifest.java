@@ -0,0 +1,119 @@
+package com.mcp.server.services.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lectura del directorio central de un ZIP ya descargado a disco y extracción selectiva de entradas.
+ *
+ * {@link ZipFile} sólo lee el directorio central (al final del archivo) para listar; el contenido de cada
+ * entrada se descomprime en streaming al extraer, sin cargar el ZIP en memoria.
+ */
+public final class ZipManifest {
+
+    private ZipManifest() {}
+
+    /**
+     * Lista hasta {@code maxEntries} entradas (path, size, compressedSize, crc); los totales cubren todo el ZIP.
+     */
+    public static Listing list(Path zip, int maxEntries) throws IOException {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        int total = 0;
+        long uncompressed = 0L;
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            Enumeration<? extends ZipEntry> it = file.entries();
+            while (it.hasMoreElements()) {
+                ZipEntry entry = it.nextElement();
+                total++;
+                if (entry.getSize() > 0) uncompressed += entry.getSize();
+                if (entries.size() < maxEntries) entries.add(describe(entry));
+            }
+        }
+        return new Listing(entries, total, uncompressed);
+    }
+
+    /**
+     * Extrae a {@code targetDir} las entradas (no directorios) cuyo path normalizado ({@code /a/b.txt}) acepta
+     * {@code filter}. Rechaza entradas que escaparían del directorio destino (zip-slip) y se detiene al
+     * superar {@code maxBytes} descomprimidos.
+     */
+    public static Extraction extract(Path zip, Predicate<String> filter, Path targetDir, long maxBytes) throws IOException {
+        Path root = targetDir.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        List<String> extracted = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        long bytes = 0L;
+        boolean limited = false;
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            Enumeration<? extends ZipEntry> it = file.entries();
+            while (it.hasMoreElements()) {
+                ZipEntry entry = it.nextElement();
+                if (entry.isDirectory()) continue;
+                String path = normalize(entry.getName());
+                if (!filter.test(path)) continue;
+
+                Path dest = root.resolve(path.substring(1)).normalize();
+                if (!dest.startsWith(root)) {
+                    rejected.add(path);
+                    continue;
+                }
+                if (limited) continue;
+                Path parent = dest.getParent();
+                if (parent != null) Files.createDirectories(parent);
+                try (InputStream in = file.getInputStream(entry);
+                     OutputStream out = Files.newOutputStream(dest, StandardOpenOption.CREATE,
+                             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    int n;
+                    while ((n = in.read(buffer)) >= 0) {
+                        bytes += n;
+                        if (bytes > maxBytes) {
+                            limited = true;
+                            break;
+                        }
+                        out.write(buffer, 0, n);
+                    }
+                }
+                if (limited) {
+                    Files.deleteIfExists(dest);
+                    continue;
+                }
+                extracted.add(path);
+            }
+        }
+        return new Extraction(root.toString(), extracted, rejected, Math.min(bytes, maxBytes), limited);
+    }
+
+    static String normalize(String entryName) {
+        String p = entryName.replace('\\', '/');
+        while (p.startsWith("./")) p = p.substring(2);
+        return p.startsWith("/") ? p : "/" + p;
+    }
+
+    private static Map<String, Object> describe(ZipEntry entry) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("path", normalize(entry.getName()));
+        row.put("directory", entry.isDirectory());
+        row.put("size", entry.getSize());
+        row.put("compressedSize", entry.getCompressedSize());
+        if (entry.getCrc() >= 0) row.put("crc", String.format(Locale.ROOT, "%08x", entry.getCrc()));
+        return row;
+    }
+
+    public record Listing(List<Map<String, Object>> entries, int totalEntries, long uncompressedBytes) {}
+
+    public record Extraction(String targetDir, List<String> extracted, List<String> rejected, long bytes, boolean limited) {}
+}
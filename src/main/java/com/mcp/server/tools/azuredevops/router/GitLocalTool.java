@@ -3,6 +3,7 @@ package com.mcp.server.tools.azuredevops.router;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mcp.server.services.AzureDevOpsClientService;
+import com.mcp.server.services.GitRepositoryDirectory;
 import com.mcp.server.tools.azuredevops.base.AbstractAzureDevOpsTool;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -393,7 +394,12 @@ public class GitLocalTool extends AbstractAzureDevOpsTool {
 
     private Map<String, Object> fetchRepository(String project, String repositoryId, String repositoryName) {
         String key = !repositoryId.isBlank() ? repositoryId : repositoryName;
-        return azureService.getGitApiWithQuery(project, "repositories/" + key, null, "7.2-preview.2");
+        Map<String, Object> cached = GitRepositoryDirectory.shared().get(project, key);
+        if (cached != null && cached.get("remoteUrl") != null) return cached;
+
+        Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + key, null, "7.2-preview.2");
+        if (resp != null && !Boolean.TRUE.equals(resp.get("isHttpError"))) GitRepositoryDirectory.shared().put(project, resp);
+        return resp;
     }
 
     private Path ensureWorkspaceRoot() throws Exception {
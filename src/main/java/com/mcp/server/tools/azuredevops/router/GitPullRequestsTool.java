@@ -2,26 +2,72 @@ package com.mcp.server.tools.azuredevops.router;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mcp.server.services.AzureDevOpsClientService;
+import com.mcp.server.services.BoundedFanOut;
+import com.mcp.server.services.GitBlobCache;
+import com.mcp.server.services.GitChangeDiffer;
+import com.mcp.server.services.ProjectDirectory;
+import com.mcp.server.services.PullRequestThreadSnapshots;
+import com.mcp.server.services.helpers.KWayMerge;
+import com.mcp.server.services.helpers.PullRequestBundle;
+import com.mcp.server.services.helpers.PullRequestDashboard;
+import com.mcp.server.services.helpers.ThreadDelta;
 import com.mcp.server.tools.azuredevops.base.AbstractAzureDevOpsTool;
+import com.mcp.server.transport.McpSessionContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 @Component
 public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
 
     private static final String NAME = "azuredevops_git_pull_requests";
-    private static final String DESC = "Operaciones Git Pull Requests. operation: get|list|list_by_project|assigned_to_me|create|update|reviewers_list|reviewer_add|reviewer_update|threads_list|thread_create|thread_update|comments_add|comment_update|comment_delete|statuses_list|status_add|labels_list|label_add|label_delete|iterations_list|iteration_changes_get|work_items_list|query|share.";
+    private static final String DESC = "Operaciones Git Pull Requests. operation: get|list|list_by_project|assigned_to_me|dashboard|create|update|reviewers_list|reviewer_add|reviewer_update|threads_list|threads_sync|thread_create|thread_update|comments_add|comment_update|comment_delete|statuses_list|status_add|labels_list|label_add|label_delete|iterations_list|iteration_changes_get|iteration_diff|work_items_list|review_bundle|query|share.";
     private static final String DEFAULT_API_VERSION = "7.2-preview.2";
     private static final String DEFAULT_LEGACY_API_VERSION = "7.2-preview.1";
 
+    private static final List<String> ALL_STATUSES = List.of("active", "completed", "abandoned");
+    private static final int ALL_STATUSES_DEFAULT_TOP = 100;
+    private static final int ALL_STATUSES_PAGE_MAX = 1000;
+    private static final long ALL_STATUSES_TIMEOUT_MS = 120_000L;
+
+    private static final int DASHBOARD_CONCURRENCY = 8;
+    private static final int DASHBOARD_PAGE_MAX = 1000;
+    private static final int DASHBOARD_DEFAULT_TOP = 50;
+    private static final int DASHBOARD_PROJECTS_PAGE = 500;
+    private static final long DASHBOARD_TIMEOUT_MS = 120_000L;
+
+    private static final long REVIEW_BUNDLE_TIMEOUT_MS = 60_000L;
+    private static final int REVIEW_BUNDLE_MAX_CHANGES = 1000;
+    private static final int BUNDLE_CONTENT_CONCURRENCY = 8;
+    private static final int DEFAULT_BUNDLE_CONTENT_MAX_BYTES = 512 * 1024;
+    private static final int HARD_BUNDLE_CONTENT_MAX_BYTES = 8 * 1024 * 1024;
+    private static final int DEFAULT_BUNDLE_CONTENT_MAX_FILES = 50;
+    private static final int HARD_BUNDLE_CONTENT_MAX_FILES = 500;
+
+    private static final int DEFAULT_DIFF_CONTEXT_LINES = 3;
+    private static final int HARD_DIFF_CONTEXT_LINES = 20;
+    private static final int DEFAULT_DIFF_MAX_LINES = 2_000;
+    private static final int HARD_DIFF_MAX_LINES = 20_000;
+    private static final int DEFAULT_DIFF_MAX_BYTES = 256 * 1024;
+    private static final int HARD_DIFF_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_DIFF_MAX_FILES = 100;
+    private static final int HARD_DIFF_MAX_FILES = 1_000;
+
     private static final ObjectMapper JSON = new ObjectMapper();
 
     @Autowired
@@ -53,15 +99,15 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         props.put("operation", Map.of(
                 "type", "string",
                 "enum", List.of(
-                        "get", "list", "list_by_project", "assigned_to_me",
+                        "get", "list", "list_by_project", "assigned_to_me", "dashboard",
                         "create", "update",
                         "reviewers_list", "reviewer_add", "reviewer_update",
-                        "threads_list", "thread_create", "thread_update",
+                        "threads_list", "threads_sync", "thread_create", "thread_update",
                         "comments_add", "comment_update", "comment_delete",
                         "statuses_list", "status_add",
                         "labels_list", "label_add", "label_delete",
-                        "iterations_list", "iteration_changes_get", "work_items_list",
-                        "query", "share"
+                        "iterations_list", "iteration_changes_get", "iteration_diff", "work_items_list",
+                        "review_bundle", "query", "share"
                 ),
                 "description", "Operación a ejecutar"
         ));
@@ -77,6 +123,10 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
 
         props.put("top", Map.of("type", "integer", "description", "Límite"));
         props.put("skip", Map.of("type", "integer", "description", "Offset"));
+        props.put("orderBy", Map.of("type", "string", "description", "list_by_project con status=all: orden de la mezcla (creationDate|id, default creationDate)"));
+        props.put("role", Map.of("type", "string", "description", "dashboard: reviewer (PRs donde soy reviewer, default)|creator (PRs creados por mí)|all"));
+        props.put("projects", Map.of("type", "string", "description", "dashboard: proyectos CSV a incluir (default todos los de la organización)"));
+        props.put("sortBy", Map.of("type", "string", "description", "dashboard: priority (default)|age"));
         props.put("creatorId", Map.of("type", "string", "description", "Filtro creatorId (UUID)"));
         props.put("reviewerId", Map.of("type", "string", "description", "Filtro reviewerId (UUID)"));
         props.put("sourceRepositoryId", Map.of("type", "string", "description", "Filtro sourceRepositoryId"));
@@ -90,6 +140,8 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         props.put("threadId", Map.of("type", "integer", "description", "ID del thread"));
         props.put("commentId", Map.of("type", "integer", "description", "ID del comentario"));
         props.put("content", Map.of("type", "string", "description", "Contenido de comentario/thread"));
+        props.put("since", Map.of("type", "string", "description", "threads_sync: marca ISO-8601 (watermark de una respuesta previa); sin ella se usa el snapshot recordado por el servidor"));
+        props.put("fullSync", Map.of("type", "boolean", "description", "threads_sync: ignora snapshot y since, devuelve todos los threads y reinicia el snapshot"));
 
         props.put("contextFilePath", Map.of("type", "string", "description", "Thread context: ruta archivo"));
         props.put("contextRightFileStartLine", Map.of("type", "integer", "description", "Thread context: línea inicio"));
@@ -105,7 +157,17 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         props.put("labelIdOrName", Map.of("type", "string", "description", "Label id o name para delete"));
 
         props.put("iterationId", Map.of("type", "integer", "description", "ID de iteración"));
-
+        props.put("compareTo", Map.of("type", "integer", "description", "iteration_diff: iteración base a comparar (default: base común con la rama destino)"));
+        props.put("contextLines", Map.of("type", "integer", "description", "iteration_diff: líneas de contexto por hunk (default " + DEFAULT_DIFF_CONTEXT_LINES + ", máx " + HARD_DIFF_CONTEXT_LINES + ")"));
+        props.put("maxDiffLines", Map.of("type", "integer", "description", "iteration_diff: presupuesto total de líneas de hunks (default " + DEFAULT_DIFF_MAX_LINES + ", máx " + HARD_DIFF_MAX_LINES + ")"));
+        props.put("maxDiffBytes", Map.of("type", "integer", "description", "iteration_diff: presupuesto total de bytes de hunks (default " + DEFAULT_DIFF_MAX_BYTES + ", máx " + HARD_DIFF_MAX_BYTES + ")"));
+        props.put("maxFiles", Map.of("type", "integer", "description", "iteration_diff: máximo de archivos a comparar (default " + DEFAULT_DIFF_MAX_FILES + ", máx " + HARD_DIFF_MAX_FILES + ")"));
+
+        props.put("sections", Map.of("type", "string", "description", "review_bundle: secciones CSV (pullRequest,reviewers,iterations,changes,threads,statuses,workItems,labels; default todas)"));
+        props.put("fields", Map.of("type", "string", "description", "review_bundle: proyección CSV seccion.campo (ej. pullRequest.title,threads.status); secciones no listadas se devuelven completas"));
+        props.put("includeContent", Map.of("type", "boolean", "description", "review_bundle: incluye contenido base/target de los archivos cambiados"));
+        props.put("contentMaxBytes", Map.of("type", "integer", "description", "review_bundle: presupuesto total de bytes de contenido (default " + DEFAULT_BUNDLE_CONTENT_MAX_BYTES + ", max " + HARD_BUNDLE_CONTENT_MAX_BYTES + ")"));
+        props.put("contentMaxFiles", Map.of("type", "integer", "description", "review_bundle: máximo de archivos con contenido (default " + DEFAULT_BUNDLE_CONTENT_MAX_FILES + ", max " + HARD_BUNDLE_CONTENT_MAX_FILES + ")"));
         props.put("supportsIterations", Map.of("type", "boolean", "description", "create/update PR supportsIterations"));
         props.put("bodyJson", Map.of("type", "string", "description", "Body JSON crudo opcional para operaciones avanzadas"));
 
@@ -126,12 +188,14 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
                 case "list" -> opList(arguments);
                 case "list_by_project" -> opListByProject(arguments);
                 case "assigned_to_me" -> opAssignedToMe(arguments);
+                case "dashboard" -> opDashboard(arguments);
                 case "create" -> opCreate(arguments);
                 case "update" -> opUpdate(arguments);
                 case "reviewers_list" -> opReviewersList(arguments);
                 case "reviewer_add" -> opReviewerAdd(arguments);
                 case "reviewer_update" -> opReviewerUpdate(arguments);
                 case "threads_list" -> opThreadsList(arguments);
+                case "threads_sync" -> opThreadsSync(arguments);
                 case "thread_create" -> opThreadCreate(arguments);
                 case "thread_update" -> opThreadUpdate(arguments);
                 case "comments_add" -> opCommentAdd(arguments);
@@ -144,7 +208,9 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
                 case "label_delete" -> opLabelDelete(arguments);
                 case "iterations_list" -> opIterationsList(arguments);
                 case "iteration_changes_get" -> opIterationChangesGet(arguments);
+                case "iteration_diff" -> opIterationDiff(arguments);
                 case "work_items_list" -> opWorkItemsList(arguments);
+                case "review_bundle" -> opReviewBundle(arguments);
                 case "query" -> opQuery(arguments);
                 case "share" -> opShare(arguments);
                 default -> error("Operación no soportada: " + op);
@@ -206,54 +272,140 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * status=all: consulta active/completed/abandoned en paralelo y mezcla (k-way) los tres listados, que
+     * Azure DevOps devuelve del más reciente al más antiguo, aplicando top/skip sobre el resultado global.
+     * Cada estado pide a lo sumo skip+top filas y las páginas siguientes sólo si la mezcla las consume.
+     */
     private Map<String, Object> listByProjectAllStatuses(Map<String, Object> args, String project, Map<String, String> baseQ) {
-        List<String> statuses = List.of("active", "completed", "abandoned");
-        List<Map<String, Object>> merged = new ArrayList<>();
-        int total = 0;
-
-        for (String status : statuses) {
-            Map<String, String> q = new LinkedHashMap<>(baseQ);
-            putInt(q, "$top", args.get("top"));
-            putInt(q, "$skip", args.get("skip"));
-            q.put("searchCriteria.status", status);
-            putIfNotBlank(q, "searchCriteria.creatorId", str(args, "creatorId"));
-            putIfNotBlank(q, "searchCriteria.reviewerId", str(args, "reviewerId"));
-            putIfNotBlank(q, "searchCriteria.repositoryId", str(args, "repositoryId"));
-            putIfNotBlank(q, "searchCriteria.sourceRepositoryId", str(args, "sourceRepositoryId"));
-            putIfNotBlank(q, "searchCriteria.sourceRefName", normalizeRef(str(args, "sourceBranch")));
-            putIfNotBlank(q, "searchCriteria.targetRefName", normalizeRef(str(args, "targetBranch")));
-
-            Map<String, Object> part = azureService.getGitApiWithQuery(project, "pullrequests", q, apiVersion(args));
+        Integer skipArg = parseInt(args.get("skip"));
+        Integer topArg = parseInt(args.get("top"));
+        int skip = skipArg == null ? 0 : Math.max(0, skipArg);
+        int top = topArg == null || topArg <= 0 ? ALL_STATUSES_DEFAULT_TOP : topArg;
+        int need = (int) Math.min(Integer.MAX_VALUE, (long) skip + top);
+        int pageSize = Math.min(need, ALL_STATUSES_PAGE_MAX);
+        String orderBy = "id".equalsIgnoreCase(str(args, "orderBy")) ? "id" : "creationDate";
+
+        String session = McpSessionContext.currentSessionId();
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
+        for (String status : ALL_STATUSES) {
+            tasks.add(() -> McpSessionContext.callWithSession(session,
+                    () -> fetchStatusPage(args, project, baseQ, status, 0, pageSize)));
+        }
+        long startedAt = System.currentTimeMillis();
+        List<BoundedFanOut.Outcome<Map<String, Object>>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, ALL_STATUSES.size(), startedAt + ALL_STATUSES_TIMEOUT_MS, startedAt + ALL_STATUSES_TIMEOUT_MS);
+
+        List<KWayMerge.Source<Map<String, Object>>> sources = new ArrayList<>();
+        for (int i = 0; i < ALL_STATUSES.size(); i++) {
+            String status = ALL_STATUSES.get(i);
+            BoundedFanOut.Outcome<Map<String, Object>> outcome = outcomes.get(i);
+            if (!outcome.ok()) {
+                String detail = outcome.error() != null ? outcome.error() : outcome.status();
+                return error("No se pudieron consultar PRs con status=" + status + ": " + detail);
+            }
+            Map<String, Object> part = outcome.value();
             String err = tryFormatRemoteError(part);
             if (err != null) return error(err);
+            sources.add(new KWayMerge.Source<>(valueRows(part), pageSize, (offset, limit) -> {
+                Map<String, Object> page = fetchStatusPage(args, project, baseQ, status, offset, limit);
+                String pageErr = tryFormatRemoteError(page);
+                if (pageErr != null) throw new IllegalArgumentException(pageErr);
+                return valueRows(page);
+            }));
+        }
 
-            Object countObj = part.get("count");
-            if (countObj instanceof Number n) total += n.intValue();
+        KWayMerge.Result<Map<String, Object>> merged = KWayMerge.merge(sources, pullRequestOrder(orderBy), skip, top);
+
+        List<Map<String, Object>> perStatus = new ArrayList<>();
+        for (int i = 0; i < ALL_STATUSES.size(); i++) {
+            KWayMerge.Source<Map<String, Object>> source = sources.get(i);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("status", ALL_STATUSES.get(i));
+            row.put("fetched", source.fetched());
+            row.put("merged", source.consumed());
+            row.put("pages", source.pages());
+            row.put("exhausted", source.exhausted());
+            perStatus.add(row);
+        }
 
-            Object valueObj = part.get("value");
-            if (valueObj instanceof List<?> list) {
-                for (Object item : list) {
-                    if (item instanceof Map<?, ?> m) {
-                        Map<String, Object> row = new LinkedHashMap<>();
-                        for (Map.Entry<?, ?> e : m.entrySet()) {
-                            if (e.getKey() != null) row.put(e.getKey().toString(), e.getValue());
-                        }
-                        merged.add(row);
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("count", merged.items().size());
+        resp.put("value", merged.items());
+        resp.put("statusQueryMode", "all");
+        resp.put("orderBy", orderBy);
+        resp.put("skip", skip);
+        resp.put("top", top);
+        resp.put("hasMore", merged.hasMore());
+        resp.put("statuses", perStatus);
+        return done(args, resp);
+    }
+
+    private Map<String, Object> fetchStatusPage(Map<String, Object> args, String project, Map<String, String> baseQ,
+                                                String status, int offset, int limit) {
+        Map<String, String> q = new LinkedHashMap<>(baseQ);
+        q.put("$top", String.valueOf(limit));
+        if (offset > 0) q.put("$skip", String.valueOf(offset));
+        q.put("searchCriteria.status", status);
+        putIfNotBlank(q, "searchCriteria.creatorId", str(args, "creatorId"));
+        putIfNotBlank(q, "searchCriteria.reviewerId", str(args, "reviewerId"));
+        putIfNotBlank(q, "searchCriteria.repositoryId", str(args, "repositoryId"));
+        putIfNotBlank(q, "searchCriteria.sourceRepositoryId", str(args, "sourceRepositoryId"));
+        putIfNotBlank(q, "searchCriteria.sourceRefName", normalizeRef(str(args, "sourceBranch")));
+        putIfNotBlank(q, "searchCriteria.targetRefName", normalizeRef(str(args, "targetBranch")));
+        return azureService.getGitApiWithQuery(project, "pullrequests", q, apiVersion(args));
+    }
+
+    private List<Map<String, Object>> valueRows(Map<String, Object> resp) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Object valueObj = resp == null ? null : resp.get("value");
+        if (valueObj instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> m) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (Map.Entry<?, ?> e : m.entrySet()) {
+                        if (e.getKey() != null) row.put(e.getKey().toString(), e.getValue());
                     }
+                    rows.add(row);
                 }
             }
         }
+        return rows;
+    }
 
-        Map<String, Object> resp = new LinkedHashMap<>();
-        resp.put("count", total > 0 ? total : merged.size());
-        resp.put("value", merged);
-        resp.put("statusQueryMode", "all");
-        return done(args, resp);
+    /**
+     * Más reciente primero: creationDate descendente (desempate por pullRequestId) o sólo pullRequestId.
+     */
+    static Comparator<Map<String, Object>> pullRequestOrder(String orderBy) {
+        Comparator<Map<String, Object>> byId = Comparator.comparingLong(
+                (Map<String, Object> pr) -> pullRequestIdOf(pr)).reversed();
+        if ("id".equals(orderBy)) return byId;
+        return Comparator.comparingLong((Map<String, Object> pr) -> creationMillisOf(pr)).reversed().thenComparing(byId);
+    }
+
+    private static long pullRequestIdOf(Map<String, Object> pr) {
+        Object v = pr.get("pullRequestId");
+        if (v instanceof Number n) return n.longValue();
+        try {
+            return v == null ? Long.MIN_VALUE : Long.parseLong(v.toString().trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long creationMillisOf(Map<String, Object> pr) {
+        Object v = pr.get("creationDate");
+        if (v == null) return Long.MIN_VALUE;
+        try {
+            return OffsetDateTime.parse(v.toString().trim()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
     }
 
     private Map<String, Object> opAssignedToMe(Map<String, Object> args) {
         String project = requireProject(args, "assigned_to_me");
-        Map<String, Object> profile = azureService.getVsspsApi("profile/profiles/me");
+        Map<String, Object> profile = azureService.getMyProfile();
         String err = tryFormatRemoteError(profile);
         if (err != null) return error("No se pudo resolver identidad actual: " + err);
         String me = Objects.toString(profile.get("id"), "");
@@ -265,6 +417,122 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         return opListByProject(copy);
     }
 
+    /**
+     * Vista de PRs de toda la organización: un {@code pullrequests} por proyecto (directorio de proyectos
+     * cacheado) en paralelo con tope global, votos calculados con los reviewers del propio listado y un
+     * resumen compacto ordenado por prioridad o antigüedad.
+     */
+    private Map<String, Object> opDashboard(Map<String, Object> args) {
+        long startedAt = System.currentTimeMillis();
+        String role = str(args, "role").isBlank() ? "reviewer" : str(args, "role").toLowerCase(Locale.ROOT);
+        if (!List.of("reviewer", "creator", "all").contains(role)) {
+            throw new IllegalArgumentException("'role' debe ser reviewer|creator|all");
+        }
+        String sortBy = str(args, "sortBy").isBlank() ? "priority" : str(args, "sortBy").toLowerCase(Locale.ROOT);
+        if (!PullRequestDashboard.SORT_MODES.contains(sortBy)) {
+            throw new IllegalArgumentException("'sortBy' debe ser " + String.join("|", PullRequestDashboard.SORT_MODES));
+        }
+        Integer topArg = parseInt(args.get("top"));
+        int top = topArg == null || topArg <= 0 ? DASHBOARD_DEFAULT_TOP : topArg;
+        String status = str(args, "status").isBlank() ? "active" : normalizeStatus(str(args, "status"));
+
+        Map<String, Object> profile = azureService.getMyProfile();
+        String me = tryFormatRemoteError(profile) == null ? Objects.toString(profile.get("id"), "") : "";
+        if (me.isBlank() && !"all".equals(role)) {
+            String err = tryFormatRemoteError(profile);
+            return error("No se pudo resolver identidad actual" + (err != null ? ": " + err : ""));
+        }
+
+        List<String> projects = dashboardProjects(args);
+        if (projects == null) return error("No se pudo listar los proyectos de la organización");
+
+        Map<String, String> q = baseQuery(args);
+        q.put("$top", String.valueOf(DASHBOARD_PAGE_MAX));
+        q.put("searchCriteria.status", status);
+        if ("reviewer".equals(role)) q.put("searchCriteria.reviewerId", me);
+        if ("creator".equals(role)) q.put("searchCriteria.creatorId", me);
+        String version = apiVersion(args, "list_by_project");
+
+        String session = McpSessionContext.currentSessionId();
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
+        for (String project : projects) {
+            tasks.add(() -> McpSessionContext.callWithSession(session,
+                    () -> azureService.getGitApiWithQuery(project, "pullrequests", q, version)));
+        }
+        List<BoundedFanOut.Outcome<Map<String, Object>>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, DASHBOARD_CONCURRENCY, startedAt + DASHBOARD_TIMEOUT_MS, startedAt + DASHBOARD_TIMEOUT_MS);
+
+        Instant now = Instant.now();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<Map<String, Object>> failed = new ArrayList<>();
+        List<String> truncated = new ArrayList<>();
+        for (int i = 0; i < projects.size(); i++) {
+            String project = projects.get(i);
+            BoundedFanOut.Outcome<Map<String, Object>> outcome = outcomes.get(i);
+            String err = outcome.ok() ? tryFormatRemoteError(outcome.value())
+                    : (outcome.error() != null ? outcome.error() : outcome.status());
+            if (err != null) {
+                failed.add(Map.of("project", project, "error", err));
+                continue;
+            }
+            List<Map<String, Object>> prs = valueRows(outcome.value());
+            if (prs.size() >= DASHBOARD_PAGE_MAX) truncated.add(project);
+            for (Map<String, Object> pr : prs) {
+                rows.add(PullRequestDashboard.summarize(project, pr, me.isBlank() ? null : me, now));
+            }
+        }
+        List<Map<String, Object>> sorted = PullRequestDashboard.sort(rows, sortBy);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("role", role);
+        out.put("status", status);
+        out.put("sortBy", sortBy);
+        out.put("projectsQueried", projects.size());
+        out.put("totalMatched", sorted.size());
+        out.put("count", Math.min(top, sorted.size()));
+        out.put("value", sorted.subList(0, Math.min(top, sorted.size())));
+        if (!failed.isEmpty()) out.put("projectsFailed", failed);
+        if (!truncated.isEmpty()) out.put("projectsTruncated", truncated);
+        out.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        return done(args, out);
+    }
+
+    /**
+     * Proyectos pedidos en {@code projects} o, si no se indican, todos los del directorio cacheado
+     * (null si el listado remoto falla).
+     */
+    private List<String> dashboardProjects(Map<String, Object> args) {
+        List<String> names = new ArrayList<>();
+        String csv = str(args, "projects").isBlank() ? str(args, "project") : str(args, "projects");
+        if (!csv.isBlank()) {
+            for (String p : csv.split(",")) {
+                if (!p.isBlank() && !names.contains(p.trim())) names.add(p.trim());
+            }
+            return names;
+        }
+        List<Map<String, Object>> all = ProjectDirectory.shared().projects(azureService.getOrganization(), this::fetchAllProjects);
+        if (all == null) return null;
+        for (Map<String, Object> p : all) {
+            String name = Objects.toString(p.get("name"), "");
+            if (!name.isBlank()) names.add(name);
+        }
+        return names;
+    }
+
+    private List<Map<String, Object>> fetchAllProjects() {
+        List<Map<String, Object>> all = new ArrayList<>();
+        for (int skip = 0; ; skip += DASHBOARD_PROJECTS_PAGE) {
+            Map<String, String> q = new LinkedHashMap<>();
+            q.put("$top", String.valueOf(DASHBOARD_PROJECTS_PAGE));
+            if (skip > 0) q.put("$skip", String.valueOf(skip));
+            Map<String, Object> resp = azureService.getCoreApi("projects", q);
+            if (tryFormatRemoteError(resp) != null) return null;
+            List<Map<String, Object>> page = valueRows(resp);
+            all.addAll(page);
+            if (page.size() < DASHBOARD_PROJECTS_PAGE) return all;
+        }
+    }
+
     private Map<String, Object> opCreate(Map<String, Object> args) throws Exception {
         String project = requireProject(args, "create");
         String repo = requireRepo(args);
@@ -364,6 +632,46 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * Threads y comentarios cambiados desde {@code since} o desde el último snapshot de esta sesión para el PR,
+     * más tombstones de los borrados. La primera llamada (o {@code fullSync}) devuelve todo y fija el snapshot.
+     */
+    private Map<String, Object> opThreadsSync(Map<String, Object> args) {
+        String project = requireProject(args, "threads_sync");
+        String repo = requireRepo(args);
+        Object prId = requireIntArg(args, "pullRequestId");
+        boolean fullSync = parseBool(args.get("fullSync"));
+        Instant since = null;
+        if (!fullSync && !str(args, "since").isBlank()) {
+            since = ThreadDelta.parseInstant(str(args, "since"));
+            if (since == null) throw new IllegalArgumentException("'since' debe ser una fecha ISO-8601 (ej. 2024-05-01T10:00:00Z)");
+        }
+
+        Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + repo + "/pullRequests/" + prId + "/threads", baseQuery(args), apiVersion(args));
+        String err = tryFormatRemoteError(resp);
+        if (err != null) return error(err);
+
+        String key = String.join("|", McpSessionContext.currentSessionId(), azureService.getOrganization(), project, repo, String.valueOf(prId))
+                .toLowerCase(Locale.ROOT);
+        PullRequestThreadSnapshots snapshots = PullRequestThreadSnapshots.shared();
+        ThreadDelta.Snapshot previous = fullSync ? null : snapshots.get(key);
+        List<Map<String, Object>> threads = valueRows(resp);
+        ThreadDelta.Result delta = ThreadDelta.diff(threads, previous, since);
+        snapshots.put(key, delta.snapshot());
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("mode", delta.mode());
+        Instant from = since != null ? since : previous != null ? previous.watermark() : null;
+        if (from != null) out.put("since", from.toString());
+        Instant watermark = delta.snapshot().watermark();
+        out.put("watermark", watermark == null ? null : watermark.toString());
+        out.put("threadsTotal", threads.size());
+        out.put("changedThreads", delta.threads().size());
+        out.put("threads", delta.threads());
+        out.put("tombstones", delta.tombstones());
+        return done(args, out);
+    }
+
     private Map<String, Object> opThreadCreate(Map<String, Object> args) throws Exception {
         String project = requireProject(args, "thread_create");
         String repo = requireRepo(args);
@@ -525,6 +833,84 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * Diff unificado de la iteración {@code iterationId} (default la última) contra {@code compareTo} o contra
+     * la base común con la rama destino. Los blobs se leen en paralelo y sólo se devuelven los hunks.
+     */
+    private Map<String, Object> opIterationDiff(Map<String, Object> args) {
+        String project = requireProject(args, "iteration_diff");
+        String repo = requireRepo(args);
+        Object prId = requireIntArg(args, "pullRequestId");
+        int contextLines = boundedIntArg(args, "contextLines", DEFAULT_DIFF_CONTEXT_LINES, HARD_DIFF_CONTEXT_LINES);
+        int maxLines = boundedIntArg(args, "maxDiffLines", DEFAULT_DIFF_MAX_LINES, HARD_DIFF_MAX_LINES);
+        int maxBytes = boundedIntArg(args, "maxDiffBytes", DEFAULT_DIFF_MAX_BYTES, HARD_DIFF_MAX_BYTES);
+        int maxFiles = boundedIntArg(args, "maxFiles", DEFAULT_DIFF_MAX_FILES, HARD_DIFF_MAX_FILES);
+        Integer compareTo = parseInt(args.get("compareTo"));
+        long startedAt = System.currentTimeMillis();
+        String prPath = "repositories/" + repo + "/pullRequests/" + prId;
+
+        Map<String, Object> iterationsResp = azureService.getGitApiWithQuery(project, prPath + "/iterations", baseQuery(args), apiVersion(args, "iterations_list"));
+        String err = tryFormatRemoteError(iterationsResp);
+        if (err != null) return error(err);
+        Map<Integer, Map<String, Object>> iterations = new LinkedHashMap<>();
+        for (Map<String, Object> it : valueRows(iterationsResp)) {
+            Integer id = parseInt(it.get("id"));
+            if (id != null) iterations.put(id, it);
+        }
+        Integer iterationId = parseInt(args.get("iterationId"));
+        if (iterationId == null) {
+            for (Integer id : iterations.keySet()) {
+                if (iterationId == null || id > iterationId) iterationId = id;
+            }
+        }
+        if (iterationId == null) return error("El PR " + prId + " no tiene iteraciones");
+
+        Map<String, String> q = baseQuery(args);
+        q.put("$top", String.valueOf(REVIEW_BUNDLE_MAX_CHANGES));
+        if (compareTo != null) q.put("$compareTo", String.valueOf(compareTo));
+        Map<String, Object> changesResp = azureService.getGitApiWithQuery(project,
+                prPath + "/iterations/" + iterationId + "/changes", q, apiVersion(args, "iteration_changes_get"));
+        err = tryFormatRemoteError(changesResp);
+        if (err != null) return error(err);
+
+        List<GitChangeDiffer.Change> changes = new ArrayList<>();
+        int folders = 0;
+        int total = 0;
+        for (Map<String, Object> change : PullRequestBundle.changes(valueRows(Map.of("value", changesResp.getOrDefault("changeEntries", List.of()))))) {
+            if (parseBool(change.get("isFolder"))) {
+                folders++;
+                continue;
+            }
+            total++;
+            if (changes.size() < maxFiles) changes.add(diffChange(change));
+        }
+
+        // Si falta originalObjectId, el blob base se resuelve por ruta en el commit base de la comparación
+        String baseCommit = compareTo != null
+                ? commitOf(iterations.get(compareTo), "sourceRefCommit")
+                : commitOf(iterations.get(iterationId), "commonRefCommit");
+        GitChangeDiffer.Options options = new GitChangeDiffer.Options(contextLines, maxLines, maxBytes,
+                BUNDLE_CONTENT_CONCURRENCY, startedAt + REVIEW_BUNDLE_TIMEOUT_MS, baseCommit);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pullRequestId", prId);
+        result.put("repositoryId", repo);
+        result.put("iterationId", iterationId);
+        if (compareTo != null) result.put("compareTo", compareTo);
+        if (baseCommit != null) result.put("baseCommit", baseCommit);
+        result.putAll(new GitChangeDiffer(azureService).diff(project, repo, changes, options));
+        result.put("totalFiles", total);
+        if (total > changes.size()) result.put("omittedFiles", total - changes.size());
+        if (folders > 0) result.put("skippedFolders", folders);
+        result.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        return done(args, result);
+    }
+
+    private String commitOf(Map<String, Object> iteration, String key) {
+        if (iteration == null || !(iteration.get(key) instanceof Map<?, ?> ref)) return null;
+        String commit = Objects.toString(ref.get("commitId"), "");
+        return commit.isBlank() ? null : commit;
+    }
+
     private Map<String, Object> opWorkItemsList(Map<String, Object> args) {
         String project = requireProject(args, "work_items_list");
         String repo = requireRepo(args);
@@ -533,6 +919,305 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * PR, reviewers, iteraciones, cambios, threads, statuses, work items y etiquetas en una sola llamada.
+     * Las consultas se lanzan en paralelo; sólo los cambios esperan a conocer la última iteración cuando no se
+     * indica {@code iterationId}. Con {@code includeContent} se leen los blobs base/target de cada archivo
+     * cambiado (en paralelo y vía {@link GitBlobCache}) hasta agotar {@code contentMaxBytes}.
+     */
+    private Map<String, Object> opReviewBundle(Map<String, Object> args) {
+        String project = requireProject(args, "review_bundle");
+        Object prId = requireIntArg(args, "pullRequestId");
+        Set<String> sections = bundleSections(str(args, "sections"));
+        Map<String, Set<String>> fields = PullRequestBundle.parseFields(str(args, "fields"));
+        boolean includeContent = parseBool(args.get("includeContent"));
+        int contentMaxBytes = boundedIntArg(args, "contentMaxBytes", DEFAULT_BUNDLE_CONTENT_MAX_BYTES, HARD_BUNDLE_CONTENT_MAX_BYTES);
+        int contentMaxFiles = boundedIntArg(args, "contentMaxFiles", DEFAULT_BUNDLE_CONTENT_MAX_FILES, HARD_BUNDLE_CONTENT_MAX_FILES);
+        long startedAt = System.currentTimeMillis();
+
+        String repo = str(args, "repositoryId");
+        Map<String, Object> pr = null;
+        if (repo.isBlank()) {
+            pr = azureService.getGitApiWithQuery(project, "pullrequests/" + prId, baseQuery(args), apiVersion(args, "get"));
+            String err = tryFormatRemoteError(pr);
+            if (err != null) return error(err);
+            if (pr.get("repository") instanceof Map<?, ?> repository) repo = Objects.toString(repository.get("id"), "");
+            if (repo.isBlank()) return error("No se pudo resolver repositoryId del PR " + prId);
+        }
+        String prPath = "repositories/" + repo + "/pullRequests/" + prId;
+        Integer requestedIteration = parseInt(args.get("iterationId"));
+        boolean wantChanges = sections.contains("changes") || includeContent;
+
+        Map<String, Callable<Map<String, Object>>> calls = new LinkedHashMap<>();
+        if (pr == null) calls.put("pullRequest", bundleGet(project, prPath, args, "get"));
+        if (sections.contains("iterations") || (wantChanges && requestedIteration == null)) {
+            calls.put("iterations", bundleGet(project, prPath + "/iterations", args, "iterations_list"));
+        }
+        if (wantChanges && requestedIteration != null) {
+            calls.put("changes", bundleChangesGet(project, prPath, requestedIteration, args));
+        }
+        if (sections.contains("threads")) calls.put("threads", bundleGet(project, prPath + "/threads", args, "threads_list"));
+        if (sections.contains("statuses")) calls.put("statuses", bundleGet(project, prPath + "/statuses", args, "statuses_list"));
+        if (sections.contains("workItems")) calls.put("workItems", bundleGet(project, prPath + "/workitems", args, "work_items_list"));
+        if (sections.contains("labels")) calls.put("labels", bundleGet(project, prPath + "/labels", args, "labels_list"));
+        Map<String, Map<String, Object>> responses = bundleFanOut(calls, startedAt);
+
+        if (pr == null) {
+            pr = responses.get("pullRequest");
+            String err = tryFormatRemoteError(pr);
+            if (err != null) return error(err);
+        }
+        Map<String, String> sectionErrors = new LinkedHashMap<>();
+        List<Map<String, Object>> iterations = bundleRows(responses, "iterations", "value", sectionErrors);
+        Integer iterationId = requestedIteration;
+        if (iterationId == null) {
+            for (Map<String, Object> it : iterations) {
+                Integer id = parseInt(it.get("id"));
+                if (id != null && (iterationId == null || id > iterationId)) iterationId = id;
+            }
+        }
+        if (wantChanges && requestedIteration == null && iterationId != null) {
+            Map<String, Callable<Map<String, Object>>> second = new LinkedHashMap<>();
+            second.put("changes", bundleChangesGet(project, prPath, iterationId, args));
+            responses.putAll(bundleFanOut(second, startedAt));
+        }
+
+        PullRequestBundle.Identities ids = new PullRequestBundle.Identities();
+        List<Map<String, Object>> changes = PullRequestBundle.changes(bundleRows(responses, "changes", "changeEntries", sectionErrors));
+        Map<String, Object> bundle = new LinkedHashMap<>();
+        bundle.put("pullRequestId", prId);
+        bundle.put("repositoryId", repo);
+        if (iterationId != null) bundle.put("iterationId", iterationId);
+        if (sections.contains("pullRequest")) bundle.put("pullRequest", PullRequestBundle.pullRequest(pr, ids));
+        if (sections.contains("reviewers")) bundle.put("reviewers", PullRequestBundle.reviewers(pr, ids));
+        if (sections.contains("iterations")) bundle.put("iterations", PullRequestBundle.withIdentityRefs(iterations, ids));
+        if (sections.contains("changes")) bundle.put("changes", changes);
+        if (sections.contains("threads")) {
+            bundle.put("threads", PullRequestBundle.withIdentityRefs(bundleRows(responses, "threads", "value", sectionErrors), ids));
+        }
+        if (sections.contains("statuses")) {
+            bundle.put("statuses", PullRequestBundle.latestStatuses(bundleRows(responses, "statuses", "value", sectionErrors), ids));
+        }
+        if (sections.contains("workItems")) {
+            bundle.put("workItems", PullRequestBundle.uniqueBy(bundleRows(responses, "workItems", "value", sectionErrors),
+                    row -> Objects.toString(row.get("id"), "")));
+        }
+        if (sections.contains("labels")) {
+            bundle.put("labels", PullRequestBundle.uniqueBy(bundleRows(responses, "labels", "value", sectionErrors),
+                    row -> Objects.toString(row.get("name"), "")));
+        }
+        for (String section : PullRequestBundle.SECTIONS) {
+            if (bundle.containsKey(section)) bundle.put(section, PullRequestBundle.project(section, bundle.get(section), fields));
+        }
+        bundle.put("identities", ids.asMap());
+        if (includeContent) {
+            bundle.put("contents", readChangeContents(project, repo, changes, contentMaxBytes, contentMaxFiles, startedAt));
+        }
+        if (!sectionErrors.isEmpty()) bundle.put("sectionErrors", sectionErrors);
+        bundle.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        return done(args, bundle);
+    }
+
+    private Set<String> bundleSections(String raw) {
+        if (raw.isBlank()) return new LinkedHashSet<>(PullRequestBundle.SECTIONS);
+        Set<String> out = new LinkedHashSet<>();
+        for (String part : raw.split(",")) {
+            String section = part.trim();
+            if (section.isEmpty()) continue;
+            if (!PullRequestBundle.SECTIONS.contains(section)) {
+                throw new IllegalArgumentException("Sección desconocida en 'sections': " + section + ". Válidas: " + String.join(", ", PullRequestBundle.SECTIONS));
+            }
+            out.add(section);
+        }
+        return out;
+    }
+
+    private Callable<Map<String, Object>> bundleGet(String project, String path, Map<String, Object> args, String operation) {
+        return bundleGet(project, path, baseQuery(args), args, operation);
+    }
+
+    private Callable<Map<String, Object>> bundleChangesGet(String project, String prPath, int iterationId, Map<String, Object> args) {
+        Map<String, String> q = baseQuery(args);
+        q.put("$top", String.valueOf(REVIEW_BUNDLE_MAX_CHANGES));
+        return bundleGet(project, prPath + "/iterations/" + iterationId + "/changes", q, args, "iteration_changes_get");
+    }
+
+    private Callable<Map<String, Object>> bundleGet(String project,
+                                                    String path,
+                                                    Map<String, String> q,
+                                                    Map<String, Object> args,
+                                                    String operation) {
+        String session = McpSessionContext.currentSessionId();
+        String version = apiVersion(args, operation);
+        return () -> McpSessionContext.callWithSession(session,
+                () -> azureService.getGitApiWithQuery(project, path, q, version));
+    }
+
+    private Map<String, Map<String, Object>> bundleFanOut(Map<String, Callable<Map<String, Object>>> calls, long startedAt) {
+        List<String> keys = new ArrayList<>(calls.keySet());
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>(calls.values());
+        long deadline = startedAt + REVIEW_BUNDLE_TIMEOUT_MS;
+        List<BoundedFanOut.Outcome<Map<String, Object>>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, Math.max(1, tasks.size()), deadline, deadline);
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            BoundedFanOut.Outcome<Map<String, Object>> outcome = outcomes.get(i);
+            if (outcome.ok() && outcome.value() != null) {
+                out.put(keys.get(i), outcome.value());
+            } else {
+                String detail = outcome.error() != null ? outcome.error() : outcome.status();
+                out.put(keys.get(i), Map.of("error", detail));
+            }
+        }
+        return out;
+    }
+
+    private List<Map<String, Object>> bundleRows(Map<String, Map<String, Object>> responses,
+                                                 String section,
+                                                 String listKey,
+                                                 Map<String, String> sectionErrors) {
+        Map<String, Object> resp = responses.get(section);
+        if (resp == null) return new ArrayList<>();
+        String err = tryFormatRemoteError(resp);
+        if (err != null) {
+            sectionErrors.put(section, err);
+            return new ArrayList<>();
+        }
+        if ("value".equals(listKey)) return valueRows(resp);
+        return valueRows(Map.of("value", resp.getOrDefault(listKey, List.of())));
+    }
+
+    /**
+     * Contenido base (originalObjectId) y target (objectId) de los archivos cambiados, por lotes paralelos.
+     * Cada archivo consume del presupuesto común; al agotarse se trunca el último texto y no se piden más lotes.
+     */
+    private Map<String, Object> readChangeContents(String project,
+                                                   String repo,
+                                                   List<Map<String, Object>> changes,
+                                                   int maxBytes,
+                                                   int maxFiles,
+                                                   long startedAt) {
+        List<Map<String, Object>> candidates = new ArrayList<>();
+        int skippedBinary = 0;
+        for (Map<String, Object> change : changes) {
+            if (parseBool(change.get("isFolder"))) continue;
+            candidates.add(change);
+        }
+
+        String session = McpSessionContext.currentSessionId();
+        long deadline = startedAt + REVIEW_BUNDLE_TIMEOUT_MS;
+        GitChangeDiffer differ = new GitChangeDiffer(azureService);
+        List<Map<String, Object>> files = new ArrayList<>();
+        long remaining = maxBytes;
+        boolean budgetExhausted = false;
+        int limit = Math.min(candidates.size(), maxFiles);
+        for (int from = 0; from < limit && !budgetExhausted; from += BUNDLE_CONTENT_CONCURRENCY) {
+            List<Map<String, Object>> batch = candidates.subList(from, Math.min(limit, from + BUNDLE_CONTENT_CONCURRENCY));
+            // Ningún blob del lote puede aportar más que lo que queda del presupuesto: se descarga sólo ese prefijo
+            long readLimit = Math.max(1L, remaining);
+            List<Callable<GitBlobCache.Blob[]>> tasks = new ArrayList<>();
+            for (Map<String, Object> change : batch) {
+                GitChangeDiffer.Change c = diffChange(change);
+                tasks.add(() -> McpSessionContext.callWithSession(session, () -> new GitBlobCache.Blob[]{
+                        differ.readBlob(project, repo, c.baseObjectId(), readLimit),
+                        differ.readBlob(project, repo, c.targetObjectId(), readLimit)
+                }));
+            }
+            List<BoundedFanOut.Outcome<GitBlobCache.Blob[]>> outcomes = BoundedFanOut.shared().runAll(
+                    tasks, BUNDLE_CONTENT_CONCURRENCY, deadline, deadline);
+            for (int i = 0; i < batch.size(); i++) {
+                Map<String, Object> change = batch.get(i);
+                GitChangeDiffer.Change c = diffChange(change);
+                String[] objectIds = {c.baseObjectId(), c.targetObjectId()};
+                Map<String, Object> file = new LinkedHashMap<>();
+                file.put("path", change.get("path"));
+                file.put("changeType", change.get("changeType"));
+                BoundedFanOut.Outcome<GitBlobCache.Blob[]> outcome = outcomes.get(i);
+                if (!outcome.ok()) {
+                    file.put("error", outcome.error() != null ? outcome.error() : outcome.status());
+                    files.add(file);
+                    continue;
+                }
+                String[] sides = {"base", "target"};
+                // La descarga inspecciona el primer bloque de cada blob: los binarios se cortan ahí, sin importar la extensión
+                boolean binary = false;
+                for (int side = 0; side < 2; side++) {
+                    if (objectIds[side] == null) continue;
+                    GitBlobCache.Blob blob = outcome.value()[side];
+                    Map<String, Object> part = new LinkedHashMap<>();
+                    part.put("objectId", objectIds[side]);
+                    if (blob == null) {
+                        part.put("error", "No se pudo leer el blob");
+                    } else if (blob.binary()) {
+                        binary = true;
+                        part.put("binary", true);
+                        part.put("bytes", blob.bytes());
+                    } else if (remaining <= 0) {
+                        part.put("omitted", true);
+                        part.put("bytes", blob.bytes());
+                        budgetExhausted = true;
+                    } else {
+                        String text = truncateUtf8(blob.text(), (int) Math.min(Integer.MAX_VALUE, remaining));
+                        long used = text.getBytes(StandardCharsets.UTF_8).length;
+                        remaining -= used;
+                        part.put("bytes", blob.bytes());
+                        part.put("text", text);
+                        if (used < blob.bytes() || blob.truncated()) {
+                            part.put("truncated", true);
+                            budgetExhausted = true;
+                        }
+                    }
+                    file.put(sides[side], part);
+                }
+                if (binary) skippedBinary++;
+                files.add(file);
+            }
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("files", files);
+        out.put("bytes", maxBytes - Math.max(0L, remaining));
+        out.put("maxBytes", maxBytes);
+        out.put("candidates", candidates.size());
+        out.put("omittedFiles", candidates.size() - files.size());
+        if (skippedBinary > 0) out.put("skippedBinaryFiles", skippedBinary);
+        out.put("budgetExhausted", budgetExhausted);
+        return out;
+    }
+
+    private GitChangeDiffer.Change diffChange(Map<String, Object> change) {
+        return GitChangeDiffer.Change.of(
+                Objects.toString(change.get("path"), ""),
+                Objects.toString(change.get("originalPath"), Objects.toString(change.get("sourceServerItem"), "")),
+                Objects.toString(change.get("changeType"), ""),
+                Objects.toString(change.get("objectId"), ""),
+                Objects.toString(change.get("originalObjectId"), ""));
+    }
+
+    private String truncateUtf8(String text, int maxBytes) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) return text;
+        int len = maxBytes;
+        int start = len;
+        while (start > 0 && (bytes[start - 1] & 0b1100_0000) == 0b1000_0000) {
+            start--;
+        }
+        if (start > 0) {
+            // No cortar un carácter multibyte a la mitad
+            int lead = bytes[start - 1] & 0xff;
+            int width = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+            if (len - (start - 1) < width) len = start - 1;
+        }
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private int boundedIntArg(Map<String, Object> args, String key, int defaultValue, int hardLimit) {
+        if (!args.containsKey(key) || str(args, key).isBlank()) return defaultValue;
+        Integer v = parseInt(args.get(key));
+        if (v == null || v < 1) throw new IllegalArgumentException("'" + key + "' debe ser entero >= 1");
+        return Math.min(v, hardLimit);
+    }
+
     private Map<String, Object> opQuery(Map<String, Object> args) throws Exception {
         String project = requireProject(args, "query");
         String repo = requireRepo(args);
@@ -565,13 +1250,17 @@ public class GitPullRequestsTool extends AbstractAzureDevOpsTool {
     }
 
     private String apiVersion(Map<String, Object> args) {
+        return apiVersion(args, str(args, "operation"));
+    }
+
+    private String apiVersion(Map<String, Object> args, String operation) {
         String v = str(args, "apiVersion");
         if (!v.isBlank()) return v;
 
-        String op = str(args, "operation").toLowerCase(Locale.ROOT);
+        String op = operation.toLowerCase(Locale.ROOT);
         return switch (op) {
             case "reviewers_list", "reviewer_add", "reviewer_update",
-                 "threads_list", "thread_create", "thread_update",
+                 "threads_list", "threads_sync", "thread_create", "thread_update",
                  "comments_add", "comment_update", "comment_delete",
                  "labels_list", "label_add", "label_delete",
                  "iteration_changes_get", "work_items_list",
@@ -1,7 +1,22 @@
 package com.mcp.server.tools.azuredevops.router;
 
 import com.mcp.server.services.AzureDevOpsClientService;
+import com.mcp.server.services.BoundedFanOut;
+import com.mcp.server.services.DownloadScheduler;
+import com.mcp.server.services.GitChangeDiffer;
+import com.mcp.server.services.GitRepositoryDirectory;
+import com.mcp.server.services.RepositorySearchIndex;
+import com.mcp.server.services.RepositoryTreeCache;
+import com.mcp.server.services.ResumableZipDownload;
+import com.mcp.server.services.TrigramIndex;
+import com.mcp.server.services.helpers.CompactTree;
+import com.mcp.server.services.helpers.ContentMatcher;
+import com.mcp.server.services.helpers.OrderedNdjsonWriter;
+import com.mcp.server.services.helpers.PathMatcher;
+import com.mcp.server.services.helpers.SearchRanking;
+import com.mcp.server.services.helpers.TextContentSniffer;
 import com.mcp.server.tools.azuredevops.base.AbstractAzureDevOpsTool;
+import com.mcp.server.transport.McpSessionContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
@@ -9,18 +24,25 @@ import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
 import java.security.MessageDigest;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.OffsetDateTime;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -28,13 +50,21 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -42,7 +72,7 @@ import java.util.regex.PatternSyntaxException;
 public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
 
     private static final String NAME = "azuredevops_git_repositories";
-    private static final String DESC = "Operaciones Git Repositories/Code (API-first, evita clone local). operation: list|search|find|get_by_name|get|create|update|delete|items_get|items_get_safe|items_read_window|items_list|items_list_recursive|items_batch|search_files|find_files|search_content|explore_repo|commits_list|refs_list|refs_update|pushes_list|pushes_get|pushes_create|download_zip|repo_to_pipelines|pipeline_to_repo.";
+    private static final String DESC = "Operaciones Git Repositories/Code (API-first, evita clone local). operation: list|search|find|get_by_name|get|create|update|delete|items_get|items_get_safe|items_read_window|items_list|items_list_recursive|items_batch|search_files|find_files|search_content|explore_repo|commits_list|commits_diff|refs_list|refs_update|pushes_list|pushes_get|pushes_create|download_zip|repo_to_pipelines|pipeline_to_repo.";
     private static final String DEFAULT_API_VERSION = "7.2-preview.2";
     private static final String DEFAULT_ITEMS_API_VERSION = "7.2-preview.1";
     private static final String DEFAULT_PUSHES_API_VERSION = "7.2-preview.3";
@@ -62,6 +92,34 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
     private static final int HARD_SEARCH_MAX_PREVIEW_CHARS = 24_000;
     private static final long DEFAULT_SEARCH_SCAN_BUDGET_MS = 20_000L;
     private static final long HARD_SEARCH_SCAN_BUDGET_MS = 300_000L;
+    private static final int DEFAULT_SEARCH_MAX_MATCHES_PER_FILE = 20;
+    private static final int HARD_SEARCH_MAX_MATCHES_PER_FILE = 1_000;
+    private static final int HARD_SEARCH_MAX_PATTERNS = 64;
+    private static final int HARD_SEARCH_CONTEXT_LINES = 10;
+    private static final String SEARCH_ORDER_SCAN = "scan";
+    private static final String SEARCH_ORDER_RELEVANCE = "relevance";
+    private static final String SCOPE_PROJECT = "project";
+    private static final String SCOPE_ORGANIZATION = "organization";
+    private static final int DEFAULT_MULTI_REPO_MAX_REPOSITORIES = 50;
+    private static final int HARD_MULTI_REPO_MAX_REPOSITORIES = 500;
+    private static final int DEFAULT_MULTI_REPO_CONCURRENCY = 4;
+    private static final int HARD_MULTI_REPO_CONCURRENCY = 16;
+    private static final long MULTI_REPO_COMPLETION_GRACE_MS = 30_000L;
+    private static final int MULTI_REPO_MAX_WARNINGS = 20;
+    private static final int DEFAULT_EXPLORE_PREVIEW_BUDGET_CHARS = 12_000;
+    private static final int HARD_EXPLORE_PREVIEW_BUDGET_CHARS = 200_000;
+    private static final int EXPLORE_PREVIEW_CONCURRENCY = 6;
+    private static final int DEFAULT_ITEMS_BATCH_CHUNK_SIZE = 100;
+    private static final int HARD_ITEMS_BATCH_CHUNK_SIZE = 1_000;
+    private static final int DEFAULT_ITEMS_BATCH_CONCURRENCY = 4;
+    private static final int HARD_ITEMS_BATCH_CONCURRENCY = 16;
+    private static final long ITEMS_BATCH_BUDGET_MS = 120_000L;
+    private static final long DEFAULT_ZIP_MAX_WAIT_MS = 300_000L;
+    private static final long HARD_ZIP_MAX_WAIT_MS = 1_800_000L;
+    private static final long HARD_ZIP_BASE64_BYTES = 32L * 1024L * 1024L;
+    private static final int DEFAULT_ZIP_MANIFEST_ENTRIES = 1_000;
+    private static final int HARD_ZIP_MANIFEST_ENTRIES = 20_000;
+    private static final long DEFAULT_ZIP_MAX_EXTRACT_BYTES = 1024L * 1024L * 1024L;
     private static final int DEFAULT_WINDOW_OFFSET = 1;
     private static final int DEFAULT_WINDOW_LIMIT = 200;
     private static final int HARD_WINDOW_LIMIT = 5_000;
@@ -79,7 +137,23 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
     private static final String CODE_TOO_MANY_IN_PROGRESS = "TOO_MANY_DOWNLOADS_IN_PROGRESS";
     private static final String CODE_DISK_SPACE_LOW = "DISK_SPACE_LOW";
     private static final int DEFAULT_RETRY_AFTER_SECONDS = 6;
+    private static final int WINDOW_PREWARM_MIN_CHARS = 32_768;
+    private static final int LINE_INDEX_STRIDE = 512;
     private static final WindowFileCache WINDOW_CACHE = new WindowFileCache();
+    private static final GitRepositoryDirectory REPO_DIRECTORY = GitRepositoryDirectory.shared();
+    private static final RepositorySearchIndex SEARCH_INDEX = RepositorySearchIndex.shared();
+    private static final RepositoryTreeCache TREE_CACHE = RepositoryTreeCache.shared();
+    private static final int DIFF_PAGE_SIZE = 1_000;
+    private static final int DEFAULT_DIFF_CONTEXT_LINES = 3;
+    private static final int HARD_DIFF_CONTEXT_LINES = 20;
+    private static final int DEFAULT_DIFF_MAX_LINES = 2_000;
+    private static final int HARD_DIFF_MAX_LINES = 20_000;
+    private static final int DEFAULT_DIFF_MAX_BYTES = 256 * 1024;
+    private static final int HARD_DIFF_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_DIFF_MAX_FILES = 100;
+    private static final int HARD_DIFF_MAX_FILES = 1_000;
+    private static final int DIFF_BLOB_CONCURRENCY = 8;
+    private static final long DIFF_TIMEOUT_MS = 60_000L;
 
     @Autowired
     public GitRepositoriesTool(AzureDevOpsClientService svc) {
@@ -101,6 +175,24 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return false;
     }
 
+    /**
+     * Snapshot de métricas del cache temporal usado por items_read_window (expuesto vía actuator /info).
+     */
+    public Map<String, Object> windowCacheStats() {
+        return WINDOW_CACHE.stats();
+    }
+
+    /**
+     * Snapshot de métricas del directorio compartido de repositorios (nombre→ID, ID→metadatos).
+     */
+    public Map<String, Object> repositoryDirectoryStats() {
+        return REPO_DIRECTORY.stats();
+    }
+
+    public Map<String, Object> treeCacheStats() {
+        return TREE_CACHE.stats();
+    }
+
     @Override
     public Map<String, Object> getInputSchema() {
         Map<String, Object> base = new LinkedHashMap<>(createBaseSchema());
@@ -113,7 +205,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                         "list", "search", "find", "get_by_name", "get", "create", "update", "delete",
                         "items_get", "items_get_safe", "items_read_window", "items_list", "items_list_recursive", "items_batch",
                         "search_files", "find_files", "search_content", "explore_repo",
-                        "commits_list", "refs_list", "refs_update",
+                        "commits_list", "commits_diff", "refs_list", "refs_update",
                         "pushes_list", "pushes_get", "pushes_create", "download_zip",
                         "repo_to_pipelines", "pipeline_to_repo"
                 ),
@@ -147,23 +239,45 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         props.put("sanitize", Map.of("type", "boolean", "description", "items_get: sanitize"));
         props.put("offset", Map.of("type", "integer", "description", "items_read_window: línea inicial (1-based)"));
         props.put("limit", Map.of("type", "integer", "description", "items_read_window: cantidad de líneas a devolver"));
-        props.put("maxWaitMs", Map.of("type", "integer", "description", "items_read_window: espera máxima en ms para preparar cache local"));
+        props.put("maxWaitMs", Map.of("type", "integer", "description", "items_read_window: espera máxima en ms para preparar cache local; download_zip: espera máxima de la descarga (default 300000)"));
         props.put("zipForUnix", Map.of("type", "boolean", "description", "items_list/download_zip: zipForUnix"));
         props.put("filePattern", Map.of("type", "string", "description", "search_files/search_content: patrón glob de ruta/nombre (ej: **/*.conf)"));
         props.put("pathRegex", Map.of("type", "string", "description", "search_files/search_content: regex sobre path"));
         props.put("extensions", Map.of("type", "string", "description", "search_files/search_content: extensiones CSV (ej: conf,yml,properties)"));
+        props.put("includeGlobs", Map.of("type", "string", "description", "search_files/search_content/explore_repo: globs de inclusión (CSV o arreglo JSON); basta con que coincida uno. Se combina con filePattern"));
+        props.put("excludeGlobs", Map.of("type", "string", "description", "search_files/search_content/explore_repo: globs de exclusión (CSV o arreglo JSON, ej: **/node_modules/**,**/*.min.js); los terminados en /** descartan la carpeta completa"));
         props.put("textPattern", Map.of("type", "string", "description", "search_content: texto o regex a buscar"));
+        props.put("textPatterns", Map.of("type", "string", "description", "search_content: arreglo JSON de textos/regex a buscar en una sola pasada (ej: [\"jdbc:\",\"datasource\"])"));
         props.put("regex", Map.of("type", "boolean", "description", "search_content: tratar textPattern como regex"));
+        props.put("maxMatchesPerFile", Map.of("type", "integer", "description", "search_content: máximo de coincidencias (con línea/columna) reportadas por archivo (default 20)"));
+        props.put("orderBy", Map.of("type", "string", "description", "search_content: scan (default, orden de recorrido) | relevance (top-K por puntaje de ruta, densidad y archivo clave)"));
+        props.put("contextLines", Map.of("type", "integer", "description", "search_content: líneas de contexto antes/después de cada coincidencia (default 0, máx 10). commits_diff: líneas de contexto por hunk (default " + DEFAULT_DIFF_CONTEXT_LINES + ", máx " + HARD_DIFF_CONTEXT_LINES + ")"));
         props.put("caseSensitive", Map.of("type", "boolean", "description", "search_content: búsqueda sensible a mayúsculas"));
-        props.put("maxFiles", Map.of("type", "integer", "description", "search_content/explore_repo: máximo de archivos a escanear (default 200, configurable)"));
+        props.put("maxFiles", Map.of("type", "integer", "description", "search_content/explore_repo: máximo de archivos a escanear (default 200, configurable). commits_diff: máximo de archivos a comparar (default " + DEFAULT_DIFF_MAX_FILES + ")"));
+        props.put("baseVersion", Map.of("type", "string", "description", "commits_diff: versión base (commit, rama o tag)"));
+        props.put("baseVersionType", Map.of("type", "string", "description", "commits_diff: commit|branch|tag de baseVersion (default commit)"));
+        props.put("targetVersion", Map.of("type", "string", "description", "commits_diff: versión destino (commit, rama o tag)"));
+        props.put("targetVersionType", Map.of("type", "string", "description", "commits_diff: commit|branch|tag de targetVersion (default commit)"));
+        props.put("diffCommonCommit", Map.of("type", "boolean", "description", "commits_diff: comparar contra el ancestro común (estilo PR) en vez de la base exacta (default false)"));
+        props.put("maxDiffLines", Map.of("type", "integer", "description", "commits_diff: presupuesto total de líneas de hunks (default " + DEFAULT_DIFF_MAX_LINES + ", máx " + HARD_DIFF_MAX_LINES + ")"));
+        props.put("maxDiffBytes", Map.of("type", "integer", "description", "commits_diff: presupuesto total de bytes de hunks (default " + DEFAULT_DIFF_MAX_BYTES + ", máx " + HARD_DIFF_MAX_BYTES + ")"));
         props.put("maxBytesPerFile", Map.of("type", "integer", "description", "search_content/explore_repo: máximo bytes por archivo (default 262144, configurable)"));
         props.put("maxResults", Map.of("type", "integer", "description", "search_content: máximo de resultados a materializar antes de paginar (default 250, configurable)"));
         props.put("maxSnippetChars", Map.of("type", "integer", "description", "search_content: máximo de caracteres por snippet/muestra de contenido"));
-        props.put("scanBudgetMs", Map.of("type", "integer", "description", "search_content: presupuesto máximo de escaneo en ms (default 20000)"));
+        props.put("scanBudgetMs", Map.of("type", "integer", "description", "search_content: presupuesto máximo de escaneo en ms (default 20000); con repositoryScope es compartido entre repositorios"));
         props.put("includeContentPreview", Map.of("type", "boolean", "description", "search_content/explore_repo: incluir preview de contenido en resultados"));
+        props.put("previewBudgetChars", Map.of("type", "integer", "description", "explore_repo: presupuesto total de caracteres de preview repartido entre archivos clave (default 12000, máx 200000)"));
+        props.put("repositoryScope", Map.of("type", "string", "description", "search_content/search_files/find_files: project|organization; busca en todos los repositorios del ámbito (sin repositoryId/repositoryName)"));
+        props.put("repositoryFilter", Map.of("type", "string", "description", "repositoryScope: glob sobre el nombre de repositorio (ej: api-*)"));
+        props.put("maxRepositories", Map.of("type", "integer", "description", "repositoryScope: máximo de repositorios a recorrer (default 50, máx 500)"));
+        props.put("repositoryConcurrency", Map.of("type", "integer", "description", "repositoryScope: repositorios consultados en paralelo (default 4, máx 16; acotado además por MCP_FANOUT_MAX_CONCURRENT)"));
+        props.put("useIndex", Map.of("type", "boolean", "description", "search_content: usar índice de trigramas por commit (se construye en background la primera vez; mientras tanto escaneo completo)"));
         props.put("recursive", Map.of("type", "boolean", "description", "items_list_recursive: forzar estrategia recursiva fallback trees_get"));
+        props.put("useTreeCache", Map.of("type", "boolean", "description", "items_list_recursive/search_files/search_content/explore_repo: reutilizar el árbol cacheado y actualizarlo con el diff desde el último commit (default true)"));
 
         props.put("itemDescriptors", Map.of("type", "string", "description", "items_batch: JSON array con item descriptors"));
+        props.put("chunkSize", Map.of("type", "integer", "description", "items_batch: descriptores por request a itemsbatch (default 100, máx 1000)"));
+        props.put("batchConcurrency", Map.of("type", "integer", "description", "items_batch: requests de chunks en paralelo (default 4, máx 16)"));
         props.put("ids", Map.of("type", "string", "description", "IDs CSV para operaciones batch"));
 
         props.put("top", Map.of("type", "integer", "description", "Límite de resultados. En list/search/find/search_files/search_content/explore_repo aplica paginación local"));
@@ -189,9 +303,12 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         props.put("changesJson", Map.of("type", "string", "description", "pushes_create: JSON array de changes completo"));
         props.put("commitsJson", Map.of("type", "string", "description", "pushes_create: JSON array de commits completo"));
         props.put("bodyJson", Map.of("type", "string", "description", "pushes_create: body completo opcional (máxima flexibilidad)"));
-        props.put("base64", Map.of("type", "boolean", "description", "download_zip: incluir base64 en respuesta"));
-        props.put("outputPath", Map.of("type", "string", "description", "download_zip: guardar zip local"));
+        props.put("base64", Map.of("type", "boolean", "description", "download_zip: incluir base64 en respuesta (con outputPath, hasta 32MB salvo que se use maxBase64Chars)"));
+        props.put("outputPath", Map.of("type", "string", "description", "download_zip: guardar zip local; items_batch: escribir resultado NDJSON (una línea por descriptor)"));
         props.put("maxBase64Chars", Map.of("type", "integer", "description", "download_zip: truncar base64"));
+        props.put("entries", Map.of("type", "string", "description", "download_zip (con outputPath): globs CSV o arreglo JSON de entradas a extraer (ej: **/*.yml,/src/**)"));
+        props.put("extractTo", Map.of("type", "string", "description", "download_zip: carpeta destino para 'entries' (default: <outputPath sin .zip>_entries)"));
+        props.put("maxEntries", Map.of("type", "integer", "description", "download_zip: máximo de entradas en el manifiesto (default 1000, máx 20000; 0 = sin manifiesto)"));
 
         props.put("apiVersion", Map.of("type", "string", "description", "Override api-version"));
         props.put("raw", Map.of("type", "boolean", "description", "Devuelve JSON crudo"));
@@ -226,6 +343,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 case "search_content" -> opSearchContent(arguments);
                 case "explore_repo" -> opExploreRepo(arguments);
                 case "commits_list" -> opCommitsList(arguments);
+                case "commits_diff" -> opCommitsDiff(arguments);
                 case "refs_list" -> opRefsList(arguments);
                 case "refs_update" -> opRefsUpdate(arguments);
                 case "pushes_list" -> opPushesList(arguments);
@@ -286,10 +404,18 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         putBool(q, "includeAllUrls", args.get("includeAllUrls"));
         putBool(q, "includeHidden", args.get("includeHidden"));
 
-        Map<String, Object> resp = azureService.getGitApiWithQuery(projectOrNull(project), "repositories", q, apiVersion(args));
-        String err = tryFormatRemoteError(resp);
-        if (err != null) return error(err);
-
+        String apiVersion = apiVersion(args);
+        String[] remoteErr = new String[1];
+        List<Map<String, Object>> repos = REPO_DIRECTORY.listing(project, q + "|" + apiVersion, () -> {
+            Map<String, Object> listResp = azureService.getGitApiWithQuery(projectOrNull(project), "repositories", q, apiVersion);
+            remoteErr[0] = tryFormatRemoteError(listResp);
+            return remoteErr[0] != null ? null : toObjectList(listResp.get("value"));
+        });
+        if (repos == null) return error(remoteErr[0] != null ? remoteErr[0] : "No se pudo listar repositorios");
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("count", repos.size());
+        resp.put("value", repos);
         Map<String, Object> lookup = buildRepositoriesListResult(args, resp, false, exactName, false);
         int total = asInt(lookup.get("totalCount"), 0);
         List<Map<String, Object>> matches = (List<Map<String, Object>>) lookup.getOrDefault("value", List.of());
@@ -347,6 +473,8 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         body.put("project", projectObj);
 
         Map<String, Object> resp = azureService.postGitApiWithQuery(project, "repositories", baseQuery(args), body, apiVersion(args), MediaType.APPLICATION_JSON);
+        REPO_DIRECTORY.invalidate(project, name);
+        if (tryFormatRemoteError(resp) == null) REPO_DIRECTORY.put(project, resp);
         return done(args, resp);
     }
 
@@ -362,6 +490,8 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (body.isEmpty()) throw new IllegalArgumentException("Debe indicar al menos un campo para update (name/defaultBranch/isDisabled)");
 
         Map<String, Object> resp = azureService.patchGitApiWithQuery(project, "repositories/" + repo, baseQuery(args), body, apiVersion(args), MediaType.APPLICATION_JSON);
+        REPO_DIRECTORY.invalidate(project, repo);
+        if (tryFormatRemoteError(resp) == null) REPO_DIRECTORY.put(project, resp);
         return done(args, resp);
     }
 
@@ -370,6 +500,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (project.isBlank()) throw new IllegalArgumentException("'project' es requerido para delete");
         String repo = repoKey(args);
         Map<String, Object> resp = azureService.deleteGitApiWithQuery(project, "repositories/" + repo, baseQuery(args), apiVersion(args));
+        REPO_DIRECTORY.invalidate(project, repo);
         return done(args, resp);
     }
 
@@ -417,6 +548,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             result.put("path", path);
             result.put("item", first);
             result.put("content", content);
+            result.put("windowCache", prewarmWindowCache(project, repo, path, args, first, content));
             return doneResult(args, result);
         }
 
@@ -428,6 +560,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             result.put("path", path);
             result.put("item", first);
             result.put("warning", "items_get no devolvió contenido y no se pudo resolver objectId para fallback blob");
+            result.put("windowCache", prewarmWindowCache(project, repo, path, args, first, null));
             return doneResult(args, result);
         }
 
@@ -454,6 +587,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             result.put("path", path);
             result.put("item", first);
             result.put("warning", "items_get sin contenido y fallback blob falló: " + blobErr);
+            result.put("windowCache", prewarmWindowCache(project, repo, path, args, first, null));
             return doneResult(args, result);
         }
 
@@ -476,9 +610,67 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         result.put("path", path);
         result.put("item", item);
         result.put("content", text);
+        result.put("windowCache", prewarmWindowCache(project, repo, path, args, first, text));
         return doneResult(args, result);
     }
 
+    /**
+     * Deja el archivo preparado en el cache de items_read_window a partir de la primera consulta:
+     * si ya se tiene el texto se escribe directo; si no, se inicia la descarga en background.
+     */
+    private String prewarmWindowCache(String project,
+                                      String repo,
+                                      String path,
+                                      Map<String, Object> args,
+                                      Map<String, Object> item,
+                                      String content) {
+        try {
+            if (!evaluateTextEligibility(item).allowed()) return "skipped";
+            String normalizedPath = normalizePath(path);
+            String cacheKey = buildWindowCacheKey(project, repo, normalizedPath, args);
+            if (content != null) {
+                if (content.length() < WINDOW_PREWARM_MIN_CHARS) return "skipped";
+                return WINDOW_CACHE.prepare(cacheKey, content.length(), (targetPath, maxFileBytes) -> writeTextToFile(content, targetPath, maxFileBytes));
+            }
+            return WINDOW_CACHE.prepare(cacheKey, asLong(item.get("size"), -1L), itemDownloadTask(project, repo, normalizedPath, args));
+        } catch (Exception e) {
+            return "skipped";
+        }
+    }
+
+    private DownloadRunResult writeTextToFile(String content, Path targetPath, long maxFileBytes) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (TextContentSniffer.looksBinary(bytes, Math.min(bytes.length, TextContentSniffer.SAMPLE_BYTES))) {
+            return new DownloadRunResult(false, CODE_BINARY_NOT_SUPPORTED,
+                    "El contenido parece binario; este endpoint solo admite texto.", 0L);
+        }
+        if (bytes.length > maxFileBytes) {
+            return new DownloadRunResult(false, CODE_FILE_TOO_LARGE,
+                    "El archivo excede el límite máximo permitido para cache temporal", bytes.length);
+        }
+        try {
+            Files.write(targetPath, bytes);
+            return new DownloadRunResult(true, "", "", bytes.length);
+        } catch (IOException e) {
+            return new DownloadRunResult(false, CODE_DOWNLOAD_FAILED, e.getMessage(), 0L);
+        }
+    }
+
+    private DownloadTask itemDownloadTask(String project, String repo, String path, Map<String, Object> args) {
+        Map<String, String> downloadQuery = buildItemsReadWindowDownloadQuery(args, path);
+        String apiVersion = itemsApiVersion(args);
+        return (targetPath, maxFileBytes) -> mapDownloadResult(
+                azureService.downloadGitTextToFile(
+                        project,
+                        "repositories/" + repo + "/items",
+                        downloadQuery,
+                        apiVersion,
+                        targetPath,
+                        maxFileBytes
+                )
+        );
+    }
+
     private Map<String, Object> opItemsReadWindow(Map<String, Object> args) {
         String project = requireProject(args, "items_read_window");
         String repo = resolveRepositoryId(project, args, "items_read_window");
@@ -503,14 +695,14 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             return doneResult(args, failed);
         }
 
-        TextEligibility eligibility = evaluateTextEligibility(item);
+        TextEligibility eligibility = evaluateTextEligibility(item,
+                () -> firstChunkLooksBinary(project, repo, extractObjectId(item), path, args));
         if (!eligibility.allowed()) {
             Map<String, Object> rejected = buildWindowRejected(project, repo, path, req, eligibility.reasonCode(), eligibility.reason(), eligibility.guidance());
             return doneResult(args, rejected);
         }
 
         String cacheKey = buildWindowCacheKey(project, repo, path, args);
-        Map<String, String> downloadQuery = buildItemsReadWindowDownloadQuery(args, path);
 
         WindowFetchResult fetch = WINDOW_CACHE.fetch(
                 cacheKey,
@@ -518,16 +710,8 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 req.offset(),
                 req.limit(),
                 req.maxWaitMs(),
-                (targetPath, maxFileBytes) -> mapDownloadResult(
-                        azureService.downloadGitTextToFile(
-                                project,
-                                "repositories/" + repo + "/items",
-                                downloadQuery,
-                                itemsApiVersion(args),
-                                targetPath,
-                                maxFileBytes
-                        )
-                )
+                asLong(item.get("size"), -1L),
+                itemDownloadTask(project, repo, path, args)
         );
 
         if (fetch.status().equals(WINDOW_STATUS_READY)) {
@@ -567,13 +751,16 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             warming.put("limit", req.limit());
             warming.put("errorCode", CODE_PREPARING_TIMEOUT);
             warming.put("message", "El archivo se está preparando en cache temporal porque es una lectura pesada. Espere unos segundos y vuelva a consultar.");
-            warming.put("retryAfterSeconds", DEFAULT_RETRY_AFTER_SECONDS);
+            warming.put("retryAfterSeconds", Math.max(DEFAULT_RETRY_AFTER_SECONDS, (int) Math.min(300L, fetch.estimatedWaitMs() / 1000L)));
             warming.put("guidance", "Reintente la misma operación items_read_window con el mismo path/offset/limit.");
             if (fetch.downloadStartedAt() != null) {
                 warming.put("download", Map.of(
                         "startedAt", fetch.downloadStartedAt().toString(),
                         "inProgress", true,
-                        "elapsedMs", fetch.elapsedMs()
+                        "elapsedMs", fetch.elapsedMs(),
+                        "queued", fetch.queuePosition() > 0,
+                        "queuePosition", fetch.queuePosition(),
+                        "estimatedWaitMs", fetch.estimatedWaitMs()
                 ));
             }
             return doneResult(args, warming);
@@ -634,6 +821,15 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
     }
 
     private TextEligibility evaluateTextEligibility(Map<String, Object> item) {
+        return evaluateTextEligibility(item, () -> false);
+    }
+
+    /**
+     * Decide si el item se puede leer por líneas según contentMetadata y el contenido ya obtenido. La extensión
+     * sólo es una pista: si es típica de binarios y nada confirma que sea texto, se inspecciona el primer bloque
+     * con {@code firstChunkLooksBinary} antes de encolar la descarga completa.
+     */
+    private TextEligibility evaluateTextEligibility(Map<String, Object> item, BooleanSupplier firstChunkLooksBinary) {
         Map<String, Object> metadata = toObjectMap(item.get("contentMetadata"));
         Object isBinaryObj = metadata.get("isBinary");
         if (isBinaryObj != null && parseBool(isBinaryObj)) {
@@ -643,38 +839,63 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         }
 
         String contentType = Objects.toString(metadata.get("contentType"), "").toLowerCase(Locale.ROOT);
-        if (!contentType.isBlank() && isClearlyBinaryContentType(contentType)) {
+        if (!contentType.isBlank() && TextContentSniffer.isClearlyBinaryContentType(contentType)) {
             return new TextEligibility(false, CODE_BINARY_NOT_SUPPORTED,
                     "contentMetadata indica contenido binario ('" + contentType + "').",
                     "Solo se admiten archivos de texto en items_read_window.");
         }
 
+        if (item.get("content") instanceof String content) {
+            if (TextContentSniffer.looksBinary(content)) {
+                return new TextEligibility(false, CODE_BINARY_NOT_SUPPORTED,
+                        "El contenido del archivo parece binario (bytes NUL/control o firma binaria).",
+                        "Use operaciones de descarga binaria si necesita ese contenido.");
+            }
+            return new TextEligibility(true, "", "", "");
+        }
+
+        String itemPath = Objects.toString(item.get("path"), "");
+        boolean declaredText = isBinaryObj != null || contentType.startsWith("text/");
+        if (!declaredText && TextContentSniffer.hasBinaryExtension(itemPath) && firstChunkLooksBinary.getAsBoolean()) {
+            return new TextEligibility(false, CODE_BINARY_NOT_SUPPORTED,
+                    "El primer bloque de '" + itemPath + "' parece binario (bytes NUL/control o firma binaria).",
+                    "Solo se admiten archivos de texto en items_read_window.");
+        }
+
         return new TextEligibility(true, "", "", "");
     }
 
-    private boolean isClearlyBinaryContentType(String contentType) {
-        String ct = contentType.toLowerCase(Locale.ROOT);
-        if (ct.isBlank()) return false;
-        if (ct.startsWith("text/")) return false;
-        if (ct.contains("json") || ct.contains("xml") || ct.contains("yaml") || ct.contains("x-sh") || ct.contains("x-python")) {
+    /**
+     * Descarga sólo el primer bloque del archivo (blob si se conoce el objectId) y reporta si parece binario.
+     * Ante cualquier otro error retorna false: la lectura completa vuelve a inspeccionar el contenido.
+     */
+    private boolean firstChunkLooksBinary(String project, String repo, String objectId, String path, Map<String, Object> args) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile("mcp-sniff-", ".txt");
+            Map<String, Object> resp;
+            if (objectId != null && !objectId.isBlank()) {
+                Map<String, String> q = new LinkedHashMap<>();
+                q.put("$format", "text");
+                putBool(q, "resolveLfs", args.get("resolveLfs"));
+                resp = azureService.downloadGitTextToFile(project, "repositories/" + repo + "/blobs/" + objectId,
+                        q, itemsApiVersion(args), tmp, TextContentSniffer.SAMPLE_BYTES, true);
+            } else {
+                resp = azureService.downloadGitTextToFile(project, "repositories/" + repo + "/items",
+                        buildItemsReadWindowDownloadQuery(args, path), itemsApiVersion(args), tmp, TextContentSniffer.SAMPLE_BYTES, true);
+            }
+            return "BINARY_CONTENT".equals(resp.get("error"));
+        } catch (IOException e) {
             return false;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // best-effort
+                }
+            }
         }
-        return ct.startsWith("image/")
-                || ct.startsWith("audio/")
-                || ct.startsWith("video/")
-                || ct.startsWith("font/")
-                || ct.contains("application/pdf")
-                || ct.contains("application/zip")
-                || ct.contains("application/x-zip")
-                || ct.contains("application/gzip")
-                || ct.contains("application/x-gzip")
-                || ct.contains("application/java-archive")
-                || ct.contains("application/x-rar")
-                || ct.contains("application/x-7z")
-                || ct.contains("application/msword")
-                || ct.contains("application/vnd.ms-")
-                || ct.contains("application/vnd.openxmlformats-officedocument")
-                || ct.contains("application/x-executable");
     }
 
     private DownloadRunResult mapDownloadResult(Map<String, Object> response) {
@@ -687,12 +908,21 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             if ("MAX_BYTES_EXCEEDED".equalsIgnoreCase(errorRaw)) {
                 long bytesRead = asLong(response.get("bytesRead"), -1L);
                 long maxBytes = asLong(response.get("maxBytes"), -1L);
+                long contentLength = asLong(response.get("contentLength"), -1L);
                 String msg = "El archivo excede el límite máximo permitido para cache temporal";
-                if (bytesRead > 0 && maxBytes > 0) {
+                if (contentLength > 0 && maxBytes > 0) {
+                    msg += " (contentLength=" + contentLength + ", maxBytes=" + maxBytes + ")";
+                } else if (bytesRead > 0 && maxBytes > 0) {
                     msg += " (bytesRead=" + bytesRead + ", maxBytes=" + maxBytes + ")";
                 }
                 return new DownloadRunResult(false, CODE_FILE_TOO_LARGE, msg, Math.max(bytesRead, 0L));
             }
+            if ("BINARY_CONTENT".equalsIgnoreCase(errorRaw)) {
+                String detectedBy = Objects.toString(response.get("detectedBy"), "sample");
+                return new DownloadRunResult(false, CODE_BINARY_NOT_SUPPORTED,
+                        "El contenido descargado parece binario (" + detectedBy + "); este endpoint solo admite texto.",
+                        Math.max(asLong(response.get("bytesRead"), 0L), 0L));
+            }
             return new DownloadRunResult(false, CODE_DOWNLOAD_FAILED, errorRaw, 0L);
         }
 
@@ -809,12 +1039,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         String err = tryFormatRemoteError(collected);
         if (err != null) return error(err);
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> items = (List<Map<String, Object>>) collected.getOrDefault("items", List.of());
+        CompactTree tree = collectedTree(collected);
         int skip = parseSkip(args.get("skip"));
         Integer top = parseTop(args.get("top"));
 
-        int total = items.size();
+        int total = tree.size();
         int from = Math.min(skip, total);
         int to = top == null ? total : Math.min(total, from + top);
 
@@ -828,71 +1057,312 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         result.put("skip", skip);
         if (top != null) result.put("top", top);
         result.put("hasMore", to < total);
-        result.put("value", new ArrayList<>(items.subList(from, to)));
+        List<Map<String, Object>> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) page.add(tree.item(i));
+        result.put("value", page);
+        if (collected.get("treeCache") != null) result.put("treeCache", collected.get("treeCache"));
         copyWarnings(collected, result);
         appendWarning(result, str(args, "_itemsListFallbackWarning"));
         return doneResult(args, result);
     }
 
     private Map<String, Object> opSearchFiles(Map<String, Object> args) {
+        if (isMultiRepositorySearch(args)) return opMultiRepositorySearch(args, "search_files");
         String project = requireProject(args, "search_files");
         String repo = resolveRepositoryId(project, args, "search_files");
-        FileFilters filters = resolveFileFilters(args);
+        PathMatcher filters = resolveFileFilters(args);
 
         Map<String, Object> collected = collectRepositoryItems(project, repo, args);
         String err = tryFormatRemoteError(collected);
         if (err != null) return error(err);
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> items = (List<Map<String, Object>>) collected.getOrDefault("items", List.of());
-        List<Map<String, Object>> files = new ArrayList<>();
-        for (Map<String, Object> item : items) {
-            if (isDirectory(item)) continue;
-            if (!matchesFileFilters(item, filters)) continue;
-            files.add(fileResultRow(item));
-        }
-
-        return doneResult(args, paginateRows(args, project, repo, files, collected));
+        CompactTree tree = collectedTree(collected);
+        PathMatcher.Selection selection = filters.selectFiles(tree);
+        int[] files = selection.files();
+        Map<String, Object> result = paginateRows(args, project, repo, files.length, k -> fileResultRow(tree, files[k]), collected);
+        result.put("evaluatedFiles", selection.evaluatedFiles());
+        result.put("prunedDirectories", selection.prunedDirectories());
+        return doneResult(args, result);
     }
 
     private Map<String, Object> opFindFiles(Map<String, Object> args) {
         return opSearchFiles(args);
     }
 
+    private boolean isMultiRepositorySearch(Map<String, Object> args) {
+        if (str(args, "repositoryScope").isBlank()) return false;
+        if (!str(args, "repositoryId").isBlank() || !str(args, "repositoryName").isBlank()) {
+            throw new IllegalArgumentException("'repositoryScope' no se puede combinar con 'repositoryId' o 'repositoryName'");
+        }
+        return true;
+    }
+
+    /**
+     * search_content/search_files sobre todos los repositorios de un proyecto u organización: fan-out acotado
+     * (por llamada y global), presupuesto de tiempo compartido y fusión de resultados (por score con orderBy=relevance).
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> opMultiRepositorySearch(Map<String, Object> args, String op) {
+        String scope = str(args, "repositoryScope").toLowerCase(Locale.ROOT);
+        if (!SCOPE_PROJECT.equals(scope) && !SCOPE_ORGANIZATION.equals(scope)) {
+            throw new IllegalArgumentException("'repositoryScope' debe ser 'project' u 'organization'");
+        }
+        String project = SCOPE_PROJECT.equals(scope) ? requireProject(args, op) : "";
+        boolean content = "search_content".equals(op);
+        int skip = parseSkip(args.get("skip"));
+        Integer top = parseTop(args.get("top"));
+        int maxRepositories = boundedIntArg(args, "maxRepositories", DEFAULT_MULTI_REPO_MAX_REPOSITORIES, HARD_MULTI_REPO_MAX_REPOSITORIES);
+        int concurrency = boundedIntArg(args, "repositoryConcurrency", DEFAULT_MULTI_REPO_CONCURRENCY, HARD_MULTI_REPO_CONCURRENCY);
+        SearchRuntimeSettings runtime = resolveSearchRuntimeSettings(args, skip, top);
+        boolean ranked = content && SEARCH_ORDER_RELEVANCE.equals(resolveSearchOrder(args));
+        if (content) {
+            resolveTextPatterns(args);
+            resolveFileFilters(args);
+        }
+        Pattern repoFilter = str(args, "repositoryFilter").isBlank() ? null : compileGlobPattern(str(args, "repositoryFilter"));
+
+        Map<String, String> q = baseQuery(args);
+        putBool(q, "includeHidden", args.get("includeHidden"));
+        String apiVersion = apiVersion(args);
+        String[] remoteErr = new String[1];
+        List<Map<String, Object>> listed = REPO_DIRECTORY.listing(project, "scope|" + q + "|" + apiVersion, () -> {
+            Map<String, Object> listResp = azureService.getGitApiWithQuery(projectOrNull(project), "repositories", q, apiVersion);
+            remoteErr[0] = tryFormatRemoteError(listResp);
+            return remoteErr[0] != null ? null : toObjectList(listResp.get("value"));
+        });
+        if (listed == null) return error(remoteErr[0] != null ? remoteErr[0] : "No se pudo listar repositorios");
+
+        List<Map<String, Object>> repos = new ArrayList<>();
+        int skippedDisabled = 0;
+        int skippedEmpty = 0;
+        for (Map<String, Object> repo : listed) {
+            String name = Objects.toString(repo.get("name"), "");
+            if (repoFilter != null && !repoFilter.matcher(name).matches()) continue;
+            if (Boolean.TRUE.equals(repo.get("isDisabled"))) {
+                skippedDisabled++;
+                continue;
+            }
+            if (Objects.toString(repo.get("defaultBranch"), "").isBlank() && str(args, "version").isBlank()) {
+                skippedEmpty++;
+                continue;
+            }
+            repos.add(repo);
+        }
+        repos.sort(Comparator.comparing((Map<String, Object> r) -> repositoryProjectName(r, project).toLowerCase(Locale.ROOT))
+                .thenComparing(r -> Objects.toString(r.get("name"), "").toLowerCase(Locale.ROOT)));
+        int eligible = repos.size();
+        boolean repositoriesLimited = eligible > maxRepositories;
+        if (repositoriesLimited) repos = new ArrayList<>(repos.subList(0, maxRepositories));
+
+        long startedAt = System.currentTimeMillis();
+        long deadline = startedAt + runtime.scanBudgetMs();
+        String session = McpSessionContext.currentSessionId();
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
+        for (Map<String, Object> repo : repos) {
+            Map<String, Object> repoArgs = new LinkedHashMap<>(args);
+            for (String k : List.of("repositoryScope", "repositoryFilter", "maxRepositories", "repositoryConcurrency", "repositoryName", "skip", "top", "raw")) {
+                repoArgs.remove(k);
+            }
+            repoArgs.put("project", repositoryProjectName(repo, project));
+            repoArgs.put("repositoryId", Objects.toString(repo.get("id"), ""));
+            if (top != null) repoArgs.put("top", skip + top);
+            tasks.add(() -> {
+                long remaining = deadline - System.currentTimeMillis();
+                if (content) repoArgs.put("scanBudgetMs", (int) Math.max(500L, remaining));
+                return McpSessionContext.callWithSession(session, () -> content ? opSearchContent(repoArgs) : opSearchFiles(repoArgs));
+            });
+        }
+        List<BoundedFanOut.Outcome<Map<String, Object>>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, concurrency, deadline, deadline + MULTI_REPO_COMPLETION_GRACE_MS);
+
+        List<Map<String, Object>> merged = new ArrayList<>();
+        SearchRanking.TopK<Map<String, Object>> topK = ranked ? new SearchRanking.TopK<>(runtime.maxResults()) : null;
+        List<Map<String, Object>> repositories = new ArrayList<>();
+        List<Map<String, Object>> repositoryErrors = new ArrayList<>();
+        LinkedHashSet<String> warnings = new LinkedHashSet<>();
+        int searched = 0;
+        int notStarted = 0;
+        long scannedFiles = 0;
+        long totalMatches = 0;
+        boolean anyScanLimited = false;
+        for (int i = 0; i < repos.size(); i++) {
+            Map<String, Object> repo = repos.get(i);
+            BoundedFanOut.Outcome<Map<String, Object>> outcome = outcomes.get(i);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("project", repositoryProjectName(repo, project));
+            summary.put("repositoryId", repo.get("id"));
+            summary.put("repositoryName", repo.get("name"));
+
+            Map<String, Object> response = outcome.value();
+            Object resultObj = response == null ? null : response.get("result");
+            String failure = outcome.error();
+            if (outcome.ok() && !(resultObj instanceof Map<?, ?>)) {
+                failure = response == null ? "Sin respuesta" : Objects.toString(response.get("error"), "Error remoto");
+            }
+            if (BoundedFanOut.STATUS_SKIPPED.equals(outcome.status())) {
+                notStarted++;
+                summary.put("status", "not_scanned");
+                repositories.add(summary);
+                continue;
+            }
+            if (!outcome.ok() || failure != null) {
+                summary.put("status", outcome.ok() ? BoundedFanOut.STATUS_FAILED : outcome.status());
+                Map<String, Object> err = new LinkedHashMap<>(summary);
+                err.put("error", failure == null ? "Tiempo agotado" : failure);
+                repositoryErrors.add(err);
+                repositories.add(summary);
+                continue;
+            }
+
+            searched++;
+            Map<String, Object> result = (Map<String, Object>) resultObj;
+            List<Map<String, Object>> rows = toObjectList(result.get("value"));
+            summary.put("status", BoundedFanOut.STATUS_OK);
+            summary.put("totalCount", result.get("totalCount"));
+            summary.put("elapsedMs", outcome.elapsedMs());
+            if (content) {
+                summary.put("scannedFiles", result.get("scannedFiles"));
+                summary.put("totalMatches", result.get("totalMatches"));
+                if (result.get("stopReason") != null) summary.put("stopReason", result.get("stopReason"));
+                scannedFiles += asInt(result.get("scannedFiles"), 0);
+                totalMatches += result.get("totalMatches") instanceof Number n ? n.longValue() : 0L;
+                anyScanLimited |= Boolean.TRUE.equals(result.get("scanLimited"));
+            }
+            repositories.add(summary);
+            for (String w : toStringList(result.get("warnings"))) {
+                if (warnings.size() < MULTI_REPO_MAX_WARNINGS) warnings.add(repo.get("name") + ": " + w);
+            }
+
+            for (Map<String, Object> row : rows) {
+                Map<String, Object> tagged = new LinkedHashMap<>();
+                tagged.put("project", summary.get("project"));
+                tagged.put("repositoryId", repo.get("id"));
+                tagged.put("repositoryName", repo.get("name"));
+                tagged.putAll(row);
+                if (ranked) {
+                    double score = row.get("score") instanceof Number n ? n.doubleValue() : 0d;
+                    topK.offer(score, tagged);
+                } else if (!content || merged.size() < runtime.maxResults()) {
+                    merged.add(tagged);
+                }
+            }
+        }
+        if (ranked) merged = topK.sortedDescending();
+
+        int total = merged.size();
+        int from = Math.min(skip, total);
+        int to = top == null ? total : Math.min(total, from + top);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("repositoryScope", scope);
+        if (!project.isBlank()) out.put("project", project);
+        out.put("count", to - from);
+        out.put("totalCount", total);
+        out.put("skip", skip);
+        if (top != null) out.put("top", top);
+        out.put("hasMore", to < total);
+        out.put("value", new ArrayList<>(merged.subList(from, to)));
+        out.put("repositoriesEligible", eligible);
+        out.put("repositoriesSearched", searched);
+        out.put("repositoriesNotScanned", notStarted);
+        out.put("repositoriesFailed", repositoryErrors.size());
+        if (skippedDisabled > 0) out.put("repositoriesSkippedDisabled", skippedDisabled);
+        if (skippedEmpty > 0) out.put("repositoriesSkippedEmpty", skippedEmpty);
+        out.put("repositoryConcurrency", Math.min(concurrency, BoundedFanOut.shared().maxConcurrent()));
+        if (content) {
+            out.put("textPattern", str(args, "textPattern"));
+            out.put("orderBy", ranked ? SEARCH_ORDER_RELEVANCE : SEARCH_ORDER_SCAN);
+            out.put("scannedFiles", scannedFiles);
+            out.put("totalMatches", totalMatches);
+            out.put("maxResults", runtime.maxResults());
+            out.put("scanComplete", !anyScanLimited && notStarted == 0 && repositoryErrors.isEmpty() && !repositoriesLimited);
+        }
+        out.put("scanBudgetMs", runtime.scanBudgetMs());
+        out.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        out.put("repositories", repositories);
+        if (!repositoryErrors.isEmpty()) out.put("repositoryErrors", repositoryErrors);
+
+        List<String> allWarnings = new ArrayList<>(warnings);
+        if (repositoriesLimited) {
+            allWarnings.add("Se recorrieron " + maxRepositories + " de " + eligible + " repositorios (maxRepositories). Use 'repositoryFilter' o aumente 'maxRepositories'.");
+        }
+        if (notStarted > 0) {
+            allWarnings.add(notStarted + " repositorios no se alcanzaron a consultar dentro de scanBudgetMs=" + runtime.scanBudgetMs() + ".");
+        }
+        if (!allWarnings.isEmpty()) out.put("warnings", allWarnings);
+        return doneResult(args, out);
+    }
+
+    private String repositoryProjectName(Map<String, Object> repository, String fallback) {
+        Object projectObj = repository.get("project");
+        if (projectObj instanceof Map<?, ?> p && p.get("name") != null) return p.get("name").toString();
+        return fallback == null ? "" : fallback;
+    }
+
+    private int boundedIntArg(Map<String, Object> args, String key, int defaultValue, int hardLimit) {
+        if (!args.containsKey(key) || str(args, key).isBlank()) return defaultValue;
+        Integer v = parseInt(args.get(key));
+        if (v == null || v < 1) throw new IllegalArgumentException("'" + key + "' debe ser entero >= 1");
+        return Math.min(v, hardLimit);
+    }
+
     private Map<String, Object> opSearchContent(Map<String, Object> args) {
+        if (isMultiRepositorySearch(args)) return opMultiRepositorySearch(args, "search_content");
         String project = requireProject(args, "search_content");
         String repo = resolveRepositoryId(project, args, "search_content");
-        String textPattern = str(args, "textPattern");
-        if (textPattern.isBlank()) throw new IllegalArgumentException("'textPattern' es requerido para search_content");
+        List<String> textPatterns = resolveTextPatterns(args);
+        String textPattern = textPatterns.get(0);
 
         int skip = parseSkip(args.get("skip"));
         Integer top = parseTop(args.get("top"));
-        FileFilters filters = resolveFileFilters(args);
+        PathMatcher filters = resolveFileFilters(args);
         LimitSettings limits = resolveLimits(args);
         SearchRuntimeSettings runtime = resolveSearchRuntimeSettings(args, skip, top);
-        Pattern compiled = compileSearchPattern(textPattern, parseBool(args.get("regex")), parseBool(args.get("caseSensitive")));
-
-        Map<String, Object> collected = collectRepositoryItems(project, repo, args);
+        ContentMatcher matcher = compileContentMatcher(textPatterns, parseBool(args.get("regex")), parseBool(args.get("caseSensitive")));
+        boolean useIndex = parseBool(args.get("useIndex"));
+        String orderBy = resolveSearchOrder(args);
+        boolean ranked = SEARCH_ORDER_RELEVANCE.equals(orderBy);
+        List<String> rankingTerms = ranked ? SearchRanking.rankingTerms(textPatterns, parseBool(args.get("regex"))) : List.of();
+
+        // Con índice, todo el escaneo se fija al commit indexado para que índice y contenido coincidan.
+        // Con el árbol cacheado ese commit es el del snapshot; sin él se resuelve antes de listar.
+        String indexCommit = useIndex && !useTreeCache(args) ? resolveSearchCommit(project, repo, args) : "";
+        Map<String, Object> collected = collectRepositoryItems(project, repo, indexCommit.isBlank() ? args : pinToCommit(args, indexCommit));
         String err = tryFormatRemoteError(collected);
         if (err != null) return error(err);
-
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> items = (List<Map<String, Object>>) collected.getOrDefault("items", List.of());
-        List<Map<String, Object>> candidateFiles = new ArrayList<>();
-        for (Map<String, Object> item : items) {
-            if (isDirectory(item)) continue;
-            if (!matchesFileFilters(item, filters)) continue;
-            candidateFiles.add(item);
+        if (useIndex && indexCommit.isBlank()) indexCommit = Objects.toString(collected.get("commitId"), "");
+        Map<String, Object> scanArgs = indexCommit.isBlank() ? args : pinToCommit(args, indexCommit);
+
+        CompactTree tree = collectedTree(collected);
+        int[] candidateFiles = filters.selectFiles(tree).files();
+
+        Map<String, Object> indexInfo = null;
+        int filteredFiles = candidateFiles.length;
+        if (useIndex) {
+            SearchIndexPlan indexPlan = planSearchIndex(project, repo, scanArgs, indexCommit, textPatterns, tree, collected);
+            indexInfo = indexPlan.info();
+            if (indexPlan.candidates() != null && indexPlan.candidates().prunes()) {
+                TrigramIndex.Candidates candidates = indexPlan.candidates();
+                int[] before = candidateFiles;
+                candidateFiles = Arrays.stream(before).filter(i -> candidates.mightMatch(tree.path(i))).toArray();
+            }
+            indexInfo.put("candidateFilesBefore", filteredFiles);
+            indexInfo.put("candidateFilesAfter", candidateFiles.length);
         }
 
         List<Map<String, Object>> matches = new ArrayList<>();
+        // En modo relevance sólo se retienen los maxResults mejores (memoria acotada) y el escaneo no se corta por resultados
+        SearchRanking.TopK<Map<String, Object>> topK = ranked ? new SearchRanking.TopK<>(runtime.maxResults()) : null;
         int scanned = 0;
+        int prefilterSkipped = 0;
+        int matchedFiles = 0;
+        long rankedOut = 0;
+        long totalMatches = 0;
         boolean stoppedByFileLimit = false;
         boolean stoppedByBudget = false;
         boolean stoppedByResultLimit = false;
         boolean includePreview = parseBool(args.get("includeContentPreview"));
         long startedAtNs = System.nanoTime();
-        for (Map<String, Object> file : candidateFiles) {
+        for (int file : candidateFiles) {
             if (scanned >= limits.maxFiles()) {
                 stoppedByFileLimit = true;
                 break;
@@ -904,22 +1374,46 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             }
             scanned++;
 
-            String path = itemPath(file);
-            ContentRead read = readFileText(project, repo, file, path, limits.maxBytesPerFile(), args);
+            String path = tree.path(file);
+            ContentRead read = readFileText(project, repo, tree.objectId(file), path, limits.maxBytesPerFile(), scanArgs);
             if (!read.readable()) continue;
 
-            Matcher matcher = compiled.matcher(read.text());
-            if (!matcher.find()) continue;
+            ContentMatcher.Result found = matcher.findAll(read.text(), runtime.maxMatchesPerFile());
+            if (found.skippedByPrefilter()) prefilterSkipped++;
+            if (found.matches().isEmpty()) continue;
+            ContentMatcher.Match first = found.matches().get(0);
+            totalMatches += found.matches().size();
+            matchedFiles++;
+
+            double score = 0;
+            if (ranked) {
+                score = SearchRanking.score(path, rankingTerms, found.matches().size(),
+                        SearchRanking.lineCount(read.text()), isKeyFile(path.toLowerCase(Locale.ROOT)));
+                if (score <= topK.threshold()) {
+                    rankedOut++;
+                    continue;
+                }
+            }
 
-            Map<String, Object> row = fileResultRow(file);
+            Map<String, Object> row = fileResultRow(tree, file);
             row.put("contentSource", read.source());
             row.put("contentTruncated", read.truncated());
-            row.put("matchIndex", matcher.start());
-            row.put("matchLength", matcher.end() - matcher.start());
-            row.put("snippet", snippet(read.text(), matcher.start(), matcher.end(), runtime.maxSnippetChars()));
+            row.put("matchIndex", first.start());
+            row.put("matchLength", first.end() - first.start());
+            row.put("line", first.line());
+            row.put("column", first.column());
+            row.put("snippet", snippet(read.text(), first.start(), first.end(), runtime.maxSnippetChars()));
+            row.put("matchCount", found.matches().size());
+            row.put("matchesTruncated", found.truncated());
+            row.put("matches", matchRows(read.text(), found.matches(), textPatterns, runtime.maxSnippetChars(), runtime.contextLines()));
             if (includePreview) {
                 row.put("contentPreview", truncate(read.text(), runtime.maxPreviewChars()));
             }
+            if (ranked) {
+                row.put("score", Math.round(score * 1000d) / 1000d);
+                topK.offer(score, row);
+                continue;
+            }
             matches.add(row);
 
             if (matches.size() >= runtime.maxResults()) {
@@ -927,14 +1421,28 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 break;
             }
         }
+        if (ranked) {
+            matches = topK.sortedDescending();
+            rankedOut += topK.dropped();
+        }
 
         Map<String, Object> result = paginateRows(args, project, repo, matches, collected);
         long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNs);
         result.put("textPattern", textPattern);
+        if (textPatterns.size() > 1) result.put("textPatterns", textPatterns);
         result.put("regex", parseBool(args.get("regex")));
+        result.put("matchEngine", matcher.mode());
         result.put("caseSensitive", parseBool(args.get("caseSensitive")));
-        result.put("candidateFiles", candidateFiles.size());
+        result.put("orderBy", orderBy);
+        result.put("candidateFiles", candidateFiles.length);
+        if (indexInfo != null) result.put("index", indexInfo);
         result.put("scannedFiles", scanned);
+        if (parseBool(args.get("regex"))) result.put("prefilterSkippedFiles", prefilterSkipped);
+        result.put("matchedFiles", matchedFiles);
+        if (ranked) result.put("rankedOutFiles", rankedOut);
+        result.put("totalMatches", totalMatches);
+        result.put("maxMatchesPerFile", runtime.maxMatchesPerFile());
+        if (runtime.contextLines() > 0) result.put("contextLines", runtime.contextLines());
         result.put("scanBudgetMs", runtime.scanBudgetMs());
         result.put("elapsedMs", elapsedMs);
         result.put("maxResults", runtime.maxResults());
@@ -949,10 +1457,167 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return doneResult(args, result);
     }
 
+    private SearchIndexPlan planSearchIndex(String project,
+                                            String repo,
+                                            Map<String, Object> scanArgs,
+                                            String commitId,
+                                            List<String> textPatterns,
+                                            CompactTree tree,
+                                            Map<String, Object> collected) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        if (commitId.isBlank()) {
+            info.put("status", "unavailable");
+            info.put("reason", "No se pudo resolver el commit de la versión solicitada; se usa escaneo completo.");
+            return new SearchIndexPlan(info, null);
+        }
+        info.put("commitId", commitId);
+
+        int[] files = tree.select(i -> !tree.isFolder(i));
+        String key = searchIndexKey(project, repo, commitId, scanArgs);
+        Map<String, Object> buildArgs = new LinkedHashMap<>(scanArgs);
+        // Si el árbol se parcheó desde un commit con índice listo, sólo se releen los archivos cambiados
+        TrigramIndex baseIndex = null;
+        Set<String> changedPaths = Set.of();
+        if (collected.get("snapshot") instanceof RepositoryTreeCache.Snapshot snapshot
+                && commitId.equals(snapshot.commitId()) && !snapshot.baseCommitId().isBlank()) {
+            baseIndex = SEARCH_INDEX.readyIndex(searchIndexKey(project, repo, snapshot.baseCommitId(), scanArgs));
+            changedPaths = snapshot.changedPaths();
+        }
+        TrigramIndex base = baseIndex;
+        Set<String> changed = changedPaths;
+        RepositorySearchIndex.Lookup lookup = SEARCH_INDEX.lookupOrBuild(key, () -> base == null
+                ? buildSearchIndex(project, repo, tree, files, buildArgs)
+                : updateSearchIndex(project, repo, base, changed, tree, files, buildArgs));
+        if (base != null && !RepositorySearchIndex.STATUS_READY.equals(lookup.status())) info.put("incrementalFrom", collected.get("baseCommitId"));
+        info.put("status", lookup.status());
+        if (lookup.error() != null) info.put("error", lookup.error());
+        if (!RepositorySearchIndex.STATUS_READY.equals(lookup.status()) || lookup.index() == null) {
+            info.put("since", lookup.sinceInstant().toString());
+            info.put("note", "Búsqueda resuelta con escaneo completo; el índice se usará cuando esté listo.");
+            return new SearchIndexPlan(info, null);
+        }
+
+        TrigramIndex index = lookup.index();
+        TrigramIndex.Query query = TrigramIndex.planAny(textPatterns, parseBool(scanArgs.get("regex")));
+        info.put("indexedFiles", index.fileCount());
+        info.put("trigrams", index.trigramCount());
+        info.put("buildMs", index.buildMillis());
+        info.put("queryTrigrams", query.trigramCount());
+        if (query.matchesAll()) {
+            info.put("note", "El patrón no tiene literales obligatorios de 3+ caracteres; se verifica cada archivo.");
+        }
+        return new SearchIndexPlan(info, index.candidates(query));
+    }
+
+    private TrigramIndex buildSearchIndex(String project,
+                                          String repo,
+                                          CompactTree tree,
+                                          int[] files,
+                                          Map<String, Object> args) {
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        int limit = Math.min(files.length, SEARCH_INDEX.maxFilesPerIndex());
+        int maxBytes = SEARCH_INDEX.maxFileBytes();
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, SEARCH_INDEX.readConcurrency()), r -> {
+            Thread t = new Thread(r, "git-search-index-read");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (int i = 0; i < limit; i++) {
+                int file = files[i];
+                String path = tree.path(file);
+                // Binarios y archivos ilegibles quedan fuera del índice: siempre se verifican al buscar
+                pending.add(readers.submit(() -> {
+                    if (TextContentSniffer.hasBinaryExtension(path) && firstChunkLooksBinary(project, repo, tree.objectId(file), path, args)) return;
+                    ContentRead read = readFileText(project, repo, tree.objectId(file), path, maxBytes, args);
+                    if (read.readable() && !TextContentSniffer.looksBinary(read.text())) {
+                        builder.add(path, read.text(), read.truncated());
+                    }
+                }));
+            }
+            for (Future<?> f : pending) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Construcción de índice interrumpida");
+                } catch (ExecutionException ignored) {
+                    // best-effort: el archivo queda fuera del índice
+                }
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        return builder.build();
+    }
+
+    private String searchIndexKey(String project, String repo, String commitId, Map<String, Object> args) {
+        return String.join("|", project.toLowerCase(Locale.ROOT), repo.toLowerCase(Locale.ROOT), commitId, effectiveScopePath(args));
+    }
+
+    /**
+     * Índice del nuevo commit a partir del índice del commit anterior: copia los archivos no tocados por el
+     * diff y relee sólo los cambiados que siguen en el árbol.
+     */
+    private TrigramIndex updateSearchIndex(String project,
+                                           String repo,
+                                           TrigramIndex base,
+                                           Set<String> changedPaths,
+                                           CompactTree tree,
+                                           int[] files,
+                                           Map<String, Object> args) {
+        Set<String> changedLower = new HashSet<>();
+        for (String p : changedPaths) changedLower.add(p.toLowerCase(Locale.ROOT));
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        builder.addAll(base, path -> !changedLower.contains(path.toLowerCase(Locale.ROOT)));
+
+        int maxBytes = SEARCH_INDEX.maxFileBytes();
+        for (int file : files) {
+            if (builder.size() >= SEARCH_INDEX.maxFilesPerIndex()) break;
+            String path = tree.path(file);
+            if (!changedLower.contains(path.toLowerCase(Locale.ROOT))) continue;
+            if (TextContentSniffer.hasBinaryExtension(path) && firstChunkLooksBinary(project, repo, tree.objectId(file), path, args)) continue;
+            ContentRead read = readFileText(project, repo, tree.objectId(file), path, maxBytes, args);
+            if (read.readable() && !TextContentSniffer.looksBinary(read.text())) builder.add(path, read.text(), read.truncated());
+        }
+        return builder.build();
+    }
+
+    private String resolveSearchCommit(String project, String repo, Map<String, Object> args) {
+        String version = str(args, "version");
+        String versionType = str(args, "versionType");
+        if ("commit".equalsIgnoreCase(versionType) && version.matches("[0-9a-fA-F]{40}")) {
+            return version.toLowerCase(Locale.ROOT);
+        }
+
+        Map<String, String> q = new LinkedHashMap<>();
+        q.put("searchCriteria.$top", "1");
+        if (!version.isBlank()) {
+            q.put("searchCriteria.itemVersion.version", normalizeBranch(version));
+            q.put("searchCriteria.itemVersion.versionType", versionType.isBlank() ? "branch" : versionType);
+        }
+        Map<String, Object> commits = azureService.getGitApiWithQuery(project, "repositories/" + repo + "/commits", q, apiVersion(args));
+        if (tryFormatRemoteError(commits) != null) return "";
+        Object value = commits.get("value");
+        if (value instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof Map<?, ?> first) {
+            return Objects.toString(first.get("commitId"), "").trim().toLowerCase(Locale.ROOT);
+        }
+        return "";
+    }
+
+    private Map<String, Object> pinToCommit(Map<String, Object> args, String commitId) {
+        Map<String, Object> pinned = new LinkedHashMap<>(args);
+        pinned.put("version", commitId);
+        pinned.put("versionType", "commit");
+        pinned.remove("versionOptions");
+        return pinned;
+    }
+
     private Map<String, Object> opExploreRepo(Map<String, Object> args) {
         String project = requireProject(args, "explore_repo");
         String repo = resolveRepositoryId(project, args, "explore_repo");
-        FileFilters filters = resolveFileFilters(args);
+        PathMatcher filters = resolveFileFilters(args);
         LimitSettings limits = resolveLimits(args);
         boolean includePreview = parseBool(args.get("includeContentPreview"));
 
@@ -960,56 +1625,98 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         String err = tryFormatRemoteError(collected);
         if (err != null) return error(err);
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> items = (List<Map<String, Object>>) collected.getOrDefault("items", List.of());
-        List<Map<String, Object>> files = new ArrayList<>();
-        int directories = 0;
-        for (Map<String, Object> item : items) {
-            if (isDirectory(item)) {
-                directories++;
-            } else {
-                if (!matchesFileFilters(item, filters)) continue;
-                files.add(item);
+        CompactTree tree = collectedTree(collected);
+        int directories = tree.folderCount();
+        int[] files = filters.selectFiles(tree).files();
+
+        List<Map<String, Object>> keyFiles = new ArrayList<>();
+        List<Integer> keyFileItems = new ArrayList<>();
+        for (int file : files) {
+            if (isKeyFile(tree.path(file).toLowerCase(Locale.ROOT))) {
+                keyFiles.add(fileResultRow(tree, file));
+                keyFileItems.add(file);
             }
         }
 
-        List<Map<String, Object>> keyFiles = new ArrayList<>();
         int previewReads = 0;
         boolean previewLimited = false;
-        for (Map<String, Object> file : files) {
-            String path = itemPath(file).toLowerCase(Locale.ROOT);
-            if (isKeyFile(path)) {
-                Map<String, Object> row = fileResultRow(file);
-                if (includePreview) {
-                    if (previewReads >= limits.maxFiles()) {
-                        previewLimited = true;
-                    } else {
-                        previewReads++;
-                        ContentRead read = readFileText(project, repo, itemPath(file), limits.maxBytesPerFile(), args);
-                        if (read.readable()) {
-                            row.put("contentSource", read.source());
-                            row.put("contentPreview", truncate(read.text(), 1200));
-                            row.put("contentTruncated", read.truncated());
-                        }
-                    }
-                }
-                keyFiles.add(row);
+        int previewBudget = 0;
+        int previewCharsUsed = 0;
+        if (includePreview && !keyFileItems.isEmpty()) {
+            previewBudget = boundedIntArg(args, "previewBudgetChars", DEFAULT_EXPLORE_PREVIEW_BUDGET_CHARS, HARD_EXPLORE_PREVIEW_BUDGET_CHARS);
+            previewReads = Math.min(keyFileItems.size(), limits.maxFiles());
+            previewLimited = previewReads < keyFileItems.size();
+
+            // Lecturas en paralelo (blob directo cuando el árbol trae objectId); cada una lee a lo sumo el presupuesto total
+            int readBytes = Math.min(limits.maxBytesPerFile(), previewBudget);
+            String session = McpSessionContext.currentSessionId();
+            List<Callable<ContentRead>> reads = new ArrayList<>();
+            for (int file : keyFileItems.subList(0, previewReads)) {
+                reads.add(() -> McpSessionContext.callWithSession(session,
+                        () -> readFileText(project, repo, tree.objectId(file), tree.path(file), readBytes, args)));
+            }
+            long deadline = System.currentTimeMillis() + DEFAULT_SEARCH_SCAN_BUDGET_MS;
+            List<BoundedFanOut.Outcome<ContentRead>> outcomes = BoundedFanOut.shared().runAll(
+                    reads, EXPLORE_PREVIEW_CONCURRENCY, deadline, deadline + MULTI_REPO_COMPLETION_GRACE_MS);
+
+            int[] lengths = new int[outcomes.size()];
+            for (int i = 0; i < lengths.length; i++) {
+                ContentRead read = outcomes.get(i).value();
+                lengths[i] = read != null && read.readable() ? read.text().length() : 0;
+            }
+            int[] allocation = allocatePreviewBudget(lengths, previewBudget);
+            for (int i = 0; i < lengths.length; i++) {
+                ContentRead read = outcomes.get(i).value();
+                if (read == null || !read.readable()) continue;
+                Map<String, Object> row = keyFiles.get(i);
+                row.put("contentSource", read.source());
+                row.put("contentPreview", truncate(read.text(), allocation[i]));
+                row.put("contentTruncated", read.truncated() || allocation[i] < lengths[i]);
+                previewCharsUsed += Math.min(allocation[i], lengths[i]);
             }
         }
 
-        Map<String, Object> paged = paginateRows(args, project, repo, summarizeItems(items), collected);
+        Map<String, Object> paged = paginateRows(args, project, repo, tree.size(), i -> fileResultRow(tree, i), collected);
         paged.put("directories", directories);
-        paged.put("files", files.size());
+        paged.put("files", files.length);
         paged.put("keyFilesCount", keyFiles.size());
         paged.put("keyFiles", keyFiles);
         if (includePreview) {
             paged.put("previewReads", previewReads);
             paged.put("previewLimited", previewLimited);
+            paged.put("previewBudgetChars", previewBudget);
+            paged.put("previewCharsUsed", previewCharsUsed);
             addLimitWarnings(paged, limits, previewLimited);
         }
         return doneResult(args, paged);
     }
 
+    /**
+     * Reparte {@code budget} caracteres entre previews (water-filling): los archivos cortos se muestran
+     * completos y el sobrante se redistribuye en partes iguales entre los más largos.
+     */
+    private int[] allocatePreviewBudget(int[] lengths, int budget) {
+        int[] allocation = new int[lengths.length];
+        int remaining = Math.max(0, budget);
+        int pending = 0;
+        for (int len : lengths) if (len > 0) pending++;
+        while (remaining > 0 && pending > 0) {
+            int share = Math.max(1, remaining / pending);
+            boolean progressed = false;
+            for (int i = 0; i < lengths.length && remaining > 0; i++) {
+                int missing = lengths[i] - allocation[i];
+                if (missing <= 0) continue;
+                int grant = Math.min(Math.min(share, missing), remaining);
+                allocation[i] += grant;
+                remaining -= grant;
+                progressed = true;
+                if (allocation[i] >= lengths[i]) pending--;
+            }
+            if (!progressed) break;
+        }
+        return allocation;
+    }
+
     private Map<String, Object> opItemsBatch(Map<String, Object> args) {
         String project = requireProject(args, "items_batch");
         String repo = resolveRepositoryId(project, args, "items_batch");
@@ -1030,10 +1737,150 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (!str(args, "includeContentMetadata").isBlank()) body.put("includeContentMetadata", parseBool(args.get("includeContentMetadata")));
         if (!str(args, "includeContent").isBlank()) body.put("includeContent", parseBool(args.get("includeContent")));
 
+        int chunkSize = boundedIntArg(args, "chunkSize", DEFAULT_ITEMS_BATCH_CHUNK_SIZE, HARD_ITEMS_BATCH_CHUNK_SIZE);
+        String outputPath = str(args, "outputPath");
+        if (itemDescriptors instanceof List<?> descriptors && (descriptors.size() > chunkSize || !outputPath.isBlank())) {
+            return runItemsBatchChunked(args, project, repo, body, descriptors, chunkSize, outputPath);
+        }
+
         Map<String, Object> resp = azureService.postGitApiWithQuery(project, "repositories/" + repo + "/itemsbatch", baseQuery(args), body, itemsApiVersion(args), MediaType.APPLICATION_JSON);
         return done(args, resp);
     }
 
+    /**
+     * items_batch en chunks: cada chunk es un POST independiente ejecutado en paralelo (acotado); el resultado
+     * conserva el orden de los descriptores. Con outputPath se escribe NDJSON en orden a medida que llegan
+     * los chunks y la respuesta sólo trae el resumen.
+     */
+    private Map<String, Object> runItemsBatchChunked(Map<String, Object> args,
+                                                     String project,
+                                                     String repo,
+                                                     Map<String, Object> body,
+                                                     List<?> descriptors,
+                                                     int chunkSize,
+                                                     String outputPath) {
+        int concurrency = boundedIntArg(args, "batchConcurrency", DEFAULT_ITEMS_BATCH_CONCURRENCY, HARD_ITEMS_BATCH_CONCURRENCY);
+        int chunkCount = Math.max(1, (descriptors.size() + chunkSize - 1) / chunkSize);
+        Path out = outputPath.isBlank() ? null : Path.of(outputPath).toAbsolutePath().normalize();
+        OrderedNdjsonWriter writer;
+        try {
+            writer = out == null ? null : new OrderedNdjsonWriter(out, chunkCount);
+        } catch (IOException e) {
+            return error("No se pudo crear outputPath: " + e.getMessage());
+        }
+
+        Map<String, String> q = baseQuery(args);
+        String apiVersion = itemsApiVersion(args);
+        String session = McpSessionContext.currentSessionId();
+        List<Callable<List<Object>>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunkCount; c++) {
+            int chunkIndex = c;
+            int from = c * chunkSize;
+            List<?> chunk = descriptors.subList(from, Math.min(descriptors.size(), from + chunkSize));
+            tasks.add(() -> {
+                try {
+                    Map<String, Object> chunkBody = new LinkedHashMap<>(body);
+                    chunkBody.put("itemDescriptors", chunk);
+                    Map<String, Object> resp = McpSessionContext.callWithSession(session, () -> azureService.postGitApiWithQuery(
+                            project, "repositories/" + repo + "/itemsbatch", q, chunkBody, apiVersion, MediaType.APPLICATION_JSON));
+                    String err = tryFormatRemoteError(resp);
+                    if (err != null) throw new IllegalStateException(err);
+                    List<Object> values = resp.get("value") instanceof List<?> list ? new ArrayList<>(list) : new ArrayList<>();
+                    if (writer == null) return values;
+                    writer.complete(chunkIndex, ndjsonBatchLines(from, chunk, values, null));
+                    return List.of();
+                } catch (RuntimeException e) {
+                    if (writer != null) writer.complete(chunkIndex, ndjsonBatchLines(from, chunk, List.of(), e.getMessage()));
+                    throw e;
+                }
+            });
+        }
+
+        long deadline = System.currentTimeMillis() + ITEMS_BATCH_BUDGET_MS;
+        List<BoundedFanOut.Outcome<List<Object>>> outcomes = BoundedFanOut.shared().runAll(tasks, concurrency, deadline, deadline);
+
+        List<Object> merged = new ArrayList<>();
+        List<Map<String, Object>> failedChunks = new ArrayList<>();
+        for (int c = 0; c < chunkCount; c++) {
+            int from = c * chunkSize;
+            int to = Math.min(descriptors.size(), from + chunkSize);
+            BoundedFanOut.Outcome<List<Object>> outcome = outcomes.get(c);
+            if (outcome.ok()) {
+                if (writer == null) {
+                    List<Object> values = outcome.value();
+                    for (int i = 0; i < to - from; i++) merged.add(i < values.size() ? values.get(i) : null);
+                }
+                continue;
+            }
+            String msg = outcome.error() != null ? outcome.error()
+                    : BoundedFanOut.STATUS_SKIPPED.equals(outcome.status()) ? "No se alcanzó a ejecutar dentro del presupuesto" : "Tiempo agotado";
+            Map<String, Object> failed = new LinkedHashMap<>();
+            failed.put("chunk", c);
+            failed.put("from", from);
+            failed.put("to", to - 1);
+            failed.put("status", outcome.status());
+            failed.put("error", msg);
+            failedChunks.add(failed);
+            if (writer != null) {
+                writer.complete(c, ndjsonBatchLines(from, descriptors.subList(from, to), List.of(), msg));
+            } else {
+                for (int i = from; i < to; i++) merged.add(null);
+            }
+        }
+
+        if (failedChunks.size() == chunkCount && writer == null) {
+            return error("items_batch falló en todos los chunks: " + failedChunks.get(0).get("error"));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("project", project);
+        result.put("repositoryId", repo);
+        result.put("count", descriptors.size());
+        result.put("chunkSize", chunkSize);
+        result.put("chunks", chunkCount);
+        result.put("batchConcurrency", Math.min(concurrency, BoundedFanOut.shared().maxConcurrent()));
+        result.put("failedChunks", failedChunks);
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                return error("No se pudo cerrar outputPath: " + e.getMessage());
+            }
+            if (writer.failure() != null) return error("No se pudo escribir NDJSON en outputPath: " + writer.failure().getMessage());
+            result.put("savedToPath", out.toString());
+            result.put("format", "ndjson");
+            result.put("lines", writer.lines());
+            result.put("bytes", writer.bytes());
+        } else {
+            result.put("value", merged);
+        }
+        if (!failedChunks.isEmpty()) {
+            appendWarning(result, failedChunks.size() + " de " + chunkCount + " chunks fallaron; sus descriptores quedan "
+                    + (writer != null ? "con 'error' en el NDJSON" : "en null") + " (ver failedChunks).");
+        }
+        return doneResult(args, result);
+    }
+
+    private List<String> ndjsonBatchLines(int from, List<?> descriptors, List<Object> values, String error) {
+        List<String> lines = new ArrayList<>(descriptors.size());
+        for (int i = 0; i < descriptors.size(); i++) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", from + i);
+            line.put("descriptor", descriptors.get(i));
+            if (error != null) {
+                line.put("error", error);
+            } else {
+                line.put("items", i < values.size() ? values.get(i) : null);
+            }
+            try {
+                lines.add(JSON.writeValueAsString(line));
+            } catch (Exception e) {
+                lines.add("{\"index\":" + (from + i) + ",\"error\":\"No serializable\"}");
+            }
+        }
+        return lines;
+    }
+
     private Map<String, Object> opCommitsList(Map<String, Object> args) {
         String project = requireProject(args, "commits_list");
         String repo = resolveRepositoryId(project, args, "commits_list");
@@ -1053,6 +1900,94 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * Diff unificado entre dos versiones: {@code diffs/commits} da los archivos cambiados y
+     * {@link GitChangeDiffer} lee los blobs en paralelo y devuelve sólo los hunks dentro del presupuesto.
+     */
+    private Map<String, Object> opCommitsDiff(Map<String, Object> args) {
+        String project = requireProject(args, "commits_diff");
+        String repo = resolveRepositoryId(project, args, "commits_diff");
+        String baseVersion = str(args, "baseVersion");
+        String targetVersion = str(args, "targetVersion");
+        if (baseVersion.isBlank() || targetVersion.isBlank()) {
+            throw new IllegalArgumentException("'baseVersion' y 'targetVersion' son requeridos para commits_diff");
+        }
+        int contextLines = boundedIntArg(args, "contextLines", DEFAULT_DIFF_CONTEXT_LINES, HARD_DIFF_CONTEXT_LINES);
+        int maxLines = boundedIntArg(args, "maxDiffLines", DEFAULT_DIFF_MAX_LINES, HARD_DIFF_MAX_LINES);
+        int maxBytes = boundedIntArg(args, "maxDiffBytes", DEFAULT_DIFF_MAX_BYTES, HARD_DIFF_MAX_BYTES);
+        int maxFiles = boundedIntArg(args, "maxFiles", DEFAULT_DIFF_MAX_FILES, HARD_DIFF_MAX_FILES);
+        long startedAt = System.currentTimeMillis();
+
+        List<GitChangeDiffer.Change> changes = new ArrayList<>();
+        int total = 0;
+        int skip = 0;
+        String baseCommit = null;
+        String targetCommit = null;
+        String commonCommit = null;
+        while (true) {
+            Map<String, String> q = new LinkedHashMap<>();
+            q.put("baseVersion", versionName(baseVersion, str(args, "baseVersionType")));
+            q.put("baseVersionType", versionType(str(args, "baseVersionType")));
+            q.put("targetVersion", versionName(targetVersion, str(args, "targetVersionType")));
+            q.put("targetVersionType", versionType(str(args, "targetVersionType")));
+            q.put("diffCommonCommit", String.valueOf(parseBool(args.get("diffCommonCommit"))));
+            q.put("$top", String.valueOf(DIFF_PAGE_SIZE));
+            q.put("$skip", String.valueOf(skip));
+            Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + repo + "/diffs/commits", q, apiVersion(args));
+            String err = tryFormatRemoteError(resp);
+            if (err != null) return error(err);
+            if (skip == 0) {
+                baseCommit = blankToNull(Objects.toString(resp.get("baseCommit"), ""));
+                targetCommit = blankToNull(Objects.toString(resp.get("targetCommit"), ""));
+                commonCommit = blankToNull(Objects.toString(resp.get("commonCommit"), ""));
+            }
+            List<Map<String, Object>> page = toObjectList(resp.get("changes"));
+            for (Map<String, Object> change : page) {
+                Map<String, Object> item = toObjectMap(change.get("item"));
+                String path = normalizePath(itemPath(item));
+                if (path.isBlank() || isDirectory(item)) continue;
+                total++;
+                if (changes.size() >= maxFiles) continue;
+                changes.add(GitChangeDiffer.Change.of(
+                        path,
+                        normalizePath(Objects.toString(change.get("sourceServerItem"), "")),
+                        Objects.toString(change.get("changeType"), ""),
+                        Objects.toString(item.get("objectId"), ""),
+                        Objects.toString(item.get("originalObjectId"), "")));
+            }
+            if (page.size() < DIFF_PAGE_SIZE || Boolean.TRUE.equals(resp.get("allChangesIncluded")) || changes.size() >= maxFiles) break;
+            skip += page.size();
+        }
+
+        // Con diffCommonCommit la base efectiva es el ancestro común
+        String effectiveBase = parseBool(args.get("diffCommonCommit")) && commonCommit != null ? commonCommit : baseCommit;
+        GitChangeDiffer.Options options = new GitChangeDiffer.Options(contextLines, maxLines, maxBytes,
+                DIFF_BLOB_CONCURRENCY, startedAt + DIFF_TIMEOUT_MS, effectiveBase);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("repositoryId", repo);
+        if (baseCommit != null) result.put("baseCommit", baseCommit);
+        if (targetCommit != null) result.put("targetCommit", targetCommit);
+        if (commonCommit != null) result.put("commonCommit", commonCommit);
+        result.putAll(new GitChangeDiffer(azureService).diff(project, repo, changes, options));
+        result.put("totalFiles", total);
+        if (total > changes.size()) result.put("omittedFiles", total - changes.size());
+        result.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        return doneResult(args, result);
+    }
+
+    private String versionType(String raw) {
+        String t = raw.toLowerCase(Locale.ROOT);
+        return t.isBlank() ? "commit" : t;
+    }
+
+    private String versionName(String version, String rawType) {
+        return "branch".equals(versionType(rawType)) ? normalizeBranch(version) : version;
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
     private Map<String, Object> opRefsList(Map<String, Object> args) {
         String project = requireProject(args, "refs_list");
         String repo = resolveRepositoryId(project, args, "refs_list");
@@ -1267,6 +2202,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         putBool(q, "zipForUnix", args.get("zipForUnix"));
         putVersionDescriptor(q, args);
 
+        if (!str(args, "outputPath").isBlank()) return downloadZipToDisk(args, project, repo, path, q);
+        if (!str(args, "entries").isBlank()) throw new IllegalArgumentException("'entries' requiere 'outputPath' en download_zip");
+
         Map<String, Object> binary = azureService.getGitBinary(project, "repositories/" + repo + "/items", q, itemsApiVersion(args));
         String err = tryFormatRemoteError(binary);
         if (err != null) return error(err);
@@ -1275,15 +2213,6 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (b64.isBlank()) return error("No se recibió contenido ZIP");
 
         byte[] bytes = Base64.getDecoder().decode(b64);
-        String outputPath = str(args, "outputPath");
-        String savedTo = null;
-        if (!outputPath.isBlank()) {
-            Path out = Path.of(outputPath).toAbsolutePath().normalize();
-            Path parent = out.getParent();
-            if (parent != null) Files.createDirectories(parent);
-            Files.write(out, bytes);
-            savedTo = out.toString();
-        }
 
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("project", project);
@@ -1292,7 +2221,6 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         result.put("contentType", Objects.toString(binary.get("contentType"), "application/zip"));
         result.put("bytes", bytes.length);
         result.put("downloadedAt", OffsetDateTime.now().toString());
-        if (savedTo != null) result.put("savedToPath", savedTo);
 
         boolean includeB64 = parseBool(args.get("base64"));
         if (includeB64) {
@@ -1311,6 +2239,83 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return doneResult(args, result);
     }
 
+    /**
+     * download_zip con outputPath: descarga reanudable a disco ({@link ResumableZipDownload}); al completar se
+     * lista el directorio central y se extraen opcionalmente las entradas que coinciden con 'entries'.
+     */
+    private Map<String, Object> downloadZipToDisk(Map<String, Object> args,
+                                                  String project,
+                                                  String repo,
+                                                  String scopePath,
+                                                  Map<String, String> q) throws Exception {
+        Path out = Path.of(str(args, "outputPath")).toAbsolutePath().normalize();
+        String apiVersion = itemsApiVersion(args);
+        String sourceKey = String.join("|", project, repo, scopePath, str(args, "version"), str(args, "versionType"), str(args, "zipForUnix"));
+        Predicate<String> entryFilter = ResumableZipDownload.entryFilter(str(args, "entries"));
+        int maxEntries = str(args, "maxEntries").isBlank() ? DEFAULT_ZIP_MANIFEST_ENTRIES : Math.min(HARD_ZIP_MANIFEST_ENTRIES, Math.max(0, asInt(args.get("maxEntries"), 0)));
+        long maxWaitMs = Math.min(HARD_ZIP_MAX_WAIT_MS, Math.max(1_000L, str(args, "maxWaitMs").isBlank() ? DEFAULT_ZIP_MAX_WAIT_MS : asInt(args.get("maxWaitMs"), 0)));
+
+        ResumableZipDownload.Outcome outcome;
+        try {
+            outcome = ResumableZipDownload.shared().fetch(out, sourceKey, maxWaitMs,
+                    (part, resumeFrom, etag) -> azureService.downloadGitBinaryToFile(project, "repositories/" + repo + "/items", q, apiVersion, part, resumeFrom, etag));
+        } catch (RejectedExecutionException e) {
+            return error("Hay demasiadas descargas en cola; intente de nuevo en unos segundos. " + e.getMessage());
+        }
+        if (outcome.pending()) {
+            Map<String, Object> pending = new LinkedHashMap<>();
+            pending.put("project", project);
+            pending.put("repositoryId", repo);
+            pending.put("scopePath", scopePath);
+            pending.put("status", "downloading");
+            pending.put("partPath", outcome.part().toString());
+            pending.put("partBytes", outcome.partBytes());
+            if (outcome.queuePosition() > 0) {
+                pending.put("queued", true);
+                pending.put("queuePosition", outcome.queuePosition());
+                pending.put("estimatedWaitMs", outcome.estimatedWaitMs());
+            }
+            pending.put("message", "La descarga sigue en cola o en curso; vuelva a llamar con el mismo outputPath para esperar o reanudar.");
+            return doneResult(args, pending);
+        }
+        if (outcome.failure() != null) return error("Error descargando zip: " + outcome.failure());
+
+        Map<String, Object> download = outcome.download();
+        String err = tryFormatRemoteError(download);
+        if (err == null && download.get("error") != null) err = download.get("error").toString();
+        if (err != null) {
+            long partBytes = outcome.partBytes();
+            return error("Error descargando zip: " + err + (partBytes > 0 ? " (se conservan " + partBytes + " bytes en " + outcome.part() + "; reintente para reanudar)" : ""));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("project", project);
+        result.put("repositoryId", repo);
+        result.put("scopePath", scopePath);
+        result.put("status", "completed");
+        result.put("contentType", Objects.toString(download.get("contentType"), "application/zip"));
+        result.put("bytes", Files.size(out));
+        result.put("bytesTransferred", download.get("bytesTransferred"));
+        result.put("resumed", Boolean.TRUE.equals(download.get("resumed")));
+        if (outcome.joined()) result.put("joinedInFlightDownload", true);
+        result.put("downloadedAt", OffsetDateTime.now().toString());
+        result.put("savedToPath", out.toString());
+
+        try {
+            Path extractTo = str(args, "extractTo").isBlank() ? null : Path.of(str(args, "extractTo")).toAbsolutePath().normalize();
+            String warning = ResumableZipDownload.describe(result, out, maxEntries, entryFilter, extractTo, DEFAULT_ZIP_MAX_EXTRACT_BYTES);
+            if (warning != null) appendWarning(result, warning);
+        } catch (java.util.zip.ZipException e) {
+            return error("El archivo descargado no es un ZIP válido: " + e.getMessage());
+        }
+
+        if (parseBool(args.get("base64"))) {
+            String warning = ResumableZipDownload.putBase64(result, out, parseInt(args.get("maxBase64Chars")), HARD_ZIP_BASE64_BYTES);
+            if (warning != null) appendWarning(result, warning);
+        }
+        return doneResult(args, result);
+    }
+
     private Map<String, Object> opRepoToPipelines(Map<String, Object> args) {
         String project = requireProject(args, "repo_to_pipelines");
         String repoId = resolveRepositoryId(project, args, "repo_to_pipelines");
@@ -1496,6 +2501,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             throw new IllegalArgumentException("Debe indicar 'repositoryId' o 'repositoryName' para " + op);
         }
 
+        String cached = REPO_DIRECTORY.lookupId(project, name);
+        if (cached != null) return cached;
+
         Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + name, baseQuery(args), apiVersion(args));
         String err = tryFormatRemoteError(resp);
         if (err != null) {
@@ -1506,6 +2514,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (resolved.isBlank()) {
             throw new IllegalArgumentException("No se encontró ID para repositoryName='" + name + "'");
         }
+        REPO_DIRECTORY.put(project, resp);
         return resolved;
     }
 
@@ -1772,7 +2781,161 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return "";
     }
 
+    /**
+     * Árbol del repositorio para la versión pedida. Con {@code useTreeCache} (default) el árbol se toma del
+     * cache compartido: si la rama no se movió se reutiliza, si avanzó se parchea con el diff entre el commit
+     * cacheado y el nuevo head, y sólo si no hay snapshot o el diff es muy grande se lista completo.
+     */
     private Map<String, Object> collectRepositoryItems(String project, String repo, Map<String, Object> args) {
+        if (!useTreeCache(args)) return listRepositoryItems(project, repo, args);
+
+        String key = treeCacheKey(project, repo, args);
+        RepositoryTreeCache.Snapshot cached = TREE_CACHE.get(key);
+        if (TREE_CACHE.recentlyChecked(cached)) {
+            TREE_CACHE.recordHit();
+            return snapshotResult(cached, "hit", null);
+        }
+
+        String head = resolveSearchCommit(project, repo, args);
+        if (head.isBlank()) {
+            Map<String, Object> out = listRepositoryItems(project, repo, args);
+            appendWarning(out, "No se pudo resolver el commit de la versión solicitada; el árbol no se cacheó.");
+            return out;
+        }
+        if (cached != null && head.equals(cached.commitId())) {
+            return snapshotResult(TREE_CACHE.confirm(key, cached), "hit", null);
+        }
+
+        String fallbackReason = null;
+        if (cached != null) {
+            TreeDiff diff = fetchTreeDiff(project, repo, cached.commitId(), head, args);
+            if (diff.error() == null) {
+                CompactTree patched = cached.tree().patch(effectiveScopePath(args), diff.removed(), diff.upserts(), head);
+                RepositoryTreeCache.Snapshot next = TREE_CACHE.putIncremental(key, cached, head, patched, diff.changedPaths());
+                return snapshotResult(next, "incremental", null);
+            }
+            fallbackReason = diff.error();
+        }
+
+        Map<String, Object> listed = listRepositoryItems(project, repo, pinToCommit(args, head));
+        if (tryFormatRemoteError(listed) != null) return listed;
+        RepositoryTreeCache.Snapshot stored = TREE_CACHE.putFull(key, head, collectedTree(listed), Objects.toString(listed.get("strategy"), ""));
+        Map<String, Object> out = snapshotResult(stored, cached == null ? "miss" : "rebuilt", fallbackReason);
+        out.put("strategyFallback", listed.get("strategyFallback"));
+        copyWarnings(listed, out);
+        return out;
+    }
+
+    private boolean useTreeCache(Map<String, Object> args) {
+        if (!TREE_CACHE.enabled()) return false;
+        if (args.containsKey("useTreeCache") && !parseBool(args.get("useTreeCache"))) return false;
+        // El parcheo asume listado recursivo completo y no puede actualizar latestProcessedChange
+        String recursion = str(args, "recursionLevel");
+        if (!recursion.isBlank() && !"full".equalsIgnoreCase(recursion)) return false;
+        return !parseBool(args.get("latestProcessedChange"));
+    }
+
+    private String treeCacheKey(String project, String repo, Map<String, Object> args) {
+        return String.join("|",
+                project.toLowerCase(Locale.ROOT),
+                repo.toLowerCase(Locale.ROOT),
+                effectiveScopePath(args).toLowerCase(Locale.ROOT),
+                str(args, "version"),
+                str(args, "versionType").toLowerCase(Locale.ROOT),
+                str(args, "versionOptions").toLowerCase(Locale.ROOT),
+                String.valueOf(!args.containsKey("includeContentMetadata") || parseBool(args.get("includeContentMetadata"))),
+                String.valueOf(parseBool(args.get("recursive"))));
+    }
+
+    private Map<String, Object> snapshotResult(RepositoryTreeCache.Snapshot snapshot, String status, String fallbackReason) {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("status", status);
+        cache.put("commitId", snapshot.commitId());
+        if ("incremental".equals(status)) {
+            cache.put("baseCommitId", snapshot.baseCommitId());
+            cache.put("changedPaths", snapshot.changedPaths().size());
+        }
+        if (fallbackReason != null) cache.put("fallbackReason", fallbackReason);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("strategy", snapshot.strategy());
+        out.put("strategyFallback", "trees_get".equals(snapshot.strategy()));
+        out.put("tree", snapshot.tree());
+        out.put("commitId", snapshot.commitId());
+        if ("incremental".equals(status)) out.put("baseCommitId", snapshot.baseCommitId());
+        out.put("snapshot", snapshot);
+        out.put("treeCache", cache);
+        return out;
+    }
+
+    /**
+     * Cambios entre dos commits ({@code diffs/commits} sin base común, paginado). Las rutas borradas o
+     * renombradas van a {@code removed} y los items agregados/editados a {@code upserts}; con más de
+     * {@code MCP_GIT_TREE_INCREMENTAL_MAX_CHANGES} cambios se reporta error para forzar un listado completo.
+     */
+    private TreeDiff fetchTreeDiff(String project, String repo, String baseCommit, String targetCommit, Map<String, Object> args) {
+        int maxChanges = TREE_CACHE.maxIncrementalChanges();
+        if (maxChanges <= 0) return TreeDiff.failed("Actualización incremental desactivada");
+
+        List<String> removed = new ArrayList<>();
+        List<Map<String, Object>> upserts = new ArrayList<>();
+        Set<String> changedPaths = new LinkedHashSet<>();
+        int skip = 0;
+        while (true) {
+            Map<String, String> q = new LinkedHashMap<>();
+            q.put("baseVersion", baseCommit);
+            q.put("baseVersionType", "commit");
+            q.put("targetVersion", targetCommit);
+            q.put("targetVersionType", "commit");
+            q.put("diffCommonCommit", "false");
+            q.put("$top", String.valueOf(DIFF_PAGE_SIZE));
+            q.put("$skip", String.valueOf(skip));
+            Map<String, Object> resp = azureService.getGitApiWithQuery(project, "repositories/" + repo + "/diffs/commits", q, apiVersion(args));
+            String err = tryFormatRemoteError(resp);
+            if (err != null) return TreeDiff.failed("diffs/commits falló: " + err);
+            if (skip == 0 && resp.get("changeCounts") instanceof Map<?, ?> counts) {
+                long total = 0;
+                for (Object c : counts.values()) total += asLong(c, 0L);
+                if (total > maxChanges) return TreeDiff.failed("El diff tiene " + total + " cambios (máximo incremental " + maxChanges + ")");
+            }
+
+            List<Map<String, Object>> changes = toObjectList(resp.get("changes"));
+            for (Map<String, Object> change : changes) {
+                Map<String, Object> item = toObjectMap(change.get("item"));
+                String path = normalizePath(itemPath(item));
+                if (path.isBlank()) continue;
+                String changeType = Objects.toString(change.get("changeType"), "").toLowerCase(Locale.ROOT);
+                changedPaths.add(path);
+                if (changeType.contains("rename")) {
+                    String source = normalizePath(Objects.toString(change.get("sourceServerItem"), ""));
+                    if (!source.isBlank() && !source.equalsIgnoreCase(path)) {
+                        removed.add(source);
+                        changedPaths.add(source);
+                    }
+                }
+                if (changeType.contains("delete")) {
+                    removed.add(path);
+                    continue;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                if (item.get("objectId") != null) row.put("objectId", item.get("objectId"));
+                if (item.get("gitObjectType") != null) row.put("gitObjectType", item.get("gitObjectType"));
+                row.put("commitId", targetCommit);
+                row.put("path", path);
+                row.put("isFolder", isDirectory(item));
+                if (item.get("url") != null) row.put("url", item.get("url"));
+                upserts.add(row);
+            }
+            if (changedPaths.size() > maxChanges) {
+                return TreeDiff.failed("El diff supera " + maxChanges + " cambios (máximo incremental)");
+            }
+            if (changes.size() < DIFF_PAGE_SIZE || Boolean.TRUE.equals(resp.get("allChangesIncluded"))) break;
+            skip += changes.size();
+        }
+        return new TreeDiff(removed, upserts, changedPaths, null);
+    }
+
+    private Map<String, Object> listRepositoryItems(String project, String repo, Map<String, Object> args) {
         String scopePath = effectiveScopePath(args);
         String recursion = str(args, "recursionLevel");
         if (recursion.isBlank()) recursion = "full";
@@ -1784,12 +2947,17 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             Map<String, Object> listResp = listItemsRaw(project, repo, args, recursion, scopePath);
             String listErr = tryFormatRemoteError(listResp);
             if (listErr == null) {
-                List<Map<String, Object>> items = extractItemsFromItemsResponse(listResp);
-                items = filterByScopePath(items, scopePath);
+                CompactTree.Builder tree = CompactTree.builder(scopePath);
+                Object value = listResp.get("value");
+                if (value instanceof List<?> list) {
+                    for (Object row : list) if (row instanceof Map<?, ?> item) tree.addItem(item);
+                } else if (listResp.containsKey("path")) {
+                    tree.addItem(listResp);
+                }
                 Map<String, Object> out = new LinkedHashMap<>();
                 out.put("strategy", "items_list");
                 out.put("strategyFallback", false);
-                out.put("items", dedupeByPath(items));
+                out.put("tree", tree.build());
                 return out;
             }
             warnings.add("items_list fallback a trees_get: " + listErr);
@@ -1813,13 +2981,15 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             throw new IllegalArgumentException("items_list_recursive fallback trees_get falló: " + treeErr);
         }
 
-        List<Map<String, Object>> items = normalizeTreeEntries(treeResp.get("treeEntries"));
-        items = filterByScopePath(items, scopePath);
+        CompactTree.Builder tree = CompactTree.builder(scopePath);
+        if (treeResp.get("treeEntries") instanceof List<?> entries) {
+            for (Object row : entries) if (row instanceof Map<?, ?> entry) tree.addTreeEntry(entry);
+        }
 
         Map<String, Object> out = new LinkedHashMap<>();
         out.put("strategy", "trees_get");
         out.put("strategyFallback", true);
-        out.put("items", dedupeByPath(items));
+        out.put("tree", tree.build());
         if (!warnings.isEmpty()) out.put("warnings", warnings);
         return out;
     }
@@ -1918,52 +3088,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return List.of();
     }
 
-    private List<Map<String, Object>> normalizeTreeEntries(Object entriesObj) {
-        if (!(entriesObj instanceof List<?> entries)) return List.of();
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (Object e : entries) {
-            if (!(e instanceof Map<?, ?> row)) continue;
-            String relative = Objects.toString(row.get("relativePath"), "").trim();
-            if (relative.isBlank()) continue;
-
-            String path = relative.startsWith("/") ? relative : "/" + relative;
-            String gitObjectType = Objects.toString(row.get("gitObjectType"), "");
-            boolean folder = "tree".equalsIgnoreCase(gitObjectType);
-
-            Map<String, Object> item = new LinkedHashMap<>();
-            item.put("path", path);
-            if (row.get("objectId") != null) item.put("objectId", row.get("objectId"));
-            if (!gitObjectType.isBlank()) item.put("gitObjectType", gitObjectType);
-            item.put("isFolder", folder);
-            if (row.get("url") != null) item.put("url", row.get("url"));
-            out.add(item);
-        }
-        return out;
-    }
-
-    private List<Map<String, Object>> filterByScopePath(List<Map<String, Object>> items, String scopePath) {
-        String scope = normalizePath(scopePath);
-        if (scope.isBlank() || "/".equals(scope)) return items;
-
-        List<Map<String, Object>> out = new ArrayList<>();
-        String prefix = scope.endsWith("/") ? scope : scope + "/";
-        for (Map<String, Object> item : items) {
-            String path = normalizePath(itemPath(item));
-            if (path.equals(scope) || path.startsWith(prefix)) out.add(item);
-        }
-        return out;
-    }
-
-    private List<Map<String, Object>> dedupeByPath(List<Map<String, Object>> rows) {
-        Set<String> seen = new LinkedHashSet<>();
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (Map<String, Object> row : rows) {
-            String path = normalizePath(itemPath(row));
-            if (path.isBlank()) continue;
-            if (!seen.add(path.toLowerCase(Locale.ROOT))) continue;
-            out.add(row);
-        }
-        return out;
+    /**
+     * Árbol columnar que dejó collectRepositoryItems (ya filtrado por scopePath y sin rutas repetidas).
+     */
+    private CompactTree collectedTree(Map<String, Object> collected) {
+        return collected.get("tree") instanceof CompactTree tree ? tree : CompactTree.empty();
     }
 
     private String effectiveScopePath(Map<String, Object> args) {
@@ -1988,32 +3117,36 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return Objects.toString(item.get("relativePath"), "").trim();
     }
 
-    private Map<String, Object> fileResultRow(Map<String, Object> item) {
+    private Map<String, Object> fileResultRow(CompactTree tree, int i) {
         Map<String, Object> row = new LinkedHashMap<>();
-        row.put("path", normalizePath(itemPath(item)));
-        if (item.get("objectId") != null) row.put("objectId", item.get("objectId"));
-        if (item.get("url") != null) row.put("url", item.get("url"));
-        String type = isDirectory(item) ? "tree" : "blob";
-        row.put("type", type);
+        row.put("path", tree.path(i));
+        String objectId = tree.objectId(i);
+        if (!objectId.isBlank()) row.put("objectId", objectId);
+        String url = tree.url(i);
+        if (!url.isBlank()) row.put("url", url);
+        row.put("type", tree.isFolder(i) ? "tree" : "blob");
         return row;
     }
 
-    private List<Map<String, Object>> summarizeItems(List<Map<String, Object>> items) {
-        List<Map<String, Object>> rows = new ArrayList<>();
-        for (Map<String, Object> item : items) {
-            rows.add(fileResultRow(item));
-        }
-        return rows;
+    private Map<String, Object> paginateRows(Map<String, Object> args,
+                                             String project,
+                                             String repo,
+                                             List<Map<String, Object>> rows,
+                                             Map<String, Object> source) {
+        return paginateRows(args, project, repo, rows.size(), rows::get, source);
     }
 
+    /**
+     * Pagina {@code total} filas materializando sólo las de la página devuelta.
+     */
     private Map<String, Object> paginateRows(Map<String, Object> args,
                                              String project,
                                              String repo,
-                                             List<Map<String, Object>> rows,
+                                             int total,
+                                             IntFunction<Map<String, Object>> rowAt,
                                              Map<String, Object> source) {
         int skip = parseSkip(args.get("skip"));
         Integer top = parseTop(args.get("top"));
-        int total = rows.size();
         int from = Math.min(skip, total);
         int to = top == null ? total : Math.min(total, from + top);
 
@@ -2025,7 +3158,10 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         out.put("skip", skip);
         if (top != null) out.put("top", top);
         out.put("hasMore", to < total);
-        out.put("value", new ArrayList<>(rows.subList(from, to)));
+        List<Map<String, Object>> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) page.add(rowAt.apply(i));
+        out.put("value", page);
+        if (source != null && source.get("treeCache") != null) out.put("treeCache", source.get("treeCache"));
         copyWarnings(source, out);
         return out;
     }
@@ -2080,97 +3216,116 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return out;
     }
 
-    private FileFilters resolveFileFilters(Map<String, Object> args) {
+    private PathMatcher resolveFileFilters(Map<String, Object> args) {
         String filePattern = str(args, "filePattern");
         String pathRegex = str(args, "pathRegex");
         String extensions = str(args, "extensions");
 
-        Pattern globPattern = null;
-        if (!filePattern.isBlank()) {
-            globPattern = compileGlobPattern(filePattern);
-        }
+        PathMatcher.Builder matcher = PathMatcher.builder();
+        if (!filePattern.isBlank()) matcher.include(filePattern);
+        for (String glob : PathMatcher.globList(str(args, "includeGlobs"), "includeGlobs")) matcher.include(glob);
+        for (String glob : PathMatcher.globList(str(args, "excludeGlobs"), "excludeGlobs")) matcher.exclude(glob);
 
-        Pattern regexPattern = null;
         if (!pathRegex.isBlank()) {
             try {
-                regexPattern = Pattern.compile(pathRegex);
+                matcher.regex(PathMatcher.regex(pathRegex));
             } catch (PatternSyntaxException e) {
                 throw new IllegalArgumentException("'pathRegex' inválido: " + e.getMessage());
             }
         }
 
-        Set<String> extSet = new LinkedHashSet<>();
         if (!extensions.isBlank()) {
-            for (String part : extensions.split(",")) {
-                if (part == null) continue;
-                String ext = part.trim().toLowerCase(Locale.ROOT);
-                if (ext.startsWith(".")) ext = ext.substring(1);
-                if (!ext.isBlank()) extSet.add(ext);
-            }
+            for (String part : extensions.split(",")) matcher.extension(part);
         }
-        return new FileFilters(globPattern, regexPattern, extSet);
+        return matcher.build();
     }
 
-    private boolean matchesFileFilters(Map<String, Object> item, Map<String, Object> args) {
-        FileFilters filters = resolveFileFilters(args);
-        return matchesFileFilters(item, filters);
+    private Pattern compileGlobPattern(String glob) {
+        String g = glob.trim();
+        if (g.isBlank()) throw new IllegalArgumentException("'filePattern' no puede estar vacío");
+        return PathMatcher.glob(g);
     }
 
-    private boolean matchesFileFilters(Map<String, Object> item, FileFilters filters) {
-        String path = normalizePath(itemPath(item));
-        if (path.isBlank()) return false;
-
-        if (filters.globPattern() != null && !filters.globPattern().matcher(path).matches()) return false;
-        if (filters.regexPattern() != null && !filters.regexPattern().matcher(path).find()) return false;
-
-        if (!filters.extensions().isEmpty()) {
-            String ext = extensionOf(path);
-            if (ext.isBlank() || !filters.extensions().contains(ext.toLowerCase(Locale.ROOT))) return false;
+    private ContentMatcher compileContentMatcher(List<String> patterns, boolean regex, boolean caseSensitive) {
+        try {
+            return ContentMatcher.compile(patterns, regex, caseSensitive);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("'textPattern' inválido: " + e.getMessage());
         }
-        return true;
     }
 
-    private Pattern compileGlobPattern(String glob) {
-        String g = glob.trim();
-        if (g.isBlank()) throw new IllegalArgumentException("'filePattern' no puede estar vacío");
+    private List<String> resolveTextPatterns(Map<String, Object> args) {
+        LinkedHashSet<String> patterns = new LinkedHashSet<>();
+        String single = str(args, "textPattern");
+        if (!single.isBlank()) patterns.add(single);
 
-        StringBuilder regex = new StringBuilder();
-        regex.append("^");
-        for (int i = 0; i < g.length(); i++) {
-            char c = g.charAt(i);
-            if (c == '*') {
-                boolean dbl = (i + 1) < g.length() && g.charAt(i + 1) == '*';
-                if (dbl) {
-                    regex.append(".*");
-                    i++;
-                } else {
-                    regex.append("[^/]*");
-                }
-                continue;
+        Object raw = args.get("textPatterns");
+        List<?> many = null;
+        if (raw instanceof List<?> list) {
+            many = list;
+        } else if (raw != null && !str(args, "textPatterns").isBlank()) {
+            try {
+                many = JSON.readValue(str(args, "textPatterns"), List.class);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("'textPatterns' debe ser un arreglo JSON de strings: " + e.getMessage());
             }
-            if (c == '?') {
-                regex.append(".");
-                continue;
+        }
+        if (many != null) {
+            for (Object o : many) {
+                String p = o == null ? "" : o.toString().trim();
+                if (!p.isBlank()) patterns.add(p);
             }
-            if ("\\.[]{}()+-^$|".indexOf(c) >= 0) regex.append('\\');
-            regex.append(c);
         }
-        regex.append("$");
-        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+
+        if (patterns.isEmpty()) throw new IllegalArgumentException("'textPattern' o 'textPatterns' es requerido para search_content");
+        if (patterns.size() > HARD_SEARCH_MAX_PATTERNS) {
+            throw new IllegalArgumentException("'textPatterns' admite como máximo " + HARD_SEARCH_MAX_PATTERNS + " patrones");
+        }
+        return new ArrayList<>(patterns);
     }
 
-    private Pattern compileSearchPattern(String pattern, boolean regex, boolean caseSensitive) {
-        int flags = Pattern.MULTILINE;
-        if (!caseSensitive) {
-            flags |= Pattern.CASE_INSENSITIVE;
-            flags |= Pattern.UNICODE_CASE;
+    private List<Map<String, Object>> matchRows(String text,
+                                                List<ContentMatcher.Match> found,
+                                                List<String> patterns,
+                                                int maxChars,
+                                                int contextLines) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (ContentMatcher.Match m : found) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("line", m.line());
+            row.put("column", m.column());
+            row.put("matchIndex", m.start());
+            row.put("matchLength", m.end() - m.start());
+            if (patterns.size() > 1) row.put("pattern", patterns.get(m.patternIndex()));
+            if (contextLines > 0) row.put("before", truncateLines(ContentMatcher.linesBefore(text, m.start(), contextLines), maxChars));
+            row.put("lineText", lineTextAround(text, m, maxChars));
+            if (contextLines > 0) row.put("after", truncateLines(ContentMatcher.linesAfter(text, m.start(), contextLines), maxChars));
+            rows.add(row);
         }
-        String expression = regex ? pattern : Pattern.quote(pattern);
-        try {
-            return Pattern.compile(expression, flags);
-        } catch (PatternSyntaxException e) {
-            throw new IllegalArgumentException("'textPattern' inválido: " + e.getMessage());
+        return rows;
+    }
+
+    private List<String> truncateLines(List<String> lines, int maxChars) {
+        List<String> out = new ArrayList<>(lines.size());
+        for (String line : lines) out.add(truncate(line, maxChars));
+        return out;
+    }
+
+    private String resolveSearchOrder(Map<String, Object> args) {
+        String orderBy = str(args, "orderBy").toLowerCase(Locale.ROOT);
+        if (orderBy.isBlank()) return SEARCH_ORDER_SCAN;
+        if (!SEARCH_ORDER_SCAN.equals(orderBy) && !SEARCH_ORDER_RELEVANCE.equals(orderBy)) {
+            throw new IllegalArgumentException("'orderBy' debe ser 'scan' o 'relevance'");
         }
+        return orderBy;
+    }
+
+    private String lineTextAround(String text, ContentMatcher.Match m, int maxChars) {
+        String line = ContentMatcher.lineAt(text, m.start());
+        if (line.length() <= maxChars) return line;
+        // Líneas muy largas (minificados): ventana centrada en la coincidencia
+        int from = Math.max(0, Math.min(m.column() - 1 - maxChars / 2, line.length() - maxChars));
+        return line.substring(from, from + maxChars);
     }
 
     private LimitSettings resolveLimits(Map<String, Object> args) {
@@ -2302,6 +3457,30 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             clampedBudget = true;
         }
 
+        int maxMatchesPerFile = DEFAULT_SEARCH_MAX_MATCHES_PER_FILE;
+        boolean clampedMatchesPerFile = false;
+        if (args.containsKey("maxMatchesPerFile") && !str(args, "maxMatchesPerFile").isBlank()) {
+            Integer v = parseInt(args.get("maxMatchesPerFile"));
+            if (v == null || v < 1) throw new IllegalArgumentException("'maxMatchesPerFile' debe ser entero >= 1");
+            maxMatchesPerFile = v;
+        }
+        if (maxMatchesPerFile > HARD_SEARCH_MAX_MATCHES_PER_FILE) {
+            maxMatchesPerFile = HARD_SEARCH_MAX_MATCHES_PER_FILE;
+            clampedMatchesPerFile = true;
+        }
+
+        int contextLines = 0;
+        boolean clampedContextLines = false;
+        if (args.containsKey("contextLines") && !str(args, "contextLines").isBlank()) {
+            Integer v = parseInt(args.get("contextLines"));
+            if (v == null || v < 0) throw new IllegalArgumentException("'contextLines' debe ser entero >= 0");
+            contextLines = v;
+        }
+        if (contextLines > HARD_SEARCH_CONTEXT_LINES) {
+            contextLines = HARD_SEARCH_CONTEXT_LINES;
+            clampedContextLines = true;
+        }
+
         int maxPreviewChars = Math.max(DEFAULT_SEARCH_MAX_PREVIEW_CHARS, maxSnippetChars);
         if (maxPreviewChars > HARD_SEARCH_MAX_PREVIEW_CHARS) maxPreviewChars = HARD_SEARCH_MAX_PREVIEW_CHARS;
 
@@ -2316,7 +3495,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 clampedSnippet,
                 customBudget,
                 clampedBudget,
-                paginationRequirementClamped);
+                paginationRequirementClamped,
+                maxMatchesPerFile,
+                clampedMatchesPerFile,
+                contextLines,
+                clampedContextLines);
     }
 
     private void addSearchRuntimeWarnings(Map<String, Object> result,
@@ -2339,6 +3522,12 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         if (runtime.clampedBudget()) {
             warnings.add("'scanBudgetMs' excedía límite duro; se ajustó a " + HARD_SEARCH_SCAN_BUDGET_MS + " ms.");
         }
+        if (runtime.clampedMatchesPerFile()) {
+            warnings.add("'maxMatchesPerFile' excedía límite duro; se ajustó a " + HARD_SEARCH_MAX_MATCHES_PER_FILE + ".");
+        }
+        if (runtime.clampedContextLines()) {
+            warnings.add("'contextLines' excedía límite duro; se ajustó a " + HARD_SEARCH_CONTEXT_LINES + ".");
+        }
         if (stoppedByBudget) {
             warnings.add("Escaneo detenido por presupuesto de tiempo (scanBudgetMs=" + runtime.scanBudgetMs() + ").");
         }
@@ -2350,12 +3539,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
 
     private ContentRead readFileText(String project,
                                      String repo,
-                                     Map<String, Object> itemHint,
+                                     String hintedObjectId,
                                      String path,
                                      int maxBytes,
                                      Map<String, Object> args) {
-        String hintedObjectId = extractObjectId(itemHint);
-        if (!hintedObjectId.isBlank()) {
+        if (hintedObjectId != null && !hintedObjectId.isBlank()) {
             ContentRead fromHint = readBlobText(project, repo, hintedObjectId, maxBytes, args);
             if (fromHint.readable()) return fromHint;
         }
@@ -2467,15 +3655,6 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         return p;
     }
 
-    private String extensionOf(String path) {
-        if (path == null || path.isBlank()) return "";
-        int slash = path.lastIndexOf('/');
-        int dot = path.lastIndexOf('.');
-        if (dot < 0 || dot < slash) return "";
-        if (dot == path.length() - 1) return "";
-        return path.substring(dot + 1);
-    }
-
     private boolean isKeyFile(String normalizedLowerPath) {
         return normalizedLowerPath.endsWith("/application.conf")
                 || normalizedLowerPath.endsWith("/application.properties")
@@ -2490,7 +3669,6 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 || normalizedLowerPath.endsWith("/readme.md");
     }
 
-    private record FileFilters(Pattern globPattern, Pattern regexPattern, Set<String> extensions) {}
 
     private record WindowRequest(int offset, int limit, long maxWaitMs) {}
 
@@ -2509,7 +3687,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                                      long fileBytes,
                                      Instant lastPreparedAt,
                                      Instant downloadStartedAt,
-                                     long elapsedMs) {}
+                                     long elapsedMs,
+                                     int queuePosition,
+                                     long estimatedWaitMs) {}
 
     private record LimitSettings(int maxFiles,
                                  int maxBytesPerFile,
@@ -2529,10 +3709,22 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                                          boolean clampedSnippet,
                                          boolean customBudget,
                                          boolean clampedBudget,
-                                         boolean paginationRequirementClamped) {}
+                                         boolean paginationRequirementClamped,
+                                         int maxMatchesPerFile,
+                                         boolean clampedMatchesPerFile,
+                                         int contextLines,
+                                         boolean clampedContextLines) {}
 
     private record ContentRead(boolean readable, String text, String source, boolean truncated) {}
 
+    private record SearchIndexPlan(Map<String, Object> info, TrigramIndex.Candidates candidates) {}
+
+    private record TreeDiff(List<String> removed, List<Map<String, Object>> upserts, Set<String> changedPaths, String error) {
+        static TreeDiff failed(String error) {
+            return new TreeDiff(List.of(), List.of(), Set.of(), error);
+        }
+    }
+
     private record TruncatedText(String text, boolean truncated) {}
 
     private record RepoCandidate(Map<String, Object> repository,
@@ -2550,12 +3742,26 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         private final long maxCacheBytes;
         private final long maxFileBytes;
         private final long minFreeDiskBytes;
-        private final int maxConcurrentDownloads;
         private final long ttlMillis;
-        private final long maxInProgressBytes;
+        private final long queuedIdleMillis;
+        private final long evictIntervalMillis;
+        private final long evictTargetBytes;
+        private final long prefetchMaxChars;
+        private final long prefetchMaxTotalChars;
         private final AtomicBoolean startupCleanupDone = new AtomicBoolean(false);
-        private final ExecutorService executor;
+        private final DownloadScheduler scheduler;
+        private final ExecutorService prefetcher;
+        private final ScheduledExecutorService evictor;
         private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+        private final AtomicLong readyBytes = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictedFiles = new AtomicLong();
+        private final AtomicLong evictedBytes = new AtomicLong();
+        private final AtomicLong abandonedDownloads = new AtomicLong();
+        private final AtomicLong prefetchHits = new AtomicLong();
+        private final AtomicLong prefetchedChars = new AtomicLong();
+        private volatile Instant lastEvictionAt;
 
         private WindowFileCache() {
             this.rootDir = Path.of(System.getenv().getOrDefault("MCP_TEXT_CACHE_ROOT", "/tmp/mcp-text-window-cache"))
@@ -2563,15 +3769,61 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             this.maxCacheBytes = envLong("MCP_TEXT_CACHE_MAX_BYTES", 20L * 1024L * 1024L * 1024L);
             this.maxFileBytes = envLong("MCP_TEXT_CACHE_MAX_FILE_BYTES", 512L * 1024L * 1024L);
             this.minFreeDiskBytes = envLong("MCP_TEXT_CACHE_MIN_FREE_BYTES", 5L * 1024L * 1024L * 1024L);
-            this.maxConcurrentDownloads = (int) Math.max(1L, envLong("MCP_TEXT_CACHE_MAX_CONCURRENT", 2L));
             this.ttlMillis = envLong("MCP_TEXT_CACHE_TTL_MS", Duration.ofMinutes(30).toMillis());
-            this.maxInProgressBytes = envLong("MCP_TEXT_CACHE_MAX_IN_PROGRESS_BYTES", 4L * 1024L * 1024L * 1024L);
-            this.executor = Executors.newFixedThreadPool(this.maxConcurrentDownloads, r -> {
+            // Una descarga en cola sigue ahí mientras alguien la consulte; debe superar la espera máxima de una llamada
+            this.queuedIdleMillis = Math.max(2L * HARD_WINDOW_MAX_WAIT_MS,
+                    envLong("MCP_TEXT_CACHE_QUEUED_IDLE_MS", Duration.ofMinutes(2).toMillis()));
+            this.evictIntervalMillis = envLong("MCP_TEXT_CACHE_EVICT_INTERVAL_MS", Duration.ofMinutes(1).toMillis());
+            long targetPct = Math.min(100L, envLong("MCP_TEXT_CACHE_EVICT_TARGET_PCT", 90L));
+            this.evictTargetBytes = this.maxCacheBytes / 100L * targetPct;
+            this.prefetchMaxChars = envLong("MCP_TEXT_CACHE_PREFETCH_MAX_CHARS", 8L * 1024L * 1024L);
+            this.prefetchMaxTotalChars = envLong("MCP_TEXT_CACHE_PREFETCH_MAX_TOTAL_CHARS", 128L * 1024L * 1024L);
+            this.scheduler = DownloadScheduler.shared();
+            this.prefetcher = Executors.newFixedThreadPool(2, r -> {
                 Thread t = new Thread(r);
-                t.setName("git-text-window-cache");
+                t.setName("git-text-window-prefetch");
                 t.setDaemon(true);
                 return t;
             });
+            this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setName("git-text-window-cache-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        private Map<String, Object> stats() {
+            int ready = 0;
+            int downloading = 0;
+            int failed = 0;
+            for (CacheEntry e : entries.values()) {
+                if (e.status == EntryStatus.READY) ready++;
+                else if (e.status == EntryStatus.DOWNLOADING) downloading++;
+                else if (e.status == EntryStatus.FAILED) failed++;
+            }
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("rootDir", rootDir.toString());
+            out.put("entries", entries.size());
+            out.put("readyEntries", ready);
+            out.put("downloadingEntries", downloading);
+            out.put("failedEntries", failed);
+            out.put("cacheBytes", readyBytes.get());
+            out.put("maxCacheBytes", maxCacheBytes);
+            out.put("evictTargetBytes", evictTargetBytes);
+            out.put("maxFileBytes", maxFileBytes);
+            out.put("ttlMs", ttlMillis);
+            out.put("queuedIdleMs", queuedIdleMillis);
+            out.put("evictIntervalMs", evictIntervalMillis);
+            out.put("hits", hits.get());
+            out.put("misses", misses.get());
+            out.put("prefetchHits", prefetchHits.get());
+            out.put("prefetchedChars", prefetchedChars.get());
+            out.put("evictedFiles", evictedFiles.get());
+            out.put("evictedBytes", evictedBytes.get());
+            out.put("abandonedDownloads", abandonedDownloads.get());
+            out.put("lastEvictionAt", lastEvictionAt == null ? null : lastEvictionAt.toString());
+            return out;
         }
 
         private Path rootDir() {
@@ -2584,52 +3836,89 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                                         int offset,
                                         int limit,
                                         long maxWaitMs,
+                                        long expectedBytes,
                                         DownloadTask downloadTask) {
             ensureInitialized();
-            evictExpired();
 
             CacheEntry entry = entries.computeIfAbsent(cacheKey, key -> new CacheEntry(key, filePathForKey(key)));
 
             synchronized (entry) {
                 entry.lastAccessAt = Instant.now();
                 if (entry.status == EntryStatus.READY && Files.exists(entry.filePath)) {
+                    hits.incrementAndGet();
                     return readReady(entry, offset, limit);
                 }
-
-                if (entry.status == EntryStatus.DOWNLOADING && entry.downloadFuture != null && !entry.downloadFuture.isDone()) {
-                    return awaitOrWarmup(entry, offset, limit, maxWaitMs);
+                if (entry.status == EntryStatus.READY) {
+                    releaseEntry(entry);
                 }
 
-                if (entry.status == EntryStatus.FAILED && entry.lastError != null && !entry.lastError.isBlank()) {
-                    return failed(entry.lastErrorCode, entry.lastError, entry.downloadStartedAt, entry.lastDownloadBytes);
+                boolean inProgress = entry.status == EntryStatus.DOWNLOADING && entry.downloadFuture != null && !entry.downloadFuture.isDone();
+                if (!inProgress) {
+                    if (entry.status == EntryStatus.FAILED && entry.lastError != null && !entry.lastError.isBlank()) {
+                        return failed(entry.lastErrorCode, entry.lastError, entry.downloadStartedAt, entry.lastDownloadBytes);
+                    }
+
+                    WindowFetchResult rejected = startDownloadLocked(entry, expectedBytes, downloadTask);
+                    if (rejected != null) return rejected;
                 }
+            }
+
+            // La espera se hace fuera del lock para que la descarga pueda confirmar el archivo.
+            return awaitOrWarmup(entry, offset, limit, maxWaitMs);
+        }
+
+        /**
+         * Inicia la preparación del archivo sin esperar resultado. Retorna el estado del cache para esa key.
+         */
+        private String prepare(String cacheKey, long expectedBytes, DownloadTask downloadTask) {
+            ensureInitialized();
 
-                if (!hasDownloadSlot()) {
-                    return failed(CODE_TOO_MANY_IN_PROGRESS,
-                            "Hay demasiadas descargas en curso para preparar lecturas por líneas. Intente de nuevo en unos segundos.",
-                            entry.downloadStartedAt,
-                            entry.lastDownloadBytes);
+            CacheEntry entry = entries.computeIfAbsent(cacheKey, key -> new CacheEntry(key, filePathForKey(key)));
+            synchronized (entry) {
+                entry.lastAccessAt = Instant.now();
+                if (entry.status == EntryStatus.READY && Files.exists(entry.filePath)) return WINDOW_STATUS_READY;
+                if (entry.status == EntryStatus.READY) releaseEntry(entry);
+                if (entry.status == EntryStatus.DOWNLOADING && entry.downloadFuture != null && !entry.downloadFuture.isDone()) {
+                    return WINDOW_STATUS_WARMING_UP;
                 }
+                if (entry.status == EntryStatus.FAILED) return WINDOW_STATUS_FAILED;
+                return startDownloadLocked(entry, expectedBytes, downloadTask) == null ? WINDOW_STATUS_WARMING_UP : "skipped";
+            }
+        }
 
-                String quotaError = validateQuotaBeforeDownload();
-                if (quotaError != null) {
-                    String code = quotaError.startsWith(CODE_DISK_SPACE_LOW + ":") ? CODE_DISK_SPACE_LOW : CODE_CACHE_QUOTA_EXCEEDED;
-                    String message = quotaError;
-                    if (code.equals(CODE_DISK_SPACE_LOW)) {
-                        message = quotaError.substring((CODE_DISK_SPACE_LOW + ":").length()).trim();
-                    }
-                    return failed(code, message, entry.downloadStartedAt, entry.lastDownloadBytes);
+        private WindowFetchResult startDownloadLocked(CacheEntry entry, long expectedBytes, DownloadTask downloadTask) {
+            String quotaError = validateQuotaBeforeDownload();
+            if (quotaError != null) {
+                String code = quotaError.startsWith(CODE_DISK_SPACE_LOW + ":") ? CODE_DISK_SPACE_LOW : CODE_CACHE_QUOTA_EXCEEDED;
+                String message = quotaError;
+                if (code.equals(CODE_DISK_SPACE_LOW)) {
+                    message = quotaError.substring((CODE_DISK_SPACE_LOW + ":").length()).trim();
                 }
+                return failed(code, message, entry.downloadStartedAt, entry.lastDownloadBytes);
+            }
 
-                entry.status = EntryStatus.DOWNLOADING;
-                entry.lastError = "";
-                entry.lastErrorCode = "";
-                entry.downloadStartedAt = Instant.now();
-                entry.lastDownloadBytes = 0L;
-                entry.downloadFuture = executor.submit(() -> runDownload(entry, downloadTask));
+            DownloadScheduler.Ticket<Long> ticket;
+            try {
+                ticket = scheduler.submit(McpSessionContext.currentSessionId(), expectedBytes, () -> {
+                    runDownload(entry, downloadTask);
+                    return entry.lastDownloadBytes;
+                }, Long::longValue);
+            } catch (RejectedExecutionException e) {
+                return failed(CODE_TOO_MANY_IN_PROGRESS,
+                        "Hay demasiadas descargas en cola para preparar lecturas por líneas. Intente de nuevo en unos segundos.",
+                        entry.downloadStartedAt,
+                        entry.lastDownloadBytes);
             }
 
-            return awaitOrWarmup(entry, offset, limit, maxWaitMs);
+            misses.incrementAndGet();
+            entry.status = EntryStatus.DOWNLOADING;
+            entry.lastError = "";
+            entry.lastErrorCode = "";
+            entry.downloadStartedAt = Instant.now();
+            entry.lastDownloadBytes = 0L;
+            entry.downloadTicket = ticket;
+            entry.downloadFuture = ticket.future();
+            return null;
         }
 
         private void runDownload(CacheEntry entry, DownloadTask downloadTask) {
@@ -2639,6 +3928,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 Files.deleteIfExists(tmp);
 
                 DownloadRunResult result = downloadTask.run(tmp, maxFileBytes);
+                LineIndex lineIndex = result.success() ? buildLineIndexQuietly(tmp) : null;
                 synchronized (entry) {
                     if (!result.success()) {
                         entry.status = EntryStatus.FAILED;
@@ -2667,22 +3957,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                         }
                         return;
                     }
-                    if (looksBinary(tmp)) {
-                        entry.status = EntryStatus.FAILED;
-                        entry.lastErrorCode = CODE_BINARY_NOT_SUPPORTED;
-                        entry.lastError = "El contenido descargado parece binario; este endpoint solo admite texto.";
-                        entry.lastDownloadBytes = fileBytes;
-                        try {
-                            Files.deleteIfExists(tmp);
-                        } catch (Exception ignored) {
-                            // best-effort
-                        }
-                        return;
-                    }
-
                     enforceQuotaBeforeCommit(fileBytes, entry.key);
                     Files.move(tmp, entry.filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
                     entry.fileBytes = fileBytes;
+                    entry.lineIndex = lineIndex;
+                    readyBytes.addAndGet(fileBytes);
                     entry.status = EntryStatus.READY;
                     entry.readyAt = Instant.now();
                     entry.lastPreparedAt = entry.readyAt;
@@ -2708,9 +3987,11 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         private WindowFetchResult awaitOrWarmup(CacheEntry entry, int offset, int limit, long maxWaitMs) {
             Future<?> f;
             Instant startedAt;
+            DownloadScheduler.Ticket<?> ticket;
             synchronized (entry) {
                 f = entry.downloadFuture;
                 startedAt = entry.downloadStartedAt;
+                ticket = entry.downloadTicket;
             }
 
             if (f == null) {
@@ -2721,7 +4002,13 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             try {
                 f.get(wait, TimeUnit.MILLISECONDS);
             } catch (java.util.concurrent.TimeoutException te) {
-                return warmingUp(startedAt);
+                return warmingUp(startedAt, ticket);
+            } catch (java.util.concurrent.CancellationException ce) {
+                // Retirada de la cola por inactividad (evictExpired); la entrada ya quedó lista para reintentar
+                return failed(CODE_TOO_MANY_IN_PROGRESS,
+                        "La descarga se retiró de la cola por inactividad. Intente de nuevo.",
+                        startedAt,
+                        0L);
             } catch (Exception e) {
                 synchronized (entry) {
                     entry.status = EntryStatus.FAILED;
@@ -2740,10 +4027,15 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
 
         private WindowFetchResult readReady(CacheEntry entry, int offset, int limit) {
             try {
-                WindowSlice slice = readLinesWindow(entry.filePath, offset, limit);
+                WindowSlice slice = takePrefetched(entry, offset, limit);
+                if (slice == null) {
+                    slice = readLinesWindow(entry.filePath, entry.lineIndex, offset, limit);
+                }
+                if (slice.hasMore()) {
+                    schedulePrefetch(entry, slice.lineEnd() + 1, limit);
+                }
                 long cacheBytes = computeTotalCacheBytes();
                 entry.lastAccessAt = Instant.now();
-                entry.fileBytes = safeFileSize(entry.filePath);
                 return new WindowFetchResult(
                         WINDOW_STATUS_READY,
                         "",
@@ -2756,9 +4048,12 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                         entry.fileBytes,
                         entry.lastPreparedAt == null ? Instant.now() : entry.lastPreparedAt,
                         entry.downloadStartedAt,
-                        elapsedMs(entry.downloadStartedAt)
+                        elapsedMs(entry.downloadStartedAt),
+                        0,
+                        0L
                 );
             } catch (Exception e) {
+                releaseEntry(entry);
                 entry.status = EntryStatus.FAILED;
                 entry.lastErrorCode = CODE_DOWNLOAD_FAILED;
                 entry.lastError = e.getMessage();
@@ -2766,6 +4061,130 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             }
         }
 
+        private WindowSlice takePrefetched(CacheEntry entry, int offset, int limit) {
+            PrefetchedWindow pf = entry.prefetched;
+            if (pf == null) return null;
+            entry.prefetched = null;
+            prefetchedChars.addAndGet(-pf.chars());
+            if (pf.offset() != offset || pf.limit() != limit) return null;
+            prefetchHits.incrementAndGet();
+            return pf.slice();
+        }
+
+        private void schedulePrefetch(CacheEntry entry, int nextOffset, int limit) {
+            if (entry.prefetchInFlight) return;
+            PrefetchedWindow current = entry.prefetched;
+            if (current != null && current.offset() == nextOffset && current.limit() == limit) return;
+            if (prefetchedChars.get() >= prefetchMaxTotalChars) return;
+            entry.prefetchInFlight = true;
+            try {
+                prefetcher.submit(() -> {
+                    try {
+                        WindowSlice slice = readLinesWindow(entry.filePath, entry.lineIndex, nextOffset, limit);
+                        long chars = 0L;
+                        for (String line : slice.lines()) chars += line.length();
+                        if (chars > prefetchMaxChars) return;
+                        if (prefetchedChars.get() + chars > prefetchMaxTotalChars) return;
+                        synchronized (entry) {
+                            if (entry.status != EntryStatus.READY) return;
+                            PrefetchedWindow previous = entry.prefetched;
+                            if (previous != null) prefetchedChars.addAndGet(-previous.chars());
+                            entry.prefetched = new PrefetchedWindow(nextOffset, limit, slice, chars);
+                            prefetchedChars.addAndGet(chars);
+                        }
+                    } catch (Exception ignored) {
+                        // best-effort: la siguiente lectura usa el camino normal
+                    } finally {
+                        entry.prefetchInFlight = false;
+                    }
+                });
+            } catch (Exception e) {
+                entry.prefetchInFlight = false;
+            }
+        }
+
+        private WindowSlice readLinesWindow(Path file, LineIndex index, int offset, int limit) throws IOException {
+            if (index == null) return readLinesWindow(file, offset, limit);
+
+            int safeOffset = Math.max(1, offset);
+            int safeLimit = Math.max(1, Math.min(limit, HARD_WINDOW_LIMIT));
+            int totalLines = index.totalLines();
+            if (safeOffset > totalLines) {
+                return new WindowSlice(List.of(), safeOffset - 1, false, totalLines);
+            }
+
+            int checkpoint = Math.min((safeOffset - 1) / LINE_INDEX_STRIDE, index.offsets().length - 1);
+            int lineNo = checkpoint * LINE_INDEX_STRIDE;
+            List<String> lines = new ArrayList<>(Math.min(safeLimit, totalLines - safeOffset + 1));
+            int lineEnd = safeOffset - 1;
+
+            var decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                 BufferedReader reader = new BufferedReader(Channels.newReader(channel.position(index.offsets()[checkpoint]), decoder, -1))) {
+                String line;
+                while (lines.size() < safeLimit && (line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (lineNo < safeOffset) continue;
+                    lines.add(line);
+                    lineEnd = lineNo;
+                }
+            }
+            return new WindowSlice(lines, lineEnd, lineEnd < totalLines, totalLines);
+        }
+
+        private LineIndex buildLineIndexQuietly(Path file) {
+            try {
+                return buildLineIndex(file);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        /**
+         * Índice disperso de inicio de línea (cada LINE_INDEX_STRIDE líneas) con los mismos separadores
+         * que BufferedReader.readLine (\n, \r, \r\n), para saltar directo al offset pedido.
+         */
+        private LineIndex buildLineIndex(Path file) throws IOException {
+            long[] offsets = new long[64];
+            int count = 0;
+            offsets[count++] = 0L;
+            int terminators = 0;
+            boolean prevCr = false;
+            boolean lastWasTerminator = true;
+            long pos = 0L;
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(file)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    for (int i = 0; i < n; i++, pos++) {
+                        byte b = buffer[i];
+                        if (b == '\n' && prevCr) {
+                            prevCr = false;
+                            if (terminators % LINE_INDEX_STRIDE == 0 && offsets[count - 1] == pos) {
+                                offsets[count - 1] = pos + 1;
+                            }
+                            continue;
+                        }
+                        prevCr = b == '\r';
+                        if (b == '\n' || b == '\r') {
+                            terminators++;
+                            lastWasTerminator = true;
+                            if (terminators % LINE_INDEX_STRIDE == 0) {
+                                if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+                                offsets[count++] = pos + 1;
+                            }
+                        } else {
+                            lastWasTerminator = false;
+                        }
+                    }
+                }
+            }
+            int totalLines = terminators + (pos > 0 && !lastWasTerminator ? 1 : 0);
+            return new LineIndex(Arrays.copyOf(offsets, count), totalLines);
+        }
+
         private WindowSlice readLinesWindow(Path file, int offset, int limit) throws IOException {
             int safeOffset = Math.max(1, offset);
             int safeLimit = Math.max(1, Math.min(limit, HARD_WINDOW_LIMIT));
@@ -2798,39 +4217,26 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         }
 
         private long computeTotalCacheBytes() {
-            long total = 0L;
-            for (CacheEntry e : entries.values()) {
-                if (e.status != EntryStatus.READY) continue;
-                if (!Files.exists(e.filePath)) continue;
-                total += safeFileSize(e.filePath);
-            }
-            return total;
+            return Math.max(0L, readyBytes.get());
         }
 
         private void enforceQuotaBeforeCommit(long incomingBytes, String protectedKey) {
-            long current = computeTotalCacheBytes();
-            if (current + incomingBytes <= maxCacheBytes) return;
+            if (computeTotalCacheBytes() + incomingBytes <= maxCacheBytes) return;
+            evictLeastRecentlyUsed(maxCacheBytes - incomingBytes, protectedKey);
+        }
 
+        private void evictLeastRecentlyUsed(long targetBytes, String protectedKey) {
             List<CacheEntry> candidates = new ArrayList<>();
             for (CacheEntry e : entries.values()) {
                 if (e.key.equals(protectedKey)) continue;
                 if (e.status != EntryStatus.READY) continue;
-                if (!Files.exists(e.filePath)) continue;
                 candidates.add(e);
             }
             candidates.sort(Comparator.comparing(a -> a.lastAccessAt == null ? Instant.EPOCH : a.lastAccessAt));
 
             for (CacheEntry candidate : candidates) {
-                long bytes = safeFileSize(candidate.filePath);
-                try {
-                    Files.deleteIfExists(candidate.filePath);
-                } catch (Exception ignored) {
-                    // best-effort
-                }
-                candidate.status = EntryStatus.MISSING;
-                candidate.fileBytes = 0L;
-                current = Math.max(0L, current - bytes);
-                if (current + incomingBytes <= maxCacheBytes) break;
+                if (computeTotalCacheBytes() <= Math.max(0L, targetBytes)) break;
+                evict(candidate);
             }
         }
 
@@ -2840,20 +4246,6 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                 return "Cache temporal lleno (cacheBytes=" + cacheBytes + ", maxCacheBytes=" + maxCacheBytes + ")";
             }
 
-            long inProgressBytes = 0L;
-            int activeDownloads = 0;
-            for (CacheEntry e : entries.values()) {
-                if (e.status != EntryStatus.DOWNLOADING) continue;
-                activeDownloads++;
-                inProgressBytes += Math.max(0L, e.lastDownloadBytes);
-            }
-            if (activeDownloads >= maxConcurrentDownloads) {
-                return "Límite de descargas en curso alcanzado (" + activeDownloads + "/" + maxConcurrentDownloads + ")";
-            }
-            if (inProgressBytes >= maxInProgressBytes) {
-                return "Bytes en preparación exceden el presupuesto actual (inProgressBytes=" + inProgressBytes + ", maxInProgressBytes=" + maxInProgressBytes + ")";
-            }
-
             long free = safeFreeSpace(rootDir);
             if (free > 0 && free < minFreeDiskBytes) {
                 return CODE_DISK_SPACE_LOW + ": Espacio libre insuficiente para descargas temporales (freeBytes=" + free + ", minFreeDiskBytes=" + minFreeDiskBytes + ")";
@@ -2861,30 +4253,77 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             return null;
         }
 
-        private boolean hasDownloadSlot() {
-            int running = 0;
-            for (CacheEntry e : entries.values()) {
-                if (e.status == EntryStatus.DOWNLOADING) running++;
+        private void runScheduledEviction() {
+            try {
+                evictExpired();
+                if (computeTotalCacheBytes() > evictTargetBytes) {
+                    evictLeastRecentlyUsed(evictTargetBytes, "");
+                }
+                lastEvictionAt = Instant.now();
+            } catch (Exception ignored) {
+                // best-effort: el siguiente ciclo reintenta
             }
-            return running < maxConcurrentDownloads;
         }
 
         private void evictExpired() {
             Instant now = Instant.now();
             for (CacheEntry e : entries.values()) {
+                if (e.status == EntryStatus.DOWNLOADING) {
+                    dropIfAbandoned(e, now);
+                    continue;
+                }
                 if (e.status != EntryStatus.READY) continue;
                 Instant at = e.lastAccessAt == null ? e.lastPreparedAt : e.lastAccessAt;
                 if (at == null) continue;
                 long age = Duration.between(at, now).toMillis();
                 if (age < ttlMillis) continue;
-                try {
-                    Files.deleteIfExists(e.filePath);
-                } catch (Exception ignored) {
-                    // best-effort
-                }
-                e.status = EntryStatus.MISSING;
-                e.fileBytes = 0L;
+                evict(e);
+            }
+        }
+
+        /**
+         * Retira de la cola una descarga que aún no inició y que nadie consultó durante {@code queuedIdleMillis};
+         * la siguiente lectura la vuelve a encolar.
+         */
+        private void dropIfAbandoned(CacheEntry entry, Instant now) {
+            synchronized (entry) {
+                DownloadScheduler.Ticket<?> ticket = entry.downloadTicket;
+                if (entry.status != EntryStatus.DOWNLOADING || ticket == null || !ticket.isQueued()) return;
+                Instant at = entry.lastAccessAt == null ? ticket.queuedAt() : entry.lastAccessAt;
+                if (Duration.between(at, now).toMillis() < queuedIdleMillis) return;
+                if (!ticket.cancel()) return;
+                entry.status = EntryStatus.MISSING;
+                abandonedDownloads.incrementAndGet();
+            }
+        }
+
+        private void evict(CacheEntry entry) {
+            synchronized (entry) {
+                if (entry.status != EntryStatus.READY) return;
+                long bytes = entry.fileBytes;
+                releaseEntry(entry);
+                evictedFiles.incrementAndGet();
+                evictedBytes.addAndGet(bytes);
+            }
+        }
+
+        private void releaseEntry(CacheEntry entry) {
+            try {
+                Files.deleteIfExists(entry.filePath);
+            } catch (Exception ignored) {
+                // best-effort
             }
+            if (entry.status == EntryStatus.READY) {
+                readyBytes.addAndGet(-entry.fileBytes);
+            }
+            PrefetchedWindow pf = entry.prefetched;
+            if (pf != null) {
+                entry.prefetched = null;
+                prefetchedChars.addAndGet(-pf.chars());
+            }
+            entry.status = EntryStatus.MISSING;
+            entry.fileBytes = 0L;
+            entry.lineIndex = null;
         }
 
         private Path filePathForKey(String key) {
@@ -2918,6 +4357,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             } catch (Exception ignored) {
                 // best-effort
             }
+            evictor.scheduleWithFixedDelay(this::runScheduledEviction, evictIntervalMillis, evictIntervalMillis, TimeUnit.MILLISECONDS);
         }
 
         private void deleteRecursively(Path root) throws IOException {
@@ -2952,33 +4392,12 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             }
         }
 
-        private boolean looksBinary(Path file) {
-            byte[] sample = new byte[8192];
-            int read = 0;
-            try (var in = Files.newInputStream(file)) {
-                read = in.read(sample);
-            } catch (Exception e) {
-                return false;
-            }
-            if (read <= 0) return false;
-
-            int control = 0;
-            for (int i = 0; i < read; i++) {
-                int b = sample[i] & 0xff;
-                if (b == 0) return true;
-                if (b < 0x09) control++;
-                if (b > 0x0D && b < 0x20) control++;
-            }
-            double ratio = (double) control / (double) read;
-            return ratio > 0.18;
-        }
-
         private long elapsedMs(Instant since) {
             if (since == null) return 0L;
             return Math.max(0L, Duration.between(since, Instant.now()).toMillis());
         }
 
-        private WindowFetchResult warmingUp(Instant startedAt) {
+        private WindowFetchResult warmingUp(Instant startedAt, DownloadScheduler.Ticket<?> ticket) {
             return new WindowFetchResult(
                     WINDOW_STATUS_WARMING_UP,
                     "Preparando archivo en cache temporal",
@@ -2991,7 +4410,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                     0L,
                     Instant.now(),
                     startedAt,
-                    elapsedMs(startedAt)
+                    elapsedMs(startedAt),
+                    ticket == null ? 0 : ticket.queuePosition(),
+                    ticket == null ? 0L : ticket.estimatedWaitMs()
             );
         }
 
@@ -3010,7 +4431,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
                     Math.max(0L, bytes),
                     Instant.now(),
                     startedAt,
-                    elapsedMs(startedAt)
+                    elapsedMs(startedAt),
+                    0,
+                    0L
             );
         }
 
@@ -3030,6 +4453,7 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             private final Path filePath;
             private volatile EntryStatus status = EntryStatus.MISSING;
             private volatile Future<?> downloadFuture;
+            private volatile DownloadScheduler.Ticket<?> downloadTicket;
             private volatile Instant downloadStartedAt;
             private volatile Instant readyAt;
             private volatile Instant lastPreparedAt;
@@ -3038,6 +4462,9 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
             private volatile long lastDownloadBytes;
             private volatile String lastError = "";
             private volatile String lastErrorCode = "";
+            private volatile LineIndex lineIndex;
+            private volatile PrefetchedWindow prefetched;
+            private volatile boolean prefetchInFlight;
 
             private CacheEntry(String key, Path filePath) {
                 this.key = key;
@@ -3053,6 +4480,10 @@ public class GitRepositoriesTool extends AbstractAzureDevOpsTool {
         }
 
         private record WindowSlice(List<String> lines, int lineEnd, boolean hasMore, int totalLines) {}
+
+        private record LineIndex(long[] offsets, int totalLines) {}
+
+        private record PrefetchedWindow(int offset, int limit, WindowSlice slice, long chars) {}
     }
 
     private Map<String, Object> done(Map<String, Object> args, Map<String, Object> resp) {
@@ -2,27 +2,69 @@ package com.mcp.server.tools.azuredevops.router;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mcp.server.services.AzureDevOpsClientService;
+import com.mcp.server.services.BoundedFanOut;
+import com.mcp.server.services.PipelineLogCache;
+import com.mcp.server.services.ResumableZipDownload;
+import com.mcp.server.services.helpers.ContentMatcher;
+import com.mcp.server.services.helpers.LineOffsetIndex;
+import com.mcp.server.services.helpers.LogFollowCursor;
+import com.mcp.server.services.helpers.LogLineScanner;
 import com.mcp.server.tools.azuredevops.base.AbstractAzureDevOpsTool;
+import com.mcp.server.transport.McpSessionContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
 
 @Component
 public class PipelinesTool extends AbstractAzureDevOpsTool {
 
     private static final String NAME = "azuredevops_pipelines";
-    private static final String DESC = "Operaciones Pipelines. operation: list|get|create|runs_list|runs_get|run|logs_list|logs_get|preview|artifact_get.";
+    private static final String DESC = "Operaciones Pipelines. operation: list|get|create|runs_list|runs_get|run|logs_list|logs_get|logs_read_window|logs_search|logs_follow|preview|artifact_get.";
     private static final String API_VERSION = "7.2-preview.1";
+    private static final String BUILD_API_VERSION = "7.1";
+
+    private static final int DEFAULT_WINDOW_LIMIT = 200;
+    private static final int HARD_WINDOW_LIMIT = 5_000;
+
+    private static final int SEARCH_CONCURRENCY = 6;
+    private static final int DEFAULT_SEARCH_MATCHES = 20;
+    private static final int HARD_SEARCH_MATCHES = 500;
+    private static final int DEFAULT_SEARCH_CONTEXT = 2;
+    private static final int HARD_SEARCH_CONTEXT = 10;
+    private static final int SEARCH_MAX_LINE_CHARS = 500;
+    private static final long SEARCH_TIMEOUT_MS = 120_000L;
+
+    private static final int DEFAULT_FOLLOW_LINES = 500;
+    private static final int HARD_FOLLOW_WAIT_SECONDS = 30;
+    private static final long FOLLOW_FIRST_SLEEP_MS = 1_000L;
+    private static final long FOLLOW_MAX_SLEEP_MS = 8_000L;
+
+    private static final long DEFAULT_ARTIFACT_MAX_WAIT_MS = 300_000L;
+    private static final long HARD_ARTIFACT_MAX_WAIT_MS = 1_800_000L;
+    private static final long HARD_ARTIFACT_BASE64_BYTES = 32L * 1024L * 1024L;
+    private static final int DEFAULT_ZIP_MANIFEST_ENTRIES = 1_000;
+    private static final int HARD_ZIP_MANIFEST_ENTRIES = 20_000;
+    private static final long DEFAULT_ZIP_MAX_EXTRACT_BYTES = 1024L * 1024L * 1024L;
     private static final ObjectMapper JSON = new ObjectMapper();
 
     @Autowired
@@ -48,13 +90,26 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
 
         props.put("operation", Map.of(
                 "type", "string",
-                "enum", List.of("list", "get", "create", "runs_list", "runs_get", "run", "logs_list", "logs_get", "preview", "artifact_get"),
+                "enum", List.of("list", "get", "create", "runs_list", "runs_get", "run", "logs_list", "logs_get", "logs_read_window", "logs_search", "logs_follow", "preview", "artifact_get"),
                 "description", "Operación a ejecutar"
         ));
 
         props.put("pipelineId", Map.of("type", "integer", "description", "ID del pipeline"));
         props.put("runId", Map.of("type", "integer", "description", "ID del run"));
         props.put("logId", Map.of("type", "integer", "description", "ID del log"));
+        props.put("offset", Map.of("type", "integer", "description", "logs_read_window: línea inicial (1-based, default 1)"));
+        props.put("limit", Map.of("type", "integer", "description", "logs_read_window: cantidad de líneas (default " + DEFAULT_WINDOW_LIMIT + ", máx " + HARD_WINDOW_LIMIT + ")"));
+        props.put("tail", Map.of("type", "integer", "description", "logs_read_window: devuelve las últimas N líneas (ignora offset/limit)"));
+        props.put("textPattern", Map.of("type", "string", "description", "logs_search: texto o regex a buscar"));
+        props.put("textPatterns", Map.of("type", "string", "description", "logs_search: arreglo JSON de textos/regex a buscar en una sola pasada (ej: [\"##[error]\",\"FAILED\"])"));
+        props.put("regex", Map.of("type", "boolean", "description", "logs_search: tratar textPattern como regex"));
+        props.put("caseSensitive", Map.of("type", "boolean", "description", "logs_search: búsqueda sensible a mayúsculas"));
+        props.put("maxMatches", Map.of("type", "integer", "description", "logs_search: detiene la búsqueda tras las primeras K coincidencias en orden de log/línea (default " + DEFAULT_SEARCH_MATCHES + ", máx " + HARD_SEARCH_MATCHES + ")"));
+        props.put("contextLines", Map.of("type", "integer", "description", "logs_search: líneas de contexto antes/después de cada coincidencia (default " + DEFAULT_SEARCH_CONTEXT + ", máx " + HARD_SEARCH_CONTEXT + ")"));
+        props.put("logIds", Map.of("type", "string", "description", "logs_search/logs_follow: IDs de log a revisar (CSV); por defecto todos los del run"));
+        props.put("cursor", Map.of("type", "string", "description", "logs_follow: cursor de la respuesta anterior (omitir en la primera llamada)"));
+        props.put("maxLines", Map.of("type", "integer", "description", "logs_follow: máximo de líneas nuevas por llamada, sumando todos los logs (default " + DEFAULT_FOLLOW_LINES + ", máx " + HARD_WINDOW_LIMIT + ")"));
+        props.put("waitSeconds", Map.of("type", "integer", "description", "logs_follow: si no hay líneas nuevas, espera consultando con backoff hasta N segundos (default 0, máx " + HARD_FOLLOW_WAIT_SECONDS + ")"));
         props.put("artifactName", Map.of("type", "string", "description", "Nombre del artifact para artifact_get"));
 
         props.put("pipelineVersion", Map.of("type", "integer", "description", "Versión específica del pipeline"));
@@ -67,9 +122,13 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
         props.put("apiVersion", Map.of("type", "string", "description", "Override api-version"));
         props.put("raw", Map.of("type", "boolean", "description", "Devuelve JSON crudo"));
 
-        props.put("responseType", Map.of("type", "string", "description", "auto|json|text|binary (default auto). Para logs_get/artifact_get."));
-        props.put("outputPath", Map.of("type", "string", "description", "Si la respuesta es binaria, guarda archivo local"));
-        props.put("includeBase64", Map.of("type", "boolean", "description", "En binario incluir dataBase64"));
+        props.put("responseType", Map.of("type", "string", "description", "auto|json|text|binary (default auto). Para logs_get/artifact_get (binary descarga el ZIP del artifact)."));
+        props.put("outputPath", Map.of("type", "string", "description", "Si la respuesta es binaria, guarda archivo local. artifact_get: descarga el ZIP en streaming a esta ruta, reanudable"));
+        props.put("includeBase64", Map.of("type", "boolean", "description", "En binario incluir dataBase64 (default: sólo sin outputPath). artifact_get: hasta 32MB completos; con más use maxBase64Chars u outputPath"));
+        props.put("entries", Map.of("type", "string", "description", "artifact_get: globs CSV o arreglo JSON de entradas del ZIP a extraer (ej: **/*.trx,/drop/logs/**); requiere outputPath"));
+        props.put("extractTo", Map.of("type", "string", "description", "artifact_get: carpeta destino para 'entries' (default: <outputPath sin .zip>_entries)"));
+        props.put("maxEntries", Map.of("type", "integer", "description", "artifact_get: máximo de entradas del ZIP a listar (default " + DEFAULT_ZIP_MANIFEST_ENTRIES + ", máx " + HARD_ZIP_MANIFEST_ENTRIES + ", 0 no lista)"));
+        props.put("maxWaitMs", Map.of("type", "integer", "description", "artifact_get: espera máxima de la descarga antes de responder 'downloading' (default " + DEFAULT_ARTIFACT_MAX_WAIT_MS + ")"));
         props.put("maxBase64Chars", Map.of("type", "integer", "description", "Máximo caracteres base64 a retornar"));
 
         base.put("required", List.of("project", "operation"));
@@ -91,6 +150,9 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
                 case "run" -> opRun(arguments);
                 case "logs_list" -> opLogsList(arguments);
                 case "logs_get" -> opLogsGet(arguments);
+                case "logs_read_window" -> opLogsReadWindow(arguments);
+                case "logs_search" -> opLogsSearch(arguments);
+                case "logs_follow" -> opLogsFollow(arguments);
                 case "preview" -> opPreview(arguments);
                 case "artifact_get" -> opArtifactGet(arguments);
                 default -> error("Operación no soportada: " + op);
@@ -173,6 +235,356 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
         return runMaybeBinary(args, project, pipelineId + "/runs/" + runId + "/logs/" + logId, q);
     }
 
+    /**
+     * Ventana de líneas ({@code offset/limit} o {@code tail}) de un log, servida desde {@link PipelineLogCache}.
+     * El log se descarga en streaming sólo si no está en cache o cambió ({@code lastChangedOn}/{@code lineCount}).
+     */
+    private Map<String, Object> opLogsReadWindow(Map<String, Object> args) throws Exception {
+        String project = requireProject(args, "logs_read_window");
+        Integer pipelineId = requireInt(args, "pipelineId");
+        Integer runId = requireInt(args, "runId");
+        Integer logId = requireInt(args, "logId");
+        Integer tail = parseInt(args.get("tail"));
+        if (tail != null && tail < 1) throw new IllegalArgumentException("'tail' debe ser entero >= 1");
+        Integer offsetArg = parseInt(args.get("offset"));
+        if (offsetArg != null && offsetArg < 1) throw new IllegalArgumentException("'offset' debe ser entero >= 1");
+        Integer limitArg = parseInt(args.get("limit"));
+        if (limitArg != null && limitArg < 1) throw new IllegalArgumentException("'limit' debe ser entero >= 1");
+        int limit = Math.min(limitArg == null ? DEFAULT_WINDOW_LIMIT : limitArg, HARD_WINDOW_LIMIT);
+
+        Map<String, Object> meta = azureService.getPipelinesApiWithQuery(project, pipelineId + "/runs/" + runId + "/logs/" + logId, new LinkedHashMap<>(), apiVersion(args));
+        String err = tryFormatRemoteError(meta);
+        if (err != null) return error(err);
+
+        LineOffsetIndex.Window window;
+        boolean cached;
+        long fileBytes;
+        try (PipelineLogCache.Prepared log = prepareLog(project, runId, logId, meta)) {
+            if (!log.ok()) return error("No se pudo descargar el log " + logId + ": " + describeDownloadError(log.error()));
+            window = tail != null
+                    ? log.index().tail(log.file(), Math.min(tail, HARD_WINDOW_LIMIT))
+                    : log.index().read(log.file(), offsetArg == null ? 1 : offsetArg, limit);
+            cached = log.cached();
+            fileBytes = log.index().bytes();
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("operation", "logs_read_window");
+        out.put("status", "ready");
+        out.put("project", project);
+        out.put("pipelineId", pipelineId);
+        out.put("runId", runId);
+        out.put("logId", logId);
+        if (tail != null) {
+            out.put("tail", Math.min(tail, HARD_WINDOW_LIMIT));
+        } else {
+            out.put("offset", window.lineStart());
+            out.put("limit", limit);
+        }
+        out.put("lineStart", window.lineStart());
+        out.put("lineEnd", window.lineEnd());
+        out.put("returnedLines", window.lines().size());
+        out.put("totalLines", window.totalLines());
+        out.put("hasMore", window.hasMore());
+        out.put("lines", window.lines());
+        Map<String, Object> cacheInfo = new LinkedHashMap<>();
+        cacheInfo.put("cached", cached);
+        cacheInfo.put("fileBytes", fileBytes);
+        if (meta.get("lastChangedOn") != null) cacheInfo.put("lastChangedOn", meta.get("lastChangedOn"));
+        out.put("cacheInfo", cacheInfo);
+        if (parseBool(args.get("raw"))) return rawSuccess(out);
+        return Map.of("isError", false, "result", out);
+    }
+
+    /**
+     * Log en disco desde {@link PipelineLogCache}; la versión (lastChangedOn|lineCount de la metadata) invalida
+     * la copia local cuando el log sigue creciendo. Se debe cerrar al terminar de leer el archivo.
+     */
+    private PipelineLogCache.Prepared prepareLog(String project, int runId, int logId, Map<String, Object> meta) {
+        String key = azureService.getOrganization() + "|" + project.toLowerCase(Locale.ROOT) + "|" + runId + "|" + logId;
+        String version = strObj(meta.get("lastChangedOn")) + "|" + strObj(meta.get("lineCount"));
+        return PipelineLogCache.shared().prepare(key, version,
+                part -> azureService.downloadBuildLogToFile(project, runId, logId, null, BUILD_API_VERSION, part));
+    }
+
+    /**
+     * Busca en todos los logs del run (o en {@code logIds}): descarga en paralelo a {@link PipelineLogCache}
+     * y recorre cada archivo línea por línea hasta juntar {@code maxMatches}. Las coincidencias se ordenan por
+     * log (orden de ejecución) y línea; los logs que ya no pueden aportar a las primeras K no se descargan.
+     */
+    private Map<String, Object> opLogsSearch(Map<String, Object> args) {
+        String project = requireProject(args, "logs_search");
+        Integer pipelineId = requireInt(args, "pipelineId");
+        Integer runId = requireInt(args, "runId");
+        List<String> patterns = resolveTextPatterns(args);
+        boolean regex = parseBool(args.get("regex"));
+        ContentMatcher matcher;
+        try {
+            matcher = ContentMatcher.compile(patterns, regex, parseBool(args.get("caseSensitive")));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("'textPattern' inválido: " + e.getMessage());
+        }
+        Integer maxArg = parseInt(args.get("maxMatches"));
+        int maxMatches = Math.min(maxArg == null || maxArg < 1 ? DEFAULT_SEARCH_MATCHES : maxArg, HARD_SEARCH_MATCHES);
+        Integer contextArg = parseInt(args.get("contextLines"));
+        int contextLines = Math.min(contextArg == null || contextArg < 0 ? DEFAULT_SEARCH_CONTEXT : contextArg, HARD_SEARCH_CONTEXT);
+
+        Map<String, Object> listing = azureService.getPipelinesApiWithQuery(project, pipelineId + "/runs/" + runId + "/logs", new LinkedHashMap<>(), apiVersion(args));
+        String err = tryFormatRemoteError(listing);
+        if (err != null) return error(err);
+        List<Map<String, Object>> logs = selectLogs(listing, str(args, "logIds"));
+
+        String session = McpSessionContext.currentSessionId();
+        SearchBudget budget = new SearchBudget(logs.size(), maxMatches);
+        List<Callable<LogLineScanner.Result>> tasks = new ArrayList<>();
+        for (int i = 0; i < logs.size(); i++) {
+            int position = i;
+            Map<String, Object> meta = logs.get(i);
+            tasks.add(() -> McpSessionContext.callWithSession(session, () -> {
+                if (budget.satisfiedBefore(position)) return null;
+                LogLineScanner.Result found;
+                try (PipelineLogCache.Prepared log = prepareLog(project, runId, ((Number) meta.get("id")).intValue(), meta)) {
+                    if (!log.ok()) throw new IllegalStateException(describeDownloadError(log.error()));
+                    found = LogLineScanner.scan(log.file(), matcher, maxMatches, contextLines, SEARCH_MAX_LINE_CHARS);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                budget.complete(position, found.hits().size());
+                return found;
+            }));
+        }
+        long startedAt = System.currentTimeMillis();
+        List<BoundedFanOut.Outcome<LogLineScanner.Result>> outcomes = BoundedFanOut.shared().runAll(
+                tasks, SEARCH_CONCURRENCY, startedAt + SEARCH_TIMEOUT_MS, startedAt + SEARCH_TIMEOUT_MS);
+
+        List<Map<String, Object>> matches = new ArrayList<>();
+        List<Map<String, Object>> logsFailed = new ArrayList<>();
+        int scanned = 0;
+        int skipped = 0;
+        boolean truncated = false;
+        for (int i = 0; i < logs.size(); i++) {
+            Object logId = logs.get(i).get("id");
+            BoundedFanOut.Outcome<LogLineScanner.Result> outcome = outcomes.get(i);
+            if (!outcome.ok()) {
+                Map<String, Object> failed = new LinkedHashMap<>();
+                failed.put("logId", logId);
+                failed.put("status", outcome.status());
+                if (outcome.error() != null) failed.put("error", outcome.error());
+                logsFailed.add(failed);
+                continue;
+            }
+            if (outcome.value() == null) {
+                skipped++;
+                continue;
+            }
+            scanned++;
+            truncated |= outcome.value().truncated();
+            for (LogLineScanner.Hit hit : outcome.value().hits()) {
+                if (matches.size() == maxMatches) {
+                    truncated = true;
+                    break;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("rank", matches.size() + 1);
+                row.put("logId", logId);
+                row.put("line", hit.line());
+                row.put("column", hit.column());
+                if (patterns.size() > 1) row.put("pattern", patterns.get(hit.patternIndex()));
+                row.put("text", hit.text());
+                if (contextLines > 0) {
+                    row.put("before", hit.before());
+                    row.put("after", hit.after());
+                }
+                matches.add(row);
+            }
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("operation", "logs_search");
+        out.put("project", project);
+        out.put("pipelineId", pipelineId);
+        out.put("runId", runId);
+        if (patterns.size() > 1) out.put("textPatterns", patterns);
+        else out.put("textPattern", patterns.get(0));
+        out.put("mode", matcher.mode());
+        out.put("logsTotal", logs.size());
+        out.put("logsScanned", scanned);
+        out.put("logsSkipped", skipped);
+        out.put("matchesReturned", matches.size());
+        out.put("truncated", truncated || skipped > 0);
+        out.put("matches", matches);
+        if (!logsFailed.isEmpty()) out.put("logsFailed", logsFailed);
+        if (parseBool(args.get("raw"))) return rawSuccess(out);
+        return Map.of("isError", false, "result", out);
+    }
+
+    /**
+     * Seguimiento incremental de los logs de un run: entrega sólo las líneas posteriores a las que registra
+     * {@code cursor}, pidiendo a la API de build el rango {@code startLine/endLine} de los logs cuyo
+     * {@code lineCount} creció. Con {@code waitSeconds} y sin novedades, vuelve a consultar con backoff
+     * (1s, 2s, 4s… hasta 8s) hasta que haya líneas, termine el run o venza la espera.
+     */
+    private Map<String, Object> opLogsFollow(Map<String, Object> args) throws Exception {
+        String project = requireProject(args, "logs_follow");
+        Integer pipelineId = requireInt(args, "pipelineId");
+        Integer runId = requireInt(args, "runId");
+        LogFollowCursor cursor = LogFollowCursor.decode(str(args, "cursor"));
+        Integer maxArg = parseInt(args.get("maxLines"));
+        int maxLines = Math.min(maxArg == null || maxArg < 1 ? DEFAULT_FOLLOW_LINES : maxArg, HARD_WINDOW_LIMIT);
+        Integer waitArg = parseInt(args.get("waitSeconds"));
+        int waitSeconds = Math.min(waitArg == null || waitArg < 0 ? 0 : waitArg, HARD_FOLLOW_WAIT_SECONDS);
+        String logIdsCsv = str(args, "logIds");
+
+        long startedAt = System.currentTimeMillis();
+        long deadline = startedAt + waitSeconds * 1000L;
+        long sleep = FOLLOW_FIRST_SLEEP_MS;
+        int polls = 0;
+        while (true) {
+            polls++;
+            Map<String, Object> run = azureService.getPipelinesApiWithQuery(project, pipelineId + "/runs/" + runId, new LinkedHashMap<>(), apiVersion(args));
+            String err = tryFormatRemoteError(run);
+            if (err != null) return error(err);
+            Map<String, Object> listing = azureService.getPipelinesApiWithQuery(project, pipelineId + "/runs/" + runId + "/logs", new LinkedHashMap<>(), apiVersion(args));
+            err = tryFormatRemoteError(listing);
+            if (err != null) return error(err);
+
+            int budget = maxLines;
+            boolean pending = false;
+            Map<Integer, Integer> delivered = new LinkedHashMap<>();
+            List<Map<String, Object>> increments = new ArrayList<>();
+            for (Map<String, Object> log : selectLogs(listing, logIdsCsv)) {
+                int logId = ((Number) log.get("id")).intValue();
+                Integer lineCount = parseInt(log.get("lineCount"));
+                int from = cursor.delivered(logId);
+                // Sin lineCount (log aún abierto) se consulta igual: la API devuelve vacío si no hay líneas nuevas
+                if (lineCount != null && lineCount <= from) continue;
+                if (budget == 0) {
+                    pending = true;
+                    continue;
+                }
+                List<String> lines = fetchLogLines(project, runId, logId, from + 1, budget);
+                if (lines.isEmpty()) continue;
+                int toLine = from + lines.size();
+                delivered.put(logId, toLine);
+                budget -= lines.size();
+                boolean hasMore = lineCount != null && lineCount > toLine;
+                pending |= hasMore;
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("logId", logId);
+                row.put("fromLine", from + 1);
+                row.put("toLine", toLine);
+                row.put("hasMore", hasMore);
+                row.put("lines", lines);
+                increments.add(row);
+            }
+
+            String state = strObj(run.get("state"));
+            boolean runCompleted = "completed".equalsIgnoreCase(state);
+            long now = System.currentTimeMillis();
+            // Una solicitud cancelada (notifications/cancelled) interrumpe el hilo: se deja de esperar y se responde ya
+            if (increments.isEmpty() && !runCompleted && now < deadline && !Thread.currentThread().isInterrupted()) {
+                McpSessionContext.reportProgress(now - startedAt, (double) (deadline - startedAt),
+                        "Sin líneas nuevas tras " + polls + " consulta(s); esperando hasta " + waitSeconds + " s");
+                try {
+                    Thread.sleep(Math.min(sleep, deadline - now));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sleep = Math.min(sleep * 2, FOLLOW_MAX_SLEEP_MS);
+                continue;
+            }
+
+            LogFollowCursor next = cursor.advance(delivered, !increments.isEmpty());
+            boolean finished = runCompleted && !pending && increments.isEmpty();
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("operation", "logs_follow");
+            out.put("project", project);
+            out.put("pipelineId", pipelineId);
+            out.put("runId", runId);
+            out.put("runState", state);
+            if (run.get("result") != null) out.put("runResult", run.get("result"));
+            out.put("increments", increments);
+            out.put("linesReturned", maxLines - budget);
+            out.put("hasMore", pending);
+            out.put("finished", finished);
+            out.put("cursor", next.encode());
+            if (!finished) out.put("nextPollAfterMs", pending ? 0L : next.nextPollAfterMs());
+            out.put("polls", polls);
+            if (Thread.currentThread().isInterrupted()) out.put("cancelled", true);
+            if (parseBool(args.get("raw"))) return rawSuccess(out);
+            return Map.of("isError", false, "result", out);
+        }
+    }
+
+    /**
+     * Hasta {@code limit} líneas del log desde {@code startLine} (base 1) vía la API de build, descargadas a
+     * un archivo temporal para no acumular el texto en memoria.
+     */
+    private List<String> fetchLogLines(String project, int runId, int logId, int startLine, int limit) throws IOException {
+        Path part = Files.createTempFile("mcp-log-follow-", ".part");
+        try {
+            Map<String, String> q = new LinkedHashMap<>();
+            q.put("startLine", String.valueOf(startLine));
+            q.put("endLine", String.valueOf(startLine + limit - 1));
+            Map<String, Object> resp = azureService.downloadBuildLogToFile(project, runId, logId, q, BUILD_API_VERSION, part);
+            if (resp == null || resp.containsKey("error") || Boolean.TRUE.equals(resp.get("isHttpError"))) {
+                String detail = resp == null ? "respuesta vacía" : describeDownloadError(resp);
+                throw new IllegalArgumentException("No se pudieron leer líneas nuevas del log " + logId + ": " + detail);
+            }
+            return LineOffsetIndex.build(part).read(part, 1, limit).lines();
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Logs del listado ordenados por ID (orden de creación), filtrados por {@code logIds} (CSV) si viene.
+     */
+    private List<Map<String, Object>> selectLogs(Map<String, Object> listing, String logIdsCsv) {
+        Set<Integer> wanted = new LinkedHashSet<>();
+        for (String part : logIdsCsv.split(",")) {
+            if (part.isBlank()) continue;
+            Integer id = parseInt(part.trim());
+            if (id == null) throw new IllegalArgumentException("'logIds' debe ser una lista CSV de enteros");
+            wanted.add(id);
+        }
+        List<Map<String, Object>> logs = new ArrayList<>();
+        if (listing.get("logs") instanceof List<?> items) {
+            for (Object item : items) {
+                if (!(item instanceof Map<?, ?> m) || !(m.get("id") instanceof Number id)) continue;
+                if (!wanted.isEmpty() && !wanted.contains(id.intValue())) continue;
+                @SuppressWarnings("unchecked")
+                Map<String, Object> log = (Map<String, Object>) m;
+                logs.add(log);
+            }
+        }
+        logs.sort(Comparator.comparingInt(l -> ((Number) l.get("id")).intValue()));
+        return logs;
+    }
+
+    private List<String> resolveTextPatterns(Map<String, Object> args) {
+        LinkedHashSet<String> patterns = new LinkedHashSet<>();
+        String single = str(args, "textPattern");
+        if (!single.isBlank()) patterns.add(single);
+        String multi = str(args, "textPatterns");
+        if (!multi.isBlank()) {
+            try {
+                for (Object o : JSON.readValue(multi, List.class)) {
+                    if (o != null && !o.toString().isEmpty()) patterns.add(o.toString());
+                }
+            } catch (Exception e) {
+                throw new IllegalArgumentException("'textPatterns' debe ser un arreglo JSON de strings: " + e.getMessage());
+            }
+        }
+        if (patterns.isEmpty()) throw new IllegalArgumentException("'textPattern' o 'textPatterns' es requerido para logs_search");
+        return new ArrayList<>(patterns);
+    }
+
+    private String describeDownloadError(Map<String, Object> resp) {
+        String err = tryFormatRemoteError(resp);
+        return err != null ? err : strObj(resp.get("error"));
+    }
+
     private Map<String, Object> opPreview(Map<String, Object> args) throws Exception {
         String project = requireProject(args, "preview");
         Integer pipelineId = requireInt(args, "pipelineId");
@@ -183,15 +595,139 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
         return done(args, resp);
     }
 
+    /**
+     * Sin descarga pedida ({@code responseType=binary}, {@code outputPath} o {@code entries}) devuelve la
+     * metadata del artifact; con descarga, el ZIP va en streaming a disco (ver {@link #downloadArtifactToDisk}).
+     */
     private Map<String, Object> opArtifactGet(Map<String, Object> args) throws Exception {
         String project = requireProject(args, "artifact_get");
         Integer pipelineId = requireInt(args, "pipelineId");
         Integer runId = requireInt(args, "runId");
         String artifactName = requireString(args, "artifactName");
+        if (!str(args, "entries").isBlank() && str(args, "outputPath").isBlank()) {
+            throw new IllegalArgumentException("'entries' requiere 'outputPath' en artifact_get");
+        }
+        boolean download = "binary".equalsIgnoreCase(str(args, "responseType")) || !str(args, "outputPath").isBlank();
+        if (download) return downloadArtifactToDisk(args, project, pipelineId, runId, artifactName);
+
         Map<String, String> q = new LinkedHashMap<>();
         q.put("artifactName", artifactName);
         putIfNotBlank(q, "$expand", str(args, "expand"));
-        return runMaybeBinary(args, project, pipelineId + "/runs/" + runId + "/artifacts", q);
+        Map<String, Object> resp = azureService.getPipelinesApiWithQuery(project, pipelineId + "/runs/" + runId + "/artifacts", q, apiVersion(args));
+        return done(args, resp);
+    }
+
+    /**
+     * artifact_get con descarga reanudable a disco ({@link ResumableZipDownload}); al completar se lista el
+     * directorio central y se extraen opcionalmente las entradas que coinciden con 'entries'.
+     *
+     * Sin outputPath el ZIP va a un directorio temporal propio de la llamada, se responde en base64 (salvo
+     * {@code includeBase64=false}) y se borra al terminar. Si la espera vence antes de completar, la descarga se
+     * cancela (en cola o en curso) porque nadie podrá recoger el resultado.
+     */
+    private Map<String, Object> downloadArtifactToDisk(Map<String, Object> args,
+                                                       String project,
+                                                       int pipelineId,
+                                                       int runId,
+                                                       String artifactName) throws Exception {
+        boolean temporary = str(args, "outputPath").isBlank();
+        Path out = temporary
+                ? Files.createTempDirectory("mcp-artifact-").resolve("artifact.zip")
+                : Path.of(str(args, "outputPath")).toAbsolutePath().normalize();
+        try {
+            return fetchArtifact(args, project, pipelineId, runId, artifactName, out, temporary);
+        } finally {
+            if (temporary) {
+                ResumableZipDownload.shared().cancel(out);
+                ResumableZipDownload.shared().discardWhenDone(out);
+            }
+        }
+    }
+
+    private Map<String, Object> fetchArtifact(Map<String, Object> args,
+                                              String project,
+                                              int pipelineId,
+                                              int runId,
+                                              String artifactName,
+                                              Path out,
+                                              boolean temporary) throws Exception {
+        String sourceKey = String.join("|", azureService.getOrganization(), project, String.valueOf(runId), artifactName);
+        Predicate<String> entryFilter = ResumableZipDownload.entryFilter(str(args, "entries"));
+        Integer maxEntriesArg = parseInt(args.get("maxEntries"));
+        int maxEntries = maxEntriesArg == null ? DEFAULT_ZIP_MANIFEST_ENTRIES : Math.min(HARD_ZIP_MANIFEST_ENTRIES, Math.max(0, maxEntriesArg));
+        Integer maxWaitArg = parseInt(args.get("maxWaitMs"));
+        long maxWaitMs = Math.min(HARD_ARTIFACT_MAX_WAIT_MS, Math.max(1_000L, maxWaitArg == null ? DEFAULT_ARTIFACT_MAX_WAIT_MS : maxWaitArg));
+
+        ResumableZipDownload.Outcome outcome;
+        try {
+            outcome = ResumableZipDownload.shared().fetch(out, sourceKey, maxWaitMs,
+                    (part, resumeFrom, etag) -> azureService.downloadBuildArtifactToFile(project, runId, artifactName, BUILD_API_VERSION, part, resumeFrom, etag));
+        } catch (RejectedExecutionException e) {
+            return error("Hay demasiadas descargas en cola; intente de nuevo en unos segundos. " + e.getMessage());
+        }
+        if (outcome.pending()) {
+            if (temporary) {
+                return error("La descarga del artifact no terminó en " + maxWaitMs + " ms y se canceló; indique 'outputPath' para descargarlo a disco de forma reanudable.");
+            }
+            Map<String, Object> pending = new LinkedHashMap<>();
+            pending.put("project", project);
+            pending.put("pipelineId", pipelineId);
+            pending.put("runId", runId);
+            pending.put("artifactName", artifactName);
+            pending.put("status", "downloading");
+            pending.put("partPath", outcome.part().toString());
+            pending.put("partBytes", outcome.partBytes());
+            if (outcome.queuePosition() > 0) {
+                pending.put("queued", true);
+                pending.put("queuePosition", outcome.queuePosition());
+                pending.put("estimatedWaitMs", outcome.estimatedWaitMs());
+            }
+            pending.put("message", "La descarga sigue en cola o en curso; vuelva a llamar con el mismo outputPath para esperar o reanudar.");
+            if (parseBool(args.get("raw"))) return rawSuccess(pending);
+            return Map.of("isError", false, "result", pending);
+        }
+        if (outcome.failure() != null) return error("Error descargando artifact: " + outcome.failure());
+
+        Map<String, Object> download = outcome.download();
+        String err = tryFormatRemoteError(download);
+        if (err == null && download.get("error") != null) err = download.get("error").toString();
+        if (err != null) {
+            long partBytes = temporary ? 0L : outcome.partBytes();
+            return error("Error descargando artifact: " + err + (partBytes > 0 ? " (se conservan " + partBytes + " bytes en " + outcome.part() + "; reintente para reanudar)" : ""));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("project", project);
+        result.put("pipelineId", pipelineId);
+        result.put("runId", runId);
+        result.put("artifactName", artifactName);
+        result.put("status", "completed");
+        result.put("contentType", strObj(download.get("contentType")).isBlank() ? "application/zip" : strObj(download.get("contentType")));
+        result.put("bytes", Files.size(out));
+        result.put("bytesTransferred", download.get("bytesTransferred"));
+        result.put("resumed", Boolean.TRUE.equals(download.get("resumed")));
+        if (outcome.joined()) result.put("joinedInFlightDownload", true);
+        result.put("downloadedAt", OffsetDateTime.now().toString());
+        if (!temporary) result.put("savedToPath", out.toString());
+
+        try {
+            Path extractTo = str(args, "extractTo").isBlank() ? null : Path.of(str(args, "extractTo")).toAbsolutePath().normalize();
+            String warning = ResumableZipDownload.describe(result, out, maxEntries, entryFilter, extractTo, DEFAULT_ZIP_MAX_EXTRACT_BYTES);
+            if (warning != null) result.put("warning", warning);
+        } catch (java.util.zip.ZipException e) {
+            return error("El archivo descargado no es un ZIP válido: " + e.getMessage());
+        }
+
+        boolean includeBase64 = args.containsKey("includeBase64") ? parseBool(args.get("includeBase64")) : temporary;
+        if (includeBase64) {
+            String warning = ResumableZipDownload.putBase64(result, out, parseInt(args.get("maxBase64Chars")), HARD_ARTIFACT_BASE64_BYTES);
+            if (warning != null) result.put("warning", warning);
+        } else {
+            result.put("base64Included", false);
+        }
+
+        if (parseBool(args.get("raw"))) return rawSuccess(result);
+        return Map.of("isError", false, "result", result);
     }
 
     private Map<String, Object> runMaybeBinary(Map<String, Object> args, String project, String path, Map<String, String> query) throws Exception {
@@ -336,4 +872,34 @@ public class PipelinesTool extends AbstractAzureDevOpsTool {
         String s = value.toString().trim().toLowerCase(Locale.ROOT);
         return "true".equals(s) || "1".equals(s) || "yes".equals(s) || "si".equals(s) || "sí".equals(s);
     }
+
+    /**
+     * Coincidencias por log ya escaneado; un log puede omitirse cuando los anteriores (en orden) ya suman K.
+     */
+    private static final class SearchBudget {
+        private final int[] hits;
+        private final boolean[] done;
+        private final int wanted;
+
+        private SearchBudget(int logs, int wanted) {
+            this.hits = new int[logs];
+            this.done = new boolean[logs];
+            this.wanted = wanted;
+        }
+
+        synchronized void complete(int position, int found) {
+            hits[position] = found;
+            done[position] = true;
+        }
+
+        synchronized boolean satisfiedBefore(int position) {
+            int sum = 0;
+            for (int i = 0; i < position; i++) {
+                if (!done[i]) return false;
+                sum += hits[i];
+                if (sum >= wanted) return true;
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.mcp.server.transport;
+
+import com.mcp.server.protocol.messages.McpNotification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Identificador de la sesión MCP que originó la solicitud en curso.
+ *
+ * Los transportes lo fijan mientras procesan un mensaje para que los servicios compartidos
+ * (p. ej. el planificador de descargas) puedan repartir recursos de forma justa entre sesiones.
+ *
+ * Los transportes con canal de salida propio (stdio, WebSocket) registran además cómo enviar notificaciones
+ * a la sesión, y el protocolo registra cada {@code tools/call} en curso: así un tool puede informar avance
+ * ({@code notifications/progress}, si el cliente envió {@code _meta.progressToken}) y ser interrumpido por
+ * {@code notifications/cancelled}.
+ */
+public final class McpSessionContext {
+
+    public static final String DEFAULT_SESSION = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Consumer<Object>> NOTIFIER = new ThreadLocal<>();
+    private static final ThreadLocal<Object> PROGRESS_TOKEN = new ThreadLocal<>();
+    private static final Map<String, Thread> RUNNING = new ConcurrentHashMap<>();
+
+    private McpSessionContext() {
+    }
+
+    public static <T> T callWithSession(String sessionId, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(sessionId == null || sessionId.isBlank() ? DEFAULT_SESSION : sessionId);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Igual que {@link #callWithSession(String, Supplier)}, con {@code notifier} como canal para enviar
+     * notificaciones JSON-RPC a la sesión mientras se procesa el mensaje.
+     */
+    public static <T> T callWithSession(String sessionId, Consumer<Object> notifier, Supplier<T> action) {
+        Consumer<Object> previous = NOTIFIER.get();
+        NOTIFIER.set(notifier);
+        try {
+            return callWithSession(sessionId, action);
+        } finally {
+            if (previous == null) NOTIFIER.remove();
+            else NOTIFIER.set(previous);
+        }
+    }
+
+    /**
+     * Ejecuta la solicitud {@code requestId} de la sesión actual registrándola para {@link #cancel} y con
+     * {@code progressToken} (puede ser null) disponible para {@link #reportProgress}.
+     */
+    public static <T> T callRequest(Object requestId, Object progressToken, Supplier<T> action) {
+        String key = requestKey(currentSessionId(), requestId);
+        Object previousToken = PROGRESS_TOKEN.get();
+        if (key != null) RUNNING.put(key, Thread.currentThread());
+        PROGRESS_TOKEN.set(progressToken);
+        try {
+            return action.get();
+        } finally {
+            if (previousToken == null) PROGRESS_TOKEN.remove();
+            else PROGRESS_TOKEN.set(previousToken);
+            if (key != null && RUNNING.remove(key, Thread.currentThread())) {
+                // Una cancelación que llegó al terminar no debe alcanzar al siguiente mensaje del mismo hilo
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Interrumpe la solicitud {@code requestId} de {@code sessionId} si sigue en curso. Los tools que esperan
+     * (sleep, descargas) lo notan como interrupción del hilo.
+     */
+    public static boolean cancel(String sessionId, Object requestId) {
+        String key = requestKey(sessionId == null || sessionId.isBlank() ? DEFAULT_SESSION : sessionId, requestId);
+        Thread running = key == null ? null : RUNNING.get(key);
+        if (running == null) return false;
+        running.interrupt();
+        return true;
+    }
+
+    /**
+     * Envía {@code notifications/progress} si la solicitud en curso trae progressToken y el transporte tiene
+     * canal de notificaciones; si no, no hace nada. {@code total} y {@code message} son opcionales.
+     */
+    public static void reportProgress(double progress, Double total, String message) {
+        Object token = PROGRESS_TOKEN.get();
+        Consumer<Object> notifier = NOTIFIER.get();
+        if (token == null || notifier == null) return;
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("progressToken", token);
+        params.put("progress", progress);
+        if (total != null) params.put("total", total);
+        if (message != null && !message.isBlank()) params.put("message", message);
+        try {
+            notifier.accept(new McpNotification("notifications/progress", params));
+        } catch (RuntimeException ignored) {
+            // best-effort: el avance nunca debe romper la solicitud
+        }
+    }
+
+    public static String currentSessionId() {
+        String id = CURRENT.get();
+        return id == null ? DEFAULT_SESSION : id;
+    }
+
+    private static String requestKey(String sessionId, Object requestId) {
+        return requestId == null ? null : sessionId + "|" + requestId;
+    }
+}
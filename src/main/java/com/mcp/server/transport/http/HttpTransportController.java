@@ -5,6 +5,7 @@ import com.mcp.server.protocol.handlers.McpProtocolHandler;
 import com.mcp.server.protocol.messages.McpRequest;
 import com.mcp.server.protocol.messages.McpResponse;
 import com.mcp.server.protocol.types.McpError;
+import com.mcp.server.transport.McpSessionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -64,11 +65,20 @@ public class HttpTransportController {
                     .body(createErrorResponse("Invalid protocol version: " + protocolVersion));
             }
             
+            // Notificaciones JSON-RPC (sin id): no llevan respuesta. Cada POST corre en su propio hilo, así que
+            // notifications/cancelled puede interrumpir un tools/call de la misma sesión que siga en curso
+            if (!request.containsKey("id") && request.get("method") instanceof String method && method.startsWith("notifications/")) {
+                if ("notifications/cancelled".equals(method) && request.get("params") instanceof Map<?, ?> params) {
+                    McpSessionContext.cancel(sessionId, params.get("requestId"));
+                }
+                return ResponseEntity.accepted().build();
+            }
+
             // Convertir el request map a McpRequest
             McpRequest mcpRequest = objectMapper.convertValue(request, McpRequest.class);
             
             // Procesar el request
-            McpResponse response = protocolHandler.processRequest(mcpRequest);
+            McpResponse response = McpSessionContext.callWithSession(sessionId, () -> protocolHandler.processRequest(mcpRequest));
             
             // Preparar headers de respuesta
             HttpHeaders headers = new HttpHeaders();
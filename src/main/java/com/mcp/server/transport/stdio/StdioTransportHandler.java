@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mcp.server.protocol.messages.*;
 import com.mcp.server.protocol.types.McpError;
 import com.mcp.server.protocol.handlers.McpProtocolHandler;
+import com.mcp.server.transport.McpSessionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -116,7 +117,10 @@ public class StdioTransportHandler implements CommandLineRunner {
                     McpRequest request = objectMapper.readValue(message, McpRequest.class);
                     System.err.println("Request parsed, id: " + request.getId() + ", method: " + request.getMethod());
                     
-                    McpResponse response = protocolHandler.processRequest(request);
+                    // Las notificaciones de avance de un tool salen por la misma salida, antes de la respuesta
+                    McpResponse response = McpSessionContext.callWithSession(null,
+                            notification -> writeNotification(writer, notification),
+                            () -> protocolHandler.processRequest(request));
                     
                     String responseJson = objectMapper.writeValueAsString(response);
                     System.err.println("Sending response: " + responseJson);
@@ -212,6 +216,18 @@ public class StdioTransportHandler implements CommandLineRunner {
         }
     }
 
+    private void writeNotification(PrintWriter writer, Object notification) {
+        try {
+            String json = objectMapper.writeValueAsString(notification);
+            synchronized (writer) {
+                writer.println(json);
+                writer.flush();
+            }
+        } catch (Exception e) {
+            System.err.println("Error sending notification: " + e.getMessage());
+        }
+    }
+
     private void sendError(PrintWriter writer, Object id, String message) {
         try {
             McpError error = McpError.internalError(message);
@@ -5,6 +5,7 @@ import com.mcp.server.protocol.handlers.McpProtocolHandler;
 import com.mcp.server.protocol.messages.McpRequest;
 import com.mcp.server.protocol.messages.McpResponse;
 import com.mcp.server.protocol.types.McpError;
+import com.mcp.server.transport.McpSessionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,7 +54,9 @@ public class WebSocketTransportHandler implements WebSocketHandler {
                 McpRequest request = objectMapper.readValue(payload, McpRequest.class);
                 
                 // Procesar el request
-                McpResponse response = protocolHandler.processRequest(request);
+                McpResponse response = McpSessionContext.callWithSession(session.getId(),
+                        notification -> sendNotification(session, notification),
+                        () -> protocolHandler.processRequest(request));
                 
                 // Enviar respuesta
                 String responseJson = objectMapper.writeValueAsString(response);
@@ -89,6 +92,17 @@ public class WebSocketTransportHandler implements WebSocketHandler {
         return false;
     }
     
+    private void sendNotification(WebSocketSession session, Object notification) {
+        try {
+            String message = objectMapper.writeValueAsString(notification);
+            synchronized (session) {
+                session.sendMessage(new TextMessage(message));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to send notification to session {}", session.getId(), e);
+        }
+    }
+
     /**
      * Envía una notificación a todas las sesiones activas.
      */
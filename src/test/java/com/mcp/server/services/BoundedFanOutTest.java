@@ -0,0 +1,74 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedFanOutTest {
+
+    @Test
+    void resultsKeepInputOrderAndParallelismIsBounded() {
+        BoundedFanOut fanOut = new BoundedFanOut(8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int value = i;
+            tasks.add(() -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(10L * (12 - value));
+                inFlight.decrementAndGet();
+                return value;
+            });
+        }
+
+        long now = System.currentTimeMillis();
+        List<BoundedFanOut.Outcome<Integer>> out = fanOut.runAll(tasks, 3, now + 10_000L, now + 20_000L);
+
+        assertEquals(12, out.size());
+        for (int i = 0; i < 12; i++) {
+            assertTrue(out.get(i).ok());
+            assertEquals(Integer.valueOf(i), out.get(i).value());
+        }
+        assertTrue(peak.get() <= 3);
+    }
+
+    @Test
+    void failuresAndPastDeadlineAreReportedPerTask() {
+        BoundedFanOut fanOut = new BoundedFanOut(2);
+        List<Callable<String>> tasks = List.of(
+                () -> {
+                    throw new IllegalStateException("sin acceso");
+                },
+                () -> "ok");
+
+        long now = System.currentTimeMillis();
+        List<BoundedFanOut.Outcome<String>> out = fanOut.runAll(tasks, 2, now + 5_000L, now + 10_000L);
+        assertEquals(BoundedFanOut.STATUS_FAILED, out.get(0).status());
+        assertEquals("sin acceso", out.get(0).error());
+        assertEquals("ok", out.get(1).value());
+
+        List<BoundedFanOut.Outcome<String>> late = fanOut.runAll(tasks, 2, now - 1L, now + 10_000L);
+        assertEquals(BoundedFanOut.STATUS_SKIPPED, late.get(0).status());
+        assertEquals(BoundedFanOut.STATUS_SKIPPED, late.get(1).status());
+    }
+
+    @Test
+    void unfinishedTasksTimeOut() {
+        BoundedFanOut fanOut = new BoundedFanOut(2);
+        List<Callable<String>> tasks = List.of(() -> {
+            Thread.sleep(5_000L);
+            return "tarde";
+        });
+
+        long now = System.currentTimeMillis();
+        List<BoundedFanOut.Outcome<String>> out = fanOut.runAll(tasks, 1, now + 1_000L, now + 100L);
+        assertEquals(BoundedFanOut.STATUS_TIMEOUT, out.get(0).status());
+    }
+}
@@ -0,0 +1,74 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CurrentIdentityCacheTest {
+
+    @Test
+    void profileIsLoadedOncePerCredential() {
+        CurrentIdentityCache cache = new CurrentIdentityCache(60_000L, 30_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> profile = cache.profile("cred-a", () -> {
+                loads.incrementAndGet();
+                return Map.of("id", "me-a", "displayName", "Ana");
+            });
+            assertEquals("me-a", profile.get("id"));
+        }
+        cache.profile("cred-b", () -> {
+            loads.incrementAndGet();
+            return Map.of("id", "me-b");
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(2L, cache.stats().get("hits"));
+    }
+
+    @Test
+    void remoteErrorsAreReturnedButNotCached() {
+        CurrentIdentityCache cache = new CurrentIdentityCache(60_000L, 30_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<String, Object> failed = cache.profile("cred", () -> {
+            loads.incrementAndGet();
+            return Map.of("isHttpError", true, "httpStatus", 401);
+        });
+        assertEquals(401, failed.get("httpStatus"));
+        cache.profile("cred", () -> {
+            loads.incrementAndGet();
+            return Map.of("id", "me");
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.stats().get("failedLoads"));
+    }
+
+    @Test
+    void staleEntryIsServedAndRefreshedInBackground() throws Exception {
+        CurrentIdentityCache cache = new CurrentIdentityCache(60_000L, 0L);
+        cache.profile("cred", () -> Map.of("id", "old"));
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        Map<String, Object> served = cache.profile("cred", () -> {
+            refreshed.countDown();
+            return Map.of("id", "new");
+        });
+
+        assertEquals("old", served.get("id"));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!Long.valueOf(1L).equals(cache.stats().get("backgroundRefreshes")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals("new", cache.profile("cred", () -> Map.of("id", "unused")).get("id"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadSchedulerTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    void smallFilesRunBeforeLargeOnes() throws Exception {
+        DownloadScheduler scheduler = new DownloadScheduler(1, 16, 64L * 1024L * MB, MB, 16L * MB);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        scheduler.submit("a", 10L * MB, () -> gate.await(5, TimeUnit.SECONDS));
+        var big = scheduler.submit("a", 200L * MB, () -> order.add("big"));
+        var small = scheduler.submit("b", 10_000L, () -> order.add("small"));
+
+        assertTrue(big.isQueued());
+        assertTrue(small.queuePosition() >= 1);
+        gate.countDown();
+        big.future().get(5, TimeUnit.SECONDS);
+        small.future().get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("small", "big"), order);
+    }
+
+    @Test
+    void sessionsAreServedRoundRobin() throws Exception {
+        DownloadScheduler scheduler = new DownloadScheduler(1, 16, 64L * 1024L * MB, MB, 16L * MB);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        scheduler.submit("a", 5L * MB, () -> gate.await(5, TimeUnit.SECONDS));
+        scheduler.submit("a", 5L * MB, () -> order.add("a1"));
+        scheduler.submit("a", 5L * MB, () -> order.add("a2"));
+        var last = scheduler.submit("b", 5L * MB, () -> order.add("b1"));
+        gate.countDown();
+        last.future().get(5, TimeUnit.SECONDS);
+
+        assertEquals("b1", order.get(0));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        DownloadScheduler scheduler = new DownloadScheduler(1, 1, 64L * 1024L * MB, MB, 16L * MB);
+        CountDownLatch gate = new CountDownLatch(1);
+        try {
+            scheduler.submit("a", MB, () -> gate.await(5, TimeUnit.SECONDS));
+            scheduler.submit("a", MB, () -> true);
+            assertThrows(RejectedExecutionException.class, () -> scheduler.submit("b", MB, () -> true));
+        } finally {
+            gate.countDown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitBlobCacheTest {
+
+    @Test
+    void servesRepeatedObjectIdsFromCacheAndSkipsFailedLoads() {
+        GitBlobCache cache = new GitBlobCache(1024L, 1024L);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getOrLoad("repo", "ABC", () -> {
+            loads.incrementAndGet();
+            return GitBlobCache.Blob.text("hola");
+        });
+        GitBlobCache.Blob again = cache.getOrLoad("REPO", "abc", () -> {
+            loads.incrementAndGet();
+            return GitBlobCache.Blob.text("otro");
+        });
+        assertEquals("hola", again.text());
+        assertEquals(1, loads.get());
+
+        assertNull(cache.getOrLoad("repo", "missing", () -> null));
+        assertNull(cache.getOrLoad("repo", "missing", () -> null));
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(3L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void evictsByBytesAndDoesNotStoreOversizedBlobs() {
+        GitBlobCache cache = new GitBlobCache(10L, 8L);
+        cache.getOrLoad("r", "a", () -> GitBlobCache.Blob.text("12345"));
+        cache.getOrLoad("r", "b", () -> GitBlobCache.Blob.text("67890"));
+        cache.getOrLoad("r", "c", () -> GitBlobCache.Blob.text("123456789"));
+        cache.getOrLoad("r", "e", () -> GitBlobCache.Blob.text("x"));
+
+        assertEquals(1L, cache.stats().get("oversized"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(6L, cache.stats().get("bytes"));
+    }
+
+    @Test
+    void binaryMarkersWeighNominalBytesAndAreEvicted() {
+        GitBlobCache cache = new GitBlobCache(3 * GitBlobCache.BINARY_WEIGHT, GitBlobCache.BINARY_WEIGHT);
+        for (String id : new String[]{"a", "b", "c", "d"}) {
+            cache.getOrLoad("r", id, () -> GitBlobCache.Blob.binary(1_000_000L));
+        }
+
+        assertEquals(3, cache.stats().get("entries"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(3 * GitBlobCache.BINARY_WEIGHT, cache.stats().get("bytes"));
+        GitBlobCache.Blob binary = cache.getOrLoad("r", "d", () -> null);
+        assertTrue(binary.binary());
+        assertEquals(1_000_000L, binary.bytes());
+    }
+
+    @Test
+    void truncatedReadsAreServedButNotCached() {
+        GitBlobCache cache = new GitBlobCache(1024L, 1024L);
+        cache.getOrLoad("r", "a", () -> GitBlobCache.Blob.prefix("hol", 40L));
+
+        assertNull(cache.getOrLoad("r", "a", () -> null));
+        assertEquals(0L, cache.stats().get("bytes"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GitRepositoryDirectoryTest {
+
+    private static Map<String, Object> repo(String id, String name, String projectName) {
+        return Map.of("id", id, "name", name, "project", Map.of("id", "p-" + projectName, "name", projectName));
+    }
+
+    @Test
+    void resolvesNameByProjectNameAndIdCaseInsensitive() {
+        GitRepositoryDirectory directory = new GitRepositoryDirectory(60_000L, 30_000L, 100);
+        directory.put("Alpha", repo("R1", "Backend", "Alpha"));
+
+        assertEquals("R1", directory.lookupId("alpha", "backend"));
+        assertEquals("R1", directory.lookupId("p-Alpha", "BACKEND"));
+        assertEquals("Backend", directory.get("Alpha", "r1").get("name"));
+        assertNull(directory.lookupId("Beta", "Backend"));
+    }
+
+    @Test
+    void listingIsLoadedOnceAndSeedsNameLookups() {
+        GitRepositoryDirectory directory = new GitRepositoryDirectory(60_000L, 30_000L, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            List<Map<String, Object>> repos = directory.listing("", "default", () -> {
+                loads.incrementAndGet();
+                return List.of(repo("R1", "Backend", "Alpha"), repo("R2", "Frontend", "Beta"));
+            });
+            assertEquals(2, repos.size());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals("R2", directory.lookupId("Beta", "Frontend"));
+    }
+
+    @Test
+    void invalidateDropsRepositoryAndListings() {
+        GitRepositoryDirectory directory = new GitRepositoryDirectory(60_000L, 30_000L, 100);
+        AtomicInteger loads = new AtomicInteger();
+        directory.listing("Alpha", "default", () -> {
+            loads.incrementAndGet();
+            return List.of(repo("R1", "Backend", "Alpha"));
+        });
+
+        directory.invalidate("Alpha", "Backend");
+
+        assertNull(directory.lookupId("Alpha", "Backend"));
+        assertNull(directory.get("Alpha", "R1"));
+        directory.listing("Alpha", "default", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        GitRepositoryDirectory directory = new GitRepositoryDirectory(60_000L, 30_000L, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(directory.listing("Alpha", "default", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        directory.listing("Alpha", "default", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void zeroTtlDisablesCache() {
+        GitRepositoryDirectory directory = new GitRepositoryDirectory(0L, 0L, 100);
+        directory.put("Alpha", repo("R1", "Backend", "Alpha"));
+
+        assertNull(directory.lookupId("Alpha", "Backend"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineLogCacheTest {
+
+    private static Map<String, Object> write(Path part, String content) {
+        try {
+            Files.writeString(part, content, StandardCharsets.UTF_8);
+            return Map.of("path", part.toString());
+        } catch (Exception e) {
+            return Map.of("error", e.getMessage());
+        }
+    }
+
+    @Test
+    void reusesDownloadUntilVersionChanges() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-log-cache");
+        PipelineLogCache cache = new PipelineLogCache(dir, 1L << 20, 60_000L);
+        AtomicInteger downloads = new AtomicInteger();
+
+        PipelineLogCache.Prepared first = cache.prepare("p|1|2", "v1", part -> {
+            downloads.incrementAndGet();
+            return write(part, "a\nb\n");
+        });
+        PipelineLogCache.Prepared second = cache.prepare("p|1|2", "v1", part -> {
+            downloads.incrementAndGet();
+            return write(part, "other\n");
+        });
+        assertTrue(first.ok());
+        assertFalse(first.cached());
+        assertTrue(second.cached());
+        assertEquals(2, second.index().totalLines());
+
+        PipelineLogCache.Prepared third = cache.prepare("p|1|2", "v2", part -> {
+            downloads.incrementAndGet();
+            return write(part, "a\nb\nc\n");
+        });
+        assertFalse(third.cached());
+        assertEquals(3, third.index().totalLines());
+        assertEquals(2, downloads.get());
+        assertEquals(1L, cache.stats().get("hits"));
+    }
+
+    @Test
+    void failedDownloadIsNotCachedAndEvictsOverBudget() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-log-cache");
+        PipelineLogCache cache = new PipelineLogCache(dir, 10L, 60_000L);
+
+        PipelineLogCache.Prepared failed = cache.prepare("k1", "v", part -> Map.of("isHttpError", true, "httpStatus", 404));
+        assertFalse(failed.ok());
+        assertEquals(0, cache.stats().get("entries"));
+
+        try (PipelineLogCache.Prepared first = cache.prepare("k1", "v", part -> write(part, "12345678\n"))) {
+            assertTrue(first.ok());
+        }
+        PipelineLogCache.Prepared second = cache.prepare("k2", "v", part -> write(part, "abcdefgh\n"));
+        assertTrue(second.ok());
+        assertTrue(Files.exists(second.file()));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(9L, cache.stats().get("bytes"));
+    }
+
+    @Test
+    void supersededVersionStaysOnDiskUntilItsReaderCloses() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-log-cache");
+        PipelineLogCache cache = new PipelineLogCache(dir, 1L << 20, 60_000L);
+
+        PipelineLogCache.Prepared reader = cache.prepare("k", "v1", part -> write(part, "a\nb\n"));
+        try (PipelineLogCache.Prepared newer = cache.prepare("k", "v2", part -> write(part, "a\nb\nc\n"))) {
+            assertNotEquals(reader.file(), newer.file());
+            assertTrue(Files.exists(reader.file()));
+            assertEquals("a\nb\n", Files.readString(reader.file(), StandardCharsets.UTF_8));
+            assertEquals(10L, cache.stats().get("bytes"));
+
+            reader.close();
+            reader.close();
+            assertFalse(Files.exists(reader.file()));
+            assertTrue(Files.exists(newer.file()));
+            assertEquals(6L, cache.stats().get("bytes"));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProjectDirectoryTest {
+
+    @Test
+    void projectsAreLoadedOncePerOrganization() {
+        ProjectDirectory directory = new ProjectDirectory(60_000L, 30_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            List<Map<String, Object>> projects = directory.projects("Contoso", () -> {
+                loads.incrementAndGet();
+                return List.of(Map.of("id", "p1", "name", "Alpha"), Map.of("id", "p2", "name", "Beta"));
+            });
+            assertEquals(2, projects.size());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2, directory.stats().get("projects"));
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        ProjectDirectory directory = new ProjectDirectory(60_000L, 30_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(directory.projects("contoso", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        directory.projects("CONTOSO", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        directory.projects("contoso", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,83 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositorySearchIndexTest {
+
+    private static RepositorySearchIndex registry(int maxIndexes) {
+        return new RepositorySearchIndex(maxIndexes, 64L * 1024L * 1024L, 60_000L, 60_000L, 1, 100, 1024, 2);
+    }
+
+    private static TrigramIndex index(String text) {
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        builder.add("/a.txt", text, false);
+        return builder.build();
+    }
+
+    private static RepositorySearchIndex.Lookup awaitReady(RepositorySearchIndex registry, String key) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            RepositorySearchIndex.Lookup lookup = registry.lookupOrBuild(key, () -> index("otro"));
+            if (RepositorySearchIndex.STATUS_READY.equals(lookup.status())) return lookup;
+            Thread.sleep(20);
+        }
+        throw new AssertionError("el índice no quedó listo");
+    }
+
+    @Test
+    void firstLookupBuildsInBackgroundAndThenServesIndex() throws Exception {
+        RepositorySearchIndex registry = registry(4);
+        CountDownLatch gate = new CountDownLatch(1);
+
+        RepositorySearchIndex.Lookup first = registry.lookupOrBuild("k", () -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return index("contenido indexado");
+        });
+        assertEquals(RepositorySearchIndex.STATUS_BUILDING, first.status());
+        assertEquals(RepositorySearchIndex.STATUS_BUILDING, registry.lookupOrBuild("k", () -> index("x")).status());
+
+        gate.countDown();
+        RepositorySearchIndex.Lookup ready = awaitReady(registry, "k");
+        assertNotNull(ready.index());
+        assertTrue(ready.index().candidates(TrigramIndex.plan("indexado", false)).mightMatch("/a.txt"));
+    }
+
+    @Test
+    void failedBuildIsReportedUntilRetryWindow() throws Exception {
+        RepositorySearchIndex registry = registry(4);
+        registry.lookupOrBuild("k", () -> {
+            throw new IllegalStateException("sin acceso");
+        });
+
+        RepositorySearchIndex.Lookup lookup = null;
+        for (int i = 0; i < 100; i++) {
+            lookup = registry.lookupOrBuild("k", () -> index("x"));
+            if (RepositorySearchIndex.STATUS_FAILED.equals(lookup.status())) break;
+            Thread.sleep(20);
+        }
+        assertEquals(RepositorySearchIndex.STATUS_FAILED, lookup.status());
+        assertEquals("sin acceso", lookup.error());
+    }
+
+    @Test
+    void leastRecentlyUsedIndexIsEvicted() throws Exception {
+        RepositorySearchIndex registry = registry(1);
+        registry.lookupOrBuild("a", () -> index("uno"));
+        awaitReady(registry, "a");
+        registry.lookupOrBuild("b", () -> index("dos"));
+        awaitReady(registry, "b");
+
+        assertEquals(1, registry.stats().get("indexes"));
+        assertEquals(1L, registry.stats().get("evictions"));
+    }
+}
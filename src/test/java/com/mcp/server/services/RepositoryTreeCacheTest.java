@@ -0,0 +1,50 @@
+package com.mcp.server.services;
+
+import com.mcp.server.services.helpers.CompactTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositoryTreeCacheTest {
+
+    private static CompactTree tree(String path) {
+        return CompactTree.builder("/").addItem(Map.of("path", path)).build();
+    }
+
+    @Test
+    void incrementalSnapshotRemembersBaseCommitAndChangedPaths() {
+        RepositoryTreeCache cache = new RepositoryTreeCache(4, 60_000L, 60_000L, 100);
+        RepositoryTreeCache.Snapshot full = cache.putFull("k", "c1", tree("/a.txt"), "items_list");
+        assertTrue(cache.recentlyChecked(full));
+
+        RepositoryTreeCache.Snapshot next = cache.putIncremental("k", full, "c2", tree("/b.txt"), Set.of("/b.txt"));
+
+        assertSame(next, cache.get("k"));
+        assertEquals("c2", next.commitId());
+        assertEquals("c1", next.baseCommitId());
+        assertEquals(Set.of("/b.txt"), next.changedPaths());
+        assertEquals("items_list", next.strategy());
+        assertEquals(1L, cache.stats().get("incrementalRefreshes"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndHonorsRecheckWindow() {
+        RepositoryTreeCache cache = new RepositoryTreeCache(2, 60_000L, 0L, 100);
+        cache.putFull("a", "c1", tree("/a"), "items_list");
+        cache.putFull("b", "c1", tree("/b"), "items_list");
+        cache.get("a");
+        cache.putFull("c", "c1", tree("/c"), "items_list");
+
+        assertNull(cache.get("b"));
+        RepositoryTreeCache.Snapshot a = cache.get("a");
+        assertFalse(cache.recentlyChecked(a), "con recheck 0 siempre se verifica el head");
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+}
@@ -0,0 +1,209 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumableZipDownloadTest {
+
+    private static ResumableZipDownload downloads() {
+        return new ResumableZipDownload(new DownloadScheduler(2, 8, 1L << 30, 1L << 20, 1L << 20));
+    }
+
+    @Test
+    void resumesFromPartialFileWithStoredEtag() throws Exception {
+        Path out = Files.createTempDirectory("zip-resume").resolve("a.zip");
+        ResumableZipDownload downloads = downloads();
+        List<String> calls = new ArrayList<>();
+
+        ResumableZipDownload.Outcome failed = downloads.fetch(out, "src", 5_000L, (part, from, etag) -> {
+            calls.add(from + ":" + etag);
+            Files.writeString(part, "abc", StandardCharsets.UTF_8);
+            return Map.of("etag", "\"v1\"", "error", "conexión cortada");
+        });
+        assertFalse(failed.pending());
+        assertEquals(3L, failed.partBytes());
+
+        ResumableZipDownload.Outcome done = downloads.fetch(out, "src", 5_000L, (part, from, etag) -> {
+            calls.add(from + ":" + etag);
+            Files.writeString(part, "def", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            return Map.of("etag", "\"v1\"", "bytesTransferred", 3L, "resumed", true);
+        });
+
+        assertEquals(List.of("0:null", "3:\"v1\""), calls);
+        assertNull(done.failure());
+        assertEquals("abcdef", Files.readString(out, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(ResumableZipDownload.partPath(out)));
+    }
+
+    @Test
+    void restartsWithoutStrongEtag() throws Exception {
+        for (Map<String, Object> first : List.of(Map.<String, Object>of("error", "x"), Map.<String, Object>of("etag", "W/\"v1\"", "error", "x"))) {
+            Path out = Files.createTempDirectory("zip-etag").resolve("a.zip");
+            ResumableZipDownload downloads = downloads();
+            downloads.fetch(out, "src", 5_000L, (part, from, etag) -> {
+                Files.writeString(part, "old", StandardCharsets.UTF_8);
+                return first;
+            });
+
+            List<String> calls = new ArrayList<>();
+            downloads.fetch(out, "src", 5_000L, (part, from, etag) -> {
+                calls.add(from + ":" + etag);
+                Files.writeString(part, "new", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                return Map.of();
+            });
+
+            assertEquals(List.of("0:null"), calls);
+            assertEquals("new", Files.readString(out, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void restartsWhenSourceChanges() throws Exception {
+        Path out = Files.createTempDirectory("zip-source").resolve("a.zip");
+        ResumableZipDownload downloads = downloads();
+        downloads.fetch(out, "v1", 5_000L, (part, from, etag) -> {
+            Files.writeString(part, "old", StandardCharsets.UTF_8);
+            return Map.of("error", "x");
+        });
+
+        List<Long> offsets = new ArrayList<>();
+        downloads.fetch(out, "v2", 5_000L, (part, from, etag) -> {
+            offsets.add(from);
+            Files.writeString(part, "new", StandardCharsets.UTF_8);
+            return Map.of();
+        });
+
+        assertEquals(List.of(0L), offsets);
+        assertEquals("new", Files.readString(out, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void timedOutQueuedDownloadStaysQueuedUntilIdle() throws Exception {
+        Path dir = Files.createTempDirectory("zip-idle");
+        ResumableZipDownload downloads = new ResumableZipDownload(new DownloadScheduler(1, 8, 1L << 30, 1L << 20, 1L << 20), 200L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+        ResumableZipDownload.Transfer queuedTransfer = (part, from, etag) -> {
+            queuedRuns.incrementAndGet();
+            ran.countDown();
+            return Map.of();
+        };
+
+        ResumableZipDownload.Outcome busy = downloads.fetch(dir.resolve("busy.zip"), "a", 50L, (part, from, etag) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Map.of();
+        });
+        ResumableZipDownload.Outcome first = downloads.fetch(dir.resolve("queued.zip"), "b", 50L, queuedTransfer);
+        ResumableZipDownload.Outcome again = downloads.fetch(dir.resolve("queued.zip"), "b", 50L, queuedTransfer);
+
+        assertTrue(busy.pending());
+        assertTrue(first.pending());
+        assertEquals(1, first.queuePosition());
+        assertTrue(again.pending());
+        assertTrue(again.joined());
+
+        // Sin consultas durante el tiempo de inactividad se retira de la cola; la siguiente llamada la reencola
+        Thread.sleep(600L);
+        ResumableZipDownload.Outcome retried = downloads.fetch(dir.resolve("queued.zip"), "b", 50L, queuedTransfer);
+        assertTrue(retried.pending());
+        assertFalse(retried.joined());
+
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100L);
+        assertEquals(1, queuedRuns.get());
+    }
+
+    @Test
+    void cancelInterruptsRunningTransfer() throws Exception {
+        Path out = Files.createTempDirectory("zip-abort").resolve("a.zip");
+        ResumableZipDownload downloads = downloads();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        ResumableZipDownload.Outcome pending = downloads.fetch(out, "src", 50L, (part, from, etag) -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+                return Map.of();
+            } catch (InterruptedException e) {
+                stopped.countDown();
+                return Map.of("error", "descarga cancelada");
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(pending.pending());
+
+        downloads.cancel(out);
+
+        assertTrue(stopped.await(2, TimeUnit.SECONDS));
+        assertFalse(Files.exists(out));
+    }
+
+    @Test
+    void base64PrefixMatchesFullEncodingAndLargeFilesAreOmitted() throws Exception {
+        Path zip = Files.createTempDirectory("zip-b64").resolve("a.zip");
+        byte[] bytes = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+        Files.write(zip, bytes);
+        String full = Base64.getEncoder().encodeToString(bytes);
+
+        Map<String, Object> prefix = new LinkedHashMap<>();
+        assertNull(ResumableZipDownload.putBase64(prefix, zip, 10, 4L));
+        assertEquals(full.substring(0, 10), prefix.get("dataBase64"));
+        assertEquals((long) full.length(), prefix.get("base64TotalChars"));
+
+        Map<String, Object> omitted = new LinkedHashMap<>();
+        assertNotNull(ResumableZipDownload.putBase64(omitted, zip, null, 4L));
+        assertEquals(false, omitted.get("base64Included"));
+        assertFalse(omitted.containsKey("dataBase64"));
+    }
+
+    @Test
+    void entryFilterAnchorsRelativeGlobsAtZipRoot() {
+        var filter = ResumableZipDownload.entryFilter("[\"drop/*.trx\", \"**/*.log\"]");
+
+        assertTrue(filter.test("/drop/a.trx"));
+        assertFalse(filter.test("/x/drop/a.trx"));
+        assertTrue(filter.test("/x/y/run.log"));
+        assertNull(ResumableZipDownload.entryFilter(" "));
+    }
+
+    @Test
+    void discardRemovesTemporaryDownloadAndItsDirectory() throws Exception {
+        Path dir = Files.createTempDirectory("zip-discard");
+        Path out = dir.resolve("a.zip");
+        ResumableZipDownload downloads = downloads();
+        downloads.fetch(out, "src", 5_000L, (part, from, etag) -> {
+            Files.writeString(part, "zip", StandardCharsets.UTF_8);
+            return Map.of();
+        });
+
+        downloads.discardWhenDone(out);
+
+        assertFalse(Files.exists(out));
+        assertFalse(Files.exists(dir));
+    }
+}
@@ -0,0 +1,69 @@
+package com.mcp.server.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+
+    private static TrigramIndex sampleIndex() {
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        builder.add("/src/App.java", "public class App { String url = \"jdbc:postgresql://db\"; }", false);
+        builder.add("/conf/application.yml", "spring:\n  datasource:\n    url: jdbc:mysql://db\n", false);
+        builder.add("/README.md", "Proyecto de ejemplo", false);
+        builder.add("/big.log", "inicio del archivo truncado", true);
+        return builder.build();
+    }
+
+    @Test
+    void literalQueryPrunesFilesWithoutAllTrigrams() {
+        TrigramIndex index = sampleIndex();
+        TrigramIndex.Candidates c = index.candidates(TrigramIndex.plan("POSTGRESQL", false));
+
+        assertTrue(c.prunes());
+        assertTrue(c.mightMatch("/src/App.java"));
+        assertFalse(c.mightMatch("/conf/application.yml"));
+        assertFalse(c.mightMatch("/README.md"));
+        assertTrue(c.mightMatch("/big.log"), "los archivos parciales siempre son candidatos");
+        assertTrue(c.mightMatch("/no/indexado.txt"), "los archivos desconocidos siempre son candidatos");
+    }
+
+    @Test
+    void regexAlternativesAreUnioned() {
+        TrigramIndex index = sampleIndex();
+        TrigramIndex.Candidates c = index.candidates(TrigramIndex.plan("jdbc:(postgresql|mysql)|Proyecto\\s+de", true));
+
+        assertTrue(c.mightMatch("/src/App.java"));
+        assertTrue(c.mightMatch("/conf/application.yml"));
+        assertTrue(c.mightMatch("/README.md"));
+    }
+
+    @Test
+    void regexWithoutRequiredLiteralsDoesNotPrune() {
+        assertTrue(TrigramIndex.plan("\\d+\\.\\d+", true).matchesAll());
+        assertTrue(TrigramIndex.plan("ab", false).matchesAll());
+        assertTrue(TrigramIndex.plan("(?i)datasource", true).matchesAll());
+        assertTrue(TrigramIndex.plan("foo|x.y", true).matchesAll());
+    }
+
+    @Test
+    void addAllCopiesKeptFilesWithoutRereadingThem() {
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        int copied = builder.addAll(sampleIndex(), path -> !path.equals("/src/App.java"));
+        builder.add("/src/App.java", "public class App { String url = \"jdbc:mysql://db\"; }", false);
+        TrigramIndex index = builder.build();
+
+        assertEquals(3, copied);
+        TrigramIndex.Candidates postgres = index.candidates(TrigramIndex.plan("postgresql", false));
+        assertFalse(postgres.mightMatch("/src/App.java"));
+        assertFalse(postgres.mightMatch("/conf/application.yml"));
+        assertTrue(postgres.mightMatch("/big.log"), "el archivo parcial sigue marcado como parcial");
+
+        TrigramIndex.Candidates mysql = index.candidates(TrigramIndex.plan("jdbc:mysql", false));
+        assertTrue(mysql.mightMatch("/src/App.java"));
+        assertTrue(mysql.mightMatch("/conf/application.yml"));
+        assertFalse(mysql.mightMatch("/README.md"));
+    }
+}
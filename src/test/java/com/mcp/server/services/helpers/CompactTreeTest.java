@@ -0,0 +1,129 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTreeTest {
+
+    private static final String BASE = "https://dev.azure.com/org/p/_apis/git/repositories/r/items?path=";
+
+    private static Map<String, Object> item(String path, boolean folder, String objectId) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("objectId", objectId);
+        row.put("gitObjectType", folder ? "tree" : "blob");
+        row.put("commitId", "c0ffee");
+        row.put("path", path);
+        if (folder) row.put("isFolder", true);
+        if (!folder) {
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("fileName", path.substring(path.lastIndexOf('/') + 1));
+            meta.put("encoding", 65001);
+            row.put("contentMetadata", meta);
+        }
+        row.put("url", BASE + path);
+        return row;
+    }
+
+    private static String oid(int n) {
+        return String.format("%040x", n);
+    }
+
+    @Test
+    void filtersScopeAndDedupesWhileBuilding() {
+        CompactTree.Builder builder = CompactTree.builder("/src");
+        builder.addItem(item("/", true, oid(1)));
+        builder.addItem(item("/src", true, oid(2)));
+        builder.addItem(item("/src/App.java", false, oid(3)));
+        builder.addItem(item("/src/APP.java", false, oid(4)));
+        builder.addItem(item("/srcx/Other.java", false, oid(5)));
+        builder.addItem(item("/src/main/util/Util.java", false, oid(6)));
+        CompactTree tree = builder.build();
+
+        assertEquals(3, tree.size());
+        assertEquals(2, builder.outOfScope());
+        assertEquals(1, builder.duplicates());
+        assertEquals("/src", tree.path(0));
+        assertTrue(tree.isFolder(0));
+        assertEquals("/src/App.java", tree.path(1));
+        assertEquals("/src/main/util/Util.java", tree.path(2));
+        assertEquals(1, tree.folderCount());
+        assertArrayEquals(new int[]{1, 2}, tree.select(i -> !tree.isFolder(i)));
+    }
+
+    @Test
+    void materializesItemsEquivalentToTheApiRow() {
+        CompactTree.Builder builder = CompactTree.builder("/");
+        for (int i = 0; i < 40; i++) builder.addItem(item("/pkg/dir" + (i % 3) + "/File" + i + ".java", false, oid(i + 10)));
+        CompactTree tree = builder.build();
+
+        for (int i = 0; i < 40; i++) {
+            Map<String, Object> expected = item("/pkg/dir" + (i % 3) + "/File" + i + ".java", false, oid(i + 10));
+            expected.put("isFolder", false);
+            assertEquals(expected, tree.item(i));
+        }
+        assertEquals(BASE + "/pkg/dir2/File17.java", tree.url(17));
+        assertEquals(oid(27), tree.objectId(17));
+        assertEquals("blob", tree.gitObjectType(17));
+    }
+
+    @Test
+    void readsTreeEntriesAndKeepsIrregularObjectIds() {
+        CompactTree.Builder builder = CompactTree.builder("");
+        Map<String, Object> folder = new LinkedHashMap<>();
+        folder.put("relativePath", "docs");
+        folder.put("gitObjectType", "tree");
+        folder.put("objectId", "ABC");
+        Map<String, Object> file = new LinkedHashMap<>();
+        file.put("relativePath", "docs/readme.md");
+        file.put("gitObjectType", "blob");
+        builder.addTreeEntry(folder).addTreeEntry(file).addTreeEntry(Map.of("gitObjectType", "blob"));
+        CompactTree tree = builder.build();
+
+        assertEquals(2, tree.size());
+        assertTrue(tree.isFolder(0));
+        assertEquals("ABC", tree.objectId(0));
+        assertEquals("", tree.objectId(1));
+        assertFalse(tree.item(1).containsKey("url"));
+        assertEquals("/docs/readme.md", tree.item(1).get("path"));
+    }
+
+    @Test
+    void patchAppliesDiffAndKeepsUnchangedFields() {
+        CompactTree.Builder builder = CompactTree.builder("/");
+        builder.addItem(item("/src", true, oid(1)));
+        builder.addItem(item("/src/App.java", false, oid(2)));
+        builder.addItem(item("/src/Old.java", false, oid(3)));
+        builder.addItem(item("/legacy", true, oid(4)));
+        builder.addItem(item("/legacy/Gone.java", false, oid(5)));
+        CompactTree base = builder.build();
+
+        Map<String, Object> edited = new LinkedHashMap<>();
+        edited.put("path", "/src/App.java");
+        edited.put("objectId", oid(20));
+        Map<String, Object> added = new LinkedHashMap<>();
+        added.put("path", "/src/feature/New.java");
+        added.put("objectId", oid(21));
+        added.put("gitObjectType", "blob");
+        CompactTree patched = base.patch("/", List.of("/src/Old.java", "/legacy"),
+                List.of(edited, added), "beef");
+
+        assertEquals(4, patched.size());
+        assertEquals("/src", patched.path(0));
+        assertEquals("/src/App.java", patched.path(1));
+        assertEquals(oid(20), patched.objectId(1));
+        assertEquals("beef", patched.item(1).get("commitId"));
+        assertEquals(Map.of("fileName", "App.java", "encoding", 65001), patched.item(1).get("contentMetadata"));
+        assertEquals("/src/feature", patched.path(2));
+        assertTrue(patched.isFolder(2));
+        assertEquals("/src/feature/New.java", patched.path(3));
+        assertEquals(5, base.size(), "el árbol original no se modifica");
+    }
+}
@@ -0,0 +1,85 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentMatcherTest {
+
+    private static final String TEXT = "spring:\n  datasource:\n    url: jdbc:mysql://db\n    URL2: JDBC:postgresql://db\n";
+
+    @Test
+    void literalSearchReportsAllMatchesWithLineAndColumn() {
+        ContentMatcher m = ContentMatcher.compile(List.of("jdbc:"), false, false);
+        ContentMatcher.Result r = m.findAll(TEXT, 10);
+
+        assertEquals(ContentMatcher.MODE_LITERAL, m.mode());
+        assertEquals(2, r.matches().size());
+        assertEquals(3, r.matches().get(0).line());
+        assertEquals(10, r.matches().get(0).column());
+        assertEquals(4, r.matches().get(1).line());
+        assertEquals("    URL2: JDBC:postgresql://db", ContentMatcher.lineAt(TEXT, r.matches().get(1).start()));
+    }
+
+    @Test
+    void caseSensitiveLiteralAndMatchLimit() {
+        ContentMatcher m = ContentMatcher.compile(List.of("db"), false, true);
+        ContentMatcher.Result r = m.findAll(TEXT, 1);
+
+        assertEquals(1, r.matches().size());
+        assertTrue(r.truncated());
+    }
+
+    @Test
+    void multiLiteralUsesSinglePassAndKeepsPatternIndex() {
+        ContentMatcher m = ContentMatcher.compile(List.of("mysql", "postgresql", "oracle"), false, false);
+        ContentMatcher.Result r = m.findAll(TEXT, 10);
+
+        assertEquals(ContentMatcher.MODE_LITERAL_MULTI, m.mode());
+        assertEquals(2, r.matches().size());
+        assertEquals(0, r.matches().get(0).patternIndex());
+        assertEquals(1, r.matches().get(1).patternIndex());
+        assertTrue(r.matches().get(0).start() < r.matches().get(1).start());
+    }
+
+    @Test
+    void regexWithUnicodeEscapeIsNotFilteredByItsOperand() {
+        ContentMatcher m = ContentMatcher.compile(List.of("\\u0041BCD"), true, true);
+
+        assertEquals(1, m.findAll("xx ABCD yy", 10).matches().size());
+    }
+
+    @Test
+    void regexPrefilterSkipsTextWithoutRequiredLiteral() {
+        ContentMatcher m = ContentMatcher.compile(List.of("jdbc:\\w+://"), true, true);
+        assertTrue(m.hasPrefilter());
+
+        ContentMatcher.Result miss = m.findAll("sin conexiones aquí", 10);
+        assertTrue(miss.matches().isEmpty());
+        assertTrue(miss.skippedByPrefilter());
+
+        ContentMatcher.Result hit = m.findAll(TEXT, 10);
+        assertEquals(1, hit.matches().size());
+        assertFalse(hit.skippedByPrefilter());
+    }
+
+    @Test
+    void contextLinesAroundMatch() {
+        int offset = TEXT.indexOf("jdbc:mysql");
+
+        assertEquals(List.of("spring:", "  datasource:"), ContentMatcher.linesBefore(TEXT, offset, 5));
+        assertEquals(List.of("    URL2: JDBC:postgresql://db"), ContentMatcher.linesAfter(TEXT, offset, 5));
+        assertTrue(ContentMatcher.linesBefore(TEXT, 0, 2).isEmpty());
+    }
+
+    @Test
+    void invalidRegexIsRejected() {
+        assertThrows(PatternSyntaxException.class, () -> ContentMatcher.compile(List.of("a("), true, false));
+    }
+}
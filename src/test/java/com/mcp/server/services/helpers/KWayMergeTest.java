@@ -0,0 +1,66 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KWayMergeTest {
+
+    @Test
+    void mergesDescendingSourcesAndAppliesGlobalSkipTop() {
+        List<KWayMerge.Source<Integer>> sources = List.of(
+                source(List.of(9, 6, 3), 3, List.of()),
+                source(List.of(8, 5), 3, List.of()),
+                source(List.of(7, 4, 1), 3, List.of()));
+
+        KWayMerge.Result<Integer> result = KWayMerge.merge(sources, Comparator.<Integer>reverseOrder(), 2, 4);
+
+        assertEquals(List.of(7, 6, 5, 4), result.items());
+        assertTrue(result.hasMore());
+    }
+
+    @Test
+    void fetchesFurtherPagesOnlyWhenConsumed() {
+        List<Integer> requestedOffsets = new ArrayList<>();
+        List<Integer> all = List.of(20, 18, 16, 14, 12, 10);
+        KWayMerge.Source<Integer> paged = new KWayMerge.Source<>(all.subList(0, 2), 2, (offset, limit) -> {
+            requestedOffsets.add(offset);
+            return all.subList(Math.min(offset, all.size()), Math.min(offset + limit, all.size()));
+        });
+        KWayMerge.Source<Integer> untouched = new KWayMerge.Source<>(List.of(1), 2, (offset, limit) -> {
+            throw new AssertionError("no debe pedir más páginas de una fuente agotada");
+        });
+
+        KWayMerge.Result<Integer> result = KWayMerge.merge(List.of(paged, untouched), Comparator.<Integer>reverseOrder(), 0, 3);
+
+        assertEquals(List.of(20, 18, 16), result.items());
+        assertEquals(List.of(2), requestedOffsets);
+        assertEquals(2, paged.pages());
+        assertEquals(3, paged.consumed());
+        assertEquals(0, untouched.consumed());
+        assertTrue(result.hasMore());
+    }
+
+    @Test
+    void reportsNoMoreWhenEverySourceIsDrained() {
+        List<KWayMerge.Source<Integer>> sources = List.of(
+                source(List.of(3, 1), 5, List.of()),
+                source(List.of(2), 5, List.of()));
+
+        KWayMerge.Result<Integer> result = KWayMerge.merge(sources, Comparator.<Integer>reverseOrder(), 0, 10);
+
+        assertEquals(List.of(3, 2, 1), result.items());
+        assertFalse(result.hasMore());
+        assertTrue(sources.get(0).exhausted());
+    }
+
+    private static KWayMerge.Source<Integer> source(List<Integer> firstPage, int requested, List<Integer> rest) {
+        return new KWayMerge.Source<>(firstPage, requested, (offset, limit) -> rest);
+    }
+}
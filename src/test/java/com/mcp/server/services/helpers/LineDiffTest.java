@@ -0,0 +1,81 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineDiffTest {
+
+    @Test
+    void producesUnifiedHunkWithContext() {
+        LineDiff.FileDiff diff = LineDiff.compare("a\nb\nc\nd\ne\n", "a\nb\nX\nd\ne\n", 1, 100);
+
+        assertEquals(1, diff.hunks().size());
+        LineDiff.Hunk hunk = diff.hunks().get(0);
+        assertEquals("@@ -2,3 +2,3 @@", hunk.header());
+        assertEquals(List.of(" b", "-c", "+X", " d"), hunk.lines());
+        assertEquals(1, diff.added());
+        assertEquals(1, diff.removed());
+        assertFalse(diff.fallback());
+    }
+
+    @Test
+    void newFileStartsAtZeroOnOldSide() {
+        LineDiff.FileDiff diff = LineDiff.compare("", "x\r\ny", 3, 100);
+
+        assertEquals("@@ -0,0 +1,2 @@", diff.hunks().get(0).header());
+        assertEquals(List.of("+x", "+y"), diff.hunks().get(0).lines());
+    }
+
+    @Test
+    void minimalScriptReconstructsBothSides() {
+        String oldText = String.join("\n", "a", "b", "c", "a", "b", "b", "a");
+        String newText = String.join("\n", "c", "b", "a", "b", "a", "c");
+        LineDiff.FileDiff diff = LineDiff.compare(oldText, newText, 10, 100);
+
+        assertEquals(3, diff.removed());
+        assertEquals(2, diff.added());
+        List<String> rebuiltOld = new ArrayList<>();
+        List<String> rebuiltNew = new ArrayList<>();
+        for (String line : diff.hunks().get(0).lines()) {
+            if (!line.startsWith("+")) rebuiltOld.add(line.substring(1));
+            if (!line.startsWith("-")) rebuiltNew.add(line.substring(1));
+        }
+        assertEquals(LineDiff.lines(oldText), rebuiltOld);
+        assertEquals(LineDiff.lines(newText), rebuiltNew);
+    }
+
+    @Test
+    void fallsBackToReplacementWhenEditDistanceExceedsLimit() {
+        LineDiff.FileDiff diff = LineDiff.compare("k\na\nb\nk", "k\nc\nd\nk", 0, 1);
+
+        assertTrue(diff.fallback());
+        assertEquals(List.of("-a", "-b", "+c", "+d"), diff.hunks().get(0).lines());
+        assertEquals("@@ -2,2 +2,2 @@", diff.hunks().get(0).header());
+    }
+
+    @Test
+    void budgetEmitsWholeHunksUntilExhausted() {
+        StringBuilder oldText = new StringBuilder();
+        StringBuilder newText = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            oldText.append("line").append(i).append('\n');
+            newText.append(i == 5 || i == 30 ? "changed" + i : "line" + i).append('\n');
+        }
+        LineDiff.FileDiff diff = LineDiff.compare(oldText.toString(), newText.toString(), 2, 100);
+        assertEquals(2, diff.hunks().size());
+
+        LineDiff.Budget budget = new LineDiff.Budget(10, 10_000);
+        LineDiff.Rendered rendered = budget.render(diff);
+
+        assertEquals(1, rendered.hunks());
+        assertTrue(rendered.truncated());
+        assertTrue(budget.exhausted());
+        assertTrue(rendered.text().startsWith("@@ -4,5 +4,5 @@\n line3\n line4\n-line5\n+changed5\n"));
+    }
+}
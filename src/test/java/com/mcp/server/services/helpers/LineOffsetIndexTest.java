@@ -0,0 +1,65 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineOffsetIndexTest {
+
+    private static String lines(int from, int to, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i <= to; i++) sb.append("line ").append(i).append(separator);
+        return sb.toString();
+    }
+
+    @Test
+    void readsWindowsAcrossCheckpointsWithCrLf() throws Exception {
+        Path dir = Files.createTempDirectory("line-offset-index");
+        Path file = dir.resolve("log.txt");
+        Files.writeString(file, lines(1, 2000, "\r\n"), StandardCharsets.UTF_8);
+
+        LineOffsetIndex index = LineOffsetIndex.build(file);
+        assertEquals(2000, index.totalLines());
+
+        LineOffsetIndex.Window window = index.read(file, LineOffsetIndex.STRIDE, 3);
+        assertEquals(List.of("line 512", "line 513", "line 514"), window.lines());
+        assertEquals(514, window.lineEnd());
+        assertTrue(window.hasMore());
+
+        LineOffsetIndex.Window tail = index.tail(file, 2);
+        assertEquals(List.of("line 1999", "line 2000"), tail.lines());
+        assertEquals(1999, tail.lineStart());
+        assertFalse(tail.hasMore());
+
+        assertTrue(index.read(file, 2001, 10).lines().isEmpty());
+    }
+
+    @Test
+    void countsUnterminatedLastLineAndAppendsGrowth() throws Exception {
+        Path dir = Files.createTempDirectory("line-offset-index");
+        Path file = dir.resolve("log.txt");
+        Files.writeString(file, lines(1, 600, "\n") + "partial", StandardCharsets.UTF_8);
+
+        LineOffsetIndex index = LineOffsetIndex.build(file);
+        assertEquals(601, index.totalLines());
+        assertEquals(List.of("partial"), index.tail(file, 1).lines());
+
+        Files.writeString(file, " done\n" + lines(602, 1100, "\n"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        // El índice anterior sólo lee hasta los bytes que cubre
+        assertEquals(List.of("partial"), index.tail(file, 1).lines());
+
+        LineOffsetIndex grown = index.append(file);
+        assertEquals(1100, grown.totalLines());
+        assertEquals(List.of("partial done", "line 602"), grown.read(file, 601, 2).lines());
+        assertEquals(List.of("line 1100"), grown.tail(file, 1).lines());
+        assertEquals(Files.size(file), grown.bytes());
+    }
+}
@@ -0,0 +1,46 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogFollowCursorTest {
+
+    @Test
+    void roundTripsDeliveredLinesAndResetsIdleOnContent() {
+        LogFollowCursor first = LogFollowCursor.initial().advance(Map.of(5, 120, 3, 40), true);
+        LogFollowCursor decoded = LogFollowCursor.decode(first.encode());
+
+        assertEquals(Map.of(3, 40, 5, 120), decoded.deliveredByLog());
+        assertEquals(0, decoded.delivered(9));
+        assertEquals(0, decoded.idlePolls());
+
+        LogFollowCursor next = decoded.advance(Map.of(5, 180), true);
+        assertEquals(180, next.delivered(5));
+        assertEquals(40, next.delivered(3));
+    }
+
+    @Test
+    void backsOffWhileIdleUpToTheCap() {
+        LogFollowCursor cursor = LogFollowCursor.initial();
+        assertEquals(LogFollowCursor.MIN_POLL_MS, cursor.nextPollAfterMs());
+
+        cursor = LogFollowCursor.decode(cursor.advance(Map.of(), false).encode());
+        assertEquals(1, cursor.idlePolls());
+        assertEquals(2 * LogFollowCursor.MIN_POLL_MS, cursor.nextPollAfterMs());
+
+        for (int i = 0; i < 10; i++) cursor = cursor.advance(Map.of(), false);
+        assertEquals(LogFollowCursor.MAX_POLL_MS, cursor.nextPollAfterMs());
+        assertEquals(0, cursor.advance(Map.of(1, 1), true).idlePolls());
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> LogFollowCursor.decode("abc"));
+        assertThrows(IllegalArgumentException.class, () -> LogFollowCursor.decode("f1.!!"));
+        assertEquals(LogFollowCursor.initial(), LogFollowCursor.decode(" "));
+    }
+}
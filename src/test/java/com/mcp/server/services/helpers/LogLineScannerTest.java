@@ -0,0 +1,53 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogLineScannerTest {
+
+    private static Path log(String content) throws Exception {
+        Path file = Files.createTempDirectory("log-line-scanner").resolve("log.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void stopsAfterMaxHitsKeepingContext() throws Exception {
+        Path file = log("start\nstep a\n##[error] first\nmid\n##[error] second\nafter\n##[error] third\nend\n");
+        ContentMatcher matcher = ContentMatcher.compile(List.of("##[error]"), false, true);
+
+        LogLineScanner.Result result = LogLineScanner.scan(file, matcher, 2, 1, 0);
+
+        assertEquals(2, result.hits().size());
+        LogLineScanner.Hit first = result.hits().get(0);
+        assertEquals(3, first.line());
+        assertEquals(1, first.column());
+        assertEquals(List.of("step a"), first.before());
+        assertEquals(List.of("mid"), first.after());
+        assertEquals(List.of("after"), result.hits().get(1).after());
+        assertTrue(result.truncated());
+        assertEquals(6, result.linesScanned());
+    }
+
+    @Test
+    void regexMatchesAreReportedOncePerLineWithoutTruncation() throws Exception {
+        Path file = log("ok\r\nTest FAILED: x FAILED again\r\nexit code 137");
+        ContentMatcher matcher = ContentMatcher.compile(List.of("FAILED", "exit code [1-9]\\d*"), true, false);
+
+        LogLineScanner.Result result = LogLineScanner.scan(file, matcher, 10, 0, 8);
+
+        assertEquals(2, result.hits().size());
+        assertEquals(6, result.hits().get(0).column());
+        assertEquals("Test FAI…", result.hits().get(0).text());
+        assertEquals(1, result.hits().get(1).patternIndex());
+        assertFalse(result.truncated());
+    }
+}
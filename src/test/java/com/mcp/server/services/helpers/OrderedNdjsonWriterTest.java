@@ -0,0 +1,34 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedNdjsonWriterTest {
+
+    @Test
+    void blocksAreWrittenInOrderRegardlessOfCompletionOrder() throws Exception {
+        Path out = Files.createTempDirectory("ndjson-test").resolve("sub/batch.ndjson");
+        try (OrderedNdjsonWriter writer = new OrderedNdjsonWriter(out, 3)) {
+            writer.complete(2, List.of("{\"i\":4}"));
+            writer.complete(1, List.of("{\"i\":2}", "{\"i\":3}"));
+            assertFalse(writer.isComplete());
+            assertEquals(0L, writer.lines());
+
+            writer.complete(0, List.of("{\"i\":0}", "{\"i\":1}"));
+            writer.complete(1, List.of("{\"duplicado\":true}"));
+            assertTrue(writer.isComplete());
+            assertEquals(5L, writer.lines());
+        }
+
+        List<String> lines = Files.readAllLines(out, StandardCharsets.UTF_8);
+        assertEquals(List.of("{\"i\":0}", "{\"i\":1}", "{\"i\":2}", "{\"i\":3}", "{\"i\":4}"), lines);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathMatcherTest {
+
+    private static CompactTree tree(String... paths) {
+        CompactTree.Builder builder = CompactTree.builder("/");
+        for (String p : paths) {
+            boolean folder = p.endsWith("/");
+            builder.addItem(Map.of("path", folder ? p.substring(0, p.length() - 1) : p, "isFolder", folder));
+        }
+        return builder.build();
+    }
+
+    @Test
+    void combinesIncludeExcludeRegexAndExtensions() {
+        PathMatcher matcher = PathMatcher.builder()
+                .include("**/*.java")
+                .include("**/*.yml")
+                .exclude("**/generated/**")
+                .extension(".JAVA")
+                .build();
+
+        assertTrue(matcher.matches("/src/App.java"));
+        assertFalse(matcher.matches("/src/generated/Dto.java"));
+        assertFalse(matcher.matches("/conf/app.yml"));
+        assertFalse(matcher.matches("/README.md"));
+
+        PathMatcher byRegex = PathMatcher.builder().regex(PathMatcher.regex("/test/")).build();
+        assertTrue(byRegex.matches("/src/test/FooTest.java"));
+        assertFalse(byRegex.matches("/src/main/Foo.java"));
+    }
+
+    @Test
+    void prunesExcludedAndUnreachableDirectories() {
+        CompactTree tree = tree(
+                "/src/", "/src/main/", "/src/main/App.java",
+                "/src/main/node_modules/", "/src/main/node_modules/lib/x.java",
+                "/docs/", "/docs/Guide.java", "/Root.java");
+
+        PathMatcher.Selection selection = PathMatcher.builder()
+                .include("/src/**/*.java")
+                .exclude("**/node_modules/**")
+                .build()
+                .selectFiles(tree);
+
+        assertArrayEquals(new int[]{2}, selection.files());
+        assertEquals(3, selection.prunedDirectories());
+        assertEquals(2, selection.evaluatedFiles());
+    }
+
+    @Test
+    void includeWithoutLiteralPrefixDisablesIncludePruning() {
+        CompactTree tree = tree("/a/", "/a/x.yml", "/b/", "/b/y.yml");
+
+        PathMatcher.Selection selection = PathMatcher.builder()
+                .include("/a/*.yml")
+                .include("**/y.yml")
+                .build()
+                .selectFiles(tree);
+
+        assertArrayEquals(new int[]{1, 3}, selection.files());
+        assertEquals(0, selection.prunedDirectories());
+        assertEquals("/src/", PathMatcher.literalDirectoryPrefix("/SRC/**/*.java"));
+        assertEquals("", PathMatcher.literalDirectoryPrefix("**/*.java"));
+    }
+
+    @Test
+    void reusesCompiledPatterns() {
+        assertSame(PathMatcher.glob("**/cache-test/*.txt"), PathMatcher.glob("**/cache-test/*.txt"));
+        assertTrue(PathMatcher.glob("**/cache-test/*.TXT").matcher("/x/cache-test/a.txt").matches());
+    }
+}
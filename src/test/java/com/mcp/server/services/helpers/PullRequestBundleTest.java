@@ -0,0 +1,85 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PullRequestBundleTest {
+
+    private static final Map<String, Object> ANA = Map.of("id", "u1", "displayName", "Ana", "uniqueName", "ana@x", "imageUrl", "http://img");
+
+    @Test
+    void identitiesAreReplacedByIdAndPublishedOnce() {
+        PullRequestBundle.Identities ids = new PullRequestBundle.Identities();
+        Map<String, Object> pr = Map.of(
+                "pullRequestId", 7,
+                "createdBy", ANA,
+                "reviewers", List.of(
+                        Map.of("id", "u2", "displayName", "Luis", "vote", 10, "reviewerUrl", "http://r"),
+                        Map.of("id", "u2", "displayName", "Luis", "vote", 10)));
+        List<Map<String, Object>> threads = List.of(Map.of(
+                "id", 1,
+                "comments", List.of(Map.of("id", 1, "author", ANA, "content", "ok"))));
+
+        Map<String, Object> compact = PullRequestBundle.pullRequest(pr, ids);
+        List<Map<String, Object>> reviewers = PullRequestBundle.reviewers(pr, ids);
+        List<Map<String, Object>> compactThreads = PullRequestBundle.withIdentityRefs(threads, ids);
+
+        assertEquals("u1", compact.get("createdBy"));
+        assertFalse(compact.containsKey("reviewers"));
+        assertEquals(List.of(Map.of("id", "u2", "vote", 10)), reviewers);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> comments = (List<Map<String, Object>>) compactThreads.get(0).get("comments");
+        assertEquals("u1", comments.get(0).get("author"));
+        assertEquals(Set.of("u1", "u2"), ids.asMap().keySet());
+        assertEquals(Map.of("displayName", "Ana", "uniqueName", "ana@x"), ids.asMap().get("u1"));
+    }
+
+    @Test
+    void statusesKeepLatestPerContextAndChangesOnePerPath() {
+        PullRequestBundle.Identities ids = new PullRequestBundle.Identities();
+        List<Map<String, Object>> statuses = PullRequestBundle.latestStatuses(List.of(
+                Map.of("id", 1, "state", "pending", "context", Map.of("genre", "ci", "name", "build")),
+                Map.of("id", 3, "state", "succeeded", "context", Map.of("genre", "ci", "name", "build")),
+                Map.of("id", 2, "state", "failed", "context", Map.of("genre", "ci", "name", "lint"))), ids);
+        assertEquals(2, statuses.size());
+        assertEquals("succeeded", statuses.get(0).get("state"));
+
+        List<Map<String, Object>> changes = PullRequestBundle.changes(List.of(
+                Map.of("changeType", "edit", "item", Map.of("path", "/a.txt", "objectId", "n1", "originalObjectId", "o1")),
+                Map.of("changeType", "edit, rename", "item", Map.of("path", "/a.txt", "objectId", "n2"), "originalPath", "/old.txt"),
+                Map.of("changeType", "add", "item", Map.of("path", "/b.txt", "objectId", "n3"))));
+        assertEquals(2, changes.size());
+        assertEquals("n2", changes.get(0).get("objectId"));
+        assertEquals("/old.txt", changes.get(0).get("originalPath"));
+
+        List<Map<String, Object>> labels = PullRequestBundle.uniqueBy(List.of(
+                Map.of("name", "Bug"), Map.of("name", "bug"), Map.of("name", "infra")),
+                row -> row.get("name").toString());
+        assertEquals(2, labels.size());
+    }
+
+    @Test
+    void projectionKeepsRequestedFieldsAndSectionKey() {
+        Map<String, Set<String>> fields = PullRequestBundle.parseFields("pullRequest.title, threads.status");
+        Object pr = PullRequestBundle.project("pullRequest",
+                Map.of("pullRequestId", 7, "title", "Fix", "description", "largo"), fields);
+        Object threads = PullRequestBundle.project("threads",
+                List.of(Map.of("id", 1, "status", "active", "comments", List.of())), fields);
+        Object labels = PullRequestBundle.project("labels", List.of(Map.of("name", "bug", "active", true)), fields);
+
+        assertEquals(Map.of("pullRequestId", 7, "title", "Fix"), pr);
+        assertEquals(List.of(Map.of("id", 1, "status", "active")), threads);
+        assertEquals(List.of(Map.of("name", "bug", "active", true)), labels);
+        assertThrows(IllegalArgumentException.class, () -> PullRequestBundle.parseFields("title"));
+        assertThrows(IllegalArgumentException.class, () -> PullRequestBundle.parseFields("builds.id"));
+        assertTrue(PullRequestBundle.parseFields("").isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PullRequestDashboardTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-10T12:00:00Z");
+
+    private static Map<String, Object> pr(int id, String created, boolean draft, List<Map<String, Object>> reviewers) {
+        return Map.of(
+                "pullRequestId", id,
+                "title", "PR " + id,
+                "creationDate", created,
+                "isDraft", draft,
+                "targetRefName", "refs/heads/main",
+                "repository", Map.of("name", "repo"),
+                "createdBy", Map.of("displayName", "Autor"),
+                "reviewers", reviewers);
+    }
+
+    private static Map<String, Object> reviewer(String id, int vote, boolean required) {
+        return Map.of("id", id, "vote", vote, "isRequired", required);
+    }
+
+    @Test
+    void summarizesVotesFromEmbeddedReviewers() {
+        Map<String, Object> row = PullRequestDashboard.summarize("Alpha", pr(7, "2024-05-01T12:00:00Z", false, List.of(
+                reviewer("ME", 0, true),
+                reviewer("other", 10, false),
+                reviewer("third", -5, true))), "me", NOW);
+
+        assertEquals("noVote", row.get("myVote"));
+        assertEquals(true, row.get("meRequired"));
+        assertEquals(9L, row.get("ageDays"));
+        assertEquals("main", row.get("targetBranch"));
+        assertEquals(2, row.get("requiredPending"));
+        assertEquals(1, ((Map<?, ?>) row.get("votes")).get("approved"));
+        assertEquals(100 + 50 + 9 - 20, row.get("priority"));
+    }
+
+    @Test
+    void sortsByPriorityOrAgeAndDropsHelperKeys() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(PullRequestDashboard.summarize("A", pr(1, "2024-04-01T00:00:00Z", true, List.of(reviewer("me", 0, false))), "me", NOW));
+        rows.add(PullRequestDashboard.summarize("A", pr(2, "2024-05-09T00:00:00Z", false, List.of(reviewer("me", 0, true))), "me", NOW));
+        rows.add(PullRequestDashboard.summarize("B", pr(3, "2024-05-01T00:00:00Z", false, List.of(reviewer("me", 10, false))), "me", NOW));
+
+        List<Object> byPriority = PullRequestDashboard.sort(rows, "priority").stream().map(r -> r.get("pullRequestId")).toList();
+        List<Map<String, Object>> byAge = PullRequestDashboard.sort(rows, "age");
+
+        assertEquals(List.of(2, 1, 3), byPriority);
+        assertEquals(List.of(1, 3, 2), byAge.stream().map(r -> r.get("pullRequestId")).toList());
+        assertFalse(byAge.get(0).containsKey("_createdMillis"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegexLiteralsTest {
+
+    @Test
+    void extractsRequiredLiteralsFromBranch() {
+        assertEquals(List.of("colo", "url"), RegexLiterals.requiredLiterals("colou?r.*url", 3));
+        assertEquals(List.of("abc", "def"), RegexLiterals.requiredLiterals("abc[0-9]+def", 3));
+        assertEquals(List.of("a.b.c"), RegexLiterals.requiredLiterals("\\Qa.b.c\\E", 3));
+        assertEquals(List.of("abc"), RegexLiterals.requiredLiterals("abcd{0,2}", 3));
+    }
+
+    @Test
+    void escapeOperandsAreNotTakenAsLiterals() {
+        assertEquals(List.of("BCD"), RegexLiterals.requiredLiterals("\\u0041BCD", 3));
+        assertEquals(List.of("BCD"), RegexLiterals.requiredLiterals("\\x41BCD", 3));
+        assertEquals(List.of("BCD"), RegexLiterals.requiredLiterals("\\x{41}BCD", 3));
+        assertEquals(List.of("BCD"), RegexLiterals.requiredLiterals("\\0101BCD", 3));
+        assertEquals(List.of("abc"), RegexLiterals.requiredLiterals("\\pLabc", 3));
+        assertEquals(List.of("abc"), RegexLiterals.requiredLiterals("(?<n>x)\\k<n>abc", 3));
+        assertEquals(List.of(List.of("BCD")), RegexLiterals.requiredByAlternative("\\u0041BCD", 3));
+    }
+
+    @Test
+    void splitsOnlyTopLevelAlternatives() {
+        assertEquals(List.of("jdbc:(postgresql|mysql)", "Proyecto\\s+de"),
+                RegexLiterals.splitTopLevelAlternatives("jdbc:(postgresql|mysql)|Proyecto\\s+de"));
+        assertEquals(List.of("[a|b]x", "y"), RegexLiterals.splitTopLevelAlternatives("[a|b]x|y"));
+    }
+
+    @Test
+    void inlineFlagsOrLiteralFreeAlternativeDisableExtraction() {
+        assertTrue(RegexLiterals.hasInlineFlags("(?i)datasource"));
+        assertNull(RegexLiterals.requiredByAlternative("(?i)datasource", 3));
+        assertNull(RegexLiterals.requiredByAlternative("foo|x.y", 3));
+        assertEquals(List.of(List.of("foo"), List.of("bar")), RegexLiterals.requiredByAlternative("foo|bar", 3));
+    }
+}
@@ -0,0 +1,49 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchRankingTest {
+
+    @Test
+    void topKKeepsBestScoresAndPrefersEarlierOnTies() {
+        SearchRanking.TopK<String> topK = new SearchRanking.TopK<>(2);
+        assertTrue(topK.offer(1.0, "a"));
+        assertTrue(topK.offer(3.0, "b"));
+        assertTrue(topK.offer(2.0, "c"));
+        assertFalse(topK.offer(2.0, "d"));
+        assertFalse(topK.offer(0.5, "e"));
+
+        assertEquals(List.of("b", "c"), topK.sortedDescending());
+        assertEquals(2.0, topK.threshold());
+        assertEquals(5L, topK.offered());
+        assertEquals(3L, topK.dropped());
+    }
+
+    @Test
+    void pathRelevanceKeyFileAndDensityRaiseScore() {
+        List<String> terms = SearchRanking.rankingTerms(List.of("datasource"), false);
+
+        double inName = SearchRanking.score("/src/DataSourceConfig.java", terms, 1, 100, false);
+        double elsewhere = SearchRanking.score("/src/App.java", terms, 1, 100, false);
+        double keyFile = SearchRanking.score("/src/main/resources/application.yml", terms, 1, 100, true);
+        double dense = SearchRanking.score("/src/App.java", terms, 5, 10, false);
+        double vendored = SearchRanking.score("/node_modules/lib/App.java", terms, 1, 100, false);
+
+        assertTrue(inName > elsewhere);
+        assertTrue(keyFile > elsewhere);
+        assertTrue(dense > elsewhere);
+        assertTrue(vendored < elsewhere);
+    }
+
+    @Test
+    void regexTermsComeFromRequiredLiterals() {
+        assertEquals(List.of("jdbc:", "mysql"), SearchRanking.rankingTerms(List.of("jdbc:\\w+|MySQL"), true));
+        assertEquals(3, SearchRanking.lineCount("a\nb\nc\n"));
+    }
+}
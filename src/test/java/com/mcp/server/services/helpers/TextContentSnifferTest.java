@@ -0,0 +1,42 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextContentSnifferTest {
+
+    @Test
+    void detectsKnownBinarySignatures() {
+        byte[] png = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        byte[] zip = new byte[]{'P', 'K', 0x03, 0x04, 'a', 'b'};
+
+        assertEquals("png", TextContentSniffer.binarySignature(png, png.length));
+        assertEquals("zip", TextContentSniffer.binarySignature(zip, zip.length));
+        assertTrue(TextContentSniffer.looksBinary(zip, zip.length));
+    }
+
+    @Test
+    void acceptsUtf8TextAndRejectsNulBytes() {
+        byte[] text = "línea 1\nlínea 2\r\n\ttab".getBytes(StandardCharsets.UTF_8);
+        byte[] nul = new byte[]{'a', 'b', 0, 'c'};
+
+        assertNull(TextContentSniffer.binarySignature(text, text.length));
+        assertFalse(TextContentSniffer.looksBinary(text, text.length));
+        assertTrue(TextContentSniffer.looksBinary(nul, nul.length));
+    }
+
+    @Test
+    void classifiesContentTypesAndExtensions() {
+        assertTrue(TextContentSniffer.isClearlyBinaryContentType("application/zip"));
+        assertFalse(TextContentSniffer.isClearlyBinaryContentType("application/json; charset=utf-8"));
+        assertTrue(TextContentSniffer.hasBinaryExtension("/assets/logo.PNG"));
+        assertFalse(TextContentSniffer.hasBinaryExtension("/src/app.ts"));
+        assertFalse(TextContentSniffer.hasBinaryExtension("/Makefile"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadDeltaTest {
+
+    private static Map<String, Object> comment(long id, String updated, boolean deleted) {
+        return Map.of("id", id, "content", "c" + id, "publishedDate", updated, "lastUpdatedDate", updated, "isDeleted", deleted);
+    }
+
+    private static Map<String, Object> thread(long id, String updated, boolean deleted, List<Map<String, Object>> comments) {
+        return Map.of("id", id, "status", "active", "lastUpdatedDate", updated, "isDeleted", deleted, "comments", comments);
+    }
+
+    @Test
+    void initialSyncReturnsEverythingAndRecordsWatermark() {
+        ThreadDelta.Result result = ThreadDelta.diff(List.of(
+                thread(1, "2024-05-01T10:00:00Z", false, List.of(comment(1, "2024-05-01T10:00:00Z", false))),
+                thread(2, "2024-05-01T11:00:00.5Z", false, List.of(comment(1, "2024-05-01T11:00:00.5Z", false)))), null, null);
+
+        assertEquals("initial", result.mode());
+        assertEquals(2, result.threads().size());
+        assertTrue(result.tombstones().isEmpty());
+        assertEquals(Instant.parse("2024-05-01T11:00:00.5Z"), result.snapshot().watermark());
+    }
+
+    @Test
+    void snapshotSyncReturnsOnlyChangedCommentsAndTombstones() {
+        ThreadDelta.Snapshot first = ThreadDelta.diff(List.of(
+                thread(1, "2024-05-01T10:00:00Z", false, List.of(comment(1, "2024-05-01T10:00:00Z", false))),
+                thread(2, "2024-05-01T10:00:00Z", false, List.of(
+                        comment(1, "2024-05-01T10:00:00Z", false),
+                        comment(2, "2024-05-01T10:00:00Z", false))),
+                thread(3, "2024-05-01T10:00:00Z", false, List.of())), null, null).snapshot();
+
+        ThreadDelta.Result result = ThreadDelta.diff(List.of(
+                thread(1, "2024-05-01T10:00:00Z", false, List.of(comment(1, "2024-05-01T10:00:00Z", false))),
+                thread(2, "2024-05-01T12:00:00Z", false, List.of(
+                        comment(1, "2024-05-01T10:00:00Z", false),
+                        comment(2, "2024-05-01T12:00:00Z", true),
+                        comment(3, "2024-05-01T12:00:00Z", false)))), first, null);
+
+        assertEquals("snapshot", result.mode());
+        assertEquals(1, result.threads().size());
+        Map<String, Object> changed = result.threads().get(0);
+        assertEquals(2L, ((Number) changed.get("id")).longValue());
+        assertEquals(List.of(3L), ((List<?>) changed.get("comments")).stream().map(c -> ((Number) ((Map<?, ?>) c).get("id")).longValue()).toList());
+        assertEquals(2, changed.get("commentsTotal"));
+        assertEquals(List.of(
+                Map.of("threadId", 2L, "commentId", 2L, "deletedAt", "2024-05-01T12:00:00Z"),
+                Map.of("threadId", 3L)), result.tombstones());
+    }
+
+    @Test
+    void sinceFiltersByDateAndReportsDeletedThreads() {
+        ThreadDelta.Result result = ThreadDelta.diff(List.of(
+                thread(1, "2024-05-01T09:00:00Z", false, List.of(comment(1, "2024-05-01T09:00:00Z", false))),
+                thread(2, "2024-05-01T11:00:00Z", true, List.of()),
+                thread(3, "2024-05-01T11:30:00", false, List.of(comment(1, "2024-05-01T11:30:00", false)))),
+                null, Instant.parse("2024-05-01T10:00:00Z"));
+
+        assertEquals("since", result.mode());
+        assertEquals(1, result.threads().size());
+        assertEquals(3L, ((Number) result.threads().get(0).get("id")).longValue());
+        assertEquals(List.of(Map.of("threadId", 2L, "deletedAt", "2024-05-01T11:00:00Z")), result.tombstones());
+        assertEquals(Instant.parse("2024-05-01T11:30:00Z"), result.snapshot().watermark());
+    }
+}
@@ -0,0 +1,66 @@
+package com.mcp.server.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipManifestTest {
+
+    private static Path sampleZip(Path dir) throws Exception {
+        Path zip = dir.resolve("repo.zip");
+        try (OutputStream os = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(os)) {
+            out.putNextEntry(new ZipEntry("src/"));
+            out.closeEntry();
+            for (String[] e : new String[][]{
+                    {"src/App.java", "class App {}"},
+                    {"conf/application.yml", "spring:\n  main: true\n"},
+                    {"../evil.yml", "x"}}) {
+                out.putNextEntry(new ZipEntry(e[0]));
+                out.write(e[1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    @Test
+    void listsCentralDirectoryWithSizeAndCrc() throws Exception {
+        Path zip = sampleZip(Files.createTempDirectory("zip-manifest"));
+
+        ZipManifest.Listing listing = ZipManifest.list(zip, 2);
+
+        assertEquals(4, listing.totalEntries());
+        assertEquals(2, listing.entries().size());
+        assertEquals("/src/", listing.entries().get(0).get("path"));
+        assertEquals(true, listing.entries().get(0).get("directory"));
+        assertEquals("/src/App.java", listing.entries().get(1).get("path"));
+        assertEquals(12L, listing.entries().get(1).get("size"));
+        assertEquals(8, listing.entries().get(1).get("crc").toString().length());
+    }
+
+    @Test
+    void extractsOnlyMatchingEntriesAndRejectsZipSlip() throws Exception {
+        Path dir = Files.createTempDirectory("zip-extract");
+        Path zip = sampleZip(dir);
+        Path target = dir.resolve("out");
+
+        ZipManifest.Extraction result = ZipManifest.extract(zip, p -> p.endsWith(".yml"), target, 1024L);
+
+        assertEquals(List.of("/conf/application.yml"), result.extracted());
+        assertEquals(List.of("/../evil.yml"), result.rejected());
+        assertTrue(Files.exists(target.resolve("conf/application.yml")));
+        assertFalse(Files.exists(target.resolve("src/App.java")));
+        assertFalse(Files.exists(dir.resolve("evil.yml")));
+        assertFalse(result.limited());
+    }
+}
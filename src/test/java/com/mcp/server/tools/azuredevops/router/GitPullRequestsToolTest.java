@@ -1,6 +1,8 @@
 package com.mcp.server.tools.azuredevops.router;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class GitPullRequestsToolTest {
@@ -76,11 +78,33 @@ public class GitPullRequestsToolTest {
         }
     }
 
+    public void testAllStatusesOrderIsNewestFirst() {
+        try {
+            List<Map<String, Object>> prs = new ArrayList<>(List.of(
+                    Map.of("pullRequestId", 10, "creationDate", "2024-03-01T10:00:00.5Z"),
+                    Map.of("pullRequestId", 12, "creationDate", "2024-03-01T10:00:00.123Z"),
+                    Map.of("pullRequestId", 11, "creationDate", "2024-03-01T10:00:00.123Z"),
+                    Map.of("pullRequestId", 9)
+            ));
+            prs.sort(GitPullRequestsTool.pullRequestOrder("creationDate"));
+            assert prs.get(0).get("pullRequestId").equals(10) : "creationDate más reciente primero";
+            assert prs.get(1).get("pullRequestId").equals(12) : "empate de creationDate se resuelve por ID descendente";
+            assert prs.get(3).get("pullRequestId").equals(9) : "sin creationDate va al final";
+
+            prs.sort(GitPullRequestsTool.pullRequestOrder("id"));
+            assert prs.get(0).get("pullRequestId").equals(12) : "orderBy=id ordena por ID descendente";
+            System.out.println("✓ testAllStatusesOrderIsNewestFirst passed");
+        } catch (Exception e) {
+            System.err.println("✗ testAllStatusesOrderIsNewestFirst failed: " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         GitPullRequestsToolTest test = new GitPullRequestsToolTest();
         test.testDefaultApiVersionForPrimaryEndpoints();
         test.testDefaultApiVersionForLegacyEndpoints();
         test.testVersionMappingIncludesDestructiveEndpoints();
         test.testApiVersionOverrideWins();
+        test.testAllStatusesOrderIsNewestFirst();
     }
 }
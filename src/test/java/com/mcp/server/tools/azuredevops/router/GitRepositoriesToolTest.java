@@ -278,6 +278,99 @@ public class GitRepositoriesToolTest {
         }
     }
 
+    public void testWindowCacheStatsExposeCounters() {
+        try {
+            var tool = new GitRepositoriesTool(null);
+            Map<String, Object> stats = tool.windowCacheStats();
+
+            assert stats.containsKey("cacheBytes") : "Stats debe incluir cacheBytes";
+            assert stats.containsKey("maxCacheBytes") : "Stats debe incluir maxCacheBytes";
+            assert stats.containsKey("hits") : "Stats debe incluir hits";
+            assert stats.containsKey("evictedFiles") : "Stats debe incluir evictedFiles";
+            assert ((Long) stats.get("cacheBytes")) >= 0L : "cacheBytes no puede ser negativo";
+
+            System.out.println("✓ testWindowCacheStatsExposeCounters passed");
+        } catch (Exception e) {
+            System.err.println("✗ testWindowCacheStatsExposeCounters failed: " + e.getMessage());
+        }
+    }
+
+    public void testPrewarmSkipsBinaryMetadata() {
+        try {
+            var tool = new GitRepositoriesTool(null);
+            Method method = GitRepositoriesTool.class.getDeclaredMethod("prewarmWindowCache",
+                    String.class, String.class, String.class, Map.class, Map.class, String.class);
+            method.setAccessible(true);
+
+            Map<String, Object> item = Map.of("contentMetadata", Map.of("isBinary", true));
+            String status = (String) method.invoke(tool, "Demo", "r1", "/logo.png", Map.of(), item, null);
+
+            assert "skipped".equals(status) : "No debe pre-calentar cache para contenido binario";
+
+            System.out.println("✓ testPrewarmSkipsBinaryMetadata passed");
+        } catch (Exception e) {
+            System.err.println("✗ testPrewarmSkipsBinaryMetadata failed: " + e.getMessage());
+        }
+    }
+
+    public void testDownloadResultMapsBinaryContent() {
+        try {
+            var tool = new GitRepositoriesTool(null);
+            Method method = GitRepositoriesTool.class.getDeclaredMethod("mapDownloadResult", Map.class);
+            method.setAccessible(true);
+
+            Object result = method.invoke(tool, Map.of("error", "BINARY_CONTENT", "detectedBy", "signature:zip", "bytesRead", 8192L));
+            Method successMethod = result.getClass().getDeclaredMethod("success");
+            Method errorCodeMethod = result.getClass().getDeclaredMethod("errorCode");
+            successMethod.setAccessible(true);
+            errorCodeMethod.setAccessible(true);
+
+            assert !((Boolean) successMethod.invoke(result)) : "Descarga binaria debe fallar";
+            assert "BINARY_NOT_SUPPORTED".equals(errorCodeMethod.invoke(result)) : "Código esperado BINARY_NOT_SUPPORTED";
+
+            System.out.println("✓ testDownloadResultMapsBinaryContent passed");
+        } catch (Exception e) {
+            System.err.println("✗ testDownloadResultMapsBinaryContent failed: " + e.getMessage());
+        }
+    }
+
+    public void testRepositoryScopeValidation() {
+        try {
+            var tool = new GitRepositoriesTool(null);
+            var combined = tool.execute(Map.of("operation", "search_content", "project", "Demo",
+                    "repositoryScope", "project", "repositoryId", "r1", "textPattern", "x"));
+            assert Boolean.TRUE.equals(combined.get("isError")) : "repositoryScope no se combina con repositoryId";
+
+            var invalid = tool.execute(Map.of("operation", "search_files", "project", "Demo", "repositoryScope", "team"));
+            assert Boolean.TRUE.equals(invalid.get("isError")) : "repositoryScope inválido debe fallar";
+
+            var noProject = tool.execute(Map.of("operation", "find_files", "repositoryScope", "project"));
+            assert Boolean.TRUE.equals(noProject.get("isError")) : "repositoryScope=project requiere project";
+
+            System.out.println("✓ testRepositoryScopeValidation passed");
+        } catch (Exception e) {
+            System.err.println("✗ testRepositoryScopeValidation failed: " + e.getMessage());
+        }
+    }
+
+    public void testPreviewBudgetGivesShortFilesInFull() {
+        try {
+            var tool = new GitRepositoriesTool(null);
+            Method method = GitRepositoriesTool.class.getDeclaredMethod("allocatePreviewBudget", int[].class, int.class);
+            method.setAccessible(true);
+
+            int[] allocation = (int[]) method.invoke(tool, new int[]{100, 5000, 0, 5000}, 3000);
+
+            assert allocation[0] == 100 : "Archivo corto debe mostrarse completo";
+            assert allocation[1] == 1450 && allocation[3] == 1450 : "El sobrante se reparte entre archivos largos";
+            assert allocation[2] == 0 : "Archivo sin contenido no consume presupuesto";
+
+            System.out.println("✓ testPreviewBudgetGivesShortFilesInFull passed");
+        } catch (Exception e) {
+            System.err.println("✗ testPreviewBudgetGivesShortFilesInFull failed: " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         GitRepositoriesToolTest test = new GitRepositoriesToolTest();
         test.testToolDefinition();
@@ -293,5 +386,10 @@ public class GitRepositoriesToolTest {
         test.testSearchRuntimeSettingsRaiseMaxResultsForPagination();
         test.testSearchRuntimeSettingsClampHardLimits();
         test.testSnippetHonorsRequestedMaxChars();
+        test.testWindowCacheStatsExposeCounters();
+        test.testPrewarmSkipsBinaryMetadata();
+        test.testDownloadResultMapsBinaryContent();
+        test.testRepositoryScopeValidation();
+        test.testPreviewBudgetGivesShortFilesInFull();
     }
 }
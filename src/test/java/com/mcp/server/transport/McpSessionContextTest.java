@@ -0,0 +1,70 @@
+package com.mcp.server.transport;
+
+import com.mcp.server.protocol.messages.McpNotification;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpSessionContextTest {
+
+    @Test
+    void progressIsSentOnlyWithTokenAndChannel() {
+        List<Object> sent = new ArrayList<>();
+
+        McpSessionContext.callWithSession("s1", sent::add, () ->
+                McpSessionContext.callRequest(1, null, () -> {
+                    McpSessionContext.reportProgress(1, 2d, "sin token");
+                    return null;
+                }));
+        McpSessionContext.callRequest(2, "tok", () -> {
+            McpSessionContext.reportProgress(1, 2d, "sin canal");
+            return null;
+        });
+        McpSessionContext.callWithSession("s1", sent::add, () ->
+                McpSessionContext.callRequest(3, "tok", () -> {
+                    McpSessionContext.reportProgress(1, 2d, "esperando");
+                    return null;
+                }));
+
+        assertEquals(1, sent.size());
+        McpNotification notification = (McpNotification) sent.get(0);
+        assertEquals("notifications/progress", notification.getMethod());
+        Map<?, ?> params = (Map<?, ?>) notification.getParams();
+        assertEquals("tok", params.get("progressToken"));
+        assertEquals(2d, params.get("total"));
+    }
+
+    @Test
+    void cancelInterruptsRunningRequestOfTheSameSession() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread worker = new Thread(() -> McpSessionContext.callWithSession("s1", () ->
+                McpSessionContext.callRequest(7, null, () -> {
+                    running.countDown();
+                    try {
+                        Thread.sleep(5_000L);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    return null;
+                })));
+        worker.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertFalse(McpSessionContext.cancel("s2", 7));
+        assertTrue(McpSessionContext.cancel("s1", 7));
+        worker.join(5_000L);
+
+        assertTrue(interrupted.get());
+        assertFalse(McpSessionContext.cancel("s1", 7));
+    }
+}